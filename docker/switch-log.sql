@@ -0,0 +1,12 @@
+-- Журнал переключений источников данных (сущность DbSwitchLog).
+-- Скрипт можно выполнять повторно: на существующей базе он только добавляет недостающие колонки.
+CREATE TABLE IF NOT EXISTS public.database_switch_log (
+    id          bigserial PRIMARY KEY,
+    switch_time timestamp NOT NULL
+);
+
+-- Решения политики разгрузки leader: источник, доля чтений на репликах и причина решения
+ALTER TABLE public.database_switch_log
+    ADD COLUMN IF NOT EXISTS data_source_key varchar(255),
+    ADD COLUMN IF NOT EXISTS read_share      integer,
+    ADD COLUMN IF NOT EXISTS reason          varchar(255);
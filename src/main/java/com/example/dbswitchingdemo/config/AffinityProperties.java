@@ -0,0 +1,22 @@
+package com.example.dbswitchingdemo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * <p>Настройки привязки ключей клиентов (арендатор, пользователь) к репликам через кольцо консистентного
+ * хеширования, которые загружаются из конфигурации с префиксом {@code app.affinity}.</p>
+ * <p>{@code tenantHeader} — заголовок HTTP-запроса выгрузки, по значению которого выбирается реплика.
+ * Запрос без заголовка получает реплику без привязки.</p>
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.affinity")
+public class AffinityProperties {
+    private int virtualNodes = 160;
+    private int maxAwaitingConnections = 4;
+    private String tenantHeader = "X-Tenant-Id";
+}
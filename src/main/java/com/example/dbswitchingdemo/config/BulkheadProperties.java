@@ -0,0 +1,60 @@
+package com.example.dbswitchingdemo.config;
+
+import com.example.dbswitchingdemo.enums.WorkloadClass;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * <p>Настройки изоляции нагрузки по источникам данных (bulkhead),
+ * которые загружаются из конфигурации с префиксом {@code app.bulkhead}.</p>
+ * <p>Для каждого источника данных общее число выданных соединений ограничено размером его пула,
+ * а внутри него у каждого класса нагрузки свой лимит. Ожидающие соединения запросы стоят в общей очереди
+ * по приоритету класса и сроку ожидания.</p>
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.bulkhead")
+public class BulkheadProperties {
+    private boolean enabled = true;
+    private int queueCapacity = 64;
+    private Limit oltp = new Limit(0, Duration.ofSeconds(2));
+    private Limit admin = new Limit(2, Duration.ofSeconds(5));
+    private Limit report = new Limit(4, Duration.ofSeconds(10));
+
+    /**
+     * Возвращает лимит класса нагрузки.
+     *
+     * @param workload класс нагрузки
+     * @return лимит класса
+     */
+    public Limit forWorkload(WorkloadClass workload) {
+        return switch (workload) {
+            case OLTP -> oltp;
+            case ADMIN -> admin;
+            case REPORT -> report;
+        };
+    }
+
+    @Getter
+    @Setter
+    public static class Limit {
+        /**
+         * Сколько соединений класс может держать одновременно; {@code 0} — без отдельного лимита (весь пул).
+         */
+        private int maxConcurrent;
+        private Duration maxWait;
+
+        public Limit() {
+        }
+
+        public Limit(int maxConcurrent, Duration maxWait) {
+            this.maxConcurrent = maxConcurrent;
+            this.maxWait = maxWait;
+        }
+    }
+}
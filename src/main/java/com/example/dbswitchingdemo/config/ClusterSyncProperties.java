@@ -0,0 +1,27 @@
+package com.example.dbswitchingdemo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * <p>Настройки распространения изменений топологии между экземплярами приложения через
+ * {@code LISTEN/NOTIFY} на leader, которые загружаются из конфигурации с префиксом {@code app.cluster-sync}.</p>
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.cluster-sync")
+public class ClusterSyncProperties {
+    private boolean enabled = false;
+    private String channel = "topology_changes";
+    private String instanceId = UUID.randomUUID().toString();
+    private Duration pollTimeout = Duration.ofMillis(500);
+    private Duration reconnectDelay = Duration.ofSeconds(2);
+    private int catchUpLimit = 100;
+    private int logRetention = 1000;
+}
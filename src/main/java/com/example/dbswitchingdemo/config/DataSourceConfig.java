@@ -1,5 +1,6 @@
 package com.example.dbswitchingdemo.config;
 
+import com.example.dbswitchingdemo.util.StatementStats;
 import com.zaxxer.hikari.HikariDataSource;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -7,6 +8,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 
+import javax.sql.DataSource;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -22,6 +24,10 @@ import java.util.Map;
 public class DataSourceConfig {
 
     private final DataSourceProperties dataSourceProperties;
+    private final StatementStatsProperties statementStatsProperties;
+    private final PoolProfileProperties poolProfileProperties;
+    private final BulkheadProperties bulkheadProperties;
+    private final DeadlineProperties deadlineProperties;
 
     /**
      * <p>Создает и настраивает экземпляр {@link HikariDataSource} для подключения к базе данных по указанному URL.</p>
@@ -40,6 +46,45 @@ public class DataSourceConfig {
         return dataSource;
     }
 
+    /**
+     * <p>Создает {@link HikariDataSource} с размером пула и режимом соединений из профиля роли
+     * ({@link PoolProfileProperties}). Если для роли профиль не задан, используются настройки Hikari по умолчанию.</p>
+     *
+     * @param url  URL подключения к базе данных.
+     * @param role роль члена кластера.
+     * @return настроенный экземпляр {@link HikariDataSource}.
+     */
+    public HikariDataSource createHikariDataSource(String url, String role) {
+        HikariDataSource dataSource = createHikariDataSource(url);
+        applyProfile(dataSource, role);
+        return dataSource;
+    }
+
+    /**
+     * <p>Создает {@link HikariDataSource}, который берет физические соединения из указанного источника данных,
+     * с профилем роли ({@link PoolProfileProperties}). Аутентификация настраивается в самом источнике.</p>
+     *
+     * @param dataSource источник физических соединений.
+     * @param role       роль, по которой выбирается профиль пула.
+     * @return настроенный экземпляр {@link HikariDataSource}.
+     */
+    public HikariDataSource createHikariDataSource(DataSource dataSource, String role) {
+        HikariDataSource hikariDataSource = new HikariDataSource();
+        hikariDataSource.setDataSource(dataSource);
+        applyProfile(hikariDataSource, role);
+        return hikariDataSource;
+    }
+
+    private void applyProfile(HikariDataSource dataSource, String role) {
+        PoolProfileProperties.Profile profile = poolProfileProperties.forRole(role);
+        if (profile != null) {
+            dataSource.setMaximumPoolSize(profile.getMaximumPoolSize());
+            dataSource.setMinimumIdle(Math.min(profile.getMinimumIdle(), profile.getMaximumPoolSize()));
+            dataSource.setReadOnly(profile.isReadOnly());
+            dataSource.setConnectionTimeout(profile.getConnectionTimeout().toMillis());
+        }
+    }
+
     /**
      * <p>Создает и настраивает {@link MultiRoutingDataSource}, который управляет маршрутизацией запросов
      * между несколькими источниками данных.</p>
@@ -51,7 +96,8 @@ public class DataSourceConfig {
     @Bean
     @Primary
     public MultiRoutingDataSource multiRoutingDataSource() {
-        MultiRoutingDataSource dsMultiRouting = new MultiRoutingDataSource();
+        MultiRoutingDataSource dsMultiRouting = new MultiRoutingDataSource(new StatementStats(statementStatsProperties),
+                bulkheadProperties, deadlineProperties);
         Map<Object, Object> targetDataSources = new HashMap<>();
 
         HikariDataSource dsFake = getHikariDataSourceForFakeDB();
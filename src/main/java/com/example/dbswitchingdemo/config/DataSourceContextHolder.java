@@ -1,5 +1,7 @@
 package com.example.dbswitchingdemo.config;
 
+import com.example.dbswitchingdemo.jfr.ContextSwitchEvent;
+
 import java.util.Optional;
 
 /**
@@ -7,6 +9,10 @@ import java.util.Optional;
  * Этот класс позволяет переключать источники данных в зависимости от потока, обеспечивая возможность динамического
  * выбора источника данных для каждого запроса.
  * <p>
+ * Помимо общего контекста поддерживается контекст текущего потока, который имеет приоритет над общим.
+ * Он используется для точечной маршрутизации отдельных операций (например, записи на leader),
+ * не затрагивая выбор источника данных для остальных потоков.
+ * <p>
  * Контекстом источника данных является строка, представляющая ключ источника данных, который может использоваться для
  * выбора правильной базы данных или соединения в зависимости от текущего контекста.
  */
@@ -14,6 +20,8 @@ public class DataSourceContextHolder {
 
     private static String contextHolder = null;
 
+    private static final ThreadLocal<String> threadContextHolder = new ThreadLocal<>();
+
     /**
      * Устанавливает текущий контекст источника данных.
      * <p>
@@ -23,18 +31,45 @@ public class DataSourceContextHolder {
      * @param dsKey ключ источника данных, представляющий текущее подключение
      */
     public static void setDataSourceContext(String dsKey) {
+        String previous = contextHolder;
         contextHolder = dsKey;
+        ContextSwitchEvent.emit(ContextSwitchEvent.GLOBAL, previous, dsKey);
     }
 
     /**
      * Возвращает текущий контекст источника данных.
      * <p>
-     * Если контекст был ранее установлен, возвращается его значение. Если контекст отсутствует, возвращается {@link Optional#empty()}.
+     * Если для текущего потока установлен собственный контекст, возвращается он. Иначе возвращается общий контекст,
+     * а если и он отсутствует — {@link Optional#empty()}.
      *
      * @return {@link Optional}, содержащий ключ источника данных, или пустой {@link Optional}, если контекст не установлен
      */
     public static Optional<String> getDataSourceContext() {
-        return Optional.ofNullable(contextHolder);
+        String threadContext = threadContextHolder.get();
+        return Optional.ofNullable(threadContext != null ? threadContext : contextHolder);
+    }
+
+    /**
+     * Устанавливает контекст источника данных только для текущего потока.
+     *
+     * @param dsKey ключ источника данных или {@code null}, чтобы вернуться к общему контексту
+     */
+    public static void setThreadDataSourceContext(String dsKey) {
+        ContextSwitchEvent.emit(ContextSwitchEvent.THREAD, threadContextHolder.get(), dsKey);
+        if (dsKey == null) {
+            threadContextHolder.remove();
+        } else {
+            threadContextHolder.set(dsKey);
+        }
+    }
+
+    /**
+     * Возвращает контекст источника данных, установленный для текущего потока.
+     *
+     * @return {@link Optional}, содержащий ключ источника данных текущего потока
+     */
+    public static Optional<String> getThreadDataSourceContext() {
+        return Optional.ofNullable(threadContextHolder.get());
     }
 
     /**
@@ -44,6 +79,8 @@ public class DataSourceContextHolder {
      * контекста и избегания утечек данных между запросами.
      */
     public static void clearDataSourceContext() {
+        String previous = contextHolder;
         contextHolder = null;
+        ContextSwitchEvent.emit(ContextSwitchEvent.GLOBAL, previous, null);
     }
 }
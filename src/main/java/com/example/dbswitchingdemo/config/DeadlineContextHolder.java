@@ -0,0 +1,66 @@
+package com.example.dbswitchingdemo.config;
+
+import java.time.Duration;
+import java.util.OptionalLong;
+
+/**
+ * Класс {@code DeadlineContextHolder} хранит срок завершения запроса, который обрабатывает текущий поток.
+ * <p>
+ * Срок задается в единицах {@link System#nanoTime()}. Он устанавливается при приеме HTTP-запроса
+ * ({@link DeadlineFilter}) и переносится в рабочие потоки отчетов. {@link MultiRoutingDataSource}
+ * не выдает соединение после истечения срока и отменяет запросы, которые не успели завершиться.
+ */
+public class DeadlineContextHolder {
+
+    private static final ThreadLocal<Long> contextHolder = new ThreadLocal<>();
+
+    /**
+     * Устанавливает срок завершения для текущего потока.
+     *
+     * @param deadlineNanos срок в единицах {@link System#nanoTime()}
+     */
+    public static void setDeadline(long deadlineNanos) {
+        contextHolder.set(deadlineNanos);
+    }
+
+    /**
+     * Устанавливает срок завершения через указанное время от текущего момента.
+     *
+     * @param timeout оставшееся время
+     */
+    public static void setTimeout(Duration timeout) {
+        setDeadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * Возвращает срок завершения текущего потока.
+     *
+     * @return срок в единицах {@link System#nanoTime()} или пустое значение, если срок не установлен
+     */
+    public static OptionalLong getDeadline() {
+        Long deadline = contextHolder.get();
+        return deadline != null ? OptionalLong.of(deadline) : OptionalLong.empty();
+    }
+
+    /**
+     * Выполняет действие в рабочем потоке со сроком, полученным в потоке, который поставил действие в очередь.
+     *
+     * @param deadline срок из {@link #getDeadline()} исходного потока
+     * @param action   действие
+     */
+    public static void runWith(OptionalLong deadline, Runnable action) {
+        deadline.ifPresent(DeadlineContextHolder::setDeadline);
+        try {
+            action.run();
+        } finally {
+            contextHolder.remove();
+        }
+    }
+
+    /**
+     * Сбрасывает срок завершения текущего потока.
+     */
+    public static void clearDeadline() {
+        contextHolder.remove();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.dbswitchingdemo.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Устанавливает срок завершения HTTP-запроса в {@link DeadlineContextHolder}.
+ * <p>
+ * Срок берется из заголовка {@code app.deadline.header} или из шаблона пути {@code app.deadline.routes};
+ * некорректное значение заголовка игнорируется. Если срок не определен, запросы к базе данных ограничены
+ * только бюджетом роли источника данных.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DeadlineFilter extends OncePerRequestFilter {
+
+    private final DeadlineProperties properties;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Duration timeout = properties.isEnabled() ? resolveTimeout(request) : null;
+        if (timeout == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        DeadlineContextHolder.setTimeout(timeout);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            DeadlineContextHolder.clearDeadline();
+        }
+    }
+
+    private Duration resolveTimeout(HttpServletRequest request) {
+        String header = request.getHeader(properties.getHeader());
+        if (header != null) {
+            try {
+                long millis = Long.parseLong(header.trim());
+                if (millis > 0) {
+                    Duration timeout = Duration.ofMillis(millis);
+                    return timeout.compareTo(properties.getMaxTimeout()) > 0 ? properties.getMaxTimeout() : timeout;
+                }
+            } catch (NumberFormatException e) {
+                log.debug("Ignoring invalid {} header '{}'.", properties.getHeader(), header);
+            }
+        }
+
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (Map.Entry<String, Duration> route : properties.getRoutes().entrySet()) {
+            if (pathMatcher.match(route.getKey(), path)) {
+                return route.getValue();
+            }
+        }
+        return null;
+    }
+}
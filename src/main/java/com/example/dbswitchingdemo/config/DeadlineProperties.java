@@ -0,0 +1,50 @@
+package com.example.dbswitchingdemo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>Настройки сроков выполнения запросов к базе данных,
+ * которые загружаются из конфигурации с префиксом {@code app.deadline}.</p>
+ * <p>Срок HTTP-запроса берется из заголовка {@code header} (в миллисекундах, не больше {@code maxTimeout})
+ * или из первого подходящего шаблона пути в {@code routes} и действует на все запросы к базе данных в рамках
+ * HTTP-запроса. Без срока HTTP-запроса каждый запрос к базе данных ограничен бюджетом роли источника
+ * данных: {@code leader} или {@code replica}; нулевой бюджет снимает ограничение.</p>
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.deadline")
+public class DeadlineProperties {
+    private boolean enabled;
+    private String header = "X-Request-Timeout";
+    private Duration maxTimeout = Duration.ofMinutes(10);
+    /**
+     * Без ограничения по умолчанию: без срока HTTP-запроса на leader выполняются фоновые записи, замеры нагрузки
+     * и DDL, которые не должны отменяться.
+     */
+    private Duration leader = Duration.ZERO;
+    private Duration replica = Duration.ofSeconds(30);
+    /**
+     * Через сколько после срока HTTP-запроса соединение, которое все еще не возвращено в пул, прерывается.
+     */
+    private Duration abortGrace = Duration.ofSeconds(5);
+    private Map<String, Duration> routes = new LinkedHashMap<>(Map.of("/api/v1/reports/**", Duration.ofMinutes(10)));
+
+    /**
+     * Возвращает бюджет одного запроса к базе данных для роли источника данных.
+     *
+     * @param role роль члена кластера
+     * @return бюджет или {@code null}, если для роли ограничение не задано
+     */
+    public Duration forRole(String role) {
+        Duration budget = "leader".equals(role) ? leader : "replica".equals(role) ? replica : null;
+        return budget != null && !budget.isZero() && !budget.isNegative() ? budget : null;
+    }
+}
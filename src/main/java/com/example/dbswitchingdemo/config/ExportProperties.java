@@ -0,0 +1,25 @@
+package com.example.dbswitchingdemo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>Настройки потоковой выгрузки отчетов с реплик, которые загружаются из конфигурации с префиксом
+ * {@code app.export}.</p>
+ * <p>Выгружать можно только отчеты, SQL которых задан в {@code queries}: имя отчета приходит в запросе,
+ * а текст запроса никогда не принимается от клиента.</p>
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.export")
+public class ExportProperties {
+    private int fetchSize = 5000;
+    private int flushEveryRows = 10000;
+    private Map<String, String> queries = new HashMap<>();
+}
@@ -0,0 +1,37 @@
+package com.example.dbswitchingdemo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * <p>Настройки подавления нестабильных членов кластера,
+ * которые загружаются из конфигурации с префиксом {@code app.flap-damping}.</p>
+ * <p>Каждое исключение члена кластера из топологии добавляет {@code flapPenalty} к его штрафу, который убывает
+ * вдвое за {@code halfLife} и не превышает {@code maxPenalty}. Член кластера со штрафом не ниже
+ * {@code suppressThreshold} попадает в карантин; он возвращается в маршрутизацию, когда штраф опустится
+ * ниже {@code reuseThreshold} и член кластера присутствует в топологии без исключений не меньше
+ * {@code stablePeriod}.</p>
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.flap-damping")
+public class FlapDampingProperties {
+    private boolean enabled = true;
+    private double flapPenalty = 1000;
+    private double suppressThreshold = 1500;
+    private double reuseThreshold = 750;
+    private double maxPenalty = 6000;
+    private Duration halfLife = Duration.ofSeconds(60);
+    private Duration stablePeriod = Duration.ofSeconds(30);
+    private Duration interval = Duration.ofSeconds(5);
+    /**
+     * Число соединений, которое держит пул члена кластера в карантине.
+     */
+    private int quarantineIdle = 1;
+    private int historySize = 32;
+}
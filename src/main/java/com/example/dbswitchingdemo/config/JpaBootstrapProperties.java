@@ -0,0 +1,20 @@
+package com.example.dbswitchingdemo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * <p>Настройки запуска JPA, которые загружаются из конфигурации с префиксом {@code app.jpa}.</p>
+ * <p>{@code backgroundBootstrap} переносит создание {@code EntityManagerFactory} в фоновый поток,
+ * {@code generateDdl} включает генерацию схемы Hibernate (нужна только в dev-профиле).</p>
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.jpa")
+public class JpaBootstrapProperties {
+    private boolean backgroundBootstrap = false;
+    private boolean generateDdl = false;
+}
@@ -4,6 +4,7 @@ import jakarta.persistence.EntityManagerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.orm.jpa.JpaTransactionManager;
 import org.springframework.orm.jpa.JpaVendorAdapter;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
@@ -21,19 +22,25 @@ public class JpaConfig {
     @Bean
     public LocalContainerEntityManagerFactoryBean entityManagerFactory(
             @Qualifier("multiRoutingDataSource") DataSource dataSource,
-            JpaVendorAdapter jpaVendorAdapter) {
+            JpaVendorAdapter jpaVendorAdapter,
+            JpaBootstrapProperties jpaBootstrapProperties) {
         LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
         factoryBean.setDataSource(dataSource);
         factoryBean.setJpaVendorAdapter(jpaVendorAdapter);
         factoryBean.setPackagesToScan("com.example.dbswitchingdemo.entity");
+        // диалект задан явно, поэтому при старте не нужно обращаться к фиктивной H2 базе за метаданными
+        factoryBean.getJpaPropertyMap().put("hibernate.boot.allow_jdbc_metadata_access", "false");
+        if (jpaBootstrapProperties.isBackgroundBootstrap()) {
+            factoryBean.setBootstrapExecutor(new SimpleAsyncTaskExecutor("jpa-bootstrap-"));
+        }
         return factoryBean;
     }
 
     @Bean
-    public JpaVendorAdapter jpaVendorAdapter() {
+    public JpaVendorAdapter jpaVendorAdapter(JpaBootstrapProperties jpaBootstrapProperties) {
         HibernateJpaVendorAdapter adapter = new HibernateJpaVendorAdapter();
         adapter.setShowSql(true);
-        adapter.setGenerateDdl(true);
+        adapter.setGenerateDdl(jpaBootstrapProperties.isGenerateDdl());
         adapter.setDatabase(Database.POSTGRESQL);
         return adapter;
     }
@@ -1,12 +1,28 @@
 package com.example.dbswitchingdemo.config;
 
+import com.example.dbswitchingdemo.dto.BulkheadStatsDTO;
+import com.example.dbswitchingdemo.enums.WorkloadClass;
+import com.example.dbswitchingdemo.jfr.RoutingLookupEvent;
+import com.example.dbswitchingdemo.util.Bulkhead;
+import com.example.dbswitchingdemo.util.QueryDeadlines;
+import com.example.dbswitchingdemo.util.StatementRoutingProxy;
+import com.example.dbswitchingdemo.util.StatementStats;
+import com.example.dbswitchingdemo.util.StatementTimingProxy;
+import com.zaxxer.hikari.HikariDataSource;
 import io.micrometer.common.lang.NonNullApi;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
 
 import javax.sql.DataSource;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -20,6 +36,21 @@ import java.util.concurrent.ConcurrentHashMap;
  * <p>
  * Основной сценарий использования — это приложения с мульти-тенантной архитектурой или любые приложения,
  * которые работают с несколькими базами данных, управляя контекстом выполнения.
+ * <p>
+ * Каждый целевой источник данных при разрешении оборачивается {@link StatementTimingProxy}, поэтому время
+ * выполнения запросов учитывается в {@link StatementStats} по ключу источника, а время выполнения ограничивается
+ * {@link QueryDeadlines}. Карта {@code targetDataSources} при этом хранит исходные пулы.
+ * <p>
+ * Маршрутизация выполняется по неизменяемой таблице {@code routingTable}, которая публикуется одной записью
+ * volatile-поля после полной перестройки. Поэтому при добавлении или замене пула конкурентный запрос видит либо
+ * старую, либо новую таблицу целиком и никогда не попадает на источник данных по умолчанию из-за частично
+ * заполненной карты.
+ * <p>
+ * Соединения выдаются через {@link Bulkhead} источника данных: класс нагрузки берется из
+ * {@link WorkloadContextHolder}, и отчет не может занять соединения пула, нужные коротким запросам.
+ * <p>
+ * Если задан {@link StatementRouter}, а контекст потока не установлен, выдается логическое соединение
+ * {@link StatementRoutingProxy}, которое выбирает leader или реплику по тексту каждого запроса.
  */
 @Getter
 @NonNullApi
@@ -27,8 +58,32 @@ import java.util.concurrent.ConcurrentHashMap;
 @Slf4j
 public class MultiRoutingDataSource extends AbstractRoutingDataSource {
 
+    private static final String FAKE_DATA_SOURCE_KEY = "fakeDataSourceKey";
+
     private final Map<Object, Object> targetDataSources = new ConcurrentHashMap<>();
 
+    private final StatementStats statementStats;
+
+    private final BulkheadProperties bulkheadProperties;
+
+    private final DeadlineProperties deadlineProperties;
+
+    private final QueryDeadlines queryDeadlines = new QueryDeadlines();
+
+    @Getter(AccessLevel.NONE)
+    private volatile Map<Object, DataSource> routingTable = Map.of();
+
+    @Getter(AccessLevel.NONE)
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    private volatile StatementRouter statementRouter;
+
+    /**
+     * Время от старта JVM до первого запроса, направленного на реальный (не фиктивный) источник данных,
+     * в миллисекундах; {@code -1}, пока такого запроса не было.
+     */
+    private volatile long firstRoutedQueryUptimeMs = -1;
+
     /**
      * Определяет текущий ключ источника данных для маршрутизации.
      * <p>
@@ -41,7 +96,211 @@ public class MultiRoutingDataSource extends AbstractRoutingDataSource {
      */
     @Override
     protected Object determineCurrentLookupKey() {
-        return DataSourceContextHolder.getDataSourceContext().orElse(null);
+        String dsKey = DataSourceContextHolder.getDataSourceContext().orElse(null);
+        if (firstRoutedQueryUptimeMs < 0 && dsKey != null && !FAKE_DATA_SOURCE_KEY.equals(dsKey)) {
+            recordFirstRoutedQuery(dsKey);
+        }
+        return dsKey;
+    }
+
+    /**
+     * Получает соединение из источника данных, выбранного по текущему контексту, с классом нагрузки
+     * из {@link WorkloadContextHolder}.
+     * <p>
+     * Выбор ключа и ожидание соединения (включая очередь bulkhead и пул) записываются событием JFR
+     * {@link RoutingLookupEvent}, если они заняли больше порога. Ключ заполняется только для записываемых событий,
+     * поэтому при выключенной записи накладные расходы сводятся к проверке, которую JIT устраняет.
+     *
+     * @return соединение с выбранным источником данных
+     * @throws SQLException если не удалось получить соединение или запрос отброшен bulkhead
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        WorkloadClass workload = WorkloadContextHolder.getWorkload();
+        StatementRouter router = statementRouter;
+        if (router != null && DataSourceContextHolder.getThreadDataSourceContext().isEmpty()) {
+            return StatementRoutingProxy.wrap(this, router, workload);
+        }
+        return getContextConnection(workload);
+    }
+
+    /**
+     * Соединения с другими учетными данными не поддерживаются: они не проходили бы проверку срока, bulkhead
+     * и таймер прерывания, а пулы Hikari все равно выдают соединения только со своими учетными данными.
+     *
+     * @throws SQLFeatureNotSupportedException всегда
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Routed connections use the credentials of their target pools.");
+    }
+
+    /**
+     * Получает соединение из источника данных, выбранного по текущему контексту, без маршрутизации
+     * отдельных запросов.
+     *
+     * @param workload класс нагрузки
+     * @return соединение с выбранным источником данных
+     * @throws SQLException если не удалось получить соединение или запрос отброшен bulkhead
+     */
+    public Connection getContextConnection(WorkloadClass workload) throws SQLException {
+        Object lookupKey = determineCurrentLookupKey();
+        DataSource ds = lookupKey != null ? routingTable.get(lookupKey) : null;
+        if (ds == null) {
+            return connect(FAKE_DATA_SOURCE_KEY, resolveTarget(null), workload);
+        }
+        return connect((String) lookupKey, ds, workload);
+    }
+
+    /**
+     * Включает маршрутизацию отдельных запросов: соединения без контекста потока выбирают источник данных
+     * по тексту запроса.
+     *
+     * @param statementRouter выбор источника данных по запросу или {@code null}, чтобы выключить режим
+     */
+    public void setStatementRouter(StatementRouter statementRouter) {
+        this.statementRouter = statementRouter;
+    }
+
+    /**
+     * Получает соединение из источника данных с указанным ключом, не учитывая текущий контекст маршрутизации.
+     * Используется кодом, который сам выбирает реплику (например, выгрузками отчетов).
+     *
+     * @param dsKey    ключ источника данных
+     * @param workload класс нагрузки
+     * @return соединение с источником данных
+     * @throws SQLException если источник данных не зарегистрирован, не удалось получить соединение
+     *                      или запрос отброшен bulkhead
+     */
+    public Connection getConnection(String dsKey, WorkloadClass workload) throws SQLException {
+        DataSource ds = routingTable.get(dsKey);
+        if (ds == null) {
+            throw new SQLException("Data source '" + dsKey + "' is not registered for routing.");
+        }
+        return connect(dsKey, ds, workload);
+    }
+
+    /**
+     * Возвращает, сколько соединений класс нагрузки может держать на источнике данных одновременно.
+     *
+     * @param dsKey    ключ источника данных
+     * @param workload класс нагрузки
+     * @return лимит класса с учетом размера пула
+     */
+    public int getWorkloadLimit(String dsKey, WorkloadClass workload) {
+        Bulkhead bulkhead = bulkheadFor(dsKey);
+        return bulkhead != null ? bulkhead.limit(workload) : capacityOf(dsKey);
+    }
+
+    /**
+     * Возвращает состояние bulkhead по всем источникам данных, через которые выдавались соединения.
+     *
+     * @return список состояний, отсортированный по ключу
+     */
+    public List<BulkheadStatsDTO> getBulkheadStats() {
+        return bulkheads.values().stream()
+                .map(Bulkhead::getStats)
+                .sorted(Comparator.comparing(BulkheadStatsDTO::getDataSourceKey))
+                .toList();
+    }
+
+    /**
+     * Резервирует несколько соединений с источником данных одним запросом к bulkhead: либо все сразу, либо
+     * ни одного. Нужно работе, которая держит одно соединение, пока ждет остальные (например, координатору
+     * выгрузки снимка и его рабочим потокам), иначе две такие работы могут занять лимит класса и ждать друг друга.
+     *
+     * @param dsKey       ключ источника данных
+     * @param workload    класс нагрузки
+     * @param connections сколько соединений нужно одновременно
+     * @return резервирование, которое нужно закрыть после работы
+     * @throws SQLException если источник данных не зарегистрирован, соединений больше лимита класса, истек срок
+     *                      ожидания или запрос отброшен bulkhead
+     */
+    public Reservation reserve(String dsKey, WorkloadClass workload, int connections) throws SQLException {
+        DataSource ds = routingTable.get(dsKey);
+        if (ds == null) {
+            throw new SQLException("Data source '" + dsKey + "' is not registered for routing.");
+        }
+        queryDeadlines.checkNotExpired(dsKey);
+        Bulkhead bulkhead = bulkheadFor(dsKey);
+        return new Reservation(dsKey, ds, bulkhead != null ? bulkhead.reserve(workload, connections) : null);
+    }
+
+    private Connection connect(String dsKey, DataSource ds, WorkloadClass workload) throws SQLException {
+        Bulkhead bulkhead = bulkheadFor(dsKey);
+        return connect(dsKey, () -> bulkhead != null
+                ? bulkhead.acquire(workload, ds::getConnection)
+                : ds.getConnection());
+    }
+
+    private Connection connect(String dsKey, Bulkhead.ConnectionSource source) throws SQLException {
+        RoutingLookupEvent event = new RoutingLookupEvent();
+        event.begin();
+        boolean success = false;
+        try {
+            queryDeadlines.checkNotExpired(dsKey);
+            Connection connection = source.get();
+            success = true;
+            return queryDeadlines.guard(connection, dsKey);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.dataSourceKey = dsKey;
+                event.threadOverride = DataSourceContextHolder.getThreadDataSourceContext().isPresent();
+                event.success = success;
+                event.commit();
+            }
+        }
+    }
+
+    private Bulkhead bulkheadFor(String dsKey) {
+        if (!bulkheadProperties.isEnabled()) {
+            return null;
+        }
+        return bulkheads.computeIfAbsent(dsKey, key -> new Bulkhead(key, capacityOf(key), bulkheadProperties));
+    }
+
+    private int capacityOf(String dsKey) {
+        Object ds = targetDataSources.get(dsKey);
+        return ds instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Выбирает целевой источник данных по неизменяемой таблице маршрутизации.
+     * Если для ключа источник не найден, используется источник данных по умолчанию.
+     *
+     * @return целевой источник данных
+     */
+    @Override
+    protected DataSource determineTargetDataSource() {
+        return resolveTarget(determineCurrentLookupKey());
+    }
+
+    private DataSource resolveTarget(Object lookupKey) {
+        DataSource ds = lookupKey != null ? routingTable.get(lookupKey) : null;
+        if (ds == null) {
+            ds = getResolvedDefaultDataSource();
+        }
+        if (ds == null) {
+            throw new IllegalStateException("Cannot determine target DataSource for lookup key [" + lookupKey + "]");
+        }
+        return ds;
+    }
+
+    /**
+     * Перестраивает разрешенные источники данных и публикует новую таблицу маршрутизации.
+     */
+    @Override
+    public synchronized void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        routingTable = Map.copyOf(getResolvedDataSources());
+    }
+
+    private synchronized void recordFirstRoutedQuery(String dsKey) {
+        if (firstRoutedQueryUptimeMs < 0) {
+            firstRoutedQueryUptimeMs = ManagementFactory.getRuntimeMXBean().getUptime();
+            log.info("First query routed to '{}' {} ms after JVM start.", dsKey, firstRoutedQueryUptimeMs);
+        }
     }
 
     /**
@@ -54,10 +313,30 @@ public class MultiRoutingDataSource extends AbstractRoutingDataSource {
      * @param targetDataSources карта целевых источников данных
      */
     @Override
-    public void setTargetDataSources(Map<Object, Object> targetDataSources) {
+    public synchronized void setTargetDataSources(Map<Object, Object> targetDataSources) {
         this.targetDataSources.putAll(targetDataSources);
         super.setTargetDataSources(this.targetDataSources);
-        super.afterPropertiesSet();
+        afterPropertiesSet();
+    }
+
+    /**
+     * Разрешает целевой источник данных и оборачивает его прокси, измеряющим время запросов.
+     *
+     * @param dataSource целевой источник данных из {@code targetDataSources}
+     * @return источник данных, через который маршрутизатор будет получать соединения
+     */
+    @Override
+    protected DataSource resolveSpecifiedDataSource(Object dataSource) {
+        DataSource ds = super.resolveSpecifiedDataSource(dataSource);
+        if (!statementStats.isEnabled() && !deadlineProperties.isEnabled()) {
+            return ds;
+        }
+        String dsKey = targetDataSources.entrySet().stream()
+                .filter(entry -> entry.getValue() == dataSource)
+                .map(entry -> String.valueOf(entry.getKey()))
+                .findFirst()
+                .orElse(FAKE_DATA_SOURCE_KEY);
+        return StatementTimingProxy.wrap(ds, dsKey, statementStats, queryDeadlines);
     }
 
     /**
@@ -70,10 +349,31 @@ public class MultiRoutingDataSource extends AbstractRoutingDataSource {
      * @param ds    новый источник данных {@link DataSource}
      * @param dsKey уникальный ключ для нового источника данных
      */
-    public void addDataSource(DataSource ds, String dsKey) {
+    public synchronized void addDataSource(DataSource ds, String dsKey) {
         this.targetDataSources.put(dsKey, ds);
         super.setTargetDataSources(this.targetDataSources);
-        super.afterPropertiesSet();
+        afterPropertiesSet();
+    }
+
+    /**
+     * Атомарно заменяет источник данных под существующим ключом.
+     * <p>
+     * Новые запросы сразу получают соединения из нового пула; соединения, уже выданные старым пулом,
+     * продолжают работать. Закрывать старый пул должен вызывающий код после того, как они будут возвращены.
+     * Статистика запросов по ключу сохраняется, а bulkhead создается заново под размер нового пула.
+     *
+     * @param ds    новый источник данных {@link DataSource}
+     * @param dsKey ключ существующего источника данных
+     * @return предыдущий источник данных или {@code null}, если ключа не было
+     */
+    public synchronized DataSource replaceDataSource(DataSource ds, String dsKey) {
+        Object previous = this.targetDataSources.put(dsKey, ds);
+        super.setTargetDataSources(this.targetDataSources);
+        afterPropertiesSet();
+        // размер нового пула может отличаться; разрешения старого пула возвращаются в прежний bulkhead
+        bulkheads.remove(dsKey);
+        log.info("Replaced data source by key: {}", dsKey);
+        return (DataSource) previous;
     }
 
     /**
@@ -84,10 +384,46 @@ public class MultiRoutingDataSource extends AbstractRoutingDataSource {
      *
      * @param dsKey ключ источника данных, который необходимо удалить
      */
-    public void removeDataSource(String dsKey) {
+    public synchronized void removeDataSource(String dsKey) {
         this.targetDataSources.remove(dsKey);
         setTargetDataSources(this.targetDataSources);
         afterPropertiesSet();
+        statementStats.remove(dsKey);
+        bulkheads.remove(dsKey);
         log.info("Removed data source by key: {}", dsKey);
     }
+
+    /**
+     * Соединения, зарезервированные {@link #reserve}. Соединения выдаются без ожидания в bulkhead;
+     * неиспользованные разрешения возвращаются при закрытии.
+     */
+    public final class Reservation implements AutoCloseable {
+        private final String dsKey;
+        private final DataSource ds;
+        private final Bulkhead.Reservation permits;
+
+        private Reservation(String dsKey, DataSource ds, Bulkhead.Reservation permits) {
+            this.dsKey = dsKey;
+            this.ds = ds;
+            this.permits = permits;
+        }
+
+        /**
+         * Получает соединение по резервированию.
+         *
+         * @return соединение с источником данных
+         * @throws SQLException если зарезервированные соединения закончились, истек срок HTTP-запроса
+         *                      или не удалось получить соединение
+         */
+        public Connection getConnection() throws SQLException {
+            return connect(dsKey, () -> permits != null ? permits.acquire(ds::getConnection) : ds.getConnection());
+        }
+
+        @Override
+        public void close() {
+            if (permits != null) {
+                permits.close();
+            }
+        }
+    }
 }
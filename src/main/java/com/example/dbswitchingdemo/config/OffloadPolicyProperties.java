@@ -0,0 +1,50 @@
+package com.example.dbswitchingdemo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * <p>Настройки автоматической разгрузки leader,
+ * которые загружаются из конфигурации с префиксом {@code app.offload}.</p>
+ * <p>Leader считается горячим, если хотя бы один показатель достиг порога {@code hot}, и остывшим, если все
+ * показатели не выше порогов {@code cool}. Доля чтений на репликах растет на {@code shareStep} после
+ * {@code raiseAfter} горячих замеров подряд и снижается после {@code lowerAfter} остывших замеров подряд.</p>
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.offload")
+public class OffloadPolicyProperties {
+    private boolean enabled = false;
+    private Duration interval = Duration.ofSeconds(5);
+    private int shareStep = 25;
+    private int raiseAfter = 2;
+    private int lowerAfter = 6;
+    private boolean manageGlobalContext = true;
+    private Duration maxReplicaLag = Duration.ofSeconds(5);
+    private Threshold hot = new Threshold(1, 0.9, Duration.ofMillis(20), 50);
+    private Threshold cool = new Threshold(0, 0.5, Duration.ofMillis(5), 20);
+
+    @Getter
+    @Setter
+    public static class Threshold {
+        private int threadsAwaiting;
+        private double activeRatio;
+        private Duration acquireP95;
+        private int activeSessions;
+
+        public Threshold() {
+        }
+
+        public Threshold(int threadsAwaiting, double activeRatio, Duration acquireP95, int activeSessions) {
+            this.threadsAwaiting = threadsAwaiting;
+            this.activeRatio = activeRatio;
+            this.acquireP95 = acquireP95;
+            this.activeSessions = activeSessions;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.dbswitchingdemo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * <p>Настройки пулов соединений в зависимости от роли члена кластера,
+ * которые загружаются из конфигурации с префиксом {@code app.pool-profiles}.</p>
+ * <p>При смене роли пул пересоздается с профилем новой роли; старый пул закрывается после того,
+ * как вернутся все выданные им соединения, но не позже {@code drainTimeout}.</p>
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.pool-profiles")
+public class PoolProfileProperties {
+    private Profile leader = new Profile(20, 5, false);
+    private Profile replica = new Profile(10, 2, false);
+    private Duration drainTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Возвращает профиль для роли.
+     *
+     * @param role роль члена кластера
+     * @return профиль или {@code null}, если для роли профиль не задан
+     */
+    public Profile forRole(String role) {
+        if ("leader".equals(role)) {
+            return leader;
+        }
+        if ("replica".equals(role)) {
+            return replica;
+        }
+        return null;
+    }
+
+    @Getter
+    @Setter
+    public static class Profile {
+        private int maximumPoolSize;
+        private int minimumIdle;
+        private boolean readOnly;
+        private Duration connectionTimeout = Duration.ofSeconds(30);
+
+        public Profile() {
+        }
+
+        public Profile(int maximumPoolSize, int minimumIdle, boolean readOnly) {
+            this.maximumPoolSize = maximumPoolSize;
+            this.minimumIdle = minimumIdle;
+            this.readOnly = readOnly;
+        }
+    }
+}
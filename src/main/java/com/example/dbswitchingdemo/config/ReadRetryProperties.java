@@ -0,0 +1,32 @@
+package com.example.dbswitchingdemo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * <p>Настройки повторного выполнения идемпотентных чтений на другой реплике,
+ * которые загружаются из конфигурации с префиксом {@code app.read-retry}.</p>
+ * <p>{@code maxAttempts} не может быть меньше 1.</p>
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.read-retry")
+public class ReadRetryProperties {
+    private int maxAttempts = 3;
+    private Duration baseBackoff = Duration.ofMillis(20);
+    private Duration maxBackoff = Duration.ofMillis(500);
+
+    /**
+     * Задает число попыток чтения. Значения меньше 1 заменяются на 1: чтение выполняется хотя бы один раз.
+     *
+     * @param maxAttempts число попыток
+     */
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.dbswitchingdemo.config;
+
+import com.example.dbswitchingdemo.enums.MergeMode;
+import com.example.dbswitchingdemo.enums.PartitionStrategy;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>Настройки параллельного выполнения отчетов на всех репликах, которые загружаются из конфигурации
+ * с префиксом {@code app.scatter}.</p>
+ * <p>SQL отчета должен содержать маркер {@code {partition}} в условии WHERE — на его место подставляется
+ * предикат части. Для {@link MergeMode#SORTED} каждая часть должна быть отсортирована по {@code sortColumn},
+ * для {@link MergeMode#AGGREGATE} первые {@code groupColumns} колонок считаются ключом группировки,
+ * а остальные — суммируемыми частичными агрегатами (SUM, COUNT).</p>
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.scatter")
+public class ScatterGatherProperties {
+    private int maxParallelism = 16;
+    private int partitionsPerReplica = 2;
+    private int reservedConnections = 2;
+    private int queueCapacity = 1024;
+    private int fetchSize = 5000;
+    /**
+     * Сколько первая часть отчета ждет свободный слот, если у HTTP-запроса нет срока или он наступает позже.
+     */
+    private Duration acquireTimeout = Duration.ofSeconds(30);
+    private Map<String, Report> reports = new HashMap<>();
+
+    @Getter
+    @Setter
+    public static class Report {
+        private String sql;
+        private String partitionColumn;
+        private PartitionStrategy strategy = PartitionStrategy.HASH;
+        private String boundsSql;
+        private MergeMode merge = MergeMode.CONCAT;
+        private int sortColumn = 1;
+        private int groupColumns = 1;
+    }
+}
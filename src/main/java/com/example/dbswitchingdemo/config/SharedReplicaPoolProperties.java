@@ -0,0 +1,30 @@
+package com.example.dbswitchingdemo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * <p>Настройки режима общего пула реплик,
+ * которые загружаются из конфигурации с префиксом {@code app.shared-replica-pool}.</p>
+ * <p>В этом режиме реплики не получают собственных пулов: все они обслуживаются одним пулом под ключом
+ * {@code dataSourceKey}, а хост для нового соединения выбирает драйвер PostgreSQL по списку хостов
+ * с параметрами {@code targetServerType} и {@code loadBalanceHosts}. Размер пула задается здесь, остальные
+ * параметры берутся из профиля роли replica.</p>
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.shared-replica-pool")
+public class SharedReplicaPoolProperties {
+    private boolean enabled = false;
+    private String dataSourceKey = "replicas";
+    private String targetServerType = "preferSecondary";
+    private boolean loadBalanceHosts = true;
+    private Duration hostRecheck = Duration.ofSeconds(10);
+    private int maximumPoolSize = 20;
+    private int minimumIdle = 2;
+}
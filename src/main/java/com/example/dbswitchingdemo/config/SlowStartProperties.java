@@ -0,0 +1,31 @@
+package com.example.dbswitchingdemo.config;
+
+import com.example.dbswitchingdemo.enums.RampMode;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * <p>Настройки плавного ввода новых реплик в маршрутизацию,
+ * которые загружаются из конфигурации с префиксом {@code app.slow-start}.</p>
+ * <p>Вес новой или вернувшейся реплики начинается с {@code initialWeight} и за {@code window} доходит до 1.
+ * В режиме {@link RampMode#LATENCY} шаг веса делается раз в {@code interval}, только если p95 времени запросов
+ * реплики за интервал не больше p95 прогретых реплик, умноженного на {@code latencyTolerance}; при меньше
+ * чем {@code minSamples} запросах за интервал реплика считается справляющейся.</p>
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.slow-start")
+public class SlowStartProperties {
+    private boolean enabled = true;
+    private RampMode mode = RampMode.LINEAR;
+    private Duration window = Duration.ofMinutes(2);
+    private double initialWeight = 0.1;
+    private Duration interval = Duration.ofSeconds(5);
+    private double latencyTolerance = 1.5;
+    private long minSamples = 50;
+}
@@ -0,0 +1,42 @@
+package com.example.dbswitchingdemo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Настройки согласованной параллельной выгрузки нескольких таблиц с одной реплики, которые загружаются
+ * из конфигурации с префиксом {@code app.snapshot-export}.</p>
+ * <p>Таблица может быть разбита на {@code chunks} частей по хешу {@code chunkColumn}; все части всех таблиц
+ * читаются из одного экспортированного снимка данных.</p>
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.snapshot-export")
+public class SnapshotExportProperties {
+    private int workers = 4;
+    private int queueCapacity = 4096;
+    private int fetchSize = 5000;
+    private Map<String, Export> exports = new HashMap<>();
+
+    @Getter
+    @Setter
+    public static class Export {
+        private List<Table> tables = new ArrayList<>();
+    }
+
+    @Getter
+    @Setter
+    public static class Table {
+        private String name;
+        private String chunkColumn;
+        private int chunks = 1;
+    }
+}
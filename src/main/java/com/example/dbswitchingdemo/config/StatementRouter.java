@@ -0,0 +1,17 @@
+package com.example.dbswitchingdemo.config;
+
+/**
+ * Выбор источника данных по тексту запроса для режима маршрутизации отдельных запросов
+ * ({@link MultiRoutingDataSource#setStatementRouter(StatementRouter)}).
+ */
+public interface StatementRouter {
+
+    /**
+     * Выбирает источник данных для запроса.
+     *
+     * @param sql              текст запроса или {@code null}, если он неизвестен (запрос считается записью)
+     * @param writeTransaction запрос выполняется в явной транзакции записи
+     * @return ключ источника данных или {@code null}, чтобы использовать общий контекст маршрутизации
+     */
+    String route(String sql, boolean writeTransaction);
+}
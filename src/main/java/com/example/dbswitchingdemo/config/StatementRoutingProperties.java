@@ -0,0 +1,30 @@
+package com.example.dbswitchingdemo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p>Настройки маршрутизации отдельных запросов между leader и репликами,
+ * которые загружаются из конфигурации с префиксом {@code app.statement-routing}.</p>
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.statement-routing")
+public class StatementRoutingProperties {
+    private boolean enabled = false;
+    private int cacheSize = 10_000;
+    /**
+     * Функции с побочными эффектами: запрос {@code SELECT}, который их вызывает, выполняется на leader.
+     */
+    private Set<String> leaderFunctions = new LinkedHashSet<>(List.of(
+            "nextval", "setval", "pg_notify", "txid_current", "pg_current_xact_id",
+            "pg_advisory_lock", "pg_advisory_xact_lock", "pg_try_advisory_lock", "pg_try_advisory_xact_lock",
+            "pg_advisory_unlock", "lo_create", "lo_import", "lo_unlink"));
+}
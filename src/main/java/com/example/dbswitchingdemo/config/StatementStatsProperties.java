@@ -0,0 +1,25 @@
+package com.example.dbswitchingdemo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * <p>Настройки учета времени выполнения запросов по источникам данных,
+ * которые загружаются из конфигурации с префиксом {@code app.statement-stats}.</p>
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.statement-stats")
+public class StatementStatsProperties {
+    private boolean enabled = true;
+    private int slowTopN = 50;
+    private Duration slowThreshold = Duration.ofMillis(100);
+    private int maxSqlLength = 2048;
+    private Duration lagThreshold = Duration.ofSeconds(5);
+    private Duration acquireThreshold = Duration.ofMillis(20);
+}
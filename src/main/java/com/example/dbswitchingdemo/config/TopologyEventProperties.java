@@ -0,0 +1,21 @@
+package com.example.dbswitchingdemo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * <p>Настройки потока событий топологии (SSE), которые загружаются из конфигурации с префиксом {@code app.events}.</p>
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.events")
+public class TopologyEventProperties {
+    private int bufferSize = 1024;
+    private Duration emitterTimeout = Duration.ofMinutes(30);
+    private Duration keepAlive = Duration.ofSeconds(15);
+}
@@ -0,0 +1,32 @@
+package com.example.dbswitchingdemo.config;
+
+import com.example.dbswitchingdemo.service.TopologyOperationService;
+import com.example.dbswitchingdemo.service.TopologyStoreService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * <p>Восстанавливает источники данных по последней сохраненной топологии при старте приложения.</p>
+ * <p>Spring Boot переводит приложение в состояние готовности (readiness) только после выполнения всех
+ * {@link ApplicationRunner}, поэтому трафик приходит уже на прогретые пулы, а не на фиктивную H2 базу.</p>
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TopologyRestoreRunner implements ApplicationRunner {
+
+    private final TopologyStoreService topologyStore;
+    private final TopologyOperationService topologyOperations;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long startedAt = System.nanoTime();
+        topologyStore.load().ifPresent(snapshot -> {
+            topologyOperations.restore(snapshot);
+            log.info("Topology restore took {} ms.", (System.nanoTime() - startedAt) / 1_000_000);
+        });
+    }
+}
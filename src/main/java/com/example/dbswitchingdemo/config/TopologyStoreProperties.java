@@ -0,0 +1,24 @@
+package com.example.dbswitchingdemo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * <p>Настройки локального хранения последней примененной топологии кластера, которые загружаются
+ * из конфигурации с префиксом {@code app.topology-store}.</p>
+ * <p>При старте приложение восстанавливает пулы по сохраненной топологии, не дожидаясь вызова {@code /refresh}.</p>
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.topology-store")
+public class TopologyStoreProperties {
+    private boolean enabled = true;
+    private String path = "data/topology.json";
+    private int warmConnections = 2;
+    private Duration restoreTimeout = Duration.ofSeconds(5);
+}
@@ -0,0 +1,44 @@
+package com.example.dbswitchingdemo.config;
+
+import com.example.dbswitchingdemo.enums.WorkloadClass;
+
+/**
+ * Класс {@code WorkloadContextHolder} хранит класс нагрузки текущего потока.
+ * <p>
+ * {@link MultiRoutingDataSource} по нему выбирает лимит и приоритет, с которыми поток получает соединение.
+ * Если класс не установлен, поток считается {@link WorkloadClass#OLTP}.
+ */
+public class WorkloadContextHolder {
+
+    private static final ThreadLocal<WorkloadClass> contextHolder = new ThreadLocal<>();
+
+    /**
+     * Устанавливает класс нагрузки для текущего потока.
+     *
+     * @param workload класс нагрузки или {@code null}, чтобы вернуться к классу по умолчанию
+     */
+    public static void setWorkload(WorkloadClass workload) {
+        if (workload == null) {
+            contextHolder.remove();
+        } else {
+            contextHolder.set(workload);
+        }
+    }
+
+    /**
+     * Возвращает класс нагрузки текущего потока.
+     *
+     * @return установленный класс нагрузки или {@link WorkloadClass#OLTP}
+     */
+    public static WorkloadClass getWorkload() {
+        WorkloadClass workload = contextHolder.get();
+        return workload != null ? workload : WorkloadClass.OLTP;
+    }
+
+    /**
+     * Сбрасывает класс нагрузки текущего потока.
+     */
+    public static void clearWorkload() {
+        contextHolder.remove();
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.dbswitchingdemo.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * <p>Настройки буфера операций записи, которые загружаются из конфигурации с префиксом {@code app.write-buffer}.</p>
+ * <p>Буфер удерживает операции записи, пока в кластере нет leader (например, во время переключения Patroni).</p>
+ */
+@Getter
+@Setter
+@Configuration
+@ConfigurationProperties(prefix = "app.write-buffer")
+public class WriteBufferProperties {
+    private int capacity = 256;
+    private Duration deadline = Duration.ofSeconds(15);
+    private int maxAttempts = 3;
+    private Duration retryBackoff = Duration.ofMillis(200);
+}
@@ -0,0 +1,36 @@
+package com.example.dbswitchingdemo.controller;
+
+import com.example.dbswitchingdemo.dto.response.CommonDataResponse;
+import com.example.dbswitchingdemo.dto.response.CommonResponse;
+import com.example.dbswitchingdemo.service.BulkheadService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * <p> Контроллер для наблюдения за изоляцией нагрузки по источникам данных. </p>
+ */
+@RestController
+@RequestMapping("/api/v1/bulkheads")
+@RequiredArgsConstructor
+public class BulkheadController {
+
+    private final BulkheadService bulkheadService;
+
+    /**
+     * Возвращает для каждого источника данных размер пула, занятые соединения и очередь, а по классам нагрузки —
+     * лимит, число выданных, поставленных в очередь, отброшенных и не дождавшихся соединения запросов.
+     *
+     * @return {@link ResponseEntity} с состоянием по источникам данных
+     */
+    @GetMapping
+    public ResponseEntity<CommonResponse> getStats() {
+        CommonResponse response = CommonDataResponse.builder().status(HttpStatus.OK.name())
+                .data(bulkheadService.getStats())
+                .build();
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+}
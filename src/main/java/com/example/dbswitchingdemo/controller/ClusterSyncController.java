@@ -0,0 +1,36 @@
+package com.example.dbswitchingdemo.controller;
+
+import com.example.dbswitchingdemo.dto.response.CommonDataResponse;
+import com.example.dbswitchingdemo.dto.response.CommonResponse;
+import com.example.dbswitchingdemo.service.ClusterSyncService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * <p> Контроллер для наблюдения за синхронизацией топологии между экземплярами приложения. </p>
+ */
+@RestController
+@RequestMapping("/api/v1/cluster-sync")
+@RequiredArgsConstructor
+public class ClusterSyncController {
+
+    private final ClusterSyncService clusterSync;
+
+    /**
+     * Возвращает идентификатор экземпляра, leader, на котором держится {@code LISTEN}, последнюю эпоху
+     * и число опубликованных, примененных и проигнорированных изменений.
+     *
+     * @return {@link ResponseEntity} с состоянием синхронизации
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<CommonResponse> getStats() {
+        CommonResponse response = CommonDataResponse.builder().status(HttpStatus.OK.name())
+                .data(clusterSync.getStats())
+                .build();
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+}
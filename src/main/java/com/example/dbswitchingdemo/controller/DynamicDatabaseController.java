@@ -1,8 +1,10 @@
 package com.example.dbswitchingdemo.controller;
 
 import com.example.dbswitchingdemo.dto.request.ClusterMemberDTO;
+import com.example.dbswitchingdemo.dto.response.CommonDataResponse;
 import com.example.dbswitchingdemo.dto.response.CommonResponse;
-import com.example.dbswitchingdemo.service.DynamicDatabaseService;
+import com.example.dbswitchingdemo.exception.ResourceNotFound;
+import com.example.dbswitchingdemo.service.TopologyOperationService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -12,13 +14,16 @@ import org.springframework.web.bind.annotation.*;
  * <p> Контроллер для управления источниками данных (DataSource). </p>
  * <p> Этот контроллер предоставляет конечные точки API для создания нового источника данных
  * и закрытия существующего источника данных. </p>
+ * <p> Операции выполняются последовательно, одинаковые параллельные запросы объединяются. С параметром
+ * {@code async=true} операция возвращает статус 202 и идентификатор, состояние которого можно запросить
+ * через {@code /operations/{id}}. </p>
  */
 @RestController
 @RequestMapping("/api/v1/")
 @RequiredArgsConstructor
 public class DynamicDatabaseController {
 
-    private final DynamicDatabaseService dataSourceService;
+    private final TopologyOperationService topologyOperations;
 
     /**
      * Создает новый источник данных на основе предоставленных параметров хоста и порта.
@@ -28,28 +33,47 @@ public class DynamicDatabaseController {
      * </p>
      *
      * @param clusterMemberDTO DTO с информацией о членах кластера
+     * @param async            выполнить операцию асинхронно
      * @return {@link ResponseEntity} с результатом операции и соответствующим HTTP-статусом
      */
     @PostMapping("/refresh")
-    public ResponseEntity<CommonResponse> createDataSource(@RequestBody ClusterMemberDTO clusterMemberDTO) {
-        CommonResponse response = dataSourceService.refresh(clusterMemberDTO);
+    public ResponseEntity<CommonResponse> createDataSource(@RequestBody ClusterMemberDTO clusterMemberDTO,
+                                                           @RequestParam(defaultValue = "false") boolean async) {
+        CommonResponse response = topologyOperations.refresh(clusterMemberDTO, async);
         return new ResponseEntity<>(response, HttpStatus.valueOf(response.getStatus()));
     }
 
     /**
      * Переключает leader источник данных на replica.
      *
+     * @param async выполнить операцию асинхронно
      * @return {@link ResponseEntity} с результатом операции и соответствующим HTTP-статусом
      */
     @PostMapping("/switch")
-    public ResponseEntity<CommonResponse> switchDataSource() {
-        CommonResponse response = dataSourceService.change();
+    public ResponseEntity<CommonResponse> switchDataSource(@RequestParam(defaultValue = "false") boolean async) {
+        CommonResponse response = topologyOperations.change(async);
         return new ResponseEntity<>(response, HttpStatus.valueOf(response.getStatus()));
     }
 
     @DeleteMapping("/close")
-    public ResponseEntity<CommonResponse> closeDataSource(@RequestBody ClusterMemberDTO clusterMemberDTO) {
-        CommonResponse response = dataSourceService.close(clusterMemberDTO);
+    public ResponseEntity<CommonResponse> closeDataSource(@RequestBody ClusterMemberDTO clusterMemberDTO,
+                                                          @RequestParam(defaultValue = "false") boolean async) {
+        CommonResponse response = topologyOperations.close(clusterMemberDTO, async);
         return new ResponseEntity<>(response, HttpStatus.valueOf(response.getStatus()));
     }
+
+    /**
+     * Возвращает состояние асинхронной операции над топологией.
+     *
+     * @param id идентификатор операции
+     * @return {@link ResponseEntity} с состоянием операции
+     */
+    @GetMapping("/operations/{id}")
+    public ResponseEntity<CommonResponse> getOperation(@PathVariable String id) {
+        CommonResponse response = CommonDataResponse.builder().status(HttpStatus.OK.name())
+                .data(topologyOperations.find(id)
+                        .orElseThrow(() -> new ResourceNotFound("Operation '" + id + "' not found.")))
+                .build();
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
 }
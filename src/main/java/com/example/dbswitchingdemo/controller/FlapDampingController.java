@@ -0,0 +1,36 @@
+package com.example.dbswitchingdemo.controller;
+
+import com.example.dbswitchingdemo.dto.response.CommonDataResponse;
+import com.example.dbswitchingdemo.dto.response.CommonResponse;
+import com.example.dbswitchingdemo.service.FlapDampingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * <p> Контроллер для наблюдения за подавлением нестабильных членов кластера. </p>
+ */
+@RestController
+@RequestMapping("/api/v1/flap-damping")
+@RequiredArgsConstructor
+public class FlapDampingController {
+
+    private final FlapDampingService flapDamping;
+
+    /**
+     * Возвращает для каждого отслеживаемого члена кластера текущий штраф, состояние карантина, самый ранний
+     * момент возврата в маршрутизацию и историю изменений штрафа.
+     *
+     * @return {@link ResponseEntity} с состоянием членов кластера
+     */
+    @GetMapping
+    public ResponseEntity<CommonResponse> getStatus() {
+        CommonResponse response = CommonDataResponse.builder().status(HttpStatus.OK.name())
+                .data(flapDamping.getStatus())
+                .build();
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+}
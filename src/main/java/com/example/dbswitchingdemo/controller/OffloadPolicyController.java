@@ -0,0 +1,36 @@
+package com.example.dbswitchingdemo.controller;
+
+import com.example.dbswitchingdemo.dto.response.CommonDataResponse;
+import com.example.dbswitchingdemo.dto.response.CommonResponse;
+import com.example.dbswitchingdemo.service.OffloadPolicyService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * <p> Контроллер для наблюдения за автоматической разгрузкой leader. </p>
+ */
+@RestController
+@RequestMapping("/api/v1/offload")
+@RequiredArgsConstructor
+public class OffloadPolicyController {
+
+    private final OffloadPolicyService offloadPolicy;
+
+    /**
+     * Возвращает текущую долю чтений на репликах, последний замер нагрузки на leader, здоровые реплики
+     * и последнее решение политики.
+     *
+     * @return {@link ResponseEntity} с состоянием политики
+     */
+    @GetMapping
+    public ResponseEntity<CommonResponse> getStatus() {
+        CommonResponse response = CommonDataResponse.builder().status(HttpStatus.OK.name())
+                .data(offloadPolicy.getStatus())
+                .build();
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+}
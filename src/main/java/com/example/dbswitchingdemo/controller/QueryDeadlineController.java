@@ -0,0 +1,36 @@
+package com.example.dbswitchingdemo.controller;
+
+import com.example.dbswitchingdemo.dto.response.CommonDataResponse;
+import com.example.dbswitchingdemo.dto.response.CommonResponse;
+import com.example.dbswitchingdemo.service.QueryDeadlineService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * <p> Контроллер для наблюдения за ограничением времени выполнения запросов. </p>
+ */
+@RestController
+@RequestMapping("/api/v1/deadlines")
+@RequiredArgsConstructor
+public class QueryDeadlineController {
+
+    private final QueryDeadlineService queryDeadlineService;
+
+    /**
+     * Возвращает бюджеты запросов для leader и реплик, сроки по шаблонам путей и число отмененных запросов,
+     * прерванных соединений и запросов с истекшим сроком по источникам данных.
+     *
+     * @return {@link ResponseEntity} с состоянием ограничений
+     */
+    @GetMapping
+    public ResponseEntity<CommonResponse> getStats() {
+        CommonResponse response = CommonDataResponse.builder().status(HttpStatus.OK.name())
+                .data(queryDeadlineService.getStats())
+                .build();
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+}
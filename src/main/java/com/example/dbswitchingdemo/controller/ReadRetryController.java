@@ -0,0 +1,65 @@
+package com.example.dbswitchingdemo.controller;
+
+import com.example.dbswitchingdemo.dto.response.CommonDataResponse;
+import com.example.dbswitchingdemo.dto.response.CommonResponse;
+import com.example.dbswitchingdemo.service.AffinityRoutingService;
+import com.example.dbswitchingdemo.service.ReadRetryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * <p> Контроллер для наблюдения за повторами чтений на репликах и привязкой ключей клиентов к репликам. </p>
+ */
+@RestController
+@RequestMapping("/api/v1/reads")
+@RequiredArgsConstructor
+public class ReadRetryController {
+
+    private final ReadRetryService readRetry;
+    private final AffinityRoutingService affinityRouting;
+
+    /**
+     * Возвращает число чтений, исчерпанных бюджетов и повторов по ключам источников данных.
+     *
+     * @return {@link ResponseEntity} с метриками повторов
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<CommonResponse> getStats() {
+        CommonResponse response = CommonDataResponse.builder().status(HttpStatus.OK.name())
+                .data(readRetry.getStats())
+                .build();
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    /**
+     * Возвращает реплики кольца привязки и число выборов реплики по ключу, в том числе с переходом на соседнюю реплику.
+     *
+     * @return {@link ResponseEntity} с состоянием кольца
+     */
+    @GetMapping("/affinity")
+    public ResponseEntity<CommonResponse> getAffinityStats() {
+        CommonResponse response = CommonDataResponse.builder().status(HttpStatus.OK.name())
+                .data(affinityRouting.getStats())
+                .build();
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    /**
+     * Возвращает реплику, за которой закреплен ключ клиента.
+     *
+     * @param key ключ клиента
+     * @return {@link ResponseEntity} с ключом источника данных реплики
+     */
+    @GetMapping("/affinity/{key}")
+    public ResponseEntity<CommonResponse> getAffinityOwner(@PathVariable String key) {
+        CommonResponse response = CommonDataResponse.builder().status(HttpStatus.OK.name())
+                .data(affinityRouting.owner(key))
+                .build();
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.dbswitchingdemo.controller;
+
+import com.example.dbswitchingdemo.dto.response.CommonDataResponse;
+import com.example.dbswitchingdemo.dto.response.CommonResponse;
+import com.example.dbswitchingdemo.service.SlowStartService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * <p> Контроллер для наблюдения за плавным вводом реплик. </p>
+ */
+@RestController
+@RequestMapping("/api/v1/replicas/weights")
+@RequiredArgsConstructor
+public class ReplicaWeightController {
+
+    private final SlowStartService slowStart;
+
+    /**
+     * Возвращает текущий вес каждой реплики при выборе для чтения и состояние ее разогрева.
+     *
+     * @return {@link ResponseEntity} с весами реплик
+     */
+    @GetMapping
+    public ResponseEntity<CommonResponse> getWeights() {
+        CommonResponse response = CommonDataResponse.builder().status(HttpStatus.OK.name())
+                .data(slowStart.getWeights())
+                .build();
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.dbswitchingdemo.controller;
+
+import com.example.dbswitchingdemo.enums.ExportFormat;
+import com.example.dbswitchingdemo.service.ReportExportService;
+import com.example.dbswitchingdemo.service.ScatterGatherService;
+import com.example.dbswitchingdemo.service.SnapshotExportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * <p> Контроллер для потоковой выгрузки отчетов с реплик. </p>
+ * <p> Отчет выгружается либо целиком с одной реплики, либо по частям параллельно со всех реплик.
+ * Набор таблиц можно выгрузить согласованно из одного снимка данных реплики. </p>
+ * <p> Заголовок арендатора ({@code app.affinity.tenant-header}) закрепляет выгрузки арендатора за одной репликой. </p>
+ */
+@RestController
+@RequestMapping("/api/v1/reports")
+@RequiredArgsConstructor
+public class ReportExportController {
+
+    private static final String TENANT_HEADER = "${app.affinity.tenant-header:X-Tenant-Id}";
+
+    private final ReportExportService reportExportService;
+    private final ScatterGatherService scatterGatherService;
+    private final SnapshotExportService snapshotExportService;
+
+    /**
+     * Выгружает отчет с реплики потоком в формате CSV или NDJSON.
+     *
+     * @param report имя отчета из конфигурации
+     * @param format   формат выгрузки
+     * @param tenantId ключ арендатора или {@code null}
+     * @return {@link ResponseEntity} с потоковым телом ответа
+     */
+    @GetMapping("/{report}/export")
+    public ResponseEntity<StreamingResponseBody> export(@PathVariable String report,
+                                                        @RequestParam(defaultValue = "CSV") ExportFormat format,
+                                                        @RequestHeader(name = TENANT_HEADER, required = false)
+                                                        String tenantId) {
+        return stream(report, format, reportExportService.export(report, format, tenantId));
+    }
+
+    /**
+     * Выполняет отчет по частям параллельно на всех репликах и выгружает слитый результат потоком.
+     *
+     * @param report имя отчета из конфигурации {@code app.scatter.reports}
+     * @param format формат выгрузки
+     * @return {@link ResponseEntity} с потоковым телом ответа
+     */
+    @GetMapping("/{report}/scatter")
+    public ResponseEntity<StreamingResponseBody> scatter(@PathVariable String report,
+                                                         @RequestParam(defaultValue = "CSV") ExportFormat format) {
+        return stream(report, format, scatterGatherService.execute(report, format));
+    }
+
+    /**
+     * Выгружает набор таблиц из одного снимка данных реплики, читая таблицы параллельно.
+     *
+     * @param export   имя выгрузки из конфигурации {@code app.snapshot-export.exports}
+     * @param tenantId ключ арендатора или {@code null}
+     * @return {@link ResponseEntity} с потоковым телом ответа в формате NDJSON
+     */
+    @GetMapping("/{export}/snapshot")
+    public ResponseEntity<StreamingResponseBody> snapshot(@PathVariable String export,
+                                                          @RequestHeader(name = TENANT_HEADER, required = false)
+                                                          String tenantId) {
+        return stream(export, ExportFormat.NDJSON, snapshotExportService.export(export, tenantId));
+    }
+
+    private ResponseEntity<StreamingResponseBody> stream(String report, ExportFormat format, StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + report + "." + format.getExtension() + "\"")
+                .body(body);
+    }
+}
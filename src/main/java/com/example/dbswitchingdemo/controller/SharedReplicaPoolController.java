@@ -0,0 +1,35 @@
+package com.example.dbswitchingdemo.controller;
+
+import com.example.dbswitchingdemo.dto.response.CommonDataResponse;
+import com.example.dbswitchingdemo.dto.response.CommonResponse;
+import com.example.dbswitchingdemo.service.SharedReplicaPoolService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * <p> Контроллер для наблюдения за общим пулом реплик. </p>
+ */
+@RestController
+@RequestMapping("/api/v1/replicas/shared-pool")
+@RequiredArgsConstructor
+public class SharedReplicaPoolController {
+
+    private final SharedReplicaPoolService sharedReplicaPool;
+
+    /**
+     * Возвращает список хостов общего пула реплик, число соединений по хостам и состояние пула.
+     *
+     * @return {@link ResponseEntity} с состоянием общего пула реплик
+     */
+    @GetMapping
+    public ResponseEntity<CommonResponse> getStatus() {
+        CommonResponse response = CommonDataResponse.builder().status(HttpStatus.OK.name())
+                .data(sharedReplicaPool.getStatus())
+                .build();
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+}
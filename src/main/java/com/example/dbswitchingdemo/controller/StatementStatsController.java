@@ -0,0 +1,84 @@
+package com.example.dbswitchingdemo.controller;
+
+import com.example.dbswitchingdemo.dto.response.CommonDataResponse;
+import com.example.dbswitchingdemo.dto.response.CommonResponse;
+import com.example.dbswitchingdemo.service.StatementRoutingService;
+import com.example.dbswitchingdemo.service.StatementStatsService;
+import com.example.dbswitchingdemo.util.StatementStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * <p> Контроллер для наблюдения за временем выполнения запросов по источникам данных. </p>
+ */
+@RestController
+@RequestMapping("/api/v1/statements")
+@RequiredArgsConstructor
+public class StatementStatsController {
+
+    private final StatementStatsService statementStats;
+    private final StatementRoutingService statementRouting;
+
+    /**
+     * Возвращает гистограммы времени запросов, состояние пулов и отставание реплик по источникам данных.
+     * Границы корзин гистограмм (в микросекундах) передаются в поле {@code histogramBoundsMicros}.
+     *
+     * @return {@link ResponseEntity} со статистикой по источникам данных
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<CommonResponse> getStats() {
+        CommonResponse response = CommonDataResponse.builder().status(HttpStatus.OK.name())
+                .data(Map.of(
+                        "histogramBoundsMicros", StatementStats.getBoundsMicros(),
+                        "targets", statementStats.getTargetStats()))
+                .build();
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    /**
+     * Возвращает самые медленные нормализованные запросы.
+     *
+     * @return {@link ResponseEntity} со списком медленных запросов
+     */
+    @GetMapping("/slow")
+    public ResponseEntity<CommonResponse> getSlowStatements() {
+        CommonResponse response = CommonDataResponse.builder().status(HttpStatus.OK.name())
+                .data(statementStats.getSlowStatements())
+                .build();
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    /**
+     * Возвращает метрики маршрутизации отдельных запросов между leader и репликами.
+     *
+     * @return {@link ResponseEntity} с метриками маршрутизации
+     */
+    @GetMapping("/routing")
+    public ResponseEntity<CommonResponse> getRoutingStats() {
+        CommonResponse response = CommonDataResponse.builder().status(HttpStatus.OK.name())
+                .data(statementRouting.getStats())
+                .build();
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    /**
+     * Сбрасывает накопленную статистику.
+     *
+     * @return {@link ResponseEntity} с результатом операции
+     */
+    @DeleteMapping("/stats")
+    public ResponseEntity<CommonResponse> reset() {
+        statementStats.reset();
+        CommonResponse response = CommonResponse.builder().status(HttpStatus.OK.name())
+                .message("Statement statistics reset.")
+                .build();
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+}
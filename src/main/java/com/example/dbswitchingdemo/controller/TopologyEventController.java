@@ -0,0 +1,77 @@
+package com.example.dbswitchingdemo.controller;
+
+import com.example.dbswitchingdemo.config.DataSourceContextHolder;
+import com.example.dbswitchingdemo.dto.TopologyStateDTO;
+import com.example.dbswitchingdemo.dto.response.CommonDataResponse;
+import com.example.dbswitchingdemo.dto.response.CommonResponse;
+import com.example.dbswitchingdemo.service.DynamicDatabaseService;
+import com.example.dbswitchingdemo.service.TopologyEventService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * <p> Контроллер для получения текущей топологии и подписки на ее изменения через Server-Sent Events. </p>
+ */
+@RestController
+@RequestMapping("/api/v1/topology")
+@RequiredArgsConstructor
+public class TopologyEventController {
+
+    private final TopologyEventService topologyEvents;
+    private final DynamicDatabaseService dsService;
+
+    /**
+     * Возвращает текущее состояние топологии вместе с эпохой. Эпоха читается до списка членов,
+     * поэтому после подписки с {@code fromEpoch} клиент не пропустит изменений, произошедших между вызовами.
+     *
+     * @return {@link ResponseEntity} с текущим состоянием топологии
+     */
+    @GetMapping
+    public ResponseEntity<CommonResponse> getState() {
+        long epoch = topologyEvents.currentEpoch();
+        List<TopologyStateDTO.Member> members = dsService.getActivePool().values().stream()
+                .filter(dsDTO -> !"fakeDataSourceKey".equals(dsDTO.getDataSourceKey()))
+                .map(dsDTO -> TopologyStateDTO.Member.builder()
+                        .dataSourceKey(dsDTO.getDataSourceKey())
+                        .role(dsDTO.getRole())
+                        .host(dsDTO.getHost())
+                        .port(dsDTO.getPort())
+                        .build())
+                .sorted(Comparator.comparing(TopologyStateDTO.Member::getDataSourceKey))
+                .toList();
+
+        CommonResponse response = CommonDataResponse.builder().status(HttpStatus.OK.name())
+                .data(TopologyStateDTO.builder()
+                        .epoch(epoch)
+                        .routingKey(DataSourceContextHolder.getDataSourceContext().orElse(null))
+                        .members(members)
+                        .build())
+                .build();
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    /**
+     * Подписывает клиента на события топологии. При переподключении браузер сам передает заголовок
+     * {@code Last-Event-ID}; остальные клиенты могут указать эпоху параметром {@code fromEpoch}.
+     *
+     * @param lastEventId эпоха последнего полученного события из заголовка {@code Last-Event-ID}
+     * @param fromEpoch   эпоха, после которой нужно продолжить поток
+     * @return {@link SseEmitter} с потоком событий
+     */
+    @GetMapping(path = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                                @RequestParam(required = false) Long fromEpoch) {
+        return topologyEvents.subscribe(lastEventId != null ? lastEventId : fromEpoch);
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.dbswitchingdemo.controller;
+
+import com.example.dbswitchingdemo.dto.response.CommonDataResponse;
+import com.example.dbswitchingdemo.dto.response.CommonResponse;
+import com.example.dbswitchingdemo.service.WriteBufferService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * <p> Контроллер для наблюдения за буфером операций записи. </p>
+ */
+@RestController
+@RequestMapping("/api/v1/writes")
+@RequiredArgsConstructor
+public class WriteBufferController {
+
+    private final WriteBufferService writeBuffer;
+
+    /**
+     * Возвращает метрики буфера: число припаркованных и отброшенных операций и время парковки.
+     *
+     * @return {@link ResponseEntity} с метриками буфера
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<CommonResponse> getStats() {
+        CommonResponse response = CommonDataResponse.builder().status(HttpStatus.OK.name())
+                .data(writeBuffer.getStats())
+                .build();
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+}
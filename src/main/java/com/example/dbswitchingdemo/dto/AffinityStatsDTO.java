@@ -0,0 +1,18 @@
+package com.example.dbswitchingdemo.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Состояние кольца привязки ключей к репликам и метрики выбора реплик.
+ */
+@Data
+@Builder
+public class AffinityStatsDTO {
+    private List<String> replicas;
+    private int virtualNodes;
+    private long selections;
+    private long fallbacks;
+}
@@ -0,0 +1,32 @@
+package com.example.dbswitchingdemo.dto;
+
+import com.example.dbswitchingdemo.enums.WorkloadClass;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * Состояние изоляции нагрузки одного источника данных: занятые соединения и очередь по классам нагрузки.
+ */
+@Data
+@Builder
+public class BulkheadStatsDTO {
+    private String dataSourceKey;
+    private int capacity;
+    private int inUse;
+    private int waiting;
+    private Map<WorkloadClass, WorkloadStats> workloads;
+
+    @Data
+    @Builder
+    public static class WorkloadStats {
+        private int limit;
+        private int inUse;
+        private int waiting;
+        private long admitted;
+        private long queued;
+        private long shed;
+        private long timedOut;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.dbswitchingdemo.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Состояние синхронизации топологии между экземплярами приложения.
+ */
+@Data
+@Builder
+public class ClusterSyncStatsDTO {
+    private boolean enabled;
+    private String instanceId;
+    private String listeningOn;
+    private long lastEpoch;
+    private long published;
+    private long applied;
+    private long ignored;
+}
@@ -0,0 +1,38 @@
+package com.example.dbswitchingdemo.dto;
+
+import com.example.dbswitchingdemo.enums.FlapEventType;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Штраф, состояние карантина и история изменений штрафа одного члена кластера.
+ */
+@Data
+@Builder
+public class FlapDampingStatusDTO {
+    private String dataSourceKey;
+    private double penalty;
+    private boolean quarantined;
+    /**
+     * Член кластера в карантине присутствует в последней известной топологии.
+     */
+    private boolean present;
+    private Instant lastFlapAt;
+    private Instant quarantinedAt;
+    /**
+     * Самый ранний момент возврата в маршрутизацию, если член кластера останется в топологии.
+     */
+    private Instant readmitNotBefore;
+    private List<PenaltyEvent> history;
+
+    @Data
+    @Builder
+    public static class PenaltyEvent {
+        private Instant at;
+        private FlapEventType event;
+        private double penalty;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.dbswitchingdemo.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Состояние политики разгрузки leader: текущая доля чтений на репликах и последний замер нагрузки.
+ */
+@Data
+@Builder
+public class OffloadStatusDTO {
+    private boolean enabled;
+    private int readShare;
+    private String leaderKey;
+    private String pressure;
+    private int hotStreak;
+    private int coolStreak;
+    private Integer threadsAwaiting;
+    private Integer activeConnections;
+    private Integer maximumPoolSize;
+    private double acquireP95Ms;
+    private Integer activeSessions;
+    private List<String> healthyReplicas;
+    private Instant sampledAt;
+    private Instant lastDecisionAt;
+    private String lastDecision;
+}
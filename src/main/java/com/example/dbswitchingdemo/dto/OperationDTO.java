@@ -0,0 +1,29 @@
+package com.example.dbswitchingdemo.dto;
+
+import com.example.dbswitchingdemo.dto.response.CommonResponse;
+import com.example.dbswitchingdemo.enums.OperationStatus;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * Состояние операции над топологией, выполняемой асинхронно.
+ */
+@Data
+@Builder
+public class OperationDTO {
+    private String id;
+    private String type;
+    private OperationStatus status;
+    private Instant submittedAt;
+    private Instant finishedAt;
+
+    /**
+     * Сколько одинаковых запросов было присоединено к этой операции вместо отдельного выполнения.
+     */
+    private long coalesced;
+
+    private CommonResponse result;
+    private String error;
+}
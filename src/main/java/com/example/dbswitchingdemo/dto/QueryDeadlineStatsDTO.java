@@ -0,0 +1,26 @@
+package com.example.dbswitchingdemo.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * Бюджеты запросов по ролям и счетчики отмененных запросов и прерванных соединений по источникам данных.
+ */
+@Data
+@Builder
+public class QueryDeadlineStatsDTO {
+    private boolean enabled;
+    private String header;
+    private Long leaderBudgetMs;
+    private Long replicaBudgetMs;
+    private long abortGraceMs;
+    private Map<String, Long> routeTimeoutsMs;
+    private Map<String, Long> cancelledByKey;
+    private Map<String, Long> abortedByKey;
+    /**
+     * Запросы, которые не были отправлены на сервер или не получили соединение, потому что срок уже истек.
+     */
+    private Map<String, Long> expiredByKey;
+}
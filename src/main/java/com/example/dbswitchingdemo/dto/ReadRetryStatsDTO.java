@@ -0,0 +1,18 @@
+package com.example.dbswitchingdemo.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * Снимок метрик повторных чтений по ключам источников данных.
+ */
+@Data
+@Builder
+public class ReadRetryStatsDTO {
+    private long reads;
+    private long leaderReads;
+    private long exhausted;
+    private Map<String, Long> retriesByKey;
+}
@@ -0,0 +1,15 @@
+package com.example.dbswitchingdemo.dto;
+
+import com.example.dbswitchingdemo.dto.request.ClusterMemberDTO.MemberDTO;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Член кластера, выпущенный из карантина: сохраненный пул и член кластера с ролью из последней топологии.
+ */
+@Data
+@Builder
+public class ReadmissionDTO {
+    private DataSourceDTO dataSource;
+    private MemberDTO member;
+}
@@ -0,0 +1,26 @@
+package com.example.dbswitchingdemo.dto;
+
+import com.example.dbswitchingdemo.enums.RampMode;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * Текущий вес реплики при выборе реплики для чтения и состояние ее разогрева.
+ */
+@Data
+@Builder
+public class ReplicaWeightDTO {
+    private String dataSourceKey;
+    private double weight;
+    private boolean ramping;
+    private RampMode mode;
+    private Instant rampStartedAt;
+    /**
+     * Доля пройденного разогрева от 0 до 1.
+     */
+    private double progress;
+    private Double p95Ms;
+    private Double peerP95Ms;
+}
@@ -0,0 +1,25 @@
+package com.example.dbswitchingdemo.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Состояние общего пула реплик: список хостов, соединения по хостам и изменения списка хостов.
+ */
+@Data
+@Builder
+public class SharedReplicaPoolDTO {
+    private boolean enabled;
+    private String dataSourceKey;
+    private String url;
+    private List<String> hosts;
+    private Map<String, Long> connectionsByHost;
+    private int activeConnections;
+    private int idleConnections;
+    private int totalConnections;
+    private long hostListChanges;
+    private long abortedConnections;
+}
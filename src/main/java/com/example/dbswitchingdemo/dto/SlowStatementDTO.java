@@ -0,0 +1,20 @@
+package com.example.dbswitchingdemo.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * Медленный нормализованный запрос на конкретном источнике данных.
+ */
+@Data
+@Builder
+public class SlowStatementDTO {
+    private String dataSourceKey;
+    private String sql;
+    private double maxMs;
+    private double meanMs;
+    private long count;
+    private Instant lastSeen;
+}
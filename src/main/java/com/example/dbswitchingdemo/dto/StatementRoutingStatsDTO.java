@@ -0,0 +1,18 @@
+package com.example.dbswitchingdemo.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Снимок метрик маршрутизации отдельных запросов.
+ */
+@Data
+@Builder
+public class StatementRoutingStatsDTO {
+    private boolean enabled;
+    private long replicaReads;
+    private long leaderReads;
+    private long writes;
+    private int cachedStatements;
+    private long classifierMisses;
+}
@@ -0,0 +1,33 @@
+package com.example.dbswitchingdemo.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Статистика запросов и состояние пула одного источника данных.
+ * <p>
+ * {@code assessment} — оценка причины задержек: {@code OVERLOADED}, если запросы ждут соединения из пула,
+ * {@code LAGGING}, если реплика отстает от leader больше порога, иначе {@code OK}.
+ */
+@Data
+@Builder
+public class StatementStatsDTO {
+    private String dataSourceKey;
+    private String role;
+    private long executions;
+    private long errors;
+    private double meanMs;
+    private double p50Ms;
+    private double p95Ms;
+    private double p99Ms;
+    private double maxMs;
+    private long[] histogram;
+    private double acquireP95Ms;
+    private double acquireMaxMs;
+    private Integer activeConnections;
+    private Integer idleConnections;
+    private Integer threadsAwaitingConnection;
+    private Integer maximumPoolSize;
+    private Double replicationLagSeconds;
+    private String assessment;
+}
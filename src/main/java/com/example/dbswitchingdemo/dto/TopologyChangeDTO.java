@@ -0,0 +1,31 @@
+package com.example.dbswitchingdemo.dto;
+
+import com.example.dbswitchingdemo.dto.request.ClusterMemberDTO.MemberDTO;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Запись об изменении топологии, которую экземпляр, применивший изменение, рассылает остальным.
+ * <p>
+ * {@code epoch} выдается последовательностью на leader и задает общий порядок изменений; {@code origin} —
+ * идентификатор экземпляра-источника. Если запись не помещается в {@code NOTIFY}, в уведомлении передаются
+ * только {@code epoch} и {@code origin}, а полная запись читается из журнала изменений.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TopologyChangeDTO {
+    private int formatVersion;
+    private long epoch;
+    private String origin;
+    private String operation;
+    private List<MemberDTO> members;
+    private String routingKey;
+}
@@ -0,0 +1,21 @@
+package com.example.dbswitchingdemo.dto;
+
+import com.example.dbswitchingdemo.enums.TopologyEventType;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * Событие изменения топологии или маршрутизации с монотонно растущим номером эпохи.
+ */
+@Data
+@Builder
+public class TopologyEventDTO {
+    private long epoch;
+    private TopologyEventType type;
+    private String dataSourceKey;
+    private String role;
+    private String detail;
+    private Instant timestamp;
+}
@@ -0,0 +1,39 @@
+package com.example.dbswitchingdemo.dto;
+
+import com.example.dbswitchingdemo.dto.request.ClusterMemberDTO.MemberDTO;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Сохраненная топология кластера: члены кластера с ролями и задержкой и последнее решение маршрутизации.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopologySnapshotDTO {
+
+    /**
+     * Версия формата файла.
+     */
+    private int formatVersion;
+
+    /**
+     * Порядковый номер записи, растет с каждым сохранением.
+     */
+    private long revision;
+
+    private Instant savedAt;
+
+    private List<MemberDTO> members;
+
+    /**
+     * Ключ источника данных, на который в последний раз была переключена маршрутизация.
+     */
+    private String routingKey;
+}
@@ -0,0 +1,26 @@
+package com.example.dbswitchingdemo.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Текущее состояние топологии: активные источники данных, ключ маршрутизации и эпоха последнего события.
+ */
+@Data
+@Builder
+public class TopologyStateDTO {
+    private long epoch;
+    private String routingKey;
+    private List<Member> members;
+
+    @Data
+    @Builder
+    public static class Member {
+        private String dataSourceKey;
+        private String role;
+        private String host;
+        private Integer port;
+    }
+}
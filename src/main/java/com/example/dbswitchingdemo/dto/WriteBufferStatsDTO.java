@@ -0,0 +1,22 @@
+package com.example.dbswitchingdemo.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Снимок метрик буфера операций записи.
+ */
+@Data
+@Builder
+public class WriteBufferStatsDTO {
+    private String leaderKey;
+    private int parkedNow;
+    private long parked;
+    private long replayed;
+    private long retried;
+    private long rejected;
+    private long droppedQueueFull;
+    private long droppedDeadline;
+    private double avgParkedMillis;
+    private double maxParkedMillis;
+}
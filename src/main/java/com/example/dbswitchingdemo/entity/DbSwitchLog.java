@@ -10,7 +10,8 @@ import java.time.LocalDateTime;
 
 /**
  * <p> Класс-сущность для хранения информации о переключении источников данных. </p>
- * <p> Таблица в базе данных хранит записи о времени, когда произошло переключение на другой источник данных. </p>
+ * <p> Таблица в базе данных хранит записи о времени, когда произошло переключение на другой источник данных.
+ * Решения политики разгрузки leader дополнительно сохраняют долю чтений на репликах и причину решения. </p>
  */
 @Data
 @AllArgsConstructor
@@ -26,4 +27,13 @@ public class DbSwitchLog {
 
     @Column(name = "switch_time", nullable = false)
     private LocalDateTime switchTime;
+
+    @Column(name = "data_source_key")
+    private String dataSourceKey;
+
+    @Column(name = "read_share")
+    private Integer readShare;
+
+    @Column(name = "reason")
+    private String reason;
 }
@@ -0,0 +1,17 @@
+package com.example.dbswitchingdemo.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Формат потоковой выгрузки отчета.
+ */
+@Getter
+@AllArgsConstructor
+public enum ExportFormat {
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String extension;
+}
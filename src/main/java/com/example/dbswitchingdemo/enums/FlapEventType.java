@@ -0,0 +1,21 @@
+package com.example.dbswitchingdemo.enums;
+
+/**
+ * Событие в истории штрафа члена кластера.
+ */
+public enum FlapEventType {
+    /**
+     * Член кластера исключен из топологии, штраф увеличен.
+     */
+    FLAP,
+    QUARANTINED,
+    /**
+     * Член кластера в карантине снова появился в топологии, начался отсчет стабильного периода.
+     */
+    RETURNED,
+    READMITTED,
+    /**
+     * Член кластера в карантине так и не вернулся в топологию, его пул закрыт.
+     */
+    RELEASED
+}
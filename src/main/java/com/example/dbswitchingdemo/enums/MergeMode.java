@@ -0,0 +1,11 @@
+package com.example.dbswitchingdemo.enums;
+
+/**
+ * Способ слияния результатов частей отчета.
+ * <p>
+ * {@link #CONCAT} — строки отдаются в порядке поступления, {@link #SORTED} — слияние отсортированных частей,
+ * {@link #AGGREGATE} — сложение частичных агрегатов по ключу группировки.
+ */
+public enum MergeMode {
+    CONCAT, SORTED, AGGREGATE
+}
@@ -0,0 +1,5 @@
+package com.example.dbswitchingdemo.enums;
+
+public enum OperationStatus {
+    PENDING, RUNNING, SUCCEEDED, FAILED
+}
@@ -0,0 +1,10 @@
+package com.example.dbswitchingdemo.enums;
+
+/**
+ * Способ разбиения отчета на части для параллельного выполнения на репликах.
+ * <p>
+ * {@link #HASH} — по хешу колонки разбиения, {@link #RANGE} — по равным диапазонам числовой колонки.
+ */
+public enum PartitionStrategy {
+    HASH, RANGE
+}
@@ -0,0 +1,11 @@
+package com.example.dbswitchingdemo.enums;
+
+/**
+ * Способ увеличения веса новой реплики.
+ * <p>
+ * {@link #LINEAR} — вес растет равномерно за окно разогрева, {@link #LATENCY} — вес растет, пока p95 времени
+ * запросов реплики не хуже p95 прогретых реплик с допуском, и снижается, если хуже.
+ */
+public enum RampMode {
+    LINEAR, LATENCY
+}
@@ -0,0 +1,15 @@
+package com.example.dbswitchingdemo.enums;
+
+/**
+ * Куда можно направить SQL-запрос.
+ */
+public enum SqlRoute {
+    /**
+     * Чтение без побочных эффектов, может выполняться на реплике.
+     */
+    READ,
+    /**
+     * Изменение данных или схемы, блокирующее чтение или вызов функции; выполняется на leader.
+     */
+    WRITE
+}
@@ -0,0 +1,17 @@
+package com.example.dbswitchingdemo.enums;
+
+/**
+ * Тип события изменения топологии или маршрутизации.
+ */
+public enum TopologyEventType {
+    DATASOURCE_ADDED,
+    DATASOURCE_REMOVED,
+    ROLE_CHANGED,
+    SWITCHED,
+    DRAINED,
+    HEALTH_CHANGED,
+    /**
+     * Запрошенная эпоха уже вытеснена из буфера: клиенту нужно заново получить состояние через {@code /topology}.
+     */
+    RESYNC
+}
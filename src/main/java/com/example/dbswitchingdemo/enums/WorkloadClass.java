@@ -0,0 +1,20 @@
+package com.example.dbswitchingdemo.enums;
+
+/**
+ * Класс нагрузки, от имени которой берется соединение. Порядок объявления задает приоритет:
+ * при нехватке соединений первыми получают их {@code OLTP}, а отбрасываются первыми {@code REPORT}.
+ */
+public enum WorkloadClass {
+    /**
+     * Короткие запросы и транзакции приложения. Используется по умолчанию.
+     */
+    OLTP,
+    /**
+     * Служебные операции над топологией и журналом переключений.
+     */
+    ADMIN,
+    /**
+     * Отчеты и выгрузки, которые долго держат соединение.
+     */
+    REPORT
+}
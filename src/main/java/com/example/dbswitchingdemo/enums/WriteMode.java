@@ -0,0 +1,12 @@
+package com.example.dbswitchingdemo.enums;
+
+/**
+ * Режим выполнения операции записи во время отсутствия leader.
+ * <p>
+ * {@link #IDEMPOTENT} и {@link #BUFFERED} операции паркуются в очереди до регистрации нового leader,
+ * {@link #FAIL_FAST} операции сразу завершаются ошибкой. После ошибки соединения на leader повторяются только
+ * {@link #IDEMPOTENT} операции; {@link #BUFFERED} операция могла быть уже применена и завершается ошибкой.
+ */
+public enum WriteMode {
+    IDEMPOTENT, BUFFERED, FAIL_FAST
+}
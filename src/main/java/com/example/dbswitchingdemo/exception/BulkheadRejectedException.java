@@ -0,0 +1,17 @@
+package com.example.dbswitchingdemo.exception;
+
+import java.sql.SQLException;
+
+/**
+ * Соединение не выдано: очередь источника данных переполнена запросами с более высоким приоритетом
+ * или истек срок ожидания. Код SQLSTATE {@code 53300} (too_many_connections) не относится к ошибкам
+ * соединения, поэтому такие отказы не вызывают повторов и буферизации записи.
+ */
+public class BulkheadRejectedException extends SQLException {
+
+    private static final String SQL_STATE = "53300";
+
+    public BulkheadRejectedException(String message) {
+        super(message, SQL_STATE);
+    }
+}
@@ -58,6 +58,23 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(response, HttpStatus.valueOf(response.getStatus()));
     }
 
+    /**
+     * <p>Обработчик исключений {@link LeaderUnavailableException}.</p>
+     *
+     * <p>Этот метод вызывается, когда операция требует leader, а leader в кластере не зарегистрирован
+     * (например, во время переключения). Возвращает HTTP статус 503 (SERVICE_UNAVAILABLE) и сообщение об ошибке.</p>
+     *
+     * @param ex исключение {@link LeaderUnavailableException}, содержащее информацию об ошибке
+     * @return объект {@link ResponseEntity}, содержащий {@link CommonResponse} с сообщением и статусом ошибки
+     */
+    @ExceptionHandler(LeaderUnavailableException.class)
+    public ResponseEntity<CommonResponse> handleLeaderUnavailableException(LeaderUnavailableException ex) {
+        CommonResponse response = CommonResponse.builder().status(HttpStatus.SERVICE_UNAVAILABLE.name())
+                .message(ex.getMessage())
+                .build();
+        return new ResponseEntity<>(response, HttpStatus.valueOf(response.getStatus()));
+    }
+
     /**
      * <p>Обработчик общих исключений {@link Exception}.</p>
      *
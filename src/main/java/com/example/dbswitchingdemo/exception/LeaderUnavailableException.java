@@ -0,0 +1,10 @@
+package com.example.dbswitchingdemo.exception;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class LeaderUnavailableException extends RuntimeException {
+    private final String message;
+}
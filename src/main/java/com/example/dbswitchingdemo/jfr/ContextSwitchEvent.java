@@ -0,0 +1,47 @@
+package com.example.dbswitchingdemo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Событие JFR: изменение общего контекста маршрутизации или контекста текущего потока.
+ */
+@Name("com.example.dbswitchingdemo.ContextSwitch")
+@Label("Routing Context Switch")
+@Category({"DB Switching", "Routing"})
+@StackTrace(false)
+public class ContextSwitchEvent extends jdk.jfr.Event {
+
+    public static final String GLOBAL = "GLOBAL";
+    public static final String THREAD = "THREAD";
+
+    @Label("Scope")
+    @Description("GLOBAL for the shared routing key, THREAD for the thread-local override")
+    public String scope;
+
+    @Label("Previous Data Source Key")
+    public String previousKey;
+
+    @Label("Data Source Key")
+    public String dataSourceKey;
+
+    /**
+     * Записывает событие, если оно включено в текущей записи.
+     *
+     * @param scope       область контекста
+     * @param previousKey предыдущий ключ или {@code null}
+     * @param dsKey       новый ключ или {@code null}
+     */
+    public static void emit(String scope, String previousKey, String dsKey) {
+        ContextSwitchEvent event = new ContextSwitchEvent();
+        if (event.isEnabled()) {
+            event.scope = scope;
+            event.previousKey = previousKey;
+            event.dataSourceKey = dsKey;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.dbswitchingdemo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Событие JFR: создание, прогрев, закрытие или вытеснение старого пула соединений источника данных.
+ */
+@Name("com.example.dbswitchingdemo.PoolLifecycle")
+@Label("Pool Lifecycle")
+@Description("Creation, warm-up, close or drain of a data source connection pool")
+@Category({"DB Switching", "Pool"})
+@StackTrace(false)
+public class PoolLifecycleEvent extends jdk.jfr.Event {
+
+    public static final String CREATE = "CREATE";
+    public static final String WARM = "WARM";
+    public static final String CLOSE = "CLOSE";
+    public static final String DRAIN = "DRAIN";
+
+    @Label("Data Source Key")
+    public String dataSourceKey;
+
+    @Label("Action")
+    public String action;
+
+    @Label("Connections")
+    @Description("Connections opened during warm-up")
+    public int connections;
+
+    @Label("Success")
+    public boolean success;
+}
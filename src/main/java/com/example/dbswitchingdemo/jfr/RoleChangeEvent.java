@@ -0,0 +1,25 @@
+package com.example.dbswitchingdemo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Событие JFR: смена роли существующего источника данных.
+ */
+@Name("com.example.dbswitchingdemo.RoleChange")
+@Label("Role Change")
+@Category({"DB Switching", "Topology"})
+@StackTrace(false)
+public class RoleChangeEvent extends jdk.jfr.Event {
+
+    @Label("Data Source Key")
+    public String dataSourceKey;
+
+    @Label("Previous Role")
+    public String previousRole;
+
+    @Label("Role")
+    public String role;
+}
@@ -0,0 +1,33 @@
+package com.example.dbswitchingdemo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Событие JFR: выбор источника данных маршрутизатором и получение соединения из выбранного пула.
+ * <p>
+ * Записывается только если операция длилась дольше порога (по умолчанию 20 мс, меняется настройками записи),
+ * поэтому быстрые обращения к пулу не попадают в запись.
+ */
+@Name("com.example.dbswitchingdemo.RoutingLookup")
+@Label("Routing Lookup")
+@Description("Resolution of the routing key and connection checkout from the selected pool")
+@Category({"DB Switching", "Routing"})
+@Threshold("20 ms")
+@StackTrace(false)
+public class RoutingLookupEvent extends jdk.jfr.Event {
+
+    @Label("Data Source Key")
+    public String dataSourceKey;
+
+    @Label("Thread Override")
+    @Description("Key was taken from the thread-local routing context")
+    public boolean threadOverride;
+
+    @Label("Success")
+    public boolean success;
+}
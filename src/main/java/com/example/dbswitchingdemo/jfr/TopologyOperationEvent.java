@@ -0,0 +1,27 @@
+package com.example.dbswitchingdemo.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Событие JFR: длительность операции над топологией ({@code refresh}, {@code close}, {@code change}).
+ */
+@Name("com.example.dbswitchingdemo.TopologyOperation")
+@Label("Topology Operation")
+@Category({"DB Switching", "Topology"})
+@StackTrace(false)
+public class TopologyOperationEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Data Source Keys")
+    @Description("Members of the request, or the resulting routing key for a switch")
+    public String dataSourceKey;
+
+    @Label("Status")
+    public String status;
+}
@@ -0,0 +1,46 @@
+package com.example.dbswitchingdemo.service;
+
+import com.example.dbswitchingdemo.dto.AffinityStatsDTO;
+import com.example.dbswitchingdemo.dto.DataSourceDTO;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p> Интерфейс для выбора реплики по ключу клиента через кольцо консистентного хеширования. </p>
+ */
+public interface AffinityRoutingService {
+
+    /**
+     * Перестраивает кольцо по текущему набору реплик. Если набор не изменился, кольцо остается прежним.
+     *
+     * @param dsActivePool пул активных источников данных
+     */
+    void rebuild(Map<String, DataSourceDTO> dsActivePool);
+
+    /**
+     * Выбирает реплику для ключа клиента. Если реплика-владелец ключа недоступна или исключена,
+     * выбирается следующая реплика по кольцу.
+     *
+     * @param affinityKey  ключ клиента (например, идентификатор арендатора)
+     * @param excludedKeys ключи источников данных, которые нельзя выбирать
+     * @return объект {@link DataSourceDTO} выбранной реплики
+     * @throws com.example.dbswitchingdemo.exception.ResourceNotFound если подходящей реплики нет
+     */
+    DataSourceDTO selectReplica(String affinityKey, Set<String> excludedKeys);
+
+    /**
+     * Возвращает реплику-владельца ключа без учета доступности.
+     *
+     * @param affinityKey ключ клиента
+     * @return ключ источника данных или {@code null}, если реплик нет
+     */
+    String owner(String affinityKey);
+
+    /**
+     * Возвращает состояние кольца и метрики выбора.
+     *
+     * @return объект {@link AffinityStatsDTO}
+     */
+    AffinityStatsDTO getStats();
+}
@@ -0,0 +1,18 @@
+package com.example.dbswitchingdemo.service;
+
+import com.example.dbswitchingdemo.dto.BulkheadStatsDTO;
+
+import java.util.List;
+
+/**
+ * <p> Интерфейс для наблюдения за изоляцией нагрузки по источникам данных. </p>
+ */
+public interface BulkheadService {
+
+    /**
+     * Возвращает занятые соединения, очередь и счетчики отказов по классам нагрузки для каждого источника данных.
+     *
+     * @return состояние по источникам данных, отсортированное по ключу
+     */
+    List<BulkheadStatsDTO> getStats();
+}
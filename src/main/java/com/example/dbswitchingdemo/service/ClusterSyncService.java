@@ -0,0 +1,38 @@
+package com.example.dbswitchingdemo.service;
+
+import com.example.dbswitchingdemo.dto.ClusterSyncStatsDTO;
+import com.example.dbswitchingdemo.dto.TopologyChangeDTO;
+import com.example.dbswitchingdemo.dto.request.ClusterMemberDTO.MemberDTO;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * <p> Интерфейс для распространения изменений топологии между экземплярами приложения. </p>
+ */
+public interface ClusterSyncService {
+
+    /**
+     * Публикует изменение, уже примененное на этом экземпляре. Ошибка публикации не отменяет локальное изменение.
+     *
+     * @param operation  операция ({@code refresh}, {@code close} или {@code switch})
+     * @param members    члены кластера из запроса или {@code null}
+     * @param routingKey текущий ключ маршрутизации или {@code null}
+     */
+    void publish(String operation, List<MemberDTO> members, String routingKey);
+
+    /**
+     * Регистрирует обработчик изменений, полученных от других экземпляров. Обработчик вызывается в потоке
+     * слушателя только для записей с эпохой больше последней известной и должен быстро возвращать управление.
+     *
+     * @param listener обработчик изменений
+     */
+    void onRemoteChange(Consumer<TopologyChangeDTO> listener);
+
+    /**
+     * Возвращает состояние синхронизации.
+     *
+     * @return объект {@link ClusterSyncStatsDTO}
+     */
+    ClusterSyncStatsDTO getStats();
+}
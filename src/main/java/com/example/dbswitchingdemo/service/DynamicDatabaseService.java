@@ -1,8 +1,13 @@
 package com.example.dbswitchingdemo.service;
 
+import com.example.dbswitchingdemo.dto.DataSourceDTO;
+import com.example.dbswitchingdemo.dto.TopologySnapshotDTO;
 import com.example.dbswitchingdemo.dto.request.ClusterMemberDTO;
 import com.example.dbswitchingdemo.dto.response.CommonResponse;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * <p> Интерфейс для динамического управления источниками данных. </p>
  */
@@ -23,6 +28,16 @@ public interface DynamicDatabaseService {
      */
     CommonResponse change();
 
+    /**
+     * Переключает контекст подключения на указанный источник данных.
+     * Используется для применения переключения, выполненного на другом экземпляре приложения.
+     *
+     * @param dsKey ключ источника данных
+     * @return объект {@link CommonResponse}, представляющий результат переключения
+     * @throws com.example.dbswitchingdemo.exception.ResourceNotFound если источник данных не зарегистрирован
+     */
+    CommonResponse changeTo(String dsKey);
+
     /**
      * Закрывает неиспользуемые источники данных на основе информации о членах кластера.
      *
@@ -30,4 +45,29 @@ public interface DynamicDatabaseService {
      * @return объект {@link CommonResponse}, представляющий результат операции закрытия
      */
     CommonResponse close(ClusterMemberDTO clusterMemberDTO);
+
+    /**
+     * Возвращает пул активных источников данных только для чтения.
+     *
+     * @return неизменяемое представление пула активных источников данных
+     */
+    Map<String, DataSourceDTO> getActivePool();
+
+    /**
+     * Восстанавливает источники данных по сохраненной топологии при старте приложения.
+     * <p>
+     * Пулы создаются и прогреваются параллельно; члены кластера, не успевшие подключиться за отведенное время,
+     * пропускаются. Следующий вызов {@link #refresh} и {@link #close} сверяет восстановленную топологию с актуальной.
+     *
+     * @param snapshot сохраненная топология
+     * @return ключи восстановленных источников данных
+     */
+    List<String> restore(TopologySnapshotDTO snapshot);
+
+    /**
+     * Возвращает в маршрутизацию члены кластера, которые достаточно долго стабильны после карантина.
+     *
+     * @return объект {@link CommonResponse} с ключами возвращенных источников данных
+     */
+    CommonResponse readmit();
 }
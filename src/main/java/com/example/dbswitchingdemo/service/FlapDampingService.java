@@ -0,0 +1,71 @@
+package com.example.dbswitchingdemo.service;
+
+import com.example.dbswitchingdemo.dto.DataSourceDTO;
+import com.example.dbswitchingdemo.dto.FlapDampingStatusDTO;
+import com.example.dbswitchingdemo.dto.ReadmissionDTO;
+import com.example.dbswitchingdemo.dto.request.ClusterMemberDTO.MemberDTO;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * <p> Интерфейс подавления членов кластера, которые часто исключаются из топологии и возвращаются в нее. </p>
+ */
+public interface FlapDampingService {
+
+    /**
+     * Учитывает исключение активного члена кластера из топологии.
+     *
+     * @param dsKey ключ источника данных
+     * @return {@code true}, если штраф достиг порога и член кластера нужно поместить в карантин
+     *         через {@link #quarantine(DataSourceDTO, MemberDTO)} вместо закрытия пула
+     */
+    boolean recordFlap(String dsKey);
+
+    /**
+     * Помещает член кластера в карантин. Источник данных уже должен быть исключен из маршрутизации;
+     * его пул не закрывается, а уменьшается до {@code quarantineIdle} соединений.
+     *
+     * @param ds     исключенный источник данных
+     * @param member член кластера
+     */
+    void quarantine(DataSourceDTO ds, MemberDTO member);
+
+    /**
+     * Учитывает присутствие члена кластера в новой топологии.
+     *
+     * @param member член кластера из запроса
+     * @return {@code true}, если член кластера в карантине и не должен добавляться в маршрутизацию
+     */
+    boolean observe(MemberDTO member);
+
+    /**
+     * Учитывает исключение из топологии членов кластера в карантине, которых нет в наборе.
+     *
+     * @param memberNames ключи членов кластера, которые остаются в топологии
+     */
+    void withdraw(Set<String> memberNames);
+
+    /**
+     * Выпускает из карантина стабильные члены кластера и восстанавливает размер их пулов.
+     * Вызывающий код должен вернуть их в маршрутизацию.
+     *
+     * @return выпущенные члены кластера
+     */
+    List<ReadmissionDTO> releaseReadmittable();
+
+    /**
+     * Регистрирует обработчик, который вызывается в потоке {@code flap-damping}, когда в карантине появились
+     * члены кластера, готовые к возврату. Обработчик должен быстро возвращать управление.
+     *
+     * @param listener обработчик
+     */
+    void onReadmittable(Runnable listener);
+
+    /**
+     * Возвращает штрафы, состояние карантина и историю штрафов членов кластера.
+     *
+     * @return состояние членов кластера, отсортированное по ключу
+     */
+    List<FlapDampingStatusDTO> getStatus();
+}
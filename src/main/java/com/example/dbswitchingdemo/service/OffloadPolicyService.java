@@ -0,0 +1,25 @@
+package com.example.dbswitchingdemo.service;
+
+import com.example.dbswitchingdemo.dto.OffloadStatusDTO;
+
+/**
+ * <p> Интерфейс политики, которая по нагрузке на leader решает, какая доля чтений уходит на реплики. </p>
+ */
+public interface OffloadPolicyService {
+
+    /**
+     * Решает, направить ли очередное чтение на реплику. Если политика выключена, все чтения идут на реплики.
+     * Решение применяют выгрузки отчетов ({@link ReadRetryService}) и, при {@code app.statement-routing.enabled},
+     * чтения через маршрутизацию отдельных запросов.
+     *
+     * @return {@code true}, если чтение нужно выполнить на реплике, {@code false} — на leader
+     */
+    boolean offloadRead();
+
+    /**
+     * Возвращает текущую долю чтений на репликах, последний замер нагрузки и последнее решение.
+     *
+     * @return объект {@link OffloadStatusDTO}
+     */
+    OffloadStatusDTO getStatus();
+}
@@ -0,0 +1,16 @@
+package com.example.dbswitchingdemo.service;
+
+import com.example.dbswitchingdemo.dto.QueryDeadlineStatsDTO;
+
+/**
+ * <p> Интерфейс ограничения времени выполнения запросов к базе данных. </p>
+ */
+public interface QueryDeadlineService {
+
+    /**
+     * Возвращает действующие бюджеты и счетчики отмененных запросов по источникам данных.
+     *
+     * @return объект {@link QueryDeadlineStatsDTO}
+     */
+    QueryDeadlineStatsDTO getStats();
+}
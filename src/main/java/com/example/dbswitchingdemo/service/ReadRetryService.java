@@ -0,0 +1,74 @@
+package com.example.dbswitchingdemo.service;
+
+import com.example.dbswitchingdemo.dto.ReadRetryStatsDTO;
+
+import java.sql.SQLException;
+import java.util.function.Supplier;
+
+/**
+ * <p> Интерфейс для выполнения идемпотентных чтений на репликах с повтором на другой реплике. </p>
+ */
+public interface ReadRetryService {
+
+    /**
+     * Выполняет идемпотентное чтение на одной из реплик в отдельной read-only транзакции.
+     * <p>
+     * При ошибке соединения чтение повторяется на другой реплике с джиттером паузы, пока не исчерпан бюджет попыток.
+     * Внутри уже открытой транзакции записи повтор не выполняется: чтение идет по соединению этой транзакции.
+     * Пока политика разгрузки не отдала репликам все чтения, часть чтений выполняется на leader без повторов.
+     *
+     * @param operation название операции для логов
+     * @param read      операция чтения
+     * @param <T>       тип результата
+     * @return результат чтения
+     */
+    <T> T executeRead(String operation, Supplier<T> read);
+
+    /**
+     * Выполняет идемпотентное чтение на реплике, закрепленной за ключом клиента.
+     * <p>
+     * Реплика выбирается по кольцу консистентного хеширования, поэтому чтения одного арендатора попадают
+     * на одну реплику и используют ее кеш. При ошибке соединения повтор идет на следующей реплике по кольцу.
+     *
+     * @param operation   название операции для логов
+     * @param affinityKey ключ клиента (арендатор, пользователь) или {@code null} для случайной реплики
+     * @param read        операция чтения
+     * @param <T>         тип результата
+     * @return результат чтения
+     */
+    <T> T executeRead(String operation, String affinityKey, Supplier<T> read);
+
+    /**
+     * Выполняет идемпотентное чтение, которое само берет соединение по ключу выбранной реплики.
+     * <p>
+     * Нужно чтениям, которые работают с соединением напрямую, например потоковой выгрузке отчета. Реплика
+     * выбирается и заменяется при ошибке соединения так же, как в {@link #executeRead(String, String, Supplier)},
+     * и так же часть чтений отдается leader, пока политика разгрузки не перевела на реплики все чтения.
+     * Операция повторяется целиком, поэтому до успешного завершения она не должна отдавать данные клиенту.
+     *
+     * @param operation   название операции для логов
+     * @param affinityKey ключ клиента (арендатор, пользователь) или {@code null} для случайной реплики
+     * @param read        операция чтения, которая получает ключ источника данных реплики
+     * @param <T>         тип результата
+     * @return результат чтения
+     * @throws SQLException если чтение завершилось ошибкой или исчерпан бюджет попыток
+     */
+    <T> T executeOnReplica(String operation, String affinityKey, ReplicaRead<T> read) throws SQLException;
+
+    /**
+     * Возвращает метрики повторов.
+     *
+     * @return объект {@link ReadRetryStatsDTO}
+     */
+    ReadRetryStatsDTO getStats();
+
+    /**
+     * Чтение на источнике данных с заданным ключом.
+     *
+     * @param <T> тип результата
+     */
+    @FunctionalInterface
+    interface ReplicaRead<T> {
+        T read(String dsKey) throws SQLException;
+    }
+}
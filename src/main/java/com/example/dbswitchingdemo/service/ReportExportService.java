@@ -0,0 +1,25 @@
+package com.example.dbswitchingdemo.service;
+
+import com.example.dbswitchingdemo.enums.ExportFormat;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * <p> Интерфейс для потоковой выгрузки отчетов с реплик. </p>
+ */
+public interface ReportExportService {
+
+    /**
+     * Готовит потоковую выгрузку отчета с одной из реплик.
+     * <p>
+     * Реплика выбирается при начале записи ответа и закрепляется за выгрузкой; если соединение с ней оборвалось
+     * до первой строки, выгрузка начинается на другой реплике. Строки читаются курсором и сразу пишутся в ответ,
+     * не накапливаясь в памяти. Выгрузки одного арендатора идут на реплику, закрепленную за ним в кольце
+     * привязки, и используют ее кеш.
+     *
+     * @param report   имя отчета из конфигурации {@code app.export.queries}
+     * @param format   формат выгрузки
+     * @param tenantId ключ арендатора или {@code null} для реплики без привязки
+     * @return тело ответа, которое пишет строки отчета в выходной поток
+     */
+    StreamingResponseBody export(String report, ExportFormat format, String tenantId);
+}
@@ -0,0 +1,19 @@
+package com.example.dbswitchingdemo.service;
+
+import com.example.dbswitchingdemo.enums.ExportFormat;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * <p> Интерфейс для параллельного выполнения отчетов на всех репликах. </p>
+ */
+public interface ScatterGatherService {
+
+    /**
+     * Разбивает отчет на части, выполняет их параллельно на всех репликах и потоково сливает результат.
+     *
+     * @param report имя отчета из конфигурации {@code app.scatter.reports}
+     * @param format формат выгрузки
+     * @return тело ответа, которое пишет слитые строки отчета в выходной поток
+     */
+    StreamingResponseBody execute(String report, ExportFormat format);
+}
@@ -0,0 +1,62 @@
+package com.example.dbswitchingdemo.service;
+
+import com.example.dbswitchingdemo.dto.DataSourceDTO;
+import com.example.dbswitchingdemo.dto.SharedReplicaPoolDTO;
+import com.example.dbswitchingdemo.dto.request.ClusterMemberDTO.MemberDTO;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p> Интерфейс общего пула реплик, в котором хост для соединения выбирает драйвер PostgreSQL. </p>
+ */
+public interface SharedReplicaPoolService {
+
+    /**
+     * Возвращает {@code true}, если реплики обслуживаются общим пулом вместо пулов отдельных членов кластера.
+     *
+     * @return включен ли режим общего пула реплик
+     */
+    boolean isEnabled();
+
+    /**
+     * Возвращает ключ источника данных общего пула реплик в маршрутизаторе.
+     *
+     * @return ключ источника данных
+     */
+    String getDataSourceKey();
+
+    /**
+     * Добавляет в список хостов члены кластера с ролью replica и убирает из него члены кластера с другой ролью.
+     * Пул создается при появлении первой реплики и закрывается, когда реплик не остается.
+     *
+     * @param members      члены кластера
+     * @param dsActivePool пул активных источников данных
+     * @return {@code true}, если список хостов изменился
+     */
+    boolean refresh(List<MemberDTO> members, Map<String, DataSourceDTO> dsActivePool);
+
+    /**
+     * Оставляет в списке хостов только указанные члены кластера.
+     *
+     * @param dsKeys       уникальные ключи членов кластера, которые остаются в кластере
+     * @param dsActivePool пул активных источников данных
+     * @return ключи хостов, удаленных из списка
+     */
+    List<String> retain(Set<String> dsKeys, Map<String, DataSourceDTO> dsActivePool);
+
+    /**
+     * Возвращает члены кластера, которые обслуживаются общим пулом.
+     *
+     * @return члены кластера с ролью replica
+     */
+    List<MemberDTO> getMembers();
+
+    /**
+     * Возвращает состояние общего пула реплик.
+     *
+     * @return состояние пула
+     */
+    SharedReplicaPoolDTO getStatus();
+}
@@ -0,0 +1,35 @@
+package com.example.dbswitchingdemo.service;
+
+import com.example.dbswitchingdemo.dto.DataSourceDTO;
+import com.example.dbswitchingdemo.dto.ReplicaWeightDTO;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p> Интерфейс плавного ввода новых и вернувшихся реплик в маршрутизацию чтений. </p>
+ */
+public interface SlowStartService {
+
+    /**
+     * Сверяет набор реплик с пулом: для появившихся реплик начинает разогрев, исчезнувшие забывает.
+     *
+     * @param dsActivePool пул активных источников данных
+     */
+    void rebuild(Map<String, DataSourceDTO> dsActivePool);
+
+    /**
+     * Возвращает вес реплики при выборе реплики для чтения.
+     *
+     * @param dsKey ключ источника данных
+     * @return вес от {@code initialWeight} до 1; 1 для прогретых реплик
+     */
+    double weight(String dsKey);
+
+    /**
+     * Возвращает веса и состояние разогрева всех реплик.
+     *
+     * @return веса реплик, отсортированные по ключу
+     */
+    List<ReplicaWeightDTO> getWeights();
+}
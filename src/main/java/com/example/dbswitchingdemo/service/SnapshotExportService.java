@@ -0,0 +1,23 @@
+package com.example.dbswitchingdemo.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * <p> Интерфейс для согласованной параллельной выгрузки нескольких таблиц с реплики. </p>
+ */
+public interface SnapshotExportService {
+
+    /**
+     * Готовит выгрузку набора таблиц из одного снимка данных реплики.
+     * <p>
+     * Координатор открывает транзакцию {@code REPEATABLE READ} и экспортирует снимок через
+     * {@code pg_export_snapshot()}, рабочие соединения того же пула импортируют его и читают таблицы параллельно.
+     * Результат пишется в NDJSON: по записи на строку таблицы и завершающая запись со статусом выгрузки.
+     * Выгрузка арендатора идет на реплику, закрепленную за ним в кольце привязки.
+     *
+     * @param export   имя выгрузки из конфигурации {@code app.snapshot-export.exports}
+     * @param tenantId ключ арендатора или {@code null} для реплики без привязки
+     * @return тело ответа, которое пишет строки таблиц в выходной поток
+     */
+    StreamingResponseBody export(String export, String tenantId);
+}
@@ -0,0 +1,16 @@
+package com.example.dbswitchingdemo.service;
+
+import com.example.dbswitchingdemo.dto.StatementRoutingStatsDTO;
+
+/**
+ * <p> Интерфейс маршрутизации отдельных запросов: чтения на реплики, записи на leader. </p>
+ */
+public interface StatementRoutingService {
+
+    /**
+     * Возвращает число запросов, направленных на реплики и на leader, и состояние кеша классификатора.
+     *
+     * @return объект {@link StatementRoutingStatsDTO}
+     */
+    StatementRoutingStatsDTO getStats();
+}
@@ -0,0 +1,32 @@
+package com.example.dbswitchingdemo.service;
+
+import com.example.dbswitchingdemo.dto.SlowStatementDTO;
+import com.example.dbswitchingdemo.dto.StatementStatsDTO;
+
+import java.util.List;
+
+/**
+ * <p> Интерфейс для получения статистики выполнения запросов по источникам данных. </p>
+ */
+public interface StatementStatsService {
+
+    /**
+     * Возвращает гистограммы времени запросов и состояние пулов по всем источникам данных.
+     * Для реплик дополнительно запрашивается отставание репликации.
+     *
+     * @return статистика по источникам данных, отсортированная по ключу
+     */
+    List<StatementStatsDTO> getTargetStats();
+
+    /**
+     * Возвращает самые медленные нормализованные запросы.
+     *
+     * @return список запросов от самого медленного
+     */
+    List<SlowStatementDTO> getSlowStatements();
+
+    /**
+     * Сбрасывает накопленную статистику.
+     */
+    void reset();
+}
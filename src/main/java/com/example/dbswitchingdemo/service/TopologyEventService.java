@@ -0,0 +1,37 @@
+package com.example.dbswitchingdemo.service;
+
+import com.example.dbswitchingdemo.enums.TopologyEventType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * <p> Интерфейс для публикации событий топологии и маршрутизации подписчикам через SSE. </p>
+ */
+public interface TopologyEventService {
+
+    /**
+     * Публикует событие с новым номером эпохи.
+     *
+     * @param type          тип события
+     * @param dataSourceKey ключ источника данных, к которому относится событие, или {@code null}
+     * @param role          роль источника данных или {@code null}
+     * @param detail        дополнительное описание или {@code null}
+     * @return номер эпохи события
+     */
+    long publish(TopologyEventType type, String dataSourceKey, String role, String detail);
+
+    /**
+     * Подписывает клиента на поток событий.
+     *
+     * @param fromEpoch последняя полученная клиентом эпоха; события после нее будут отправлены повторно,
+     *                  если они еще есть в буфере. {@code null} — только новые события
+     * @return {@link SseEmitter} для ответа клиенту
+     */
+    SseEmitter subscribe(Long fromEpoch);
+
+    /**
+     * Возвращает номер эпохи последнего опубликованного события.
+     *
+     * @return номер эпохи
+     */
+    long currentEpoch();
+}
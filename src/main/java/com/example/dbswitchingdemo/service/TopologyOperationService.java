@@ -0,0 +1,59 @@
+package com.example.dbswitchingdemo.service;
+
+import com.example.dbswitchingdemo.dto.OperationDTO;
+import com.example.dbswitchingdemo.dto.TopologySnapshotDTO;
+import com.example.dbswitchingdemo.dto.request.ClusterMemberDTO;
+import com.example.dbswitchingdemo.dto.response.CommonResponse;
+
+import java.util.Optional;
+
+/**
+ * <p> Интерфейс для последовательного выполнения операций над топологией кластера. </p>
+ * <p> Все операции {@link DynamicDatabaseService} над пулом выполняются по одной, одинаковые операции,
+ * которые уже ожидают или выполняются, объединяются в одно выполнение. В асинхронном режиме вызов
+ * сразу возвращает статус {@code ACCEPTED} и идентификатор операции для опроса. </p>
+ */
+public interface TopologyOperationService {
+
+    /**
+     * Обновляет пул источников данных, см. {@link DynamicDatabaseService#refresh}.
+     *
+     * @param clusterMemberDTO DTO, содержащий список членов кластера
+     * @param async            вернуть идентификатор операции, не дожидаясь выполнения
+     * @return результат операции или {@link OperationDTO} в асинхронном режиме
+     */
+    CommonResponse refresh(ClusterMemberDTO clusterMemberDTO, boolean async);
+
+    /**
+     * Переключает контекст подключения на реплику, см. {@link DynamicDatabaseService#change}.
+     *
+     * @param async вернуть идентификатор операции, не дожидаясь выполнения
+     * @return результат операции или {@link OperationDTO} в асинхронном режиме
+     */
+    CommonResponse change(boolean async);
+
+    /**
+     * Закрывает неиспользуемые источники данных, см. {@link DynamicDatabaseService#close}.
+     *
+     * @param clusterMemberDTO DTO, содержащий список членов кластера
+     * @param async            вернуть идентификатор операции, не дожидаясь выполнения
+     * @return результат операции или {@link OperationDTO} в асинхронном режиме
+     */
+    CommonResponse close(ClusterMemberDTO clusterMemberDTO, boolean async);
+
+    /**
+     * Восстанавливает сохраненную топологию, см. {@link DynamicDatabaseService#restore}. Выполняется синхронно.
+     *
+     * @param snapshot сохраненная топология
+     * @return результат операции
+     */
+    CommonResponse restore(TopologySnapshotDTO snapshot);
+
+    /**
+     * Возвращает состояние операции по идентификатору.
+     *
+     * @param id идентификатор операции
+     * @return состояние операции или {@link Optional#empty()}, если операция неизвестна или уже вытеснена из истории
+     */
+    Optional<OperationDTO> find(String id);
+}
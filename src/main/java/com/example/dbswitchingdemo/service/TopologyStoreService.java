@@ -0,0 +1,28 @@
+package com.example.dbswitchingdemo.service;
+
+import com.example.dbswitchingdemo.dto.TopologySnapshotDTO;
+import com.example.dbswitchingdemo.dto.request.ClusterMemberDTO.MemberDTO;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * <p> Интерфейс для локального хранения последней примененной топологии кластера. </p>
+ */
+public interface TopologyStoreService {
+
+    /**
+     * Загружает сохраненную топологию.
+     *
+     * @return сохраненная топология или {@link Optional#empty()}, если файла нет, он поврежден или хранение выключено
+     */
+    Optional<TopologySnapshotDTO> load();
+
+    /**
+     * Атомарно сохраняет текущую топологию с новым номером ревизии.
+     *
+     * @param members    члены кластера, для которых есть активные источники данных
+     * @param routingKey текущий ключ маршрутизации или {@code null}
+     */
+    void save(List<MemberDTO> members, String routingKey);
+}
@@ -0,0 +1,41 @@
+package com.example.dbswitchingdemo.service;
+
+import com.example.dbswitchingdemo.dto.DataSourceDTO;
+import com.example.dbswitchingdemo.dto.WriteBufferStatsDTO;
+import com.example.dbswitchingdemo.enums.WriteMode;
+
+import java.util.function.Supplier;
+
+/**
+ * <p> Интерфейс для выполнения операций записи с учетом окна переключения leader. </p>
+ */
+public interface WriteBufferService {
+
+    /**
+     * Выполняет операцию записи на текущем leader.
+     * <p>
+     * Если leader отсутствует, операции в режимах {@link WriteMode#IDEMPOTENT} и {@link WriteMode#BUFFERED}
+     * паркуются в ограниченной очереди до регистрации нового leader или до истечения дедлайна.
+     *
+     * @param operation название операции для логов
+     * @param mode      режим выполнения операции
+     * @param write     операция записи
+     * @param <T>       тип результата
+     * @return результат операции записи
+     */
+    <T> T execute(String operation, WriteMode mode, Supplier<T> write);
+
+    /**
+     * Сообщает буферу актуального leader после изменения топологии и воспроизводит припаркованные операции.
+     *
+     * @param leader текущий leader или {@code null}, если leader отсутствует
+     */
+    void onLeaderChanged(DataSourceDTO leader);
+
+    /**
+     * Возвращает метрики буфера.
+     *
+     * @return объект {@link WriteBufferStatsDTO}
+     */
+    WriteBufferStatsDTO getStats();
+}
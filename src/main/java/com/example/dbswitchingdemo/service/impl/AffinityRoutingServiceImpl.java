@@ -0,0 +1,118 @@
+package com.example.dbswitchingdemo.service.impl;
+
+import com.example.dbswitchingdemo.config.AffinityProperties;
+import com.example.dbswitchingdemo.dto.AffinityStatsDTO;
+import com.example.dbswitchingdemo.dto.DataSourceDTO;
+import com.example.dbswitchingdemo.exception.ResourceNotFound;
+import com.example.dbswitchingdemo.service.AffinityRoutingService;
+import com.example.dbswitchingdemo.service.SlowStartService;
+import com.example.dbswitchingdemo.util.ConsistentHashRing;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Реализация привязки ключей клиентов к репликам.
+ * <p>
+ * Запросы одного арендатора попадают на одну и ту же реплику, поэтому его данные остаются в shared buffers
+ * этой реплики. Кольцо публикуется через volatile-поле и читается без блокировок. Реплика считается
+ * недоступной, если ее пул закрыт или соединения ждут больше {@code maxAwaitingConnections} потоков.
+ * <p>
+ * Реплика в плавном вводе ({@link SlowStartService}) принимает только ключи, доля которых меньше ее веса;
+ * остальные ключи ее участка остаются на следующей по кольцу реплике и переходят по мере роста веса.
+ * Если так не подходит ни одна реплика, вес не учитывается.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AffinityRoutingServiceImpl implements AffinityRoutingService {
+
+    private final AffinityProperties properties;
+    private final SlowStartService slowStart;
+
+    private final LongAdder selections = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    private volatile ConsistentHashRing ring = ConsistentHashRing.empty();
+    private volatile Map<String, DataSourceDTO> dsActivePool = Map.of();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void rebuild(Map<String, DataSourceDTO> dsActivePool) {
+        this.dsActivePool = dsActivePool;
+        Set<String> replicas = dsActivePool.values().stream()
+                .filter(dsDTO -> "replica".equals(dsDTO.getRole()))
+                .map(DataSourceDTO::getDataSourceKey)
+                .collect(Collectors.toSet());
+        if (replicas.equals(ring.getNodes())) {
+            return;
+        }
+        ring = ConsistentHashRing.build(replicas, properties.getVirtualNodes());
+        log.info("Affinity ring rebuilt with {} replicas: {}", replicas.size(), replicas);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DataSourceDTO selectReplica(String affinityKey, Set<String> excludedKeys) {
+        selections.increment();
+        ConsistentHashRing current = ring;
+        Map<String, DataSourceDTO> pool = dsActivePool;
+        double fraction = ConsistentHashRing.fraction(affinityKey);
+        String dsKey = current.route(affinityKey, key -> !excludedKeys.contains(key) && isHealthy(pool.get(key))
+                && fraction < slowStart.weight(key));
+        if (dsKey == null) {
+            dsKey = current.route(affinityKey, key -> !excludedKeys.contains(key) && isHealthy(pool.get(key)));
+        }
+        if (dsKey == null) {
+            throw new ResourceNotFound("No healthy replica found for affinity key.");
+        }
+        if (!dsKey.equals(current.owner(affinityKey))) {
+            fallbacks.increment();
+        }
+        return pool.get(dsKey);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String owner(String affinityKey) {
+        return ring.owner(affinityKey);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AffinityStatsDTO getStats() {
+        return AffinityStatsDTO.builder()
+                .replicas(ring.getNodes().stream().sorted().toList())
+                .virtualNodes(properties.getVirtualNodes())
+                .selections(selections.sum())
+                .fallbacks(fallbacks.sum())
+                .build();
+    }
+
+    private boolean isHealthy(DataSourceDTO dsDTO) {
+        if (dsDTO == null || !"replica".equals(dsDTO.getRole())) {
+            return false;
+        }
+        HikariDataSource ds = dsDTO.getDataSource();
+        if (ds.isClosed()) {
+            return false;
+        }
+        HikariPoolMXBean pool = ds.getHikariPoolMXBean();
+        return pool == null || pool.getThreadsAwaitingConnection() <= properties.getMaxAwaitingConnections();
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.dbswitchingdemo.service.impl;
+
+import com.example.dbswitchingdemo.config.MultiRoutingDataSource;
+import com.example.dbswitchingdemo.dto.BulkheadStatsDTO;
+import com.example.dbswitchingdemo.service.BulkheadService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Реализация наблюдения за изоляцией нагрузки. Лимиты применяются в {@link MultiRoutingDataSource},
+ * здесь только читается их состояние.
+ */
+@Service
+@RequiredArgsConstructor
+public class BulkheadServiceImpl implements BulkheadService {
+
+    private final MultiRoutingDataSource dsMultiRouting;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<BulkheadStatsDTO> getStats() {
+        return dsMultiRouting.getBulkheadStats();
+    }
+}
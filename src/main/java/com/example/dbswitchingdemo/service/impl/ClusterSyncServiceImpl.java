@@ -0,0 +1,386 @@
+package com.example.dbswitchingdemo.service.impl;
+
+import com.example.dbswitchingdemo.config.ClusterSyncProperties;
+import com.example.dbswitchingdemo.config.DataSourceProperties;
+import com.example.dbswitchingdemo.dto.ClusterSyncStatsDTO;
+import com.example.dbswitchingdemo.dto.DataSourceDTO;
+import com.example.dbswitchingdemo.dto.TopologyChangeDTO;
+import com.example.dbswitchingdemo.dto.request.ClusterMemberDTO.MemberDTO;
+import com.example.dbswitchingdemo.service.ClusterSyncService;
+import com.example.dbswitchingdemo.service.DynamicDatabaseService;
+import com.example.dbswitchingdemo.util.DataSourceManager;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Реализация распространения изменений топологии через {@code LISTEN/NOTIFY} на leader.
+ * <p>
+ * Публикация выполняется одной транзакцией на leader: номер эпохи берется из последовательности
+ * {@code topology_change_epoch}, запись сохраняется в журнал {@code topology_change_log} и рассылается
+ * через {@code pg_notify}. Уведомления доставляются только после фиксации транзакции и в порядке фиксаций,
+ * а номер из последовательности — в порядке вызовов {@code nextval}, поэтому публикаторы сериализуются
+ * транзакционной advisory-блокировкой до получения номера: порядок эпох совпадает с порядком фиксаций.
+ * <p>
+ * Слушатель держит одно отдельное (не из пула) соединение с текущим leader и переподключается при смене leader.
+ * После подключения он дочитывает из журнала изменения, пропущенные за время разрыва. Запись применяется,
+ * только если ее эпоха больше последней известной, поэтому дубликаты (уведомление и дочитывание) и запоздавшие
+ * записи игнорируются, а собственные записи экземпляра лишь сдвигают эпоху.
+ */
+@Service
+@Slf4j
+public class ClusterSyncServiceImpl implements ClusterSyncService {
+
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAX_NOTIFY_PAYLOAD_BYTES = 7900;
+    private static final Pattern CHANNEL = Pattern.compile("[a-z_][a-z0-9_]{0,62}");
+
+    private static final String CREATE_SEQUENCE = "CREATE SEQUENCE IF NOT EXISTS public.topology_change_epoch";
+    private static final String CREATE_LOG = """
+            CREATE TABLE IF NOT EXISTS public.topology_change_log (
+                epoch bigint PRIMARY KEY,
+                origin text NOT NULL,
+                payload text NOT NULL,
+                created_at timestamptz NOT NULL DEFAULT now())""";
+    private static final String LOCK_PUBLISHERS = "SELECT pg_advisory_xact_lock(hashtext('public.topology_change_log'))";
+    private static final String NEXT_EPOCH = "SELECT nextval('public.topology_change_epoch')";
+    private static final String INSERT_CHANGE = "INSERT INTO public.topology_change_log (epoch, origin, payload) VALUES (?, ?, ?)";
+    private static final String PRUNE_LOG = "DELETE FROM public.topology_change_log WHERE epoch <= ?";
+    private static final String NOTIFY = "SELECT pg_notify(?, ?)";
+    private static final String MAX_EPOCH = "SELECT coalesce(max(epoch), 0) FROM public.topology_change_log";
+    private static final String SELECT_CHANGE = "SELECT payload FROM public.topology_change_log WHERE epoch = ?";
+    private static final String SELECT_MISSED = """
+            SELECT payload FROM (
+                SELECT epoch, payload FROM public.topology_change_log WHERE epoch > ? ORDER BY epoch DESC LIMIT ?
+            ) recent ORDER BY epoch""";
+
+    private final ClusterSyncProperties properties;
+    private final DataSourceProperties dsProperties;
+    private final DynamicDatabaseService dsService;
+    private final ObjectMapper objectMapper;
+
+    private final AtomicLong lastEpoch = new AtomicLong(-1);
+    private final LongAdder published = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder ignored = new LongAdder();
+
+    private volatile Consumer<TopologyChangeDTO> listener = change -> { };
+    private volatile String listeningOn;
+    private volatile boolean running;
+    private Thread listenerThread;
+
+    public ClusterSyncServiceImpl(ClusterSyncProperties properties,
+                                  DataSourceProperties dsProperties,
+                                  DynamicDatabaseService dsService,
+                                  ObjectMapper objectMapper) {
+        this.properties = properties;
+        this.dsProperties = dsProperties;
+        this.dsService = dsService;
+        this.objectMapper = objectMapper.copy().setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (!CHANNEL.matcher(properties.getChannel()).matches()) {
+            throw new IllegalStateException("Invalid cluster sync channel name: " + properties.getChannel());
+        }
+        running = true;
+        listenerThread = new Thread(this::listen, "cluster-sync-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+        log.info("Cluster sync enabled for instance '{}' on channel '{}'.", properties.getInstanceId(), properties.getChannel());
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void publish(String operation, List<MemberDTO> members, String routingKey) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        DataSourceDTO dsLeader = DataSourceManager.findLeaderDataSource(dsService.getActivePool());
+        if (dsLeader == null) {
+            log.warn("Topology change '{}' not published: no leader DataSource registered.", operation);
+            return;
+        }
+
+        try (Connection connection = dsLeader.getDataSource().getConnection()) {
+            ensureSchema(connection);
+            connection.setAutoCommit(false);
+            try {
+                long epoch = nextEpoch(connection);
+                TopologyChangeDTO change = TopologyChangeDTO.builder()
+                        .formatVersion(FORMAT_VERSION)
+                        .epoch(epoch)
+                        .origin(properties.getInstanceId())
+                        .operation(operation)
+                        .members(members)
+                        .routingKey(routingKey)
+                        .build();
+                String payload = objectMapper.writeValueAsString(change);
+                insertChange(connection, change, payload);
+                sendNotification(connection, payload);
+                pruneLog(connection, epoch);
+                connection.commit();
+
+                // эпоха сдвигается слушателем при получении собственного уведомления: уведомления других
+                // экземпляров с меньшей эпохой могут еще не дойти
+                published.increment();
+                log.info("Topology change '{}' published with epoch {}.", operation, epoch);
+            } catch (SQLException | JsonProcessingException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException | JsonProcessingException | RuntimeException e) {
+            log.warn("Failed to publish topology change '{}': {}", operation, e.getMessage());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onRemoteChange(Consumer<TopologyChangeDTO> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ClusterSyncStatsDTO getStats() {
+        return ClusterSyncStatsDTO.builder()
+                .enabled(properties.isEnabled())
+                .instanceId(properties.getInstanceId())
+                .listeningOn(listeningOn)
+                .lastEpoch(Math.max(lastEpoch.get(), 0))
+                .published(published.sum())
+                .applied(applied.sum())
+                .ignored(ignored.sum())
+                .build();
+    }
+
+    private void listen() {
+        while (running) {
+            DataSourceDTO dsLeader = DataSourceManager.findLeaderDataSource(dsService.getActivePool());
+            if (dsLeader == null) {
+                pause();
+                continue;
+            }
+
+            String dsKey = dsLeader.getDataSourceKey();
+            try (Connection connection = DriverManager.getConnection(dsLeader.getDataSource().getJdbcUrl(),
+                    dsProperties.getUsername(), dsProperties.getPassword())) {
+                ensureSchema(connection);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + properties.getChannel());
+                }
+                listeningOn = dsKey;
+                log.info("Listening for topology changes on leader '{}'.", dsKey);
+                catchUp(connection);
+
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while (running && dsKey.equals(leaderKey())) {
+                    PGNotification[] notifications = pgConnection.getNotifications((int) properties.getPollTimeout().toMillis());
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        receive(connection, notification.getParameter());
+                    }
+                }
+            } catch (SQLException e) {
+                if (running) {
+                    log.warn("Topology change listener on '{}' failed, reconnecting: {}", dsKey, e.getMessage());
+                    pause();
+                }
+            } finally {
+                listeningOn = null;
+            }
+        }
+    }
+
+    /**
+     * Дочитывает изменения, пропущенные за время разрыва. При первом подключении история не применяется:
+     * текущее состояние экземпляр получает из сохраненной топологии или от оркестратора.
+     */
+    private void catchUp(Connection connection) throws SQLException {
+        if (lastEpoch.get() < 0) {
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(MAX_EPOCH)) {
+                rs.next();
+                lastEpoch.accumulateAndGet(rs.getLong(1), Math::max);
+            }
+            return;
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(SELECT_MISSED)) {
+            statement.setLong(1, lastEpoch.get());
+            statement.setInt(2, properties.getCatchUpLimit());
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    handle(parse(rs.getString(1)));
+                }
+            }
+        }
+    }
+
+    private void receive(Connection connection, String payload) throws SQLException {
+        TopologyChangeDTO change = parse(payload);
+        if (change == null) {
+            return;
+        }
+        if (change.getOperation() == null && change.getEpoch() > lastEpoch.get()) {
+            // запись не поместилась в уведомление
+            try (PreparedStatement statement = connection.prepareStatement(SELECT_CHANGE)) {
+                statement.setLong(1, change.getEpoch());
+                try (ResultSet rs = statement.executeQuery()) {
+                    change = rs.next() ? parse(rs.getString(1)) : change;
+                }
+            }
+        }
+        handle(change);
+    }
+
+    private void handle(TopologyChangeDTO change) {
+        if (change == null) {
+            return;
+        }
+        long previous = lastEpoch.getAndAccumulate(change.getEpoch(), Math::max);
+        if (properties.getInstanceId().equals(change.getOrigin())) {
+            return;
+        }
+        if (change.getEpoch() <= previous || change.getOperation() == null) {
+            ignored.increment();
+            log.debug("Topology change with epoch {} ignored, last epoch is {}.", change.getEpoch(), previous);
+            return;
+        }
+
+        applied.increment();
+        log.info("Applying topology change '{}' with epoch {} from instance '{}'.", change.getOperation(),
+                change.getEpoch(), change.getOrigin());
+        try {
+            listener.accept(change);
+        } catch (RuntimeException e) {
+            log.error("Failed to apply topology change with epoch {}: {}", change.getEpoch(), e.getMessage());
+        }
+    }
+
+    private TopologyChangeDTO parse(String payload) {
+        try {
+            TopologyChangeDTO change = objectMapper.readValue(payload, TopologyChangeDTO.class);
+            if (change.getFormatVersion() != FORMAT_VERSION) {
+                log.warn("Ignoring topology change with unsupported format version {}.", change.getFormatVersion());
+                return null;
+            }
+            return change;
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed topology change: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void ensureSchema(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_SEQUENCE);
+            statement.execute(CREATE_LOG);
+        } catch (SQLException e) {
+            // параллельное создание другим экземпляром: объект уже существует
+            if (!"23505".equals(e.getSQLState()) && !"42P07".equals(e.getSQLState())) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Берет номер эпохи под транзакционной advisory-блокировкой. Блокировка держится до фиксации, поэтому
+     * публикации разных экземпляров фиксируются в порядке эпох, а уведомления приходят в том же порядке.
+     */
+    private long nextEpoch(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(LOCK_PUBLISHERS);
+            try (ResultSet rs = statement.executeQuery(NEXT_EPOCH)) {
+                rs.next();
+                return rs.getLong(1);
+            }
+        }
+    }
+
+    private void insertChange(Connection connection, TopologyChangeDTO change, String payload) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_CHANGE)) {
+            statement.setLong(1, change.getEpoch());
+            statement.setString(2, change.getOrigin());
+            statement.setString(3, payload);
+            statement.executeUpdate();
+        }
+    }
+
+    private void sendNotification(Connection connection, String payload) throws SQLException, JsonProcessingException {
+        String notification = payload;
+        if (payload.getBytes(StandardCharsets.UTF_8).length > MAX_NOTIFY_PAYLOAD_BYTES) {
+            TopologyChangeDTO reference = objectMapper.readValue(payload, TopologyChangeDTO.class);
+            reference.setOperation(null);
+            reference.setMembers(null);
+            reference.setRoutingKey(null);
+            notification = objectMapper.writeValueAsString(reference);
+        }
+        try (PreparedStatement statement = connection.prepareStatement(NOTIFY)) {
+            statement.setString(1, properties.getChannel());
+            statement.setString(2, notification);
+            statement.execute();
+        }
+    }
+
+    private void pruneLog(Connection connection, long epoch) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(PRUNE_LOG)) {
+            statement.setLong(1, epoch - properties.getLogRetention());
+            statement.executeUpdate();
+        }
+    }
+
+    private String leaderKey() {
+        DataSourceDTO dsLeader = DataSourceManager.findLeaderDataSource(dsService.getActivePool());
+        return dsLeader != null ? dsLeader.getDataSourceKey() : null;
+    }
+
+    private void pause() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(properties.getReconnectDelay().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
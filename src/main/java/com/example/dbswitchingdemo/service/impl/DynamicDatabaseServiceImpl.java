@@ -4,45 +4,108 @@ import com.example.dbswitchingdemo.config.DataSourceConfig;
 import com.example.dbswitchingdemo.config.DataSourceContextHolder;
 import com.example.dbswitchingdemo.config.DataSourceProperties;
 import com.example.dbswitchingdemo.config.MultiRoutingDataSource;
+import com.example.dbswitchingdemo.config.PoolProfileProperties;
+import com.example.dbswitchingdemo.config.TopologyStoreProperties;
 import com.example.dbswitchingdemo.dto.DataSourceDTO;
+import com.example.dbswitchingdemo.dto.ReadmissionDTO;
+import com.example.dbswitchingdemo.dto.TopologySnapshotDTO;
 import com.example.dbswitchingdemo.dto.request.ClusterMemberDTO;
 import com.example.dbswitchingdemo.dto.request.ClusterMemberDTO.MemberDTO;
 import com.example.dbswitchingdemo.dto.response.CommonDataResponse;
 import com.example.dbswitchingdemo.dto.response.CommonResponse;
 import com.example.dbswitchingdemo.entity.DbSwitchLog;
+import com.example.dbswitchingdemo.enums.TopologyEventType;
+import com.example.dbswitchingdemo.enums.WriteMode;
 import com.example.dbswitchingdemo.exception.DataSourceFailedConnectionException;
+import com.example.dbswitchingdemo.exception.LeaderUnavailableException;
 import com.example.dbswitchingdemo.exception.LogSwitchFailedException;
+import com.example.dbswitchingdemo.exception.ResourceNotFound;
+import com.example.dbswitchingdemo.jfr.TopologyOperationEvent;
 import com.example.dbswitchingdemo.repo.DbSwitchLogRepository;
+import com.example.dbswitchingdemo.service.AffinityRoutingService;
 import com.example.dbswitchingdemo.service.DynamicDatabaseService;
+import com.example.dbswitchingdemo.service.FlapDampingService;
+import com.example.dbswitchingdemo.service.SharedReplicaPoolService;
+import com.example.dbswitchingdemo.service.SlowStartService;
+import com.example.dbswitchingdemo.service.TopologyEventService;
+import com.example.dbswitchingdemo.service.TopologyStoreService;
+import com.example.dbswitchingdemo.service.WriteBufferService;
 import com.example.dbswitchingdemo.util.DataSourceManager;
 import com.zaxxer.hikari.HikariDataSource;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * Реализация сервиса для динамического управления источниками данных.
  * Этот сервис поддерживает создание, переключение и закрытие источников данных в кластере.
  * Также проверяет соединение с базой данных перед созданием нового источника и логирует изменения.
+ * <p>
+ * При смене роли члена кластера пул пересоздается с профилем новой роли ({@link PoolProfileProperties}),
+ * прогревается и атомарно подменяется в маршрутизаторе под тем же ключом; старый пул закрывается в фоне
+ * после возврата выданных соединений.
+ * <p>
+ * Член кластера, который слишком часто исключается из топологии, не закрывается, а помещается в карантин
+ * {@link FlapDampingService} с уменьшенным пулом; пока он в карантине, {@code refresh} его не добавляет.
+ * Стабильные члены кластера возвращаются в маршрутизацию операцией {@link #readmit()} с тем же пулом.
+ * После каждого изменения топологии {@link SlowStartService} начинает плавный ввод появившихся реплик.
+ * <p>
+ * В режиме общего пула реплик ({@link SharedReplicaPoolService}) члены кластера с ролью replica не получают
+ * собственных пулов: {@code refresh}, {@code close} и восстановление только меняют список хостов общего пула,
+ * а карантин применяется к остальным членам кластера.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class DynamicDatabaseServiceImpl implements DynamicDatabaseService {
 
+    private static final Duration DRAIN_GRACE = Duration.ofSeconds(1);
+
     private final DataSourceProperties dsProperties;
     private final DataSourceConfig dsConfig;
     private final MultiRoutingDataSource dsMultiRouting;
     private final DbSwitchLogRepository dsRepo;
+    private final WriteBufferService writeBuffer;
+    private final TopologyStoreService topologyStore;
+    private final TopologyStoreProperties topologyProperties;
+    private final TopologyEventService topologyEvents;
+    private final PoolProfileProperties poolProfiles;
+    private final AffinityRoutingService affinityRouting;
+    private final FlapDampingService flapDamping;
+    private final SlowStartService slowStart;
+    private final SharedReplicaPoolService sharedReplicaPool;
 
     private final Map<String, DataSourceDTO> dsActivePool = new ConcurrentHashMap<>();
+    private final Map<String, MemberDTO> dsMembers = new ConcurrentHashMap<>();
+
+    private final AtomicInteger drainThreadCounter = new AtomicInteger();
+    private final ExecutorService drainExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "pool-drain-" + drainThreadCounter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService switchLogExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "switch-log");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     /**
      * Инициализация пула источников данных с фейковым источником данных для базовой настройки.
@@ -59,6 +122,12 @@ public class DynamicDatabaseServiceImpl implements DynamicDatabaseService {
                 "fakeRole") );
     }
 
+    @PreDestroy
+    private void shutdown() {
+        drainExecutor.shutdownNow();
+        switchLogExecutor.shutdown();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -72,7 +141,7 @@ public class DynamicDatabaseServiceImpl implements DynamicDatabaseService {
                     .build();
         }
 
-        return handleRefresh(members);
+        return recordOperation("refresh", () -> memberKeys(members), () -> handleRefresh(members));
     }
 
     /**
@@ -83,9 +152,32 @@ public class DynamicDatabaseServiceImpl implements DynamicDatabaseService {
         DataSourceDTO dsLeader = DataSourceManager.findLeaderDataSource(dsActivePool);
 
         String curContext = DataSourceContextHolder.getDataSourceContext()
-                .orElse(dsLeader.getDataSourceKey());
+                .orElseGet(() -> dsLeader != null ? dsLeader.getDataSourceKey() : null);
 
-        return handleSwitch(dsLeader, curContext);
+        if (curContext == null) {
+            throw new LeaderUnavailableException("No leader DataSource registered, nothing to switch from.");
+        }
+
+        return recordOperation("change", () -> DataSourceContextHolder.getDataSourceContext().orElse(null),
+                () -> handleSwitch(dsLeader, curContext));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CommonResponse changeTo(String dsKey) {
+        if (dsKey == null || !dsActivePool.containsKey(dsKey)) {
+            throw new ResourceNotFound("DataSource '" + dsKey + "' is not registered.");
+        }
+
+        return recordOperation("change", () -> dsKey, () -> {
+            if (dsKey.equals(DataSourceContextHolder.getDataSourceContext().orElse(null))) {
+                return processSwitchResult(dsKey, false, "Already connected to DataSource");
+            }
+            DataSourceContextHolder.setDataSourceContext(dsKey);
+            return processSwitchResult(dsKey, true, "Switched to DataSource");
+        });
     }
 
     /**
@@ -98,35 +190,176 @@ public class DynamicDatabaseServiceImpl implements DynamicDatabaseService {
                 .map(DataSourceManager::buildUniqueKey)
                 .collect(Collectors.toSet());
 
-        return handleClose(memberNames);
+        return recordOperation("close", () -> memberKeys(members), () -> handleClose(memberNames));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CommonResponse readmit() {
+        return recordOperation("readmit", () -> null, this::handleReadmit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, DataSourceDTO> getActivePool() {
+        return Collections.unmodifiableMap(dsActivePool);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> restore(TopologySnapshotDTO snapshot) {
+        List<String> restored = new ArrayList<>();
+        if (sharedReplicaPool.isEnabled()) {
+            List<MemberDTO> replicas = snapshot.getMembers().stream()
+                    .filter(member -> "replica".equals(member.getRole()))
+                    .toList();
+            sharedReplicaPool.refresh(replicas, dsActivePool);
+            replicas.forEach(member -> restored.add(DataSourceManager.buildUniqueKey(member)));
+        }
+        List<MemberDTO> members = snapshot.getMembers().stream()
+                .filter(member -> !sharedReplicaPool.isEnabled() || !"replica".equals(member.getRole()))
+                .filter(member -> !dsActivePool.containsKey(DataSourceManager.buildUniqueKey(member)))
+                .toList();
+        if (members.isEmpty() && restored.isEmpty()) {
+            return List.of();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, members.size()));
+        Map<MemberDTO, CompletableFuture<HikariDataSource>> dsFutures = new LinkedHashMap<>();
+        try {
+            members.forEach(member -> dsFutures.put(member, CompletableFuture.supplyAsync(() -> {
+                String dsKey = DataSourceManager.buildUniqueKey(member);
+                HikariDataSource ds = DataSourceManager.create(member.getHost(), member.getPort(), dsKey, member.getRole(), dsProperties, dsConfig);
+                try {
+                    DataSourceManager.warm(ds, topologyProperties.getWarmConnections());
+                } catch (DataSourceFailedConnectionException e) {
+                    ds.close();
+                    throw e;
+                }
+                return ds;
+            }, executor)));
+
+            CompletableFuture.allOf(dsFutures.values().toArray(CompletableFuture[]::new))
+                    .get(topologyProperties.getRestoreTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            log.warn("Not all saved cluster members were restored: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+        }
+
+        String previousLeaderKey = leaderKey();
+        dsFutures.forEach((member, dsFuture) -> {
+            if (!dsFuture.isDone() || dsFuture.isCompletedExceptionally()) {
+                // опоздавший пул закрывается, когда достроится
+                dsFuture.thenAccept(HikariDataSource::close);
+                return;
+            }
+            String dsKey = DataSourceManager.buildUniqueKey(member);
+            DataSourceManager.add(member.getHost(), member.getPort(), dsKey, dsProperties.getName(),
+                    member.getRole(), dsFuture.join(), dsMultiRouting, dsActivePool);
+            dsMembers.put(dsKey, member);
+            restored.add(dsKey);
+            topologyEvents.publish(TopologyEventType.DATASOURCE_ADDED, dsKey, member.getRole(), "restored");
+        });
+
+        DataSourceDTO dsLeader = DataSourceManager.findLeaderDataSource(dsActivePool);
+        String routingKey = snapshot.getRoutingKey();
+        if (routingKey != null && dsActivePool.containsKey(routingKey)) {
+            DataSourceContextHolder.setDataSourceContext(routingKey);
+        } else if (dsLeader != null) {
+            DataSourceContextHolder.setDataSourceContext(dsLeader.getDataSourceKey());
+        }
+        writeBuffer.onLeaderChanged(dsLeader);
+        slowStart.rebuild(getActivePool());
+        affinityRouting.rebuild(getActivePool());
+        publishLeaderTransition(previousLeaderKey);
+        DataSourceContextHolder.getDataSourceContext().ifPresent(dsKey ->
+                topologyEvents.publish(TopologyEventType.SWITCHED, dsKey, null, "restored routing"));
+
+        log.info("Restored {} of {} DataSources from topology revision {}, routing to '{}'.", restored.size(),
+                snapshot.getMembers().size(), snapshot.getRevision(), DataSourceContextHolder.getDataSourceContext().orElse(null));
+        return restored;
     }
 
     /**
      * Обрабатывает обновление источников данных на основе списка членов кластера.
      *
-     * @param members список новых членов кластера
+     * @param clusterMembers список новых членов кластера
      * @return объект {@link CommonResponse}, представляющий результат операции обновления
      */
-    private CommonResponse handleRefresh(List<MemberDTO> members) {
+    private CommonResponse handleRefresh(List<MemberDTO> clusterMembers) {
         List<DataSourceDTO> dsNewList = new ArrayList<>();
+        String previousLeaderKey = leaderKey();
+
+        List<MemberDTO> members = clusterMembers;
+        if (sharedReplicaPool.isEnabled()) {
+            members = clusterMembers.stream().filter(member -> !"replica".equals(member.getRole())).toList();
+            clusterMembers.stream()
+                    .filter(member -> "replica".equals(member.getRole()))
+                    .forEach(this::moveToSharedPool);
+            boolean created = !dsActivePool.containsKey(sharedReplicaPool.getDataSourceKey());
+            if (sharedReplicaPool.refresh(clusterMembers, dsActivePool) && created) {
+                Optional.ofNullable(dsActivePool.get(sharedReplicaPool.getDataSourceKey())).ifPresent(dsShared -> {
+                    dsNewList.add(dsShared);
+                    topologyEvents.publish(TopologyEventType.DATASOURCE_ADDED, dsShared.getDataSourceKey(), "replica",
+                            "shared replica pool");
+                });
+            }
+        }
 
         members.forEach(member -> {
             String dsKey = DataSourceManager.buildUniqueKey(member);
-            if (DataSourceManager.checkStatus(member, dsKey, dsActivePool)) return;
+            if (flapDamping.observe(member)) {
+                log.info("DataSource '{}' is quarantined, it will be added once stable.", dsKey);
+                return;
+            }
+            DataSourceDTO dsExisting = dsActivePool.get(dsKey);
+            String previousRole = dsExisting != null ? dsExisting.getRole() : null;
+            if (previousRole != null && !member.getRole().equals(previousRole)) {
+                swapPool(member, dsKey);
+            }
+            if (DataSourceManager.checkStatus(member, dsKey, dsActivePool)) {
+                if (!member.getRole().equals(previousRole)) {
+                    topologyEvents.publish(TopologyEventType.ROLE_CHANGED, dsKey, member.getRole(),
+                            previousRole + " -> " + member.getRole());
+                }
+                return;
+            }
 
             try {
-                HikariDataSource dsNew = DataSourceManager.create(member.getHost(), member.getPort(), dsKey, dsProperties, dsConfig);
+                HikariDataSource dsNew = DataSourceManager.create(member.getHost(), member.getPort(), dsKey, member.getRole(), dsProperties, dsConfig);
                 DataSourceDTO dsNewDTO = DataSourceManager.add(
                         member.getHost(), member.getPort(), dsKey, dsProperties.getName(),
                         member.getRole(), dsNew, dsMultiRouting, dsActivePool
                 );
 
                 dsNewList.add(dsNewDTO);
+                topologyEvents.publish(TopologyEventType.DATASOURCE_ADDED, dsKey, member.getRole(), null);
             } catch (DataSourceFailedConnectionException e) {
                 log.error("Error creating DataSource: {}", e.getMessage());
             }
         });
 
+        members.forEach(member -> {
+            String dsKey = DataSourceManager.buildUniqueKey(member);
+            if (dsActivePool.containsKey(dsKey)) {
+                dsMembers.put(dsKey, member);
+            }
+        });
+        writeBuffer.onLeaderChanged(DataSourceManager.findLeaderDataSource(dsActivePool));
+        slowStart.rebuild(getActivePool());
+        affinityRouting.rebuild(getActivePool());
+        publishLeaderTransition(previousLeaderKey);
+        persistTopology();
+
         if (dsNewList.isEmpty()) {
             return CommonResponse.builder().status(HttpStatus.OK.name())
                     .message("Data sources' roles were updated successfully.")
@@ -139,6 +372,60 @@ public class DynamicDatabaseServiceImpl implements DynamicDatabaseService {
                 .build();
     }
 
+    /**
+     * Закрывает собственный пул члена кластера, который стал репликой в режиме общего пула реплик.
+     * Пул закрывается в фоне после возврата выданных соединений, дальше член кластера обслуживается общим пулом.
+     *
+     * @param member член кластера с ролью replica
+     */
+    private void moveToSharedPool(MemberDTO member) {
+        String dsKey = DataSourceManager.buildUniqueKey(member);
+        DataSourceDTO dsOwn = DataSourceManager.detach(dsKey, dsMultiRouting, dsActivePool);
+        if (dsOwn == null) {
+            return;
+        }
+        dsMembers.remove(dsKey);
+        topologyEvents.publish(TopologyEventType.ROLE_CHANGED, dsKey, member.getRole(),
+                dsOwn.getRole() + " -> " + member.getRole() + ", moved to shared replica pool");
+        drainExecutor.execute(() -> {
+            DataSourceManager.drain(dsKey, dsOwn.getDataSource(), DRAIN_GRACE, poolProfiles.getDrainTimeout());
+            topologyEvents.publish(TopologyEventType.DRAINED, dsKey, member.getRole(), "own pool drained after move to shared replica pool");
+        });
+    }
+
+    /**
+     * Пересоздает пул члена кластера с профилем новой роли и подменяет им текущий пул.
+     * <p>
+     * Если новый пул не удалось создать или прогреть, текущий пул остается в работе, а роль будет обновлена
+     * без пересоздания пула.
+     *
+     * @param member член кластера с новой ролью
+     * @param dsKey  уникальный ключ источника данных
+     */
+    private void swapPool(MemberDTO member, String dsKey) {
+        HikariDataSource dsNew = null;
+        try {
+            dsNew = DataSourceManager.create(member.getHost(), member.getPort(), dsKey, member.getRole(), dsProperties, dsConfig);
+            PoolProfileProperties.Profile profile = poolProfiles.forRole(member.getRole());
+            DataSourceManager.warm(dsNew, profile != null
+                    ? Math.max(1, Math.min(profile.getMinimumIdle(), profile.getMaximumPoolSize()))
+                    : topologyProperties.getWarmConnections());
+        } catch (DataSourceFailedConnectionException e) {
+            if (dsNew != null) {
+                dsNew.close();
+            }
+            log.warn("Failed to build pool for DataSource '{}' with role '{}', keeping the current pool: {}",
+                    dsKey, member.getRole(), e.getMessage());
+            return;
+        }
+
+        HikariDataSource dsOld = DataSourceManager.swap(member, dsKey, dsNew, dsMultiRouting, dsActivePool);
+        drainExecutor.execute(() -> {
+            DataSourceManager.drain(dsKey, dsOld, DRAIN_GRACE, poolProfiles.getDrainTimeout());
+            topologyEvents.publish(TopologyEventType.DRAINED, dsKey, member.getRole(), "previous pool drained after role change");
+        });
+    }
+
     /**
      * Обрабатывает переключение с лидера на реплику.
      *
@@ -148,7 +435,7 @@ public class DynamicDatabaseServiceImpl implements DynamicDatabaseService {
      */
     private CommonResponse handleSwitch(DataSourceDTO dsLeader, String curContext) {
         if (dsLeader != null && curContext.equals(dsLeader.getDataSourceKey()) ) {
-            DataSourceDTO dsReplica = DataSourceManager.findReplicaDataSource(dsActivePool);
+            DataSourceDTO dsReplica = DataSourceManager.findReplicaDataSource(dsActivePool, Set.of(), slowStart::weight);
 
             DataSourceContextHolder.setDataSourceContext(dsReplica.getDataSourceKey());
 
@@ -171,6 +458,10 @@ public class DynamicDatabaseServiceImpl implements DynamicDatabaseService {
         if (newContext.isPresent() && switched) { // NOTE: Это не обязательный функционал, используется для теста, что переключение соединения действительно произошло.
             logSwitchRecord(newContext.get());
         }
+        if (switched) {
+            topologyEvents.publish(TopologyEventType.SWITCHED, dsKey, null, message);
+            persistTopology();
+        }
 
         return CommonDataResponse.builder().status(HttpStatus.OK.name()).data(switched)
                 .message(message + " '" + dsKey + "' successfully.")
@@ -179,14 +470,32 @@ public class DynamicDatabaseServiceImpl implements DynamicDatabaseService {
 
     /**
      * Логирует переключение источника данных, записывая данные в репозиторий логов.
+     * <p>
+     * Запись выполняется на leader через {@link WriteBufferService} в режиме {@link WriteMode#BUFFERED}.
+     * Если leader не зарегистрирован, запись паркуется в отдельном потоке и выполняется после регистрации
+     * leader, а переключение завершается без ожидания.
      *
      * @param dsName имя нового источника данных
      */
     private void logSwitchRecord(String dsName) {
+        DbSwitchLog record = DbSwitchLog.builder()
+                .switchTime(LocalDateTime.now())
+                .dataSourceKey(dsName)
+                .build();
+        Supplier<DbSwitchLog> save = () -> writeBuffer.execute("switch-log", WriteMode.BUFFERED, () -> dsRepo.save(record));
+
+        if (DataSourceManager.findLeaderDataSource(dsActivePool) == null) {
+            // leader регистрируется в потоке операций над топологией, поэтому запись ждет его в своем потоке
+            CompletableFuture.supplyAsync(save, switchLogExecutor).whenComplete((saved, e) -> {
+                if (e != null) {
+                    log.warn("Parked switch log record for '{}' was not written: {}", dsName, e.getMessage());
+                }
+            });
+            log.info("Switching data source to: {} (switch log parked until a leader is registered)", dsName);
+            return;
+        }
         try {
-            dsRepo.save(DbSwitchLog.builder()
-                    .switchTime(LocalDateTime.now())
-                    .build());
+            save.get();
             log.info("Switching data source to: {}", dsName);
         } catch (Exception e) {
             throw new LogSwitchFailedException("Error while switching data source: " + dsName);
@@ -200,19 +509,180 @@ public class DynamicDatabaseServiceImpl implements DynamicDatabaseService {
      * @return объект {@link CommonResponse}, представляющий результат операции закрытия
      */
     private CommonResponse handleClose(Set<String> memberNames) {
-        List<DataSourceDTO> dsClosedList = DataSourceManager.remove(memberNames, dsMultiRouting, dsActivePool);
+        String previousLeaderKey = leaderKey();
+        flapDamping.withdraw(memberNames);
+
+        Set<String> keptKeys = memberNames;
+        List<String> dsRemovedHosts = List.of();
+        if (sharedReplicaPool.isEnabled()) {
+            dsRemovedHosts = sharedReplicaPool.retain(memberNames, dsActivePool);
+            keptKeys = new HashSet<>(memberNames);
+            keptKeys.add(sharedReplicaPool.getDataSourceKey());
+        }
 
-        if (dsClosedList.isEmpty()) {
+        List<DataSourceDTO> dsQuarantinedList = new ArrayList<>();
+        List.copyOf(dsActivePool.values()).forEach(ds -> {
+            String dsKey = ds.getDataSourceKey();
+            MemberDTO member = dsMembers.get(dsKey);
+            if (member != null && !memberNames.contains(dsKey) && flapDamping.recordFlap(dsKey)) {
+                DataSourceManager.detach(dsKey, dsMultiRouting, dsActivePool);
+                flapDamping.quarantine(ds, member);
+                dsQuarantinedList.add(ds);
+            }
+        });
+
+        List<DataSourceDTO> dsClosedList = new ArrayList<>(DataSourceManager.remove(keptKeys, dsMultiRouting, dsActivePool));
+        dsMembers.keySet().retainAll(dsActivePool.keySet());
+        dsClosedList.forEach(dsClosed -> {
+            topologyEvents.publish(TopologyEventType.DATASOURCE_REMOVED, dsClosed.getDataSourceKey(), dsClosed.getRole(), null);
+            topologyEvents.publish(TopologyEventType.DRAINED, dsClosed.getDataSourceKey(), dsClosed.getRole(), "pool closed");
+        });
+        dsQuarantinedList.forEach(dsQuarantined -> topologyEvents.publish(TopologyEventType.DATASOURCE_REMOVED,
+                dsQuarantined.getDataSourceKey(), dsQuarantined.getRole(), "quarantined"));
+        dsClosedList.addAll(dsQuarantinedList);
+        writeBuffer.onLeaderChanged(DataSourceManager.findLeaderDataSource(dsActivePool));
+        slowStart.rebuild(getActivePool());
+        affinityRouting.rebuild(getActivePool());
+        publishLeaderTransition(previousLeaderKey);
+
+        if (dsClosedList.isEmpty() && dsRemovedHosts.isEmpty()) {
             return CommonResponse.builder().status(HttpStatus.NOT_MODIFIED.name())
                     .build();
         }
 
+        persistTopology();
+        List<String> dsClosedKeys = new ArrayList<>(dsClosedList.stream()
+                .map(DataSourceDTO::getDataSourceKey)
+                .toList());
+        dsClosedKeys.addAll(dsRemovedHosts);
         return CommonDataResponse.builder().status(HttpStatus.OK.name())
                 .message("DataSources closed successfully.")
-                .data(dsClosedList.stream()
-                        .map(DataSourceDTO::getDataSourceKey)
-                        .toList())
+                .data(dsClosedKeys)
                 .build();
     }
 
+    /**
+     * Возвращает в маршрутизацию члены кластера, выпущенные из карантина, с сохраненными пулами.
+     * Если роль члена кластера за время карантина изменилась, пул пересоздается с профилем новой роли.
+     *
+     * @return объект {@link CommonResponse}, представляющий результат операции
+     */
+    private CommonResponse handleReadmit() {
+        List<ReadmissionDTO> readmissions = flapDamping.releaseReadmittable();
+        if (readmissions.isEmpty()) {
+            return CommonResponse.builder().status(HttpStatus.NOT_MODIFIED.name())
+                    .build();
+        }
+
+        String previousLeaderKey = leaderKey();
+        List<String> readmitted = new ArrayList<>();
+        readmissions.forEach(readmission -> {
+            DataSourceDTO ds = readmission.getDataSource();
+            MemberDTO member = readmission.getMember();
+            String dsKey = ds.getDataSourceKey();
+            if (dsActivePool.containsKey(dsKey)) {
+                ds.getDataSource().close();
+                return;
+            }
+            if (sharedReplicaPool.isEnabled() && "replica".equals(member.getRole())) {
+                ds.getDataSource().close();
+                sharedReplicaPool.refresh(List.of(member), dsActivePool);
+                readmitted.add(dsKey);
+                topologyEvents.publish(TopologyEventType.DATASOURCE_ADDED, dsKey, member.getRole(),
+                        "readmitted to shared replica pool after quarantine");
+                return;
+            }
+
+            DataSourceManager.add(ds.getHost(), ds.getPort(), dsKey, ds.getDatabaseName(), ds.getRole(),
+                    ds.getDataSource(), dsMultiRouting, dsActivePool);
+            if (!member.getRole().equals(ds.getRole())) {
+                swapPool(member, dsKey);
+                DataSourceManager.checkStatus(member, dsKey, dsActivePool);
+            }
+            dsMembers.put(dsKey, member);
+            readmitted.add(dsKey);
+            topologyEvents.publish(TopologyEventType.DATASOURCE_ADDED, dsKey, member.getRole(), "readmitted after quarantine");
+        });
+
+        writeBuffer.onLeaderChanged(DataSourceManager.findLeaderDataSource(dsActivePool));
+        slowStart.rebuild(getActivePool());
+        affinityRouting.rebuild(getActivePool());
+        publishLeaderTransition(previousLeaderKey);
+        persistTopology();
+
+        return CommonDataResponse.builder().status(HttpStatus.OK.name())
+                .message("DataSources readmitted after quarantine.")
+                .data(readmitted)
+                .build();
+    }
+
+    /**
+     * Выполняет операцию над топологией и записывает ее длительность событием JFR {@link TopologyOperationEvent}.
+     *
+     * @param operation имя операции
+     * @param dsKeys    ключи источников данных для события; вычисляются только если событие записывается
+     * @param action    операция
+     * @return результат операции
+     */
+    private CommonResponse recordOperation(String operation, Supplier<String> dsKeys, Supplier<CommonResponse> action) {
+        TopologyOperationEvent event = new TopologyOperationEvent();
+        event.begin();
+        String status = "FAILED";
+        try {
+            CommonResponse response = action.get();
+            status = response.getStatus();
+            return response;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                event.dataSourceKey = dsKeys.get();
+                event.status = status;
+                event.commit();
+            }
+        }
+    }
+
+    private static String memberKeys(List<MemberDTO> members) {
+        return members.stream()
+                .map(DataSourceManager::buildUniqueKey)
+                .collect(Collectors.joining(","));
+    }
+
+    /**
+     * Возвращает ключ текущего leader или {@code null}, если leader не зарегистрирован.
+     */
+    private String leaderKey() {
+        DataSourceDTO dsLeader = DataSourceManager.findLeaderDataSource(dsActivePool);
+        return dsLeader != null ? dsLeader.getDataSourceKey() : null;
+    }
+
+    /**
+     * Публикует событие о смене доступности leader, если leader пропал, появился или сменился.
+     *
+     * @param previousLeaderKey ключ leader до изменения топологии
+     */
+    private void publishLeaderTransition(String previousLeaderKey) {
+        String leaderKey = leaderKey();
+        if (Objects.equals(previousLeaderKey, leaderKey)) {
+            return;
+        }
+        if (leaderKey == null) {
+            topologyEvents.publish(TopologyEventType.HEALTH_CHANGED, previousLeaderKey, null, "LEADER_LOST");
+        } else {
+            topologyEvents.publish(TopologyEventType.HEALTH_CHANGED, leaderKey, "leader", "LEADER_AVAILABLE");
+        }
+    }
+
+    /**
+     * Сохраняет текущую топологию и решение маршрутизации для быстрого восстановления после перезапуска.
+     */
+    private void persistTopology() {
+        List<MemberDTO> members = new ArrayList<>(dsActivePool.keySet().stream()
+                .map(dsMembers::get)
+                .filter(Objects::nonNull)
+                .toList());
+        members.addAll(sharedReplicaPool.getMembers());
+        topologyStore.save(members, DataSourceContextHolder.getDataSourceContext().orElse(null));
+    }
 }
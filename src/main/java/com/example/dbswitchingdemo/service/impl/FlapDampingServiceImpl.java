@@ -0,0 +1,349 @@
+package com.example.dbswitchingdemo.service.impl;
+
+import com.example.dbswitchingdemo.config.FlapDampingProperties;
+import com.example.dbswitchingdemo.dto.DataSourceDTO;
+import com.example.dbswitchingdemo.dto.FlapDampingStatusDTO;
+import com.example.dbswitchingdemo.dto.FlapDampingStatusDTO.PenaltyEvent;
+import com.example.dbswitchingdemo.dto.ReadmissionDTO;
+import com.example.dbswitchingdemo.dto.request.ClusterMemberDTO.MemberDTO;
+import com.example.dbswitchingdemo.enums.FlapEventType;
+import com.example.dbswitchingdemo.service.FlapDampingService;
+import com.example.dbswitchingdemo.util.DataSourceManager;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Реализация подавления нестабильных членов кластера по экспоненциально убывающему штрафу.
+ * <p>
+ * Штраф хранится вместе с моментом последнего изменения и пересчитывается при каждом обращении, поэтому
+ * фоновый поток не нужен для его уменьшения. Поток {@code flap-damping} с интервалом {@code app.flap-damping.interval}
+ * закрывает пулы членов кластера, которые так и не вернулись в топологию, пока штраф убывал до порога возврата,
+ * удаляет записи с обнулившимся штрафом и сообщает о членах кластера, готовых к выходу из карантина.
+ * <p>
+ * Пул в карантине остается открытым с {@code quarantineIdle} соединениями: при возврате не нужно заново
+ * устанавливать TCP- и TLS-соединения и проходить аутентификацию, а пул не создается и не закрывается
+ * на каждом колебании топологии.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FlapDampingServiceImpl implements FlapDampingService {
+
+    private static final double FORGET_PENALTY = 1;
+
+    private final FlapDampingProperties properties;
+
+    private final ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "flap-damping");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, Member> members = new HashMap<>();
+    private volatile Runnable listener = () -> { };
+
+    @PostConstruct
+    private void init() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long interval = properties.getInterval().toMillis();
+        sweeper.scheduleWithFixedDelay(this::sweep, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        sweeper.shutdownNow();
+        synchronized (members) {
+            members.values().stream()
+                    .filter(member -> member.quarantine != null)
+                    .forEach(member -> member.quarantine.ds.getDataSource().close());
+            members.clear();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean recordFlap(String dsKey) {
+        if (!properties.isEnabled()) {
+            return false;
+        }
+        Instant now = Instant.now();
+        synchronized (members) {
+            Member member = members.computeIfAbsent(dsKey, key -> new Member());
+            member.flap(now);
+            log.info("Cluster member '{}' flapped, penalty {}.", dsKey, Math.round(member.penalty));
+            return member.penalty >= properties.getSuppressThreshold();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void quarantine(DataSourceDTO ds, MemberDTO member) {
+        HikariDataSource pool = ds.getDataSource();
+        Quarantine quarantine = new Quarantine(ds, member, pool.getMaximumPoolSize(), pool.getMinimumIdle());
+
+        HikariConfigMXBean config = pool.getHikariConfigMXBean();
+        config.setMinimumIdle(properties.getQuarantineIdle());
+        config.setMaximumPoolSize(Math.max(1, properties.getQuarantineIdle()));
+        HikariPoolMXBean mxBean = pool.getHikariPoolMXBean();
+        if (mxBean != null) {
+            mxBean.softEvictConnections();
+        }
+
+        synchronized (members) {
+            Member tracked = members.computeIfAbsent(ds.getDataSourceKey(), key -> new Member());
+            tracked.quarantine = quarantine;
+            tracked.record(FlapEventType.QUARANTINED, Instant.now());
+        }
+        log.warn("Cluster member '{}' quarantined: pool shrunk to {} connections and kept out of routing.",
+                ds.getDataSourceKey(), properties.getQuarantineIdle());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean observe(MemberDTO memberDTO) {
+        String dsKey = DataSourceManager.buildUniqueKey(memberDTO);
+        synchronized (members) {
+            Member member = members.get(dsKey);
+            if (member == null || member.quarantine == null) {
+                return false;
+            }
+            Quarantine quarantine = member.quarantine;
+            quarantine.member = memberDTO;
+            if (quarantine.presentSince == null) {
+                Instant now = Instant.now();
+                quarantine.presentSince = now;
+                member.record(FlapEventType.RETURNED, now);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void withdraw(Set<String> memberNames) {
+        Instant now = Instant.now();
+        synchronized (members) {
+            members.forEach((dsKey, member) -> {
+                if (member.quarantine != null && member.quarantine.presentSince != null && !memberNames.contains(dsKey)) {
+                    member.quarantine.presentSince = null;
+                    member.flap(now);
+                }
+            });
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<ReadmissionDTO> releaseReadmittable() {
+        Instant now = Instant.now();
+        List<ReadmissionDTO> released = new ArrayList<>();
+        synchronized (members) {
+            members.forEach((dsKey, member) -> {
+                if (!member.readmittable(now)) {
+                    return;
+                }
+                Quarantine quarantine = member.quarantine;
+                member.quarantine = null;
+                member.record(FlapEventType.READMITTED, now);
+
+                HikariConfigMXBean config = quarantine.ds.getDataSource().getHikariConfigMXBean();
+                config.setMaximumPoolSize(quarantine.maximumPoolSize);
+                config.setMinimumIdle(quarantine.minimumIdle);
+                released.add(ReadmissionDTO.builder().dataSource(quarantine.ds).member(quarantine.member).build());
+                log.info("Cluster member '{}' stable for {} s, releasing from quarantine.", dsKey,
+                        Duration.between(quarantine.presentSince, now).toSeconds());
+            });
+        }
+        return released;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onReadmittable(Runnable listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<FlapDampingStatusDTO> getStatus() {
+        Instant now = Instant.now();
+        List<FlapDampingStatusDTO> status = new ArrayList<>();
+        synchronized (members) {
+            members.forEach((dsKey, member) -> {
+                member.decay(now);
+                Quarantine quarantine = member.quarantine;
+                status.add(FlapDampingStatusDTO.builder()
+                        .dataSourceKey(dsKey)
+                        .penalty(Math.round(member.penalty))
+                        .quarantined(quarantine != null)
+                        .present(quarantine == null || quarantine.presentSince != null)
+                        .lastFlapAt(member.lastFlapAt)
+                        .quarantinedAt(quarantine != null ? quarantine.quarantinedAt : null)
+                        .readmitNotBefore(quarantine != null ? member.readmitNotBefore(now) : null)
+                        .history(List.copyOf(member.history))
+                        .build());
+            });
+        }
+        status.sort(Comparator.comparing(FlapDampingStatusDTO::getDataSourceKey));
+        return status;
+    }
+
+    /**
+     * Закрывает пулы членов кластера, которые не вернулись в топологию, забывает члены кластера с обнулившимся
+     * штрафом и вызывает обработчик, если есть члены кластера, готовые к выходу из карантина.
+     */
+    private void sweep() {
+        Instant now = Instant.now();
+        boolean readmittable = false;
+        List<HikariDataSource> toClose = new ArrayList<>();
+        synchronized (members) {
+            Iterator<Map.Entry<String, Member>> iterator = members.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Member> entry = iterator.next();
+                Member member = entry.getValue();
+                member.decay(now);
+                Quarantine quarantine = member.quarantine;
+
+                if (quarantine == null) {
+                    if (member.penalty < FORGET_PENALTY) {
+                        iterator.remove();
+                    }
+                } else if (quarantine.presentSince == null && member.penalty < properties.getReuseThreshold()) {
+                    member.quarantine = null;
+                    member.record(FlapEventType.RELEASED, now);
+                    toClose.add(quarantine.ds.getDataSource());
+                    log.info("Cluster member '{}' did not return to the topology, closing its quarantined pool.",
+                            entry.getKey());
+                } else if (member.readmittable(now)) {
+                    readmittable = true;
+                }
+            }
+        }
+
+        toClose.forEach(HikariDataSource::close);
+        if (readmittable) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                log.warn("Readmission listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Штраф и история одного члена кластера. Доступ только под блокировкой {@code members}.
+     */
+    private final class Member {
+        private double penalty;
+        private Instant updatedAt = Instant.now();
+        private Instant lastFlapAt;
+        private Quarantine quarantine;
+        private final Deque<PenaltyEvent> history = new ArrayDeque<>();
+
+        private void decay(Instant now) {
+            long elapsed = Duration.between(updatedAt, now).toMillis();
+            if (elapsed > 0) {
+                penalty *= Math.pow(0.5, (double) elapsed / properties.getHalfLife().toMillis());
+                updatedAt = now;
+            }
+        }
+
+        private void flap(Instant now) {
+            decay(now);
+            penalty = Math.min(properties.getMaxPenalty(), penalty + properties.getFlapPenalty());
+            lastFlapAt = now;
+            record(FlapEventType.FLAP, now);
+        }
+
+        private void record(FlapEventType event, Instant now) {
+            history.addLast(PenaltyEvent.builder().at(now).event(event).penalty(Math.round(penalty)).build());
+            while (history.size() > properties.getHistorySize()) {
+                history.removeFirst();
+            }
+        }
+
+        private boolean readmittable(Instant now) {
+            if (quarantine == null || quarantine.presentSince == null) {
+                return false;
+            }
+            decay(now);
+            return penalty < properties.getReuseThreshold() && !now.isBefore(stableSince().plus(properties.getStablePeriod()));
+        }
+
+        /**
+         * Оценивает момент возврата: штраф опустится ниже порога возврата и закончится стабильный период.
+         */
+        private Instant readmitNotBefore(Instant now) {
+            Instant reuseAt = now;
+            if (penalty >= properties.getReuseThreshold()) {
+                double halfLives = Math.log(penalty / properties.getReuseThreshold()) / Math.log(2);
+                reuseAt = now.plusMillis((long) Math.ceil(halfLives * properties.getHalfLife().toMillis()));
+            }
+            if (quarantine.presentSince == null) {
+                return reuseAt;
+            }
+            Instant stableAt = stableSince().plus(properties.getStablePeriod());
+            return stableAt.isAfter(reuseAt) ? stableAt : reuseAt;
+        }
+
+        private Instant stableSince() {
+            Instant presentSince = quarantine.presentSince;
+            return lastFlapAt != null && lastFlapAt.isAfter(presentSince) ? lastFlapAt : presentSince;
+        }
+    }
+
+    /**
+     * Член кластера в карантине с пулом, уменьшенным до {@code quarantineIdle}.
+     */
+    private static final class Quarantine {
+        private final DataSourceDTO ds;
+        private final int maximumPoolSize;
+        private final int minimumIdle;
+        private final Instant quarantinedAt = Instant.now();
+        private MemberDTO member;
+        private Instant presentSince;
+
+        private Quarantine(DataSourceDTO ds, MemberDTO member, int maximumPoolSize, int minimumIdle) {
+            this.ds = ds;
+            this.member = member;
+            this.maximumPoolSize = maximumPoolSize;
+            this.minimumIdle = minimumIdle;
+        }
+    }
+}
@@ -0,0 +1,381 @@
+package com.example.dbswitchingdemo.service.impl;
+
+import com.example.dbswitchingdemo.config.DataSourceContextHolder;
+import com.example.dbswitchingdemo.config.MultiRoutingDataSource;
+import com.example.dbswitchingdemo.config.OffloadPolicyProperties;
+import com.example.dbswitchingdemo.config.OffloadPolicyProperties.Threshold;
+import com.example.dbswitchingdemo.config.WorkloadContextHolder;
+import com.example.dbswitchingdemo.dto.DataSourceDTO;
+import com.example.dbswitchingdemo.dto.OffloadStatusDTO;
+import com.example.dbswitchingdemo.entity.DbSwitchLog;
+import com.example.dbswitchingdemo.enums.WorkloadClass;
+import com.example.dbswitchingdemo.enums.WriteMode;
+import com.example.dbswitchingdemo.exception.BulkheadRejectedException;
+import com.example.dbswitchingdemo.repo.DbSwitchLogRepository;
+import com.example.dbswitchingdemo.service.DynamicDatabaseService;
+import com.example.dbswitchingdemo.service.OffloadPolicyService;
+import com.example.dbswitchingdemo.service.SlowStartService;
+import com.example.dbswitchingdemo.service.WriteBufferService;
+import com.example.dbswitchingdemo.util.DataSourceManager;
+import com.example.dbswitchingdemo.util.StatementStats;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Реализация политики разгрузки leader.
+ * <p>
+ * Поток {@code offload-policy} с интервалом {@code app.offload.interval} снимает нагрузку на leader: ожидание
+ * и занятость соединений пула ({@link HikariPoolMXBean}), p95 времени получения соединения за интервал
+ * (по разнице гистограмм {@link StatementStats}) и число активных сессий в {@code pg_stat_activity}. Запрос
+ * к {@code pg_stat_activity} идет с классом нагрузки {@link WorkloadClass#ADMIN}; если bulkhead leader
+ * не выдал соединение, leader считается горячим. Реплика считается здоровой, если отвечает и ее отставание
+ * не больше {@code maxReplicaLag}.
+ * <p>
+ * Доля чтений на репликах меняется ступенями только после нескольких одинаковых замеров подряд, причем
+ * для снижения замеров нужно больше, чем для роста, поэтому доля не колеблется около порога. Без здоровых
+ * реплик доля сразу сбрасывается в ноль. При {@code manageGlobalContext} общий контекст маршрутизации
+ * переводится на реплику, когда на реплики уходят все чтения, и возвращается на leader, когда доля снижается
+ * или реплика перестает быть здоровой. Каждое решение записывается в журнал переключений на leader.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OffloadPolicyServiceImpl implements OffloadPolicyService {
+
+    private static final String ACTIVE_SESSIONS_SQL = "SELECT count(*) FROM pg_stat_activity "
+            + "WHERE backend_type = 'client backend' AND state <> 'idle' AND pid <> pg_backend_pid()";
+
+    private final OffloadPolicyProperties properties;
+    private final DynamicDatabaseService dsService;
+    private final MultiRoutingDataSource dsMultiRouting;
+    private final WriteBufferService writeBuffer;
+    private final DbSwitchLogRepository dsRepo;
+    private final SlowStartService slowStart;
+
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(() -> {
+            WorkloadContextHolder.setWorkload(WorkloadClass.ADMIN);
+            runnable.run();
+        }, "offload-policy");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile int readShare = 100;
+    private volatile int hotStreak;
+    private volatile int coolStreak;
+    private volatile Sample lastSample;
+    private volatile List<String> healthyReplicas = List.of();
+    private volatile Instant lastDecisionAt;
+    private volatile String lastDecision;
+
+    private String previousLeaderKey;
+    private long[] previousAcquires;
+
+    @PostConstruct
+    private void init() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        readShare = 0;
+        long interval = properties.getInterval().toMillis();
+        sampler.scheduleWithFixedDelay(this::evaluate, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        sampler.shutdownNow();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean offloadRead() {
+        int share = readShare;
+        return share >= 100 || (share > 0 && ThreadLocalRandom.current().nextInt(100) < share);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public OffloadStatusDTO getStatus() {
+        Sample sample = lastSample;
+        OffloadStatusDTO.OffloadStatusDTOBuilder builder = OffloadStatusDTO.builder()
+                .enabled(properties.isEnabled())
+                .readShare(readShare)
+                .hotStreak(hotStreak)
+                .coolStreak(coolStreak)
+                .healthyReplicas(healthyReplicas)
+                .lastDecisionAt(lastDecisionAt)
+                .lastDecision(lastDecision);
+        if (sample != null) {
+            builder.leaderKey(sample.leaderKey())
+                    .pressure(sample.pressure().name())
+                    .threadsAwaiting(sample.threadsAwaiting())
+                    .activeConnections(sample.activeConnections())
+                    .maximumPoolSize(sample.maximumPoolSize())
+                    .acquireP95Ms(sample.acquireP95Ms())
+                    .activeSessions(sample.activeSessions())
+                    .sampledAt(sample.sampledAt());
+        }
+        return builder.build();
+    }
+
+    private void evaluate() {
+        try {
+            Map<String, DataSourceDTO> dsActivePool = dsService.getActivePool();
+            DataSourceDTO dsLeader = DataSourceManager.findLeaderDataSource(dsActivePool);
+            List<String> healthy = findHealthyReplicas(dsActivePool);
+            healthyReplicas = healthy;
+            if (dsLeader == null) {
+                // без leader разгружать нечего, записи ждут в буфере записи
+                lastSample = null;
+                return;
+            }
+
+            Sample sample = sampleLeader(dsLeader);
+            lastSample = sample;
+            decide(sample, healthy);
+            if (properties.isManageGlobalContext()) {
+                routeGlobalContext(sample.leaderKey(), healthy);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Offload policy evaluation failed: {}", e.getMessage());
+        }
+    }
+
+    private void decide(Sample sample, List<String> healthy) {
+        int share = readShare;
+        if (healthy.isEmpty()) {
+            hotStreak = 0;
+            coolStreak = 0;
+            if (share > 0) {
+                applyShare(0, sample, "no healthy replica");
+            }
+            return;
+        }
+
+        switch (sample.pressure()) {
+            case HOT -> {
+                coolStreak = 0;
+                if (++hotStreak >= properties.getRaiseAfter() && share < 100) {
+                    hotStreak = 0;
+                    applyShare(Math.min(100, share + properties.getShareStep()), sample, "leader hot");
+                }
+            }
+            case COOL -> {
+                hotStreak = 0;
+                if (++coolStreak >= properties.getLowerAfter() && share > 0) {
+                    coolStreak = 0;
+                    applyShare(Math.max(0, share - properties.getShareStep()), sample, "leader cool");
+                }
+            }
+            case NEUTRAL -> {
+                hotStreak = 0;
+                coolStreak = 0;
+            }
+        }
+    }
+
+    private void applyShare(int share, Sample sample, String reason) {
+        String detail = reason + ": " + sample.describe();
+        log.info("Read share on replicas {}% -> {}% ({}).", readShare, share, detail);
+        readShare = share;
+        recordDecision(sample.leaderKey(), share, "read share " + share + "%, " + detail);
+    }
+
+    /**
+     * Переводит общий контекст на здоровую реплику, когда на реплики уходят все чтения,
+     * и возвращает его на leader в остальных случаях. Из здоровых реплик выбирается реплика с наибольшим весом
+     * плавного ввода, чтобы общий контекст не ушел на еще не прогретую реплику.
+     */
+    private void routeGlobalContext(String leaderKey, List<String> healthy) {
+        String current = DataSourceContextHolder.getDataSourceContext().orElse(null);
+        boolean onReplica = current != null && !current.equals(leaderKey)
+                && "replica".equals(roleOf(current));
+
+        String target;
+        if (readShare >= 100 && !healthy.isEmpty()) {
+            target = onReplica && healthy.contains(current) ? current
+                    : healthy.stream().max(Comparator.comparingDouble(slowStart::weight)).orElseThrow();
+        } else {
+            target = onReplica ? leaderKey : current;
+        }
+        if (target == null || target.equals(current)) {
+            return;
+        }
+
+        String reason = readShare >= 100 ? "global context offloaded" : "global context returned to leader";
+        log.info("Offload policy switches global context '{}' -> '{}' ({}).", current, target, reason);
+        try {
+            dsService.changeTo(target);
+        } catch (RuntimeException e) {
+            log.warn("Offload policy switch to '{}' reported: {}", target, e.getMessage());
+        }
+        recordDecision(target, readShare, reason);
+    }
+
+    private String roleOf(String dsKey) {
+        DataSourceDTO dsDTO = dsService.getActivePool().get(dsKey);
+        return dsDTO != null ? dsDTO.getRole() : null;
+    }
+
+    private void recordDecision(String dsKey, int share, String reason) {
+        lastDecisionAt = Instant.now();
+        lastDecision = reason;
+        try {
+            writeBuffer.execute("offload-decision", WriteMode.FAIL_FAST, () -> dsRepo.save(DbSwitchLog.builder()
+                    .switchTime(LocalDateTime.now())
+                    .dataSourceKey(dsKey)
+                    .readShare(share)
+                    .reason(reason.length() > 255 ? reason.substring(0, 255) : reason)
+                    .build()));
+        } catch (RuntimeException e) {
+            log.warn("Failed to record offload decision '{}': {}", reason, e.getMessage());
+        }
+    }
+
+    private List<String> findHealthyReplicas(Map<String, DataSourceDTO> dsActivePool) {
+        List<String> healthy = new ArrayList<>();
+        for (DataSourceDTO dsDTO : dsActivePool.values()) {
+            if (!"replica".equals(dsDTO.getRole()) || dsDTO.getDataSource().isClosed()) {
+                continue;
+            }
+            try {
+                Double lag = DataSourceManager.replicationLagSeconds(dsDTO.getDataSource());
+                if (lag == null || lag <= properties.getMaxReplicaLag().toMillis() / 1_000.0) {
+                    healthy.add(dsDTO.getDataSourceKey());
+                }
+            } catch (SQLException e) {
+                log.debug("Replica '{}' is not healthy: {}", dsDTO.getDataSourceKey(), e.getMessage());
+            }
+        }
+        healthy.sort(null);
+        return healthy;
+    }
+
+    private Sample sampleLeader(DataSourceDTO dsLeader) {
+        String leaderKey = dsLeader.getDataSourceKey();
+        HikariDataSource ds = dsLeader.getDataSource();
+        HikariPoolMXBean pool = ds.getHikariPoolMXBean();
+        Integer awaiting = pool != null ? pool.getThreadsAwaitingConnection() : null;
+        Integer active = pool != null ? pool.getActiveConnections() : null;
+
+        double acquireP95Ms = intervalAcquireP95(leaderKey);
+        Integer sessions = null;
+        boolean saturated = false;
+        try {
+            sessions = countActiveSessions(leaderKey);
+        } catch (BulkheadRejectedException e) {
+            saturated = true;
+        } catch (SQLException e) {
+            log.debug("Failed to read pg_stat_activity on leader '{}': {}", leaderKey, e.getMessage());
+        }
+
+        Sample sample = new Sample(leaderKey, awaiting, active, ds.getMaximumPoolSize(), acquireP95Ms, sessions,
+                saturated, Instant.now(), null);
+        return sample.withPressure(assess(sample));
+    }
+
+    /**
+     * Возвращает p95 времени получения соединения к leader только за последний интервал.
+     */
+    private double intervalAcquireP95(String leaderKey) {
+        StatementStats.Target target = dsMultiRouting.getStatementStats().getTargets().get(leaderKey);
+        if (target == null) {
+            return 0;
+        }
+        long[] counts = target.getAcquires().getBucketCounts();
+        long[] interval = counts.clone();
+        if (leaderKey.equals(previousLeaderKey) && previousAcquires != null) {
+            for (int i = 0; i < interval.length; i++) {
+                interval[i] = Math.max(0, counts[i] - previousAcquires[i]);
+            }
+        }
+        previousLeaderKey = leaderKey;
+        previousAcquires = counts;
+        return StatementStats.percentileMillis(interval, 0.95, target.getAcquires().getMaxMillis());
+    }
+
+    private int countActiveSessions(String leaderKey) throws SQLException {
+        try (Connection connection = dsMultiRouting.getConnection(leaderKey, WorkloadClass.ADMIN);
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(1);
+            try (ResultSet rs = statement.executeQuery(ACTIVE_SESSIONS_SQL)) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    private Pressure assess(Sample sample) {
+        Threshold hot = properties.getHot();
+        Threshold cool = properties.getCool();
+        double ratio = sample.activeConnections() != null && sample.maximumPoolSize() > 0
+                ? sample.activeConnections() / (double) sample.maximumPoolSize() : 0;
+        int awaiting = sample.threadsAwaiting() != null ? sample.threadsAwaiting() : 0;
+        double hotAcquireMs = hot.getAcquireP95().toNanos() / 1_000_000.0;
+        double coolAcquireMs = cool.getAcquireP95().toNanos() / 1_000_000.0;
+
+        if (sample.saturated()
+                || awaiting >= hot.getThreadsAwaiting()
+                || ratio >= hot.getActiveRatio()
+                || sample.acquireP95Ms() >= hotAcquireMs
+                || (sample.activeSessions() != null && sample.activeSessions() >= hot.getActiveSessions())) {
+            return Pressure.HOT;
+        }
+        if (awaiting <= cool.getThreadsAwaiting()
+                && ratio <= cool.getActiveRatio()
+                && sample.acquireP95Ms() <= coolAcquireMs
+                && (sample.activeSessions() == null || sample.activeSessions() <= cool.getActiveSessions())) {
+            return Pressure.COOL;
+        }
+        return Pressure.NEUTRAL;
+    }
+
+    private enum Pressure {
+        HOT,
+        NEUTRAL,
+        COOL
+    }
+
+    /**
+     * Один замер нагрузки на leader.
+     */
+    private record Sample(String leaderKey, Integer threadsAwaiting, Integer activeConnections, int maximumPoolSize,
+                          double acquireP95Ms, Integer activeSessions, boolean saturated, Instant sampledAt,
+                          Pressure pressure) {
+
+        private Sample withPressure(Pressure pressure) {
+            return new Sample(leaderKey, threadsAwaiting, activeConnections, maximumPoolSize, acquireP95Ms,
+                    activeSessions, saturated, sampledAt, pressure);
+        }
+
+        private String describe() {
+            return "awaiting=" + threadsAwaiting + ", active=" + activeConnections + "/" + maximumPoolSize
+                    + ", acquireP95=" + acquireP95Ms + "ms, sessions=" + (saturated ? "saturated" : activeSessions);
+        }
+    }
+}
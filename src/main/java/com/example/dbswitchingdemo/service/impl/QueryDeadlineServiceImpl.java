@@ -0,0 +1,68 @@
+package com.example.dbswitchingdemo.service.impl;
+
+import com.example.dbswitchingdemo.config.DeadlineProperties;
+import com.example.dbswitchingdemo.config.MultiRoutingDataSource;
+import com.example.dbswitchingdemo.dto.DataSourceDTO;
+import com.example.dbswitchingdemo.dto.QueryDeadlineStatsDTO;
+import com.example.dbswitchingdemo.service.DynamicDatabaseService;
+import com.example.dbswitchingdemo.service.QueryDeadlineService;
+import com.example.dbswitchingdemo.util.QueryDeadlines;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Реализация ограничения времени выполнения запросов.
+ * <p>
+ * Включает {@link QueryDeadlines} маршрутизатора, если режим включен. Бюджет одного запроса без срока
+ * HTTP-запроса выбирается по текущей роли источника данных в активном пуле, поэтому после смены роли
+ * источник сразу получает бюджет новой роли.
+ */
+@Service
+@RequiredArgsConstructor
+public class QueryDeadlineServiceImpl implements QueryDeadlineService {
+
+    private final DeadlineProperties properties;
+    private final MultiRoutingDataSource dsMultiRouting;
+    private final DynamicDatabaseService dsService;
+
+    @PostConstruct
+    private void init() {
+        if (properties.isEnabled()) {
+            Duration grace = properties.getAbortGrace();
+            dsMultiRouting.getQueryDeadlines().configure(this::budgetFor, grace.isNegative() ? null : grace);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public QueryDeadlineStatsDTO getStats() {
+        QueryDeadlines deadlines = dsMultiRouting.getQueryDeadlines();
+        Map<String, Long> routes = new LinkedHashMap<>();
+        properties.getRoutes().forEach((pattern, timeout) -> routes.put(pattern, timeout.toMillis()));
+        Duration leader = properties.forRole("leader");
+        Duration replica = properties.forRole("replica");
+        return QueryDeadlineStatsDTO.builder()
+                .enabled(properties.isEnabled())
+                .header(properties.getHeader())
+                .leaderBudgetMs(leader != null ? leader.toMillis() : null)
+                .replicaBudgetMs(replica != null ? replica.toMillis() : null)
+                .abortGraceMs(properties.getAbortGrace().toMillis())
+                .routeTimeoutsMs(routes)
+                .cancelledByKey(deadlines.getCancelled())
+                .abortedByKey(deadlines.getAborted())
+                .expiredByKey(deadlines.getExpired())
+                .build();
+    }
+
+    private Duration budgetFor(String dsKey) {
+        DataSourceDTO ds = dsService.getActivePool().get(dsKey);
+        return ds != null ? properties.forRole(ds.getRole()) : null;
+    }
+}
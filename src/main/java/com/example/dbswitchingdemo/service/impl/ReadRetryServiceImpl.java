@@ -0,0 +1,208 @@
+package com.example.dbswitchingdemo.service.impl;
+
+import com.example.dbswitchingdemo.config.DataSourceContextHolder;
+import com.example.dbswitchingdemo.config.ReadRetryProperties;
+import com.example.dbswitchingdemo.dto.DataSourceDTO;
+import com.example.dbswitchingdemo.dto.ReadRetryStatsDTO;
+import com.example.dbswitchingdemo.exception.ResourceNotFound;
+import com.example.dbswitchingdemo.service.AffinityRoutingService;
+import com.example.dbswitchingdemo.service.DynamicDatabaseService;
+import com.example.dbswitchingdemo.service.OffloadPolicyService;
+import com.example.dbswitchingdemo.service.ReadRetryService;
+import com.example.dbswitchingdemo.service.SlowStartService;
+import com.example.dbswitchingdemo.util.DataSourceManager;
+import com.example.dbswitchingdemo.util.SqlStateUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Реализация повторного выполнения идемпотентных чтений на репликах.
+ * <p>
+ * Каждая попытка закрепляет реплику в контексте текущего потока и открывает новую read-only транзакцию,
+ * поэтому соединение берется из пула выбранной реплики. Реплика, на которой произошла ошибка соединения,
+ * исключается из следующих попыток этого же запроса. Чтения, которые сами берут соединение по ключу
+ * реплики ({@link #executeOnReplica}), повторяются по тем же правилам, но без транзакции и контекста потока.
+ * <p>
+ * Доля чтений, которая уходит на реплики, задается {@link OffloadPolicyService}: остальные чтения выполняются
+ * на leader в такой же read-only транзакции (или по соединению с leader для {@link #executeOnReplica}),
+ * но без повторов. Через {@link #executeOnReplica} идут выгрузки отчетов, поэтому политика действует на них
+ * и без маршрутизации отдельных запросов ({@code app.statement-routing}). Реплика без ключа привязки выбирается
+ * с учетом веса из {@link SlowStartService}.
+ */
+@Service
+@Slf4j
+public class ReadRetryServiceImpl implements ReadRetryService {
+
+    private final DynamicDatabaseService dsService;
+    private final AffinityRoutingService affinityRouting;
+    private final OffloadPolicyService offloadPolicy;
+    private final SlowStartService slowStart;
+    private final ReadRetryProperties properties;
+    private final TransactionTemplate readOnlyTemplate;
+
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder leaderReads = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+    private final Map<String, LongAdder> retriesByKey = new ConcurrentHashMap<>();
+
+    public ReadRetryServiceImpl(DynamicDatabaseService dsService,
+                                AffinityRoutingService affinityRouting,
+                                OffloadPolicyService offloadPolicy,
+                                SlowStartService slowStart,
+                                ReadRetryProperties properties,
+                                PlatformTransactionManager transactionManager) {
+        this.dsService = dsService;
+        this.affinityRouting = affinityRouting;
+        this.offloadPolicy = offloadPolicy;
+        this.slowStart = slowStart;
+        this.properties = properties;
+        this.readOnlyTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate.setReadOnly(true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T executeRead(String operation, Supplier<T> read) {
+        return executeRead(operation, null, read);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T executeRead(String operation, String affinityKey, Supplier<T> read) {
+        reads.increment();
+
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            // соединение уже привязано к внешней транзакции, сменить реплику невозможно
+            return read.get();
+        }
+
+        try {
+            return offload(operation, affinityKey, dsKey -> runOn(dsKey, read));
+        } catch (SQLException e) {
+            // чтение через Supplier не бросает проверяемых исключений
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T executeOnReplica(String operation, String affinityKey, ReplicaRead<T> read) throws SQLException {
+        reads.increment();
+        return offload(operation, affinityKey, read);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ReadRetryStatsDTO getStats() {
+        Map<String, Long> retries = new TreeMap<>();
+        retriesByKey.forEach((dsKey, counter) -> retries.put(dsKey, counter.sum()));
+        return ReadRetryStatsDTO.builder()
+                .reads(reads.sum())
+                .leaderReads(leaderReads.sum())
+                .exhausted(exhausted.sum())
+                .retriesByKey(retries)
+                .build();
+    }
+
+    private <T> T offload(String operation, String affinityKey, ReplicaRead<T> read) throws SQLException {
+        if (!offloadPolicy.offloadRead()) {
+            DataSourceDTO dsLeader = DataSourceManager.findLeaderDataSource(dsService.getActivePool());
+            if (dsLeader != null) {
+                leaderReads.increment();
+                return read.read(dsLeader.getDataSourceKey());
+            }
+        }
+        return retryOnReplicas(operation, affinityKey, read);
+    }
+
+    private <T> T retryOnReplicas(String operation, String affinityKey, ReplicaRead<T> read) throws SQLException {
+        Set<String> failedKeys = new HashSet<>();
+        Exception lastFailure = null;
+
+        for (int attempt = 1; attempt <= properties.getMaxAttempts(); attempt++) {
+            DataSourceDTO replica;
+            try {
+                replica = affinityKey != null
+                        ? affinityRouting.selectReplica(affinityKey, failedKeys)
+                        : DataSourceManager.findReplicaDataSource(dsService.getActivePool(), failedKeys, slowStart::weight);
+            } catch (ResourceNotFound e) {
+                if (lastFailure != null) {
+                    break;
+                }
+                throw e;
+            }
+
+            String dsKey = replica.getDataSourceKey();
+            try {
+                return read.read(dsKey);
+            } catch (SQLException | RuntimeException e) {
+                if (!SqlStateUtils.isConnectionFailure(e)) {
+                    throw e;
+                }
+                lastFailure = e;
+                failedKeys.add(dsKey);
+                retriesByKey.computeIfAbsent(dsKey, key -> new LongAdder()).increment();
+                log.warn("Read '{}' failed on replica '{}' (attempt {}): {}", operation, dsKey, attempt, e.getMessage());
+
+                if (attempt < properties.getMaxAttempts() && !backoff(attempt)) {
+                    break;
+                }
+            }
+        }
+
+        exhausted.increment();
+        if (lastFailure instanceof SQLException sqlFailure) {
+            throw sqlFailure;
+        }
+        throw (RuntimeException) lastFailure;
+    }
+
+    private <T> T runOn(String dsKey, Supplier<T> read) {
+        String previous = DataSourceContextHolder.getThreadDataSourceContext().orElse(null);
+        DataSourceContextHolder.setThreadDataSourceContext(dsKey);
+        try {
+            return readOnlyTemplate.execute(status -> read.get());
+        } finally {
+            DataSourceContextHolder.setThreadDataSourceContext(previous);
+        }
+    }
+
+    /**
+     * Пауза перед повтором с полным джиттером: случайное значение от нуля до экспоненциально растущей границы.
+     *
+     * @return {@code false}, если поток был прерван и повторять чтение не нужно
+     */
+    private boolean backoff(int attempt) {
+        long ceiling = Math.min(properties.getMaxBackoff().toNanos(),
+                properties.getBaseBackoff().toNanos() << Math.min(attempt, 20));
+        try {
+            TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
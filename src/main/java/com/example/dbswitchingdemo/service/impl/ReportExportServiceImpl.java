@@ -0,0 +1,113 @@
+package com.example.dbswitchingdemo.service.impl;
+
+import com.example.dbswitchingdemo.config.DeadlineContextHolder;
+import com.example.dbswitchingdemo.config.ExportProperties;
+import com.example.dbswitchingdemo.config.MultiRoutingDataSource;
+import com.example.dbswitchingdemo.enums.ExportFormat;
+import com.example.dbswitchingdemo.enums.WorkloadClass;
+import com.example.dbswitchingdemo.exception.ResourceNotFound;
+import com.example.dbswitchingdemo.service.ReadRetryService;
+import com.example.dbswitchingdemo.service.ReportExportService;
+import com.example.dbswitchingdemo.util.ResultSetStreamWriter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.OptionalLong;
+
+/**
+ * Реализация потоковой выгрузки отчетов с реплик.
+ * <p>
+ * Соединение берется по явному ключу выбранной реплики ({@link MultiRoutingDataSource#getConnection(String, WorkloadClass)}),
+ * чтобы глобальное переключение контекста во время выгрузки не увело курсор на другой источник данных,
+ * а выгрузка учитывалась в лимите класса {@link WorkloadClass#REPORT}.
+ * Курсор открывается с выключенным autocommit, иначе драйвер PostgreSQL игнорирует {@code fetchSize}
+ * и загружает весь результат в память. Выгрузка выполняется в другом потоке, поэтому срок HTTP-запроса
+ * переносится в него явно.
+ * <p>
+ * Реплика выбирается через {@link ReadRetryService}: если соединение с ней оборвалось до первой строки
+ * отчета, курсор открывается заново на другой реплике. После начала записи в ответ выгрузка не повторяется.
+ * Пока политика разгрузки оставляет часть чтений на leader, часть отчетов выполняется на leader.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ReportExportServiceImpl implements ReportExportService {
+
+    private final ExportProperties properties;
+    private final MultiRoutingDataSource dsMultiRouting;
+    private final ReadRetryService readRetry;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StreamingResponseBody export(String report, ExportFormat format, String tenantId) {
+        String sql = properties.getQueries().get(report);
+        if (sql == null) {
+            throw new ResourceNotFound("Report '" + report + "' is not configured.");
+        }
+
+        OptionalLong deadline = DeadlineContextHolder.getDeadline();
+
+        return out -> {
+            deadline.ifPresent(DeadlineContextHolder::setDeadline);
+            long startedAt = System.nanoTime();
+            String operation = "report '" + report + "'";
+            try (Cursor cursor = readRetry.executeOnReplica(operation, tenantId, dsKey -> open(dsKey, sql))) {
+                long rows = ResultSetStreamWriter.write(cursor.resultSet(), format, out,
+                        properties.getFlushEveryRows());
+                log.info("Report '{}' exported from '{}': {} rows in {} ms.", report, cursor.dsKey(), rows,
+                        (System.nanoTime() - startedAt) / 1_000_000);
+            } catch (SQLException e) {
+                log.error("Report '{}' export failed: {}", report, e.getMessage());
+                throw new IOException("Report export failed: " + e.getMessage(), e);
+            } finally {
+                DeadlineContextHolder.clearDeadline();
+            }
+        };
+    }
+
+    /**
+     * Берет соединение с реплики и открывает курсор отчета. Ошибка на этом шаге еще ничего не отправила клиенту,
+     * поэтому {@link ReadRetryService} может повторить его на другой реплике.
+     */
+    private Cursor open(String dsKey, String sql) throws SQLException {
+        Connection connection = dsMultiRouting.getConnection(dsKey, WorkloadClass.REPORT);
+        try {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            PreparedStatement statement = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(properties.getFetchSize());
+            return new Cursor(dsKey, connection, statement, statement.executeQuery());
+        } catch (SQLException | RuntimeException e) {
+            try {
+                connection.close();
+            } catch (SQLException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    private record Cursor(String dsKey, Connection connection, PreparedStatement statement,
+                          ResultSet resultSet) implements AutoCloseable {
+
+        @Override
+        public void close() throws SQLException {
+            try (connection) {
+                try (statement; resultSet) {
+                    // курсор и запрос закрываются до отката транзакции
+                }
+                connection.rollback();
+            }
+        }
+    }
+}
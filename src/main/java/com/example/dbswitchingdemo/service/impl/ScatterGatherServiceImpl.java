@@ -0,0 +1,502 @@
+package com.example.dbswitchingdemo.service.impl;
+
+import com.example.dbswitchingdemo.config.DeadlineContextHolder;
+import com.example.dbswitchingdemo.config.MultiRoutingDataSource;
+import com.example.dbswitchingdemo.config.ScatterGatherProperties;
+import com.example.dbswitchingdemo.config.ScatterGatherProperties.Report;
+import com.example.dbswitchingdemo.dto.DataSourceDTO;
+import com.example.dbswitchingdemo.enums.ExportFormat;
+import com.example.dbswitchingdemo.enums.MergeMode;
+import com.example.dbswitchingdemo.enums.PartitionStrategy;
+import com.example.dbswitchingdemo.enums.WorkloadClass;
+import com.example.dbswitchingdemo.exception.ResourceNotFound;
+import com.example.dbswitchingdemo.service.DynamicDatabaseService;
+import com.example.dbswitchingdemo.service.ScatterGatherService;
+import com.example.dbswitchingdemo.util.ResultSetStreamWriter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Реализация параллельного выполнения отчетов на всех репликах (scatter-gather).
+ * <p>
+ * Отчет разбивается на части по хешу или диапазону колонки разбиения, части распределяются по репликам
+ * по кругу и выполняются одновременно, каждая на своем соединении из пула реплики. Строки частей передаются
+ * потребителю через ограниченные очереди, поэтому память не зависит от размера отчета.
+ * <p>
+ * Все части одного отчета должны выполняться одновременно (иначе слияние отсортированных частей может
+ * ждать часть, которой не досталось потока или соединения). Поэтому слоты под части резервируются заранее:
+ * на реплике занимается не больше {@code maximumPoolSize - reservedConnections} соединений и не больше лимита
+ * класса {@link WorkloadClass#REPORT}, а всего — не больше {@code maxParallelism} частей; части, которым
+ * не хватило слота, не создаются. Слоты реплики пересчитываются, если ее пул заменили или изменили его размер;
+ * первая часть ждет слот не дольше срока HTTP-запроса и {@code acquireTimeout}.
+ * <p>
+ * Срок HTTP-запроса переносится в поток выгрузки и в потоки частей, поэтому по его истечении запросы
+ * всех частей отменяются.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ScatterGatherServiceImpl implements ScatterGatherService {
+
+    private static final String PARTITION_MARKER = "{partition}";
+    private static final Object[] END = new Object[0];
+    private static final int FLUSH_EVERY_ROWS = 10_000;
+
+    private final DynamicDatabaseService dsService;
+    private final ScatterGatherProperties properties;
+    private final MultiRoutingDataSource dsMultiRouting;
+
+    private final Map<String, ReplicaSlots> replicaPermits = new ConcurrentHashMap<>();
+    private Semaphore parallelismPermits;
+    private ExecutorService executor;
+
+    @PostConstruct
+    private void init() {
+        parallelismPermits = new Semaphore(properties.getMaxParallelism());
+        AtomicInteger threadCounter = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "scatter-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StreamingResponseBody execute(String report, ExportFormat format) {
+        Report config = properties.getReports().get(report);
+        if (config == null) {
+            throw new ResourceNotFound("Scatter report '" + report + "' is not configured.");
+        }
+
+        Map<String, DataSourceDTO> dsActivePool = dsService.getActivePool();
+        replicaPermits.keySet().retainAll(dsActivePool.keySet());
+        List<DataSourceDTO> replicas = dsActivePool.values().stream()
+                .filter(dsDTO -> "replica".equals(dsDTO.getRole()))
+                .toList();
+        if (replicas.isEmpty()) {
+            throw new ResourceNotFound("No replica found to run report '" + report + "'.");
+        }
+
+        OptionalLong deadline = DeadlineContextHolder.getDeadline();
+        return out -> {
+            deadline.ifPresent(DeadlineContextHolder::setDeadline);
+            try {
+                run(report, config, replicas, format, out, deadline);
+            } finally {
+                DeadlineContextHolder.clearDeadline();
+            }
+        };
+    }
+
+    private void run(String report, Report config, List<DataSourceDTO> replicas, ExportFormat format,
+                     OutputStream out, OptionalLong deadline) throws IOException {
+        long startedAt = System.nanoTime();
+        List<Partition> partitions = reservePartitions(replicas);
+        try {
+            buildPredicates(config, partitions);
+        } catch (SQLException | RuntimeException e) {
+            partitions.forEach(this::release);
+            throw new IOException("Failed to partition report '" + report + "': " + e.getMessage(), e);
+        }
+
+        Gather gather = new Gather(config.getMerge() == MergeMode.SORTED ? partitions.size() : 1,
+                properties.getQueueCapacity());
+        CompletableFuture<String[]> columns = new CompletableFuture<>();
+        List<Future<?>> futures = new ArrayList<>();
+        for (Partition partition : partitions) {
+            futures.add(executor.submit(() -> DeadlineContextHolder.runWith(deadline,
+                    () -> runPartition(config, partition, gather, columns))));
+        }
+
+        try {
+            ResultSetStreamWriter writer = new ResultSetStreamWriter(format, out, FLUSH_EVERY_ROWS);
+            writer.writeHeader(columns.get());
+            switch (config.getMerge()) {
+                case CONCAT -> mergeConcat(gather, partitions.size(), writer);
+                case SORTED -> mergeSorted(gather, partitions.size(), config.getSortColumn() - 1, writer);
+                case AGGREGATE -> mergeAggregate(gather, partitions.size(), config.getGroupColumns(), writer);
+            }
+            long rows = writer.finish();
+            log.info("Scatter report '{}' finished: {} partitions on {} replicas, {} rows in {} ms.", report,
+                    partitions.size(), replicas.size(), rows, (System.nanoTime() - startedAt) / 1_000_000);
+        } catch (ExecutionException e) {
+            throw new IOException("Scatter report '" + report + "' failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Scatter report '" + report + "' interrupted.", e);
+        } finally {
+            gather.cancelled = true;
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * Резервирует слоты под части отчета: реплики обходятся по кругу, пока у них есть свободные соединения
+     * и не исчерпан общий лимит параллелизма. Первая часть ждет слот, остальные берутся только если свободны.
+     */
+    private List<Partition> reservePartitions(List<DataSourceDTO> replicas) throws IOException {
+        List<Partition> partitions = new ArrayList<>();
+        for (int round = 0; round < properties.getPartitionsPerReplica(); round++) {
+            for (DataSourceDTO replica : replicas) {
+                Semaphore permits = slotsFor(replica);
+                if (partitions.isEmpty()) {
+                    acquireFirst(permits);
+                } else if (!parallelismPermits.tryAcquire()) {
+                    return partitions;
+                } else if (!permits.tryAcquire()) {
+                    parallelismPermits.release();
+                    continue;
+                }
+                partitions.add(new Partition(partitions.size(), replica, permits));
+            }
+        }
+        return partitions;
+    }
+
+    /**
+     * Возвращает слоты реплики. Если пул реплики заменен или его размер изменился, создаются новые слоты;
+     * части, занявшие старые, возвращают их в старый семафор.
+     */
+    private Semaphore slotsFor(DataSourceDTO replica) {
+        Object pool = replica.getDataSource();
+        int size = Math.max(1, Math.min(
+                replica.getDataSource().getMaximumPoolSize() - properties.getReservedConnections(),
+                dsMultiRouting.getWorkloadLimit(replica.getDataSourceKey(), WorkloadClass.REPORT)));
+        return replicaPermits.compute(replica.getDataSourceKey(), (key, slots) ->
+                slots != null && slots.pool() == pool && slots.size() == size
+                        ? slots
+                        : new ReplicaSlots(pool, size, new Semaphore(size))).permits();
+    }
+
+    private void acquireFirst(Semaphore permits) throws IOException {
+        long deadline = System.nanoTime() + properties.getAcquireTimeout().toNanos();
+        OptionalLong requestDeadline = DeadlineContextHolder.getDeadline();
+        if (requestDeadline.isPresent() && requestDeadline.getAsLong() - deadline < 0) {
+            deadline = requestDeadline.getAsLong();
+        }
+        try {
+            if (!parallelismPermits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                throw new IOException("Timed out waiting for report capacity.");
+            }
+            boolean acquired = false;
+            try {
+                acquired = permits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } finally {
+                if (!acquired) {
+                    parallelismPermits.release();
+                }
+            }
+            if (!acquired) {
+                throw new IOException("Timed out waiting for replica capacity.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for replica capacity.", e);
+        }
+    }
+
+    private void release(Partition partition) {
+        partition.permits().release();
+        parallelismPermits.release();
+    }
+
+    /**
+     * Подставляет предикат части вместо маркера {@code {partition}}.
+     * Для {@link PartitionStrategy#RANGE} границы берутся запросом {@code boundsSql} на первой реплике.
+     */
+    private void buildPredicates(Report config, List<Partition> partitions) throws SQLException {
+        int count = partitions.size();
+        String column = config.getPartitionColumn();
+
+        if (config.getStrategy() == PartitionStrategy.HASH) {
+            String sql = config.getSql().replace(PARTITION_MARKER,
+                    "(hashtext(CAST(" + column + " AS text)) & 2147483647) % ? = ?");
+            partitions.forEach(partition -> {
+                partition.sql = sql;
+                partition.params = new long[]{count, partition.index()};
+            });
+            return;
+        }
+
+        long min = 0;
+        long max = -1;
+        try (Connection connection = dsMultiRouting.getConnection(partitions.get(0).replica().getDataSourceKey(),
+                WorkloadClass.REPORT);
+             PreparedStatement statement = connection.prepareStatement(config.getBoundsSql());
+             ResultSet rs = statement.executeQuery()) {
+            if (rs.next() && rs.getObject(1) != null) {
+                min = rs.getLong(1);
+                max = rs.getLong(2);
+            }
+        }
+
+        long step = Math.max(1, (max - min + count) / count);
+        String sql = config.getSql().replace(PARTITION_MARKER, column + " >= ? AND " + column + " < ?");
+        for (Partition partition : partitions) {
+            long lower = min + step * partition.index();
+            long upper = partition.index() == count - 1 ? max + 1 : Math.min(lower + step, max + 1);
+            partition.sql = sql;
+            partition.params = new long[]{lower, upper};
+        }
+    }
+
+    private void runPartition(Report config, Partition partition, Gather gather, CompletableFuture<String[]> columns) {
+        BlockingQueue<Object[]> queue = gather.queueFor(partition.index());
+        try (Connection connection = dsMultiRouting.getConnection(partition.replica().getDataSourceKey(),
+                WorkloadClass.REPORT)) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            try (PreparedStatement statement = connection.prepareStatement(partition.sql)) {
+                statement.setFetchSize(properties.getFetchSize());
+                for (int i = 0; i < partition.params.length; i++) {
+                    statement.setLong(i + 1, partition.params[i]);
+                }
+                try (ResultSet rs = statement.executeQuery()) {
+                    String[] labels = ResultSetStreamWriter.columnLabels(rs.getMetaData());
+                    columns.complete(labels);
+                    while (rs.next()) {
+                        Object[] row = new Object[labels.length];
+                        for (int i = 0; i < row.length; i++) {
+                            row[i] = ResultSetStreamWriter.readValue(rs, i + 1);
+                        }
+                        gather.put(queue, row);
+                    }
+                }
+            } finally {
+                connection.rollback();
+            }
+            gather.put(queue, END);
+        } catch (CancellationException e) {
+            // потребитель завершил работу, строки части больше не нужны
+        } catch (Exception e) {
+            if (!gather.cancelled) {
+                log.error("Partition {} of report on '{}' failed: {}", partition.index(),
+                        partition.replica().getDataSourceKey(), e.getMessage());
+            }
+            gather.failure.compareAndSet(null, e);
+            columns.completeExceptionally(e);
+            try {
+                gather.put(queue, END);
+            } catch (CancellationException | InterruptedException ignored) {
+                // потребитель уже не ждет
+            }
+        } finally {
+            release(partition);
+        }
+    }
+
+    private void mergeConcat(Gather gather, int partitions, ResultSetStreamWriter writer)
+            throws IOException, InterruptedException {
+        BlockingQueue<Object[]> queue = gather.queueFor(0);
+        int remaining = partitions;
+        while (remaining > 0) {
+            Object[] row = gather.take(queue);
+            if (row == END) {
+                remaining--;
+            } else {
+                writer.writeRow(row);
+            }
+        }
+    }
+
+    private void mergeSorted(Gather gather, int partitions, int sortIndex, ResultSetStreamWriter writer)
+            throws IOException, InterruptedException {
+        PriorityQueue<Head> heads = new PriorityQueue<>(partitions,
+                Comparator.comparing((Head head) -> head.row()[sortIndex], ScatterGatherServiceImpl::compareValues));
+        for (int i = 0; i < partitions; i++) {
+            Object[] row = gather.take(gather.queueFor(i));
+            if (row != END) {
+                heads.add(new Head(i, row));
+            }
+        }
+        while (!heads.isEmpty()) {
+            Head head = heads.poll();
+            writer.writeRow(head.row());
+            Object[] next = gather.take(gather.queueFor(head.partition()));
+            if (next != END) {
+                heads.add(new Head(head.partition(), next));
+            }
+        }
+    }
+
+    private void mergeAggregate(Gather gather, int partitions, int groupColumns, ResultSetStreamWriter writer)
+            throws IOException, InterruptedException {
+        Map<List<Object>, Object[]> groups = new LinkedHashMap<>();
+        BlockingQueue<Object[]> queue = gather.queueFor(0);
+        int remaining = partitions;
+        while (remaining > 0) {
+            Object[] row = gather.take(queue);
+            if (row == END) {
+                remaining--;
+                continue;
+            }
+            Object[] acc = groups.putIfAbsent(Arrays.asList(Arrays.copyOf(row, groupColumns)), row);
+            if (acc != null) {
+                for (int i = groupColumns; i < row.length; i++) {
+                    acc[i] = addValues(acc[i], row[i]);
+                }
+            }
+        }
+        for (Object[] row : groups.values()) {
+            writer.writeRow(row);
+        }
+    }
+
+    private static int compareValues(Object a, Object b) {
+        if (a == b) {
+            return 0;
+        }
+        if (a == null) {
+            return 1;
+        }
+        if (b == null) {
+            return -1;
+        }
+        if (a instanceof Number x && b instanceof Number y) {
+            if (isIntegral(x) && isIntegral(y)) {
+                return Long.compare(x.longValue(), y.longValue());
+            }
+            if (x instanceof Double || x instanceof Float || y instanceof Double || y instanceof Float) {
+                return Double.compare(x.doubleValue(), y.doubleValue());
+            }
+            return new BigDecimal(x.toString()).compareTo(new BigDecimal(y.toString()));
+        }
+        return a.toString().compareTo(b.toString());
+    }
+
+    private static Object addValues(Object a, Object b) {
+        if (a == null) {
+            return b;
+        }
+        if (!(a instanceof Number x) || !(b instanceof Number y)) {
+            return a;
+        }
+        if (isIntegral(x) && isIntegral(y)) {
+            return x.longValue() + y.longValue();
+        }
+        if (x instanceof Double || x instanceof Float || y instanceof Double || y instanceof Float) {
+            return x.doubleValue() + y.doubleValue();
+        }
+        return new BigDecimal(x.toString()).add(new BigDecimal(y.toString()));
+    }
+
+    private static boolean isIntegral(Number number) {
+        return number instanceof Long || number instanceof Integer || number instanceof Short;
+    }
+
+    /**
+     * Часть отчета, закрепленная за репликой. SQL и параметры заполняются после резервирования слотов.
+     */
+    /**
+     * Слоты под части отчетов на реплике для конкретного пула и его размера.
+     */
+    private record ReplicaSlots(Object pool, int size, Semaphore permits) {
+    }
+
+    private static final class Partition {
+        private final int index;
+        private final DataSourceDTO replica;
+        private final Semaphore permits;
+        private String sql;
+        private long[] params;
+
+        private Partition(int index, DataSourceDTO replica, Semaphore permits) {
+            this.index = index;
+            this.replica = replica;
+            this.permits = permits;
+        }
+
+        private int index() {
+            return index;
+        }
+
+        private DataSourceDTO replica() {
+            return replica;
+        }
+
+        private Semaphore permits() {
+            return permits;
+        }
+    }
+
+    private record Head(int partition, Object[] row) {
+    }
+
+    /**
+     * Очереди строк между частями и потребителем. Для слияния отсортированных частей у каждой части своя очередь,
+     * в остальных режимах все части пишут в одну общую очередь.
+     */
+    private static final class Gather {
+        private final List<BlockingQueue<Object[]>> queues = new ArrayList<>();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private volatile boolean cancelled;
+
+        private Gather(int queueCount, int capacity) {
+            for (int i = 0; i < queueCount; i++) {
+                queues.add(new ArrayBlockingQueue<>(capacity));
+            }
+        }
+
+        private BlockingQueue<Object[]> queueFor(int partition) {
+            return queues.get(queues.size() == 1 ? 0 : partition);
+        }
+
+        private void put(BlockingQueue<Object[]> queue, Object[] row) throws InterruptedException {
+            while (!cancelled) {
+                if (queue.offer(row, 100, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+            throw new CancellationException();
+        }
+
+        private Object[] take(BlockingQueue<Object[]> queue) throws IOException, InterruptedException {
+            Object[] row = queue.take();
+            if (row == END && failure.get() != null) {
+                throw new IOException("Report partition failed: " + failure.get().getMessage(), failure.get());
+            }
+            return row;
+        }
+    }
+}
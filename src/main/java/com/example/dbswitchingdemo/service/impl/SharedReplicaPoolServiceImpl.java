@@ -0,0 +1,195 @@
+package com.example.dbswitchingdemo.service.impl;
+
+import com.example.dbswitchingdemo.config.DataSourceConfig;
+import com.example.dbswitchingdemo.config.DataSourceProperties;
+import com.example.dbswitchingdemo.config.MultiRoutingDataSource;
+import com.example.dbswitchingdemo.config.SharedReplicaPoolProperties;
+import com.example.dbswitchingdemo.dto.DataSourceDTO;
+import com.example.dbswitchingdemo.dto.SharedReplicaPoolDTO;
+import com.example.dbswitchingdemo.dto.request.ClusterMemberDTO.MemberDTO;
+import com.example.dbswitchingdemo.service.SharedReplicaPoolService;
+import com.example.dbswitchingdemo.util.DataSourceManager;
+import com.example.dbswitchingdemo.util.MultiHostReplicaDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Реализация общего пула реплик.
+ * <p>
+ * Все реплики обслуживаются одним пулом Hikari, который берет физические соединения из
+ * {@link MultiHostReplicaDataSource}: драйвер PostgreSQL выбирает хост по списку с {@code targetServerType}
+ * и {@code loadBalanceHosts}. Вместо N пулов с их свободными соединениями и служебными потоками остается один.
+ * <p>
+ * Список хостов меняется без пересоздания пула. Добавленный хост получает соединения по мере того, как пул
+ * открывает новые; соединения к удаленному хосту прерываются сразу, остальные соединения продолжают работать.
+ * В маршрутизаторе и в пуле активных источников общий пул виден как одна реплика с ключом
+ * {@code dataSourceKey}, поэтому выбор реплики, привязка ключей клиентов и плавный ввод работают с ним
+ * как с одним членом кластера. Изменения выполняются в потоке операций над топологией.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SharedReplicaPoolServiceImpl implements SharedReplicaPoolService {
+
+    private final SharedReplicaPoolProperties properties;
+    private final DataSourceProperties dsProperties;
+    private final DataSourceConfig dsConfig;
+    private final MultiRoutingDataSource dsMultiRouting;
+
+    private final Map<String, MemberDTO> members = new LinkedHashMap<>();
+    private MultiHostReplicaDataSource hostList;
+    private HikariDataSource pool;
+    private long hostListChanges;
+    private long abortedConnections;
+
+    @PreDestroy
+    private synchronized void shutdown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getDataSourceKey() {
+        return properties.getDataSourceKey();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean refresh(List<MemberDTO> clusterMembers, Map<String, DataSourceDTO> dsActivePool) {
+        boolean added = false;
+        Set<String> removed = new HashSet<>();
+        for (MemberDTO member : clusterMembers) {
+            String dsKey = DataSourceManager.buildUniqueKey(member);
+            if ("replica".equals(member.getRole())) {
+                added |= members.put(dsKey, member) == null;
+            } else if (members.remove(dsKey) != null) {
+                removed.add(dsKey);
+            }
+        }
+        if (!added && removed.isEmpty()) {
+            return false;
+        }
+        apply(removed, dsActivePool);
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized List<String> retain(Set<String> dsKeys, Map<String, DataSourceDTO> dsActivePool) {
+        Set<String> removed = new HashSet<>(members.keySet());
+        removed.removeAll(dsKeys);
+        if (removed.isEmpty()) {
+            return List.of();
+        }
+        members.keySet().removeAll(removed);
+        apply(removed, dsActivePool);
+        return removed.stream().sorted().toList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized List<MemberDTO> getMembers() {
+        return List.copyOf(members.values());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized SharedReplicaPoolDTO getStatus() {
+        SharedReplicaPoolDTO.SharedReplicaPoolDTOBuilder builder = SharedReplicaPoolDTO.builder()
+                .enabled(properties.isEnabled())
+                .dataSourceKey(properties.getDataSourceKey())
+                .hosts(new ArrayList<>(members.keySet()))
+                .connectionsByHost(hostList != null ? hostList.getConnectionsByHost() : Map.of())
+                .hostListChanges(hostListChanges)
+                .abortedConnections(abortedConnections);
+        if (hostList != null) {
+            builder.url(hostList.getUrl());
+        }
+        HikariPoolMXBean poolMXBean = pool != null ? pool.getHikariPoolMXBean() : null;
+        if (poolMXBean != null) {
+            builder.activeConnections(poolMXBean.getActiveConnections())
+                    .idleConnections(poolMXBean.getIdleConnections())
+                    .totalConnections(poolMXBean.getTotalConnections());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Приводит пул в соответствие со списком хостов: создает его для первой реплики, закрывает без реплик
+     * и в остальных случаях меняет список хостов на месте.
+     *
+     * @param removed      ключи удаленных хостов, соединения к которым нужно прервать
+     * @param dsActivePool пул активных источников данных
+     */
+    private void apply(Set<String> removed, Map<String, DataSourceDTO> dsActivePool) {
+        String dsKey = properties.getDataSourceKey();
+        String hosts = String.join(",", members.keySet());
+
+        if (members.isEmpty()) {
+            if (pool != null) {
+                DataSourceManager.detach(dsKey, dsMultiRouting, dsActivePool);
+                pool.close();
+                pool = null;
+                hostList = null;
+                log.info("Shared replica pool '{}' closed, no replicas left.", dsKey);
+            }
+            return;
+        }
+
+        if (pool == null) {
+            hostList = new MultiHostReplicaDataSource(dsProperties.getName(), dsProperties.getUsername(),
+                    dsProperties.getPassword(), properties.getTargetServerType(), properties.isLoadBalanceHosts(),
+                    (int) properties.getHostRecheck().toSeconds());
+            hostList.setHosts(members.values());
+            pool = dsConfig.createHikariDataSource(hostList, "replica");
+            pool.setPoolName(dsKey);
+            pool.setMaximumPoolSize(properties.getMaximumPoolSize());
+            pool.setMinimumIdle(Math.min(properties.getMinimumIdle(), properties.getMaximumPoolSize()));
+            DataSourceManager.add(hosts, null, dsKey, dsProperties.getName(), "replica", pool, dsMultiRouting, dsActivePool);
+            log.info("Shared replica pool '{}' created for hosts [{}].", dsKey, hosts);
+            return;
+        }
+
+        hostList.setHosts(members.values());
+        DataSourceDTO dsShared = dsActivePool.get(dsKey);
+        if (dsShared != null) {
+            dsShared.setHost(hosts);
+        }
+        int aborted = removed.isEmpty() ? 0 : hostList.abortConnections(removed);
+        hostListChanges++;
+        abortedConnections += aborted;
+        log.info("Shared replica pool '{}' host list updated to [{}], {} connections to removed hosts aborted.",
+                dsKey, hosts, aborted);
+    }
+}
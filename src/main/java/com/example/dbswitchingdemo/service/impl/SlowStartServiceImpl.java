@@ -0,0 +1,233 @@
+package com.example.dbswitchingdemo.service.impl;
+
+import com.example.dbswitchingdemo.config.MultiRoutingDataSource;
+import com.example.dbswitchingdemo.config.SlowStartProperties;
+import com.example.dbswitchingdemo.dto.DataSourceDTO;
+import com.example.dbswitchingdemo.dto.ReplicaWeightDTO;
+import com.example.dbswitchingdemo.enums.RampMode;
+import com.example.dbswitchingdemo.service.SlowStartService;
+import com.example.dbswitchingdemo.util.StatementStats;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Реализация плавного ввода реплик.
+ * <p>
+ * Реплика, которая появилась в пуле (новая, вернувшаяся из карантина или ставшая репликой после смены роли),
+ * получает вес {@code initialWeight}; реплики первого непустого пула после запуска считаются прогретыми. Поток
+ * {@code slow-start} раз в {@code interval} увеличивает вес, пока он не дойдет до 1, после чего реплика перестает
+ * отслеживаться. Веса публикуются неизменяемой картой через volatile-поле, поэтому выбор реплики читает вес
+ * одним обращением к карте без блокировок.
+ * <p>
+ * В режиме {@link RampMode#LATENCY} p95 времени запросов за интервал вычисляется по разнице гистограмм
+ * {@link StatementStats} и сравнивается с медианой p95 прогретых реплик. Если статистика запросов выключена
+ * или прогретых реплик нет, вес растет линейно.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SlowStartServiceImpl implements SlowStartService {
+
+    private final SlowStartProperties properties;
+    private final MultiRoutingDataSource dsMultiRouting;
+
+    private final ScheduledExecutorService ramper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "slow-start");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<String, Ramp> ramps = new HashMap<>();
+    private final Map<String, long[]> previousExecutions = new HashMap<>();
+    private Set<String> replicas = Set.of();
+    private boolean initialized;
+    private volatile Map<String, Double> weights = Map.of();
+
+    @PostConstruct
+    private void init() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long interval = properties.getInterval().toMillis();
+        ramper.scheduleWithFixedDelay(this::advance, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        ramper.shutdownNow();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void rebuild(Map<String, DataSourceDTO> dsActivePool) {
+        Set<String> current = dsActivePool.values().stream()
+                .filter(dsDTO -> "replica".equals(dsDTO.getRole()))
+                .map(DataSourceDTO::getDataSourceKey)
+                .collect(Collectors.toSet());
+        if (current.equals(replicas)) {
+            return;
+        }
+
+        ramps.keySet().retainAll(current);
+        previousExecutions.keySet().retainAll(current);
+        if (properties.isEnabled() && initialized) {
+            current.stream()
+                    .filter(dsKey -> !replicas.contains(dsKey))
+                    .forEach(dsKey -> {
+                        ramps.put(dsKey, new Ramp());
+                        log.info("Replica '{}' joined, ramping its read weight from {} over {} s ({}).", dsKey,
+                                properties.getInitialWeight(), properties.getWindow().toSeconds(), properties.getMode());
+                    });
+        }
+        replicas = current;
+        initialized = initialized || !current.isEmpty();
+        publish();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double weight(String dsKey) {
+        Double weight = weights.get(dsKey);
+        return weight != null ? weight : 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized List<ReplicaWeightDTO> getWeights() {
+        List<ReplicaWeightDTO> result = new ArrayList<>();
+        for (String dsKey : replicas) {
+            Ramp ramp = ramps.get(dsKey);
+            ReplicaWeightDTO.ReplicaWeightDTOBuilder builder = ReplicaWeightDTO.builder()
+                    .dataSourceKey(dsKey)
+                    .weight(weight(dsKey))
+                    .ramping(ramp != null)
+                    .progress(ramp != null ? ramp.progress : 1);
+            if (ramp != null) {
+                builder.mode(properties.getMode())
+                        .rampStartedAt(ramp.startedAt)
+                        .p95Ms(ramp.p95Ms)
+                        .peerP95Ms(ramp.peerP95Ms);
+            }
+            result.add(builder.build());
+        }
+        result.sort(Comparator.comparing(ReplicaWeightDTO::getDataSourceKey));
+        return result;
+    }
+
+    /**
+     * Делает шаг разогрева всех отслеживаемых реплик и публикует новые веса.
+     */
+    private synchronized void advance() {
+        if (ramps.isEmpty()) {
+            return;
+        }
+        double step = (double) properties.getInterval().toMillis() / properties.getWindow().toMillis();
+        Map<String, Double> p95 = properties.getMode() == RampMode.LATENCY ? sampleP95() : Map.of();
+        Double peerP95 = medianPeerP95(p95);
+
+        ramps.forEach((dsKey, ramp) -> {
+            if (properties.getMode() == RampMode.LINEAR) {
+                ramp.progress = (double) Duration.between(ramp.startedAt, Instant.now()).toMillis()
+                        / properties.getWindow().toMillis();
+                return;
+            }
+            ramp.p95Ms = p95.get(dsKey);
+            ramp.peerP95Ms = peerP95;
+            boolean coping = ramp.p95Ms == null || peerP95 == null
+                    || ramp.p95Ms <= peerP95 * properties.getLatencyTolerance();
+            ramp.progress = Math.max(0, ramp.progress + (coping ? step : -step));
+        });
+
+        ramps.entrySet().removeIf(entry -> {
+            if (entry.getValue().progress < 1) {
+                return false;
+            }
+            log.info("Replica '{}' reached full read weight after {} s.", entry.getKey(),
+                    Duration.between(entry.getValue().startedAt, Instant.now()).toSeconds());
+            return true;
+        });
+        publish();
+    }
+
+    /**
+     * Вычисляет p95 времени запросов каждой реплики за интервал. Реплики, у которых за интервал меньше
+     * {@code minSamples} запросов, в результат не попадают.
+     */
+    private Map<String, Double> sampleP95() {
+        Map<String, Double> result = new HashMap<>();
+        StatementStats stats = dsMultiRouting.getStatementStats();
+        if (!stats.isEnabled()) {
+            return result;
+        }
+        Map<String, StatementStats.Target> targets = stats.getTargets();
+        for (String dsKey : replicas) {
+            StatementStats.Target target = targets.get(dsKey);
+            if (target == null) {
+                continue;
+            }
+            long[] counts = target.getExecutions().getBucketCounts();
+            long[] previous = previousExecutions.put(dsKey, counts);
+            if (previous == null) {
+                continue;
+            }
+            long[] interval = new long[counts.length];
+            long samples = 0;
+            for (int i = 0; i < counts.length; i++) {
+                interval[i] = Math.max(0, counts[i] - previous[i]);
+                samples += interval[i];
+            }
+            if (samples >= properties.getMinSamples()) {
+                result.put(dsKey, StatementStats.percentileMillis(interval, 0.95, target.getExecutions().getMaxMillis()));
+            }
+        }
+        return result;
+    }
+
+    private Double medianPeerP95(Map<String, Double> p95) {
+        List<Double> peers = p95.entrySet().stream()
+                .filter(entry -> !ramps.containsKey(entry.getKey()))
+                .map(Map.Entry::getValue)
+                .sorted()
+                .toList();
+        return peers.isEmpty() ? null : peers.get(peers.size() / 2);
+    }
+
+    private void publish() {
+        Map<String, Double> published = new HashMap<>();
+        double initial = properties.getInitialWeight();
+        ramps.forEach((dsKey, ramp) -> published.put(dsKey, initial + (1 - initial) * Math.min(1, ramp.progress)));
+        weights = Map.copyOf(published);
+    }
+
+    /**
+     * Разогрев одной реплики. Доступ только под блокировкой сервиса.
+     */
+    private static final class Ramp {
+        private final Instant startedAt = Instant.now();
+        private double progress;
+        private Double p95Ms;
+        private Double peerP95Ms;
+    }
+}
@@ -0,0 +1,349 @@
+package com.example.dbswitchingdemo.service.impl;
+
+import com.example.dbswitchingdemo.config.DeadlineContextHolder;
+import com.example.dbswitchingdemo.config.MultiRoutingDataSource;
+import com.example.dbswitchingdemo.config.SnapshotExportProperties;
+import com.example.dbswitchingdemo.config.SnapshotExportProperties.Export;
+import com.example.dbswitchingdemo.config.SnapshotExportProperties.Table;
+import com.example.dbswitchingdemo.dto.DataSourceDTO;
+import com.example.dbswitchingdemo.enums.ExportFormat;
+import com.example.dbswitchingdemo.enums.WorkloadClass;
+import com.example.dbswitchingdemo.exception.ResourceNotFound;
+import com.example.dbswitchingdemo.service.AffinityRoutingService;
+import com.example.dbswitchingdemo.service.DynamicDatabaseService;
+import com.example.dbswitchingdemo.service.SlowStartService;
+import com.example.dbswitchingdemo.service.SnapshotExportService;
+import com.example.dbswitchingdemo.util.DataSourceManager;
+import com.example.dbswitchingdemo.util.ResultSetStreamWriter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Pattern;
+
+/**
+ * Реализация согласованной параллельной выгрузки таблиц через экспорт снимка данных PostgreSQL.
+ * <p>
+ * Транзакция координатора держит снимок открытым до конца выгрузки. Каждый рабочий поток берет свое соединение
+ * к той же реплике (класс нагрузки {@link WorkloadClass#REPORT}, поэтому координатор и рабочие вместе
+ * не превышают лимит отчетов), импортирует снимок командой {@code SET TRANSACTION SNAPSHOT} и по очереди читает
+ * части таблиц из общей очереди задач. Строки передаются потребителю через ограниченную очередь.
+ * <p>
+ * Если реплику удаляют из пула ({@link DataSourceManager#remove}) во время выгрузки, потребитель замечает это
+ * при очередной проверке, отменяет выполняющиеся запросы и завершает выгрузку записью со статусом {@code FAILED}.
+ * Срок HTTP-запроса переносится в поток координатора и в рабочие потоки.
+ * <p>
+ * Соединения координатора и рабочих резервируются одним запросом ({@link MultiRoutingDataSource#reserve}):
+ * координатор держит свое соединение, пока рабочие получают свои, и при раздельном получении две параллельные
+ * выгрузки могли бы занять лимит координаторами и ждать друг друга. Выгрузка, которой не хватает соединений,
+ * ждет в очереди bulkhead в пределах срока ожидания.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SnapshotExportServiceImpl implements SnapshotExportService {
+
+    private static final Pattern SNAPSHOT_ID = Pattern.compile("[0-9A-Fa-f-]+");
+    private static final Row END = new Row(null, null, null);
+    private static final int FLUSH_EVERY_ROWS = 10_000;
+    private static final int CHECK_EVERY_ROWS = 65_536;
+
+    private final DynamicDatabaseService dsService;
+    private final SnapshotExportProperties properties;
+    private final MultiRoutingDataSource dsMultiRouting;
+    private final SlowStartService slowStart;
+    private final AffinityRoutingService affinityRouting;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    private void init() {
+        AtomicInteger threadCounter = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-export-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StreamingResponseBody export(String export, String tenantId) {
+        Export config = properties.getExports().get(export);
+        if (config == null || config.getTables().isEmpty()) {
+            throw new ResourceNotFound("Snapshot export '" + export + "' is not configured.");
+        }
+
+        DataSourceDTO replica = tenantId != null
+                ? affinityRouting.selectReplica(tenantId, Set.of())
+                : DataSourceManager.findReplicaDataSource(dsService.getActivePool(), Set.of(), slowStart::weight);
+        OptionalLong deadline = DeadlineContextHolder.getDeadline();
+        return out -> {
+            deadline.ifPresent(DeadlineContextHolder::setDeadline);
+            try {
+                run(export, config, replica, out, deadline);
+            } finally {
+                DeadlineContextHolder.clearDeadline();
+            }
+        };
+    }
+
+    private void run(String export, Export config, DataSourceDTO replica, OutputStream out, OptionalLong deadline)
+            throws IOException {
+        long startedAt = System.nanoTime();
+        String dsKey = replica.getDataSourceKey();
+        List<Chunk> chunks = buildChunks(config);
+        // одно соединение занято координатором
+        int workers = Math.max(1, Math.min(properties.getWorkers(),
+                Math.min(chunks.size(), dsMultiRouting.getWorkloadLimit(dsKey, WorkloadClass.REPORT) - 1)));
+
+        ExportRun state = new ExportRun(chunks, properties.getQueueCapacity());
+        ResultSetStreamWriter writer = new ResultSetStreamWriter(ExportFormat.NDJSON, out, FLUSH_EVERY_ROWS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try (MultiRoutingDataSource.Reservation reservation = dsMultiRouting.reserve(dsKey, WorkloadClass.REPORT,
+                workers + 1)) {
+            try (Connection coordinator = reservation.getConnection()) {
+                coordinator.setAutoCommit(false);
+                coordinator.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                coordinator.setReadOnly(true);
+                String snapshotId = exportSnapshot(coordinator);
+
+                for (int i = 0; i < workers; i++) {
+                    futures.add(executor.submit(() -> DeadlineContextHolder.runWith(deadline,
+                            () -> runWorker(reservation, snapshotId, state))));
+                }
+                consume(state, workers, replica, writer);
+                coordinator.rollback();
+
+                writer.writeTrailer("COMPLETED", null);
+                writer.finish();
+                log.info("Snapshot export '{}' from '{}' finished: {} chunks, {} workers, snapshot {} in {} ms.",
+                        export, replica.getDataSourceKey(), chunks.size(), workers, snapshotId,
+                        (System.nanoTime() - startedAt) / 1_000_000);
+            }
+        } catch (SQLException | IOException | RuntimeException e) {
+            String message = describeFailure(replica, e);
+            log.error("Snapshot export '{}' from '{}' failed: {}", export, replica.getDataSourceKey(), message);
+            state.cancel();
+            writeFailure(writer, message);
+            throw new IOException("Snapshot export '" + export + "' failed: " + message, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            state.cancel();
+            throw new IOException("Snapshot export '" + export + "' interrupted.", e);
+        } finally {
+            state.cancel();
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private String exportSnapshot(Connection coordinator) throws SQLException {
+        try (Statement statement = coordinator.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT pg_export_snapshot()")) {
+            rs.next();
+            String snapshotId = rs.getString(1);
+            if (!SNAPSHOT_ID.matcher(snapshotId).matches()) {
+                throw new SQLException("Unexpected snapshot id: " + snapshotId);
+            }
+            return snapshotId;
+        }
+    }
+
+    private List<Chunk> buildChunks(Export config) {
+        List<Chunk> chunks = new ArrayList<>();
+        for (Table table : config.getTables()) {
+            if (table.getChunkColumn() == null || table.getChunks() <= 1) {
+                chunks.add(new Chunk(table.getName(), "SELECT * FROM " + table.getName(), new long[0]));
+                continue;
+            }
+            String sql = "SELECT * FROM " + table.getName() + " WHERE (hashtext(CAST(" + table.getChunkColumn()
+                    + " AS text)) & 2147483647) % ? = ?";
+            for (int i = 0; i < table.getChunks(); i++) {
+                chunks.add(new Chunk(table.getName(), sql, new long[]{table.getChunks(), i}));
+            }
+        }
+        return chunks;
+    }
+
+    private void runWorker(MultiRoutingDataSource.Reservation reservation, String snapshotId, ExportRun state) {
+        try (Connection connection = reservation.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            connection.setReadOnly(true);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET TRANSACTION SNAPSHOT '" + snapshotId + "'");
+            }
+
+            try {
+                Chunk chunk;
+                while (!state.cancelled && (chunk = state.chunks.poll()) != null) {
+                    readChunk(connection, chunk, state);
+                }
+            } finally {
+                connection.rollback();
+            }
+            state.put(END);
+        } catch (CancellationException e) {
+            // выгрузка отменена, строки больше не нужны
+        } catch (Exception e) {
+            state.failure.compareAndSet(null, e);
+            try {
+                state.put(END);
+            } catch (CancellationException | InterruptedException ignored) {
+                // потребитель уже не ждет
+            }
+        }
+    }
+
+    private void readChunk(Connection connection, Chunk chunk, ExportRun state) throws SQLException, InterruptedException {
+        try (PreparedStatement statement = connection.prepareStatement(chunk.sql())) {
+            state.statements.add(statement);
+            statement.setFetchSize(properties.getFetchSize());
+            for (int i = 0; i < chunk.params().length; i++) {
+                statement.setLong(i + 1, chunk.params()[i]);
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                String[] columns = ResultSetStreamWriter.columnLabels(rs.getMetaData());
+                while (rs.next()) {
+                    Object[] values = new Object[columns.length];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = ResultSetStreamWriter.readValue(rs, i + 1);
+                    }
+                    state.put(new Row(chunk.table(), columns, values));
+                }
+            } finally {
+                state.statements.remove(statement);
+            }
+        }
+    }
+
+    private void consume(ExportRun state, int workers, DataSourceDTO replica, ResultSetStreamWriter writer)
+            throws IOException, InterruptedException {
+        int remaining = workers;
+        long rows = 0;
+        while (remaining > 0) {
+            Row row = state.rows.poll(500, TimeUnit.MILLISECONDS);
+            if (row == null) {
+                checkReplica(replica);
+                continue;
+            }
+            if (row == END) {
+                Throwable failure = state.failure.get();
+                if (failure != null) {
+                    throw new IOException(failure.getMessage(), failure);
+                }
+                remaining--;
+                continue;
+            }
+            writer.writeRecord(row.table(), row.columns(), row.values());
+            if (++rows % CHECK_EVERY_ROWS == 0) {
+                checkReplica(replica);
+            }
+        }
+    }
+
+    private void checkReplica(DataSourceDTO replica) throws IOException {
+        if (isRemoved(replica)) {
+            throw new IOException("Replica '" + replica.getDataSourceKey() + "' was removed during export.");
+        }
+    }
+
+    private boolean isRemoved(DataSourceDTO replica) {
+        return replica.getDataSource().isClosed()
+                || dsService.getActivePool().get(replica.getDataSourceKey()) != replica;
+    }
+
+    private String describeFailure(DataSourceDTO replica, Exception e) {
+        if (isRemoved(replica)) {
+            return "Replica '" + replica.getDataSourceKey() + "' was removed during export.";
+        }
+        return e.getMessage();
+    }
+
+    private void writeFailure(ResultSetStreamWriter writer, String message) {
+        try {
+            writer.writeTrailer("FAILED", message);
+            writer.finish();
+        } catch (IOException ignored) {
+            // клиент уже отключился
+        }
+    }
+
+    private record Chunk(String table, String sql, long[] params) {
+    }
+
+    private record Row(String table, String[] columns, Object[] values) {
+    }
+
+    /**
+     * Состояние одной выгрузки: очередь задач, очередь строк и выполняющиеся запросы для отмены.
+     */
+    private static final class ExportRun {
+        private final ConcurrentLinkedQueue<Chunk> chunks;
+        private final BlockingQueue<Row> rows;
+        private final Set<Statement> statements = ConcurrentHashMap.newKeySet();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private volatile boolean cancelled;
+
+        private ExportRun(List<Chunk> chunks, int capacity) {
+            this.chunks = new ConcurrentLinkedQueue<>(chunks);
+            this.rows = new ArrayBlockingQueue<>(capacity);
+        }
+
+        private void put(Row row) throws InterruptedException {
+            while (!cancelled) {
+                if (rows.offer(row, 100, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+            throw new CancellationException();
+        }
+
+        private void cancel() {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            for (Statement statement : statements) {
+                try {
+                    statement.cancel();
+                } catch (SQLException ignored) {
+                    // запрос уже завершен или соединение закрыто
+                }
+            }
+        }
+    }
+}
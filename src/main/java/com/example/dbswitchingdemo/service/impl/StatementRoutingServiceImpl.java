@@ -0,0 +1,116 @@
+package com.example.dbswitchingdemo.service.impl;
+
+import com.example.dbswitchingdemo.config.MultiRoutingDataSource;
+import com.example.dbswitchingdemo.config.StatementRouter;
+import com.example.dbswitchingdemo.config.StatementRoutingProperties;
+import com.example.dbswitchingdemo.dto.DataSourceDTO;
+import com.example.dbswitchingdemo.dto.StatementRoutingStatsDTO;
+import com.example.dbswitchingdemo.enums.SqlRoute;
+import com.example.dbswitchingdemo.exception.ResourceNotFound;
+import com.example.dbswitchingdemo.service.DynamicDatabaseService;
+import com.example.dbswitchingdemo.service.OffloadPolicyService;
+import com.example.dbswitchingdemo.service.SlowStartService;
+import com.example.dbswitchingdemo.service.StatementRoutingService;
+import com.example.dbswitchingdemo.util.DataSourceManager;
+import com.example.dbswitchingdemo.util.SqlRouteClassifier;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Реализация маршрутизации отдельных запросов.
+ * <p>
+ * Регистрируется в {@link MultiRoutingDataSource} как {@link StatementRouter}, если режим включен. Запросы
+ * записи, запросы в транзакциях записи и вызовы без текста запроса идут на leader. Чтения в режиме autocommit
+ * и в read-only транзакциях идут на реплику, если это разрешает {@link OffloadPolicyService}, иначе на leader.
+ * Реплика выбирается с учетом веса из {@link SlowStartService}.
+ * Пока leader не известен, используется общий контекст маршрутизации.
+ */
+@Service
+@Slf4j
+public class StatementRoutingServiceImpl implements StatementRoutingService, StatementRouter {
+
+    private final MultiRoutingDataSource dsMultiRouting;
+    private final DynamicDatabaseService dsService;
+    private final OffloadPolicyService offloadPolicy;
+    private final SlowStartService slowStart;
+    private final StatementRoutingProperties properties;
+    private final SqlRouteClassifier classifier;
+
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder leaderReads = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+
+    public StatementRoutingServiceImpl(MultiRoutingDataSource dsMultiRouting,
+                                       DynamicDatabaseService dsService,
+                                       OffloadPolicyService offloadPolicy,
+                                       SlowStartService slowStart,
+                                       StatementRoutingProperties properties) {
+        this.dsMultiRouting = dsMultiRouting;
+        this.dsService = dsService;
+        this.offloadPolicy = offloadPolicy;
+        this.slowStart = slowStart;
+        this.properties = properties;
+        this.classifier = new SqlRouteClassifier(properties.getLeaderFunctions(), properties.getCacheSize());
+    }
+
+    @PostConstruct
+    private void init() {
+        if (properties.isEnabled()) {
+            dsMultiRouting.setStatementRouter(this);
+            log.info("Statement-level routing enabled.");
+        }
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        dsMultiRouting.setStatementRouter(null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String route(String sql, boolean writeTransaction) {
+        Map<String, DataSourceDTO> pool = dsService.getActivePool();
+        DataSourceDTO dsLeader = DataSourceManager.findLeaderDataSource(pool);
+        String leaderKey = dsLeader != null ? dsLeader.getDataSourceKey() : null;
+
+        if (writeTransaction || sql == null || classifier.classify(sql) == SqlRoute.WRITE) {
+            writes.increment();
+            return leaderKey;
+        }
+
+        if (offloadPolicy.offloadRead()) {
+            try {
+                String replicaKey = DataSourceManager.findReplicaDataSource(pool, Set.of(), slowStart::weight).getDataSourceKey();
+                replicaReads.increment();
+                return replicaKey;
+            } catch (ResourceNotFound e) {
+                // реплик нет, чтение выполняется на leader
+            }
+        }
+        leaderReads.increment();
+        return leaderKey;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public StatementRoutingStatsDTO getStats() {
+        return StatementRoutingStatsDTO.builder()
+                .enabled(properties.isEnabled())
+                .replicaReads(replicaReads.sum())
+                .leaderReads(leaderReads.sum())
+                .writes(writes.sum())
+                .cachedStatements(classifier.getCachedStatements())
+                .classifierMisses(classifier.getMisses())
+                .build();
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.dbswitchingdemo.service.impl;
+
+import com.example.dbswitchingdemo.config.MultiRoutingDataSource;
+import com.example.dbswitchingdemo.config.StatementStatsProperties;
+import com.example.dbswitchingdemo.dto.DataSourceDTO;
+import com.example.dbswitchingdemo.dto.SlowStatementDTO;
+import com.example.dbswitchingdemo.dto.StatementStatsDTO;
+import com.example.dbswitchingdemo.service.DynamicDatabaseService;
+import com.example.dbswitchingdemo.service.StatementStatsService;
+import com.example.dbswitchingdemo.util.DataSourceManager;
+import com.example.dbswitchingdemo.util.StatementStats;
+import com.example.dbswitchingdemo.util.StatementStats.Histogram;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Реализация получения статистики запросов.
+ * <p>
+ * Отставание реплики берется из {@code pg_last_xact_replay_timestamp()} отдельным запросом напрямую к пулу реплики,
+ * поэтому сам замер не попадает в статистику. Если на leader давно не было записей, это значение завышено;
+ * в сочетании с отсутствием ожидания соединений оно все равно отличает отстающую реплику от перегруженной.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StatementStatsServiceImpl implements StatementStatsService {
+
+    private final MultiRoutingDataSource dsMultiRouting;
+    private final DynamicDatabaseService dsService;
+    private final StatementStatsProperties properties;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<StatementStatsDTO> getTargetStats() {
+        Map<String, DataSourceDTO> activePool = dsService.getActivePool();
+        return dsMultiRouting.getStatementStats().getTargets().entrySet().stream()
+                .map(entry -> toDTO(entry.getKey(), entry.getValue(), activePool.get(entry.getKey())))
+                .sorted(Comparator.comparing(StatementStatsDTO::getDataSourceKey))
+                .toList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SlowStatementDTO> getSlowStatements() {
+        return dsMultiRouting.getStatementStats().getSlowStatements().stream()
+                .map(statement -> SlowStatementDTO.builder()
+                        .dataSourceKey(statement.dataSourceKey())
+                        .sql(statement.sql())
+                        .maxMs(statement.maxNanos() / 1_000_000.0)
+                        .meanMs(statement.totalNanos() / (double) statement.count() / 1_000_000)
+                        .count(statement.count())
+                        .lastSeen(Instant.ofEpochMilli(statement.lastSeenMs()))
+                        .build())
+                .toList();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset() {
+        dsMultiRouting.getStatementStats().reset();
+    }
+
+    private StatementStatsDTO toDTO(String dsKey, StatementStats.Target target, DataSourceDTO dsDTO) {
+        Histogram executions = target.getExecutions();
+        Histogram acquires = target.getAcquires();
+        StatementStatsDTO.StatementStatsDTOBuilder builder = StatementStatsDTO.builder()
+                .dataSourceKey(dsKey)
+                .executions(executions.getCount())
+                .errors(target.getErrors())
+                .meanMs(executions.getMeanMillis())
+                .p50Ms(executions.getPercentileMillis(0.50))
+                .p95Ms(executions.getPercentileMillis(0.95))
+                .p99Ms(executions.getPercentileMillis(0.99))
+                .maxMs(executions.getMaxMillis())
+                .histogram(executions.getBucketCounts())
+                .acquireP95Ms(acquires.getPercentileMillis(0.95))
+                .acquireMaxMs(acquires.getMaxMillis());
+
+        Integer awaiting = null;
+        Double lag = null;
+        if (dsDTO != null) {
+            builder.role(dsDTO.getRole());
+            HikariDataSource ds = dsDTO.getDataSource();
+            HikariPoolMXBean pool = ds.getHikariPoolMXBean();
+            if (pool != null) {
+                awaiting = pool.getThreadsAwaitingConnection();
+                builder.activeConnections(pool.getActiveConnections())
+                        .idleConnections(pool.getIdleConnections())
+                        .threadsAwaitingConnection(awaiting)
+                        .maximumPoolSize(ds.getMaximumPoolSize());
+            }
+            if ("replica".equals(dsDTO.getRole())) {
+                lag = replicationLag(dsDTO);
+                builder.replicationLagSeconds(lag);
+            }
+        }
+
+        return builder.assessment(assess(acquires, awaiting, lag)).build();
+    }
+
+    private String assess(Histogram acquires, Integer awaiting, Double lag) {
+        double acquireThresholdMs = properties.getAcquireThreshold().toNanos() / 1_000_000.0;
+        if ((awaiting != null && awaiting > 0) || acquires.getPercentileMillis(0.95) > acquireThresholdMs) {
+            return "OVERLOADED";
+        }
+        if (lag != null && lag > properties.getLagThreshold().toMillis() / 1_000.0) {
+            return "LAGGING";
+        }
+        return "OK";
+    }
+
+    private Double replicationLag(DataSourceDTO dsDTO) {
+        try {
+            return DataSourceManager.replicationLagSeconds(dsDTO.getDataSource());
+        } catch (SQLException e) {
+            log.debug("Failed to read replication lag of '{}': {}", dsDTO.getDataSourceKey(), e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.dbswitchingdemo.service.impl;
+
+import com.example.dbswitchingdemo.config.TopologyEventProperties;
+import com.example.dbswitchingdemo.dto.TopologyEventDTO;
+import com.example.dbswitchingdemo.enums.TopologyEventType;
+import com.example.dbswitchingdemo.service.TopologyEventService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Реализация потока событий топологии.
+ * <p>
+ * Последние события хранятся в ограниченном кольцевом буфере. Вся отправка подписчикам выполняется в одном потоке
+ * {@code topology-events}: публикация и подписка ставят задачи в его очередь под одной блокировкой, поэтому
+ * повторная отправка пропущенных событий новому подписчику и последующая живая рассылка идут без пропусков
+ * и без дублей. Если запрошенная эпоха уже вытеснена из буфера или относится к предыдущему запуску приложения,
+ * клиент получает событие {@code RESYNC}. Нумерация эпох каждого запуска начинается со значения, построенного
+ * по времени запуска, поэтому эпохи разных запусков не пересекаются.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TopologyEventServiceImpl implements TopologyEventService {
+
+    private final TopologyEventProperties properties;
+
+    private final Object lock = new Object();
+    private final Deque<TopologyEventDTO> buffer = new ArrayDeque<>();
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "topology-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Первая эпоха этого запуска: секунды запуска в старших битах. Эпохи предыдущих запусков меньше нее,
+     * пока предыдущий запуск публиковал меньше 2^20 событий в секунду работы; значение остается точным
+     * числом для JavaScript-клиентов.
+     */
+    private final long bootEpoch = Instant.now().getEpochSecond() << 20;
+    private long epoch = bootEpoch;
+
+    @PostConstruct
+    private void init() {
+        long keepAlive = properties.getKeepAlive().toMillis();
+        dispatcher.scheduleWithFixedDelay(this::keepAlive, keepAlive, keepAlive, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        dispatcher.shutdownNow();
+        subscribers.forEach(SseEmitter::complete);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long publish(TopologyEventType type, String dataSourceKey, String role, String detail) {
+        synchronized (lock) {
+            TopologyEventDTO event = TopologyEventDTO.builder()
+                    .epoch(++epoch)
+                    .type(type)
+                    .dataSourceKey(dataSourceKey)
+                    .role(role)
+                    .detail(detail)
+                    .timestamp(Instant.now())
+                    .build();
+            buffer.addLast(event);
+            while (buffer.size() > properties.getBufferSize()) {
+                buffer.removeFirst();
+            }
+            dispatcher.execute(() -> subscribers.forEach(emitter -> send(emitter, event)));
+            log.debug("Topology event {} {} '{}' published.", event.getEpoch(), type, dataSourceKey);
+            return event.getEpoch();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SseEmitter subscribe(Long fromEpoch) {
+        SseEmitter emitter = new SseEmitter(properties.getEmitterTimeout().toMillis());
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> subscribers.remove(emitter));
+        emitter.onError(e -> subscribers.remove(emitter));
+
+        synchronized (lock) {
+            List<TopologyEventDTO> replay = fromEpoch == null ? List.of() : buffer.stream()
+                    .filter(event -> event.getEpoch() > fromEpoch)
+                    .toList();
+            TopologyEventDTO resync = needsResync(fromEpoch) ? TopologyEventDTO.builder()
+                    .epoch(epoch)
+                    .type(TopologyEventType.RESYNC)
+                    .detail("Epoch " + fromEpoch + " is no longer buffered, current epoch is " + epoch + ".")
+                    .timestamp(Instant.now())
+                    .build() : null;
+
+            dispatcher.execute(() -> {
+                if (resync != null && !send(emitter, resync)) {
+                    return;
+                }
+                for (TopologyEventDTO event : resync != null ? List.<TopologyEventDTO>of() : replay) {
+                    if (!send(emitter, event)) {
+                        return;
+                    }
+                }
+                subscribers.add(emitter);
+            });
+        }
+        return emitter;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long currentEpoch() {
+        synchronized (lock) {
+            return epoch;
+        }
+    }
+
+    /**
+     * Проверяет, может ли клиент продолжить поток с указанной эпохи без пропусков.
+     * Эпоха меньше первой эпохи запуска получена от предыдущего запуска приложения, эпоха больше текущей —
+     * от другого экземпляра или запуска; в обоих случаях история событий другая.
+     */
+    private boolean needsResync(Long fromEpoch) {
+        if (fromEpoch == null) {
+            return false;
+        }
+        if (fromEpoch < bootEpoch || fromEpoch > epoch) {
+            return true;
+        }
+        return !buffer.isEmpty() && fromEpoch < buffer.getFirst().getEpoch() - 1;
+    }
+
+    private boolean send(SseEmitter emitter, TopologyEventDTO event) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .id(String.valueOf(event.getEpoch()))
+                    .name(event.getType().name())
+                    .data(event));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            subscribers.remove(emitter);
+            return false;
+        }
+    }
+
+    private void keepAlive() {
+        subscribers.forEach(emitter -> {
+            try {
+                emitter.send(SseEmitter.event().comment("keepalive"));
+            } catch (IOException | IllegalStateException e) {
+                subscribers.remove(emitter);
+            }
+        });
+    }
+}
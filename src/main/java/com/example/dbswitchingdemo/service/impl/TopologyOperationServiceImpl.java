@@ -0,0 +1,276 @@
+package com.example.dbswitchingdemo.service.impl;
+
+import com.example.dbswitchingdemo.config.DataSourceContextHolder;
+import com.example.dbswitchingdemo.config.WorkloadContextHolder;
+import com.example.dbswitchingdemo.dto.OperationDTO;
+import com.example.dbswitchingdemo.dto.TopologyChangeDTO;
+import com.example.dbswitchingdemo.dto.TopologySnapshotDTO;
+import com.example.dbswitchingdemo.dto.request.ClusterMemberDTO;
+import com.example.dbswitchingdemo.dto.request.ClusterMemberDTO.MemberDTO;
+import com.example.dbswitchingdemo.dto.response.CommonDataResponse;
+import com.example.dbswitchingdemo.dto.response.CommonResponse;
+import com.example.dbswitchingdemo.enums.OperationStatus;
+import com.example.dbswitchingdemo.enums.WorkloadClass;
+import com.example.dbswitchingdemo.service.ClusterSyncService;
+import com.example.dbswitchingdemo.service.DynamicDatabaseService;
+import com.example.dbswitchingdemo.service.FlapDampingService;
+import com.example.dbswitchingdemo.service.TopologyOperationService;
+import com.example.dbswitchingdemo.util.DataSourceManager;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Реализация последовательного выполнения операций над топологией.
+ * <p>
+ * Приложение управляет одним кластером, поэтому все операции выполняются в одном потоке {@code topology-ops}:
+ * пулы для одного {@code host:port} никогда не создаются конкурентно. Ключ объединения строится из типа
+ * операции и отсортированного набора членов кластера с ролями, так что повторы оркестратора с тем же телом
+ * присоединяются к уже ожидающей или выполняющейся операции. Соединения этого потока относятся к классу нагрузки
+ * {@link WorkloadClass#ADMIN}.
+ * <p>
+ * Успешно примененные локальные операции публикуются через {@link ClusterSyncService}; изменения, полученные
+ * от других экземпляров, ставятся в ту же очередь и повторно не публикуются. Возврат членов кластера
+ * из карантина {@link FlapDampingService} тоже выполняется в этой очереди и не публикуется: каждый экземпляр
+ * ведет штрафы сам.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TopologyOperationServiceImpl implements TopologyOperationService {
+
+    private static final int HISTORY_SIZE = 256;
+
+    private final DynamicDatabaseService dsService;
+    private final ClusterSyncService clusterSync;
+    private final FlapDampingService flapDamping;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(() -> {
+            WorkloadContextHolder.setWorkload(WorkloadClass.ADMIN);
+            runnable.run();
+        }, "topology-ops");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, Operation> inFlight = new HashMap<>();
+    private final Map<String, Operation> history = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Operation> eldest) {
+            return size() > HISTORY_SIZE;
+        }
+    };
+
+    @PostConstruct
+    private void init() {
+        clusterSync.onRemoteChange(this::applyRemote);
+        flapDamping.onReadmittable(() -> submit("readmit", "readmit", dsService::readmit));
+    }
+
+    @PreDestroy
+    private void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CommonResponse refresh(ClusterMemberDTO clusterMemberDTO, boolean async) {
+        String key = "refresh:" + membersKey(clusterMemberDTO);
+        return handle(submit("refresh", key, published("refresh", clusterMemberDTO.getMembers(),
+                () -> dsService.refresh(clusterMemberDTO))), async);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CommonResponse change(boolean async) {
+        return handle(submit("switch", "switch", published("switch", null, dsService::change)), async);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CommonResponse close(ClusterMemberDTO clusterMemberDTO, boolean async) {
+        String key = "close:" + membersKey(clusterMemberDTO);
+        return handle(submit("close", key, published("close", clusterMemberDTO.getMembers(),
+                () -> dsService.close(clusterMemberDTO))), async);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CommonResponse restore(TopologySnapshotDTO snapshot) {
+        return handle(submit("restore", "restore:" + snapshot.getRevision(), () ->
+                CommonDataResponse.builder().status(HttpStatus.OK.name())
+                        .message("Topology revision " + snapshot.getRevision() + " restored.")
+                        .data(dsService.restore(snapshot))
+                        .build()), false);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Optional<OperationDTO> find(String id) {
+        synchronized (inFlight) {
+            return Optional.ofNullable(history.get(id)).map(Operation::toDTO);
+        }
+    }
+
+    /**
+     * Ставит в очередь изменение, полученное от другого экземпляра приложения.
+     */
+    private void applyRemote(TopologyChangeDTO change) {
+        ClusterMemberDTO clusterMemberDTO = new ClusterMemberDTO();
+        clusterMemberDTO.setMembers(change.getMembers() != null ? change.getMembers() : List.of());
+
+        switch (change.getOperation()) {
+            case "refresh" -> submit("remote-refresh", "refresh:" + membersKey(clusterMemberDTO),
+                    () -> dsService.refresh(clusterMemberDTO));
+            case "close" -> submit("remote-close", "close:" + membersKey(clusterMemberDTO),
+                    () -> dsService.close(clusterMemberDTO));
+            case "switch" -> submit("remote-switch", "switch:" + change.getRoutingKey(),
+                    () -> dsService.changeTo(change.getRoutingKey()));
+            default -> log.warn("Unknown topology change operation '{}' with epoch {}.", change.getOperation(), change.getEpoch());
+        }
+    }
+
+    /**
+     * Дополняет операцию публикацией изменения для других экземпляров после успешного выполнения.
+     */
+    private Supplier<CommonResponse> published(String type, List<MemberDTO> members, Supplier<CommonResponse> action) {
+        return () -> {
+            CommonResponse response = action.get();
+            if (!HttpStatus.BAD_REQUEST.name().equals(response.getStatus())) {
+                clusterSync.publish(type, members, DataSourceContextHolder.getDataSourceContext().orElse(null));
+            }
+            return response;
+        };
+    }
+
+    /**
+     * Ставит операцию в очередь или присоединяет вызов к одинаковой операции, которая еще не завершилась.
+     */
+    private Operation submit(String type, String key, Supplier<CommonResponse> action) {
+        synchronized (inFlight) {
+            Operation existing = inFlight.get(key);
+            if (existing != null) {
+                existing.coalesced.incrementAndGet();
+                log.info("Topology operation '{}' coalesced with in-flight operation {}.", type, existing.id);
+                return existing;
+            }
+
+            Operation operation = new Operation(UUID.randomUUID().toString(), type);
+            inFlight.put(key, operation);
+            history.put(operation.id, operation);
+            executor.execute(() -> run(key, operation, action));
+            return operation;
+        }
+    }
+
+    private void run(String key, Operation operation, Supplier<CommonResponse> action) {
+        operation.status = OperationStatus.RUNNING;
+        try {
+            operation.complete(action.get());
+        } catch (RuntimeException e) {
+            log.error("Topology operation '{}' {} failed: {}", operation.type, operation.id, e.getMessage());
+            operation.fail(e);
+        } finally {
+            synchronized (inFlight) {
+                inFlight.remove(key, operation);
+            }
+        }
+    }
+
+    private CommonResponse handle(Operation operation, boolean async) {
+        if (async) {
+            return CommonDataResponse.builder().status(HttpStatus.ACCEPTED.name())
+                    .message("Operation '" + operation.type + "' accepted.")
+                    .data(operation.toDTO())
+                    .build();
+        }
+        try {
+            return operation.future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static String membersKey(ClusterMemberDTO clusterMemberDTO) {
+        return clusterMemberDTO.getMembers().stream()
+                .map(member -> DataSourceManager.buildUniqueKey(member) + "=" + member.getRole())
+                .sorted()
+                .collect(Collectors.joining(","));
+    }
+
+    /**
+     * Выполняемая или завершенная операция над топологией.
+     */
+    private static final class Operation {
+        private final String id;
+        private final String type;
+        private final Instant submittedAt = Instant.now();
+        private final AtomicLong coalesced = new AtomicLong();
+        private final CompletableFuture<CommonResponse> future = new CompletableFuture<>();
+        private volatile OperationStatus status = OperationStatus.PENDING;
+        private volatile Instant finishedAt;
+        private volatile String error;
+
+        private Operation(String id, String type) {
+            this.id = id;
+            this.type = type;
+        }
+
+        private void complete(CommonResponse result) {
+            finishedAt = Instant.now();
+            status = OperationStatus.SUCCEEDED;
+            future.complete(result);
+        }
+
+        private void fail(RuntimeException e) {
+            finishedAt = Instant.now();
+            error = e.getMessage();
+            status = OperationStatus.FAILED;
+            future.completeExceptionally(e);
+        }
+
+        private OperationDTO toDTO() {
+            return OperationDTO.builder()
+                    .id(id)
+                    .type(type)
+                    .status(status)
+                    .submittedAt(submittedAt)
+                    .finishedAt(finishedAt)
+                    .coalesced(coalesced.get())
+                    .result(future.isCompletedExceptionally() ? null : future.getNow(null))
+                    .error(error)
+                    .build();
+        }
+    }
+}
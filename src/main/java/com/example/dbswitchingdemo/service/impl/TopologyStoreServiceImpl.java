@@ -0,0 +1,108 @@
+package com.example.dbswitchingdemo.service.impl;
+
+import com.example.dbswitchingdemo.config.TopologyStoreProperties;
+import com.example.dbswitchingdemo.dto.TopologySnapshotDTO;
+import com.example.dbswitchingdemo.dto.request.ClusterMemberDTO.MemberDTO;
+import com.example.dbswitchingdemo.service.TopologyStoreService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Реализация хранения топологии в локальном JSON-файле.
+ * <p>
+ * Запись выполняется во временный файл в том же каталоге с последующим атомарным переименованием,
+ * поэтому при сбое во время записи на диске остается предыдущая целая версия.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TopologyStoreServiceImpl implements TopologyStoreService {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final TopologyStoreProperties properties;
+    private final ObjectMapper objectMapper;
+
+    private long revision = -1;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Optional<TopologySnapshotDTO> load() {
+        Path path = Path.of(properties.getPath());
+        if (!properties.isEnabled() || !Files.exists(path)) {
+            return Optional.empty();
+        }
+
+        try {
+            TopologySnapshotDTO snapshot = objectMapper.readValue(path.toFile(), TopologySnapshotDTO.class);
+            if (snapshot.getFormatVersion() != FORMAT_VERSION || snapshot.getMembers() == null) {
+                log.warn("Ignoring topology file '{}' with unsupported format version {}.", path, snapshot.getFormatVersion());
+                return Optional.empty();
+            }
+            revision = Math.max(revision, snapshot.getRevision());
+            return Optional.of(snapshot);
+        } catch (IOException e) {
+            log.warn("Failed to read topology file '{}': {}", path, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void save(List<MemberDTO> members, String routingKey) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (revision < 0) {
+            load();
+            revision = Math.max(revision, 0);
+        }
+
+        Path path = Path.of(properties.getPath()).toAbsolutePath();
+        TopologySnapshotDTO snapshot = TopologySnapshotDTO.builder()
+                .formatVersion(FORMAT_VERSION)
+                .revision(revision + 1)
+                .savedAt(Instant.now())
+                .members(members)
+                .routingKey(routingKey)
+                .build();
+
+        try {
+            Files.createDirectories(path.getParent());
+            Path tmp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+            try {
+                Files.write(tmp, objectMapper.writeValueAsBytes(snapshot));
+                moveAtomically(tmp, path);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            revision = snapshot.getRevision();
+            log.info("Topology revision {} saved to '{}' ({} members).", revision, path, members.size());
+        } catch (IOException e) {
+            log.warn("Failed to save topology to '{}': {}", path, e.getMessage());
+        }
+    }
+
+    private void moveAtomically(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.dbswitchingdemo.service.impl;
+
+import com.example.dbswitchingdemo.config.DataSourceContextHolder;
+import com.example.dbswitchingdemo.config.WriteBufferProperties;
+import com.example.dbswitchingdemo.dto.DataSourceDTO;
+import com.example.dbswitchingdemo.dto.WriteBufferStatsDTO;
+import com.example.dbswitchingdemo.enums.WriteMode;
+import com.example.dbswitchingdemo.exception.LeaderUnavailableException;
+import com.example.dbswitchingdemo.service.WriteBufferService;
+import com.example.dbswitchingdemo.util.SqlStateUtils;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Реализация буфера операций записи на время отсутствия leader.
+ * <p>
+ * Пока leader зарегистрирован, операции выполняются сразу в контексте leader текущего потока.
+ * Если leader нет, поток вызывающего паркуется в ограниченной очереди и ждет регистрации нового leader,
+ * после чего сам воспроизводит свою операцию (сохраняя транзакционный контекст потока).
+ * Ошибки соединения во время записи повторяются ограниченное число раз в пределах того же дедлайна, но только
+ * для {@link WriteMode#IDEMPOTENT}: {@link WriteMode#BUFFERED} операция после отправки на leader не повторяется,
+ * так как коммит мог быть применен до обрыва соединения.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WriteBufferServiceImpl implements WriteBufferService {
+
+    private final WriteBufferProperties properties;
+
+    private BlockingQueue<ParkedWrite> parkedWrites;
+    private volatile String leaderKey;
+
+    private final LongAdder parked = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder droppedQueueFull = new LongAdder();
+    private final LongAdder droppedDeadline = new LongAdder();
+    private final LongAdder parkedNanosTotal = new LongAdder();
+    private final LongAccumulator parkedNanosMax = new LongAccumulator(Math::max, 0);
+
+    @PostConstruct
+    private void init() {
+        parkedWrites = new ArrayBlockingQueue<>(properties.getCapacity());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T execute(String operation, WriteMode mode, Supplier<T> write) {
+        long deadline = System.nanoTime() + properties.getDeadline().toNanos();
+        int attempt = 0;
+
+        while (true) {
+            String dsKey = leaderKey;
+            if (dsKey == null) {
+                if (mode == WriteMode.FAIL_FAST) {
+                    rejected.increment();
+                    throw new LeaderUnavailableException("No leader DataSource registered, write '" + operation + "' rejected.");
+                }
+                dsKey = park(operation, deadline);
+            }
+
+            attempt++;
+            try {
+                return runOnLeader(dsKey, write);
+            } catch (RuntimeException e) {
+                // коммит мог дойти до сервера до обрыва соединения, поэтому повторяются только идемпотентные записи
+                if (mode != WriteMode.IDEMPOTENT || attempt >= properties.getMaxAttempts()
+                        || !SqlStateUtils.isConnectionFailure(e)) {
+                    throw e;
+                }
+                log.warn("Write '{}' failed on leader '{}' (attempt {}), retrying: {}", operation, dsKey, attempt, e.getMessage());
+                retried.increment();
+                backoff(operation, deadline);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onLeaderChanged(DataSourceDTO leader) {
+        String newLeaderKey = leader != null ? leader.getDataSourceKey() : null;
+        String oldLeaderKey = leaderKey;
+        leaderKey = newLeaderKey;
+
+        if (newLeaderKey == null) {
+            if (oldLeaderKey != null) {
+                log.warn("Leader '{}' is gone, writes will be parked until a new leader is registered.", oldLeaderKey);
+            }
+            return;
+        }
+
+        int released = 0;
+        ParkedWrite parkedWrite;
+        while ((parkedWrite = parkedWrites.poll()) != null) {
+            parkedWrite.ticket().complete(newLeaderKey);
+            released++;
+        }
+        if (released > 0) {
+            log.info("Leader '{}' registered, replaying {} parked writes.", newLeaderKey, released);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public WriteBufferStatsDTO getStats() {
+        long replayedCount = replayed.sum();
+        return WriteBufferStatsDTO.builder()
+                .leaderKey(leaderKey)
+                .parkedNow(parkedWrites.size())
+                .parked(parked.sum())
+                .replayed(replayedCount)
+                .retried(retried.sum())
+                .rejected(rejected.sum())
+                .droppedQueueFull(droppedQueueFull.sum())
+                .droppedDeadline(droppedDeadline.sum())
+                .avgParkedMillis(replayedCount == 0 ? 0 : parkedNanosTotal.sum() / 1_000_000.0 / replayedCount)
+                .maxParkedMillis(parkedNanosMax.get() / 1_000_000.0)
+                .build();
+    }
+
+    /**
+     * Паркует операцию записи до регистрации leader.
+     *
+     * @param operation название операции
+     * @param deadline  дедлайн операции в {@link System#nanoTime()}
+     * @return ключ зарегистрированного leader
+     * @throws LeaderUnavailableException если очередь заполнена или дедлайн истек
+     */
+    private String park(String operation, long deadline) {
+        ParkedWrite parkedWrite = new ParkedWrite(new CompletableFuture<>(), System.nanoTime());
+
+        if (!parkedWrites.offer(parkedWrite)) {
+            droppedQueueFull.increment();
+            throw new LeaderUnavailableException("No leader DataSource registered and write buffer is full, write '"
+                    + operation + "' dropped.");
+        }
+        parked.increment();
+
+        // leader мог появиться между проверкой и постановкой в очередь
+        String dsKey = leaderKey;
+        if (dsKey != null && parkedWrites.remove(parkedWrite)) {
+            parkedWrite.ticket().complete(dsKey);
+        }
+
+        try {
+            dsKey = parkedWrite.ticket().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            dsKey = abandon(parkedWrite, operation);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            dsKey = abandon(parkedWrite, operation);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+
+        long parkedNanos = System.nanoTime() - parkedWrite.parkedAt();
+        replayed.increment();
+        parkedNanosTotal.add(parkedNanos);
+        parkedNanosMax.accumulate(parkedNanos);
+        log.info("Write '{}' replayed on leader '{}' after {} ms.", operation, dsKey, TimeUnit.NANOSECONDS.toMillis(parkedNanos));
+        return dsKey;
+    }
+
+    /**
+     * Снимает операцию с ожидания по дедлайну. Если leader был выдан одновременно с истечением дедлайна,
+     * операция все же выполняется.
+     */
+    private String abandon(ParkedWrite parkedWrite, String operation) {
+        if (parkedWrites.remove(parkedWrite) || !parkedWrite.ticket().isDone()) {
+            droppedDeadline.increment();
+            throw new LeaderUnavailableException("No leader DataSource registered within "
+                    + properties.getDeadline().toMillis() + " ms, write '" + operation + "' dropped.");
+        }
+        return parkedWrite.ticket().join();
+    }
+
+    private void backoff(String operation, long deadline) {
+        long pauseNanos = Math.min(properties.getRetryBackoff().toNanos(), deadline - System.nanoTime());
+        if (pauseNanos <= 0) {
+            droppedDeadline.increment();
+            throw new LeaderUnavailableException("Deadline exceeded while retrying write '" + operation + "'.");
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(pauseNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LeaderUnavailableException("Interrupted while retrying write '" + operation + "'.");
+        }
+    }
+
+    private <T> T runOnLeader(String dsKey, Supplier<T> write) {
+        String previous = DataSourceContextHolder.getThreadDataSourceContext().orElse(null);
+        DataSourceContextHolder.setThreadDataSourceContext(dsKey);
+        try {
+            return write.get();
+        } finally {
+            DataSourceContextHolder.setThreadDataSourceContext(previous);
+        }
+    }
+
+    private record ParkedWrite(CompletableFuture<String> ticket, long parkedAt) {
+    }
+}
@@ -0,0 +1,432 @@
+package com.example.dbswitchingdemo.util;
+
+import com.example.dbswitchingdemo.config.BulkheadProperties;
+import com.example.dbswitchingdemo.config.DeadlineContextHolder;
+import com.example.dbswitchingdemo.dto.BulkheadStatsDTO;
+import com.example.dbswitchingdemo.enums.WorkloadClass;
+import com.example.dbswitchingdemo.exception.BulkheadRejectedException;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ограничение числа соединений одного источника данных по классам нагрузки.
+ * <p>
+ * Всего выдается не больше {@code capacity} соединений (размер пула), и каждый класс нагрузки держит не больше
+ * своего лимита. Если соединение сразу выдать нельзя, запрос встает в общую ограниченную очередь, упорядоченную
+ * по приоритету класса ({@link WorkloadClass}) и сроку ожидания; срок ожидания не выходит за срок HTTP-запроса
+ * из {@link DeadlineContextHolder}. Освободившееся соединение получает первый
+ * в этом порядке запрос, для которого позволяет лимит его класса. При переполнении очереди отбрасывается
+ * запрос с самым низким приоритетом — ожидающий или новый.
+ * <p>
+ * Разрешение возвращается при закрытии выданного соединения, поэтому ожидание происходит здесь, а не
+ * в очереди Hikari, где запросы обслуживаются без учета приоритета.
+ * <p>
+ * Работа, которой нужно несколько соединений одновременно, резервирует их одним запросом ({@link #reserve}):
+ * разрешения выдаются все сразу, поэтому две такие работы не могут занять по части лимита и ждать друг друга.
+ * Пока в очереди стоит резервирование, более поздние запросы того же класса его не обгоняют.
+ */
+public class Bulkhead {
+
+    private static final int CLASSES = WorkloadClass.values().length;
+
+    private final String dsKey;
+    private final int capacity;
+    private final int queueCapacity;
+    private final int[] limits = new int[CLASSES];
+    private final long[] maxWaitNanos = new long[CLASSES];
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final TreeSet<Waiter> waiters = new TreeSet<>();
+    private final int[] inUse = new int[CLASSES];
+    private int inUseTotal;
+    private long sequence;
+
+    private final LongAdder[] admitted = counters();
+    private final LongAdder[] queued = counters();
+    private final LongAdder[] shed = counters();
+    private final LongAdder[] timedOut = counters();
+
+    /**
+     * @param dsKey      ключ источника данных
+     * @param capacity   сколько соединений можно выдать одновременно
+     * @param properties лимиты классов нагрузки и размер очереди
+     */
+    public Bulkhead(String dsKey, int capacity, BulkheadProperties properties) {
+        this.dsKey = dsKey;
+        this.capacity = capacity;
+        this.queueCapacity = properties.getQueueCapacity();
+        for (WorkloadClass workload : WorkloadClass.values()) {
+            BulkheadProperties.Limit limit = properties.forWorkload(workload);
+            limits[workload.ordinal()] = limit.getMaxConcurrent() > 0 ? Math.min(limit.getMaxConcurrent(), capacity) : capacity;
+            maxWaitNanos[workload.ordinal()] = limit.getMaxWait().toNanos();
+        }
+    }
+
+    /**
+     * Источник соединения, вызываемый после получения разрешения.
+     */
+    @FunctionalInterface
+    public interface ConnectionSource {
+        Connection get() throws SQLException;
+    }
+
+    /**
+     * Получает разрешение для класса нагрузки и соединение из источника. Разрешение возвращается при закрытии
+     * соединения или сразу, если получить соединение не удалось.
+     *
+     * @param workload класс нагрузки
+     * @param source   источник соединения
+     * @return соединение, возвращающее разрешение при закрытии
+     * @throws BulkheadRejectedException если запрос отброшен из очереди или истек срок ожидания
+     * @throws SQLException              если не удалось получить соединение
+     */
+    public Connection acquire(WorkloadClass workload, ConnectionSource source) throws SQLException {
+        enter(workload, 1);
+        boolean success = false;
+        try {
+            Connection connection = wrap(source.get(), workload);
+            success = true;
+            return connection;
+        } finally {
+            if (!success) {
+                leave(workload);
+            }
+        }
+    }
+
+    /**
+     * Резервирует несколько разрешений класса нагрузки одним запросом. Соединения по резервированию выдаются
+     * без ожидания; неиспользованные разрешения возвращаются при закрытии резервирования.
+     *
+     * @param workload класс нагрузки
+     * @param permits  сколько соединений нужно одновременно
+     * @return резервирование
+     * @throws BulkheadRejectedException если разрешений больше лимита класса, запрос отброшен из очереди
+     *                                   или истек срок ожидания
+     * @throws SQLException              если ожидание прервано
+     */
+    public Reservation reserve(WorkloadClass workload, int permits) throws SQLException {
+        if (permits > limits[workload.ordinal()]) {
+            throw rejected(workload, permits + " connections requested, limit is " + limits[workload.ordinal()]);
+        }
+        enter(workload, permits);
+        return new Reservation(workload, permits);
+    }
+
+    /**
+     * Возвращает лимит класса нагрузки с учетом размера пула.
+     *
+     * @param workload класс нагрузки
+     * @return сколько соединений класс может держать одновременно
+     */
+    public int limit(WorkloadClass workload) {
+        return limits[workload.ordinal()];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Возвращает снимок состояния.
+     *
+     * @return объект {@link BulkheadStatsDTO}
+     */
+    public BulkheadStatsDTO getStats() {
+        lock.lock();
+        try {
+            int[] waiting = new int[CLASSES];
+            waiters.forEach(waiter -> waiting[waiter.workload]++);
+
+            Map<WorkloadClass, BulkheadStatsDTO.WorkloadStats> workloads = new EnumMap<>(WorkloadClass.class);
+            for (WorkloadClass workload : WorkloadClass.values()) {
+                int i = workload.ordinal();
+                workloads.put(workload, BulkheadStatsDTO.WorkloadStats.builder()
+                        .limit(limits[i])
+                        .inUse(inUse[i])
+                        .waiting(waiting[i])
+                        .admitted(admitted[i].sum())
+                        .queued(queued[i].sum())
+                        .shed(shed[i].sum())
+                        .timedOut(timedOut[i].sum())
+                        .build());
+            }
+            return BulkheadStatsDTO.builder()
+                    .dataSourceKey(dsKey)
+                    .capacity(capacity)
+                    .inUse(inUseTotal)
+                    .waiting(waiters.size())
+                    .workloads(workloads)
+                    .build();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void enter(WorkloadClass workload, int permits) throws SQLException {
+        int c = workload.ordinal();
+        lock.lock();
+        try {
+            if (canAdmit(c, permits) && !hasWaiter(c)) {
+                admit(c, permits);
+                return;
+            }
+
+            long deadline = System.nanoTime() + maxWaitNanos[c];
+            OptionalLong requestDeadline = DeadlineContextHolder.getDeadline();
+            if (requestDeadline.isPresent() && requestDeadline.getAsLong() - deadline < 0) {
+                deadline = requestDeadline.getAsLong();
+            }
+            Waiter waiter = new Waiter(c, permits, deadline, sequence++, lock.newCondition());
+            if (waiters.size() >= queueCapacity) {
+                Waiter lowest = waiters.last();
+                if (waiter.compareTo(lowest) > 0) {
+                    shed[c].increment();
+                    throw rejected(workload, "queue is full");
+                }
+                waiters.pollLast();
+                lowest.shed = true;
+                shed[lowest.workload].increment();
+                lowest.condition.signal();
+            }
+            waiters.add(waiter);
+            queued[c].increment();
+
+            try {
+                while (!waiter.granted && !waiter.shed) {
+                    long remaining = waiter.deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        waiters.remove(waiter);
+                        timedOut[c].increment();
+                        throw rejected(workload, "wait deadline exceeded");
+                    }
+                    waiter.condition.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (waiter.granted) {
+                    release(c, permits);
+                } else {
+                    waiters.remove(waiter);
+                }
+                throw new SQLException("Interrupted while waiting for a connection to '" + dsKey + "'.", e);
+            }
+            if (waiter.shed) {
+                throw rejected(workload, "shed in favour of higher-priority work");
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void leave(WorkloadClass workload) {
+        lock.lock();
+        try {
+            release(workload.ordinal(), 1);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean canAdmit(int c, int permits) {
+        return inUseTotal + permits <= capacity && inUse[c] + permits <= limits[c];
+    }
+
+    private boolean hasWaiter(int c) {
+        for (Waiter waiter : waiters) {
+            if (waiter.workload == c) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void admit(int c, int permits) {
+        inUse[c] += permits;
+        inUseTotal += permits;
+        admitted[c].add(permits);
+    }
+
+    /**
+     * Возвращает разрешения и передает освободившиеся места ожидающим в порядке приоритета. Ожидающий,
+     * которому места не хватило, не пропускает вперед более поздних ожидающих своего класса.
+     * Вызывается под блокировкой.
+     */
+    private void release(int c, int permits) {
+        inUse[c] -= permits;
+        inUseTotal -= permits;
+
+        long now = System.nanoTime();
+        int blocked = 0;
+        Iterator<Waiter> iterator = waiters.iterator();
+        while (iterator.hasNext() && inUseTotal < capacity) {
+            Waiter waiter = iterator.next();
+            int bit = 1 << waiter.workload;
+            if ((blocked & bit) != 0 || waiter.deadline - now <= 0) {
+                continue;
+            }
+            if (canAdmit(waiter.workload, waiter.permits)) {
+                iterator.remove();
+                admit(waiter.workload, waiter.permits);
+                waiter.granted = true;
+                waiter.condition.signal();
+            } else {
+                blocked |= bit;
+            }
+        }
+    }
+
+    private BulkheadRejectedException rejected(WorkloadClass workload, String reason) {
+        return new BulkheadRejectedException("Connection to '" + dsKey + "' for " + workload + " workload rejected: "
+                + reason + ".");
+    }
+
+    private Connection wrap(Connection connection, WorkloadClass workload) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Bulkhead.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if ("equals".equals(name) && args != null && args.length == 1) {
+                        return proxy == args[0];
+                    }
+                    if ("hashCode".equals(name) && (args == null || args.length == 0)) {
+                        return System.identityHashCode(proxy);
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        if (("close".equals(name) || "abort".equals(name)) && released.compareAndSet(false, true)) {
+                            leave(workload);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Разрешения, выданные одним запросом ({@link #reserve}).
+     */
+    public final class Reservation implements AutoCloseable {
+        private final WorkloadClass workload;
+        private int remaining;
+        private boolean closed;
+
+        private Reservation(WorkloadClass workload, int permits) {
+            this.workload = workload;
+            this.remaining = permits;
+        }
+
+        /**
+         * Получает соединение по одному из зарезервированных разрешений без ожидания.
+         *
+         * @param source источник соединения
+         * @return соединение, возвращающее разрешение при закрытии
+         * @throws SQLException если зарезервированные разрешения закончились или не удалось получить соединение
+         */
+        public Connection acquire(ConnectionSource source) throws SQLException {
+            lock.lock();
+            try {
+                if (closed || remaining == 0) {
+                    throw new SQLException("No reserved connections to '" + dsKey + "' left.");
+                }
+                remaining--;
+            } finally {
+                lock.unlock();
+            }
+            boolean success = false;
+            try {
+                Connection connection = wrap(source.get(), workload);
+                success = true;
+                return connection;
+            } finally {
+                if (!success) {
+                    giveBack();
+                }
+            }
+        }
+
+        /**
+         * Возвращает неиспользованные разрешения. Соединения, уже выданные по резервированию, возвращают
+         * свои разрешения при закрытии.
+         */
+        @Override
+        public void close() {
+            lock.lock();
+            try {
+                closed = true;
+                if (remaining > 0) {
+                    release(workload.ordinal(), remaining);
+                    remaining = 0;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void giveBack() {
+            lock.lock();
+            try {
+                if (closed) {
+                    release(workload.ordinal(), 1);
+                } else {
+                    remaining++;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static LongAdder[] counters() {
+        LongAdder[] counters = new LongAdder[CLASSES];
+        for (int i = 0; i < CLASSES; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    /**
+     * Ожидающий запрос. Порядок: приоритет класса, затем срок ожидания, затем порядок поступления.
+     */
+    private static final class Waiter implements Comparable<Waiter> {
+        private final int workload;
+        private final int permits;
+        private final long deadline;
+        private final long sequence;
+        private final Condition condition;
+        private boolean granted;
+        private boolean shed;
+
+        private Waiter(int workload, int permits, long deadline, long sequence, Condition condition) {
+            this.workload = workload;
+            this.permits = permits;
+            this.deadline = deadline;
+            this.sequence = sequence;
+            this.condition = condition;
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            if (workload != other.workload) {
+                return Integer.compare(workload, other.workload);
+            }
+            if (deadline != other.deadline) {
+                return deadline - other.deadline < 0 ? -1 : 1;
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.dbswitchingdemo.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Predicate;
+
+/**
+ * Неизменяемое кольцо консистентного хеширования с виртуальными узлами.
+ * <p>
+ * Каждый узел занимает {@code virtualNodes} точек на кольце; ключ принадлежит первому узлу по часовой стрелке
+ * от своего хеша. Точки узла зависят только от его имени, поэтому при добавлении или удалении одного из N узлов
+ * меняют владельца примерно 1/N ключей. Кольцо хранится в двух параллельных массивах, поиск — двоичный.
+ */
+public final class ConsistentHashRing {
+
+    private static final ConsistentHashRing EMPTY = new ConsistentHashRing(new long[0], new String[0], Set.of());
+
+    private final long[] points;
+    private final String[] owners;
+    private final Set<String> nodes;
+
+    private ConsistentHashRing(long[] points, String[] owners, Set<String> nodes) {
+        this.points = points;
+        this.owners = owners;
+        this.nodes = nodes;
+    }
+
+    /**
+     * Строит кольцо для набора узлов.
+     *
+     * @param nodes        имена узлов
+     * @param virtualNodes число точек на кольце для каждого узла
+     * @return новое кольцо
+     */
+    public static ConsistentHashRing build(Collection<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            return EMPTY;
+        }
+        TreeMap<Long, String> ring = new TreeMap<>();
+        for (String node : new TreeSet<>(nodes)) {
+            for (int i = 0; i < virtualNodes; i++) {
+                // при совпадении точек побеждает узел с меньшим именем, порядок обхода фиксирован
+                ring.putIfAbsent(hash(node + "#" + i), node);
+            }
+        }
+
+        long[] points = new long[ring.size()];
+        String[] owners = new String[ring.size()];
+        int i = 0;
+        for (Map.Entry<Long, String> entry : ring.entrySet()) {
+            points[i] = entry.getKey();
+            owners[i++] = entry.getValue();
+        }
+        return new ConsistentHashRing(points, owners, Set.copyOf(nodes));
+    }
+
+    /**
+     * @return пустое кольцо
+     */
+    public static ConsistentHashRing empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return имена узлов кольца
+     */
+    public Set<String> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Возвращает владельца ключа без учета доступности узлов.
+     *
+     * @param key ключ
+     * @return имя узла или {@code null}, если кольцо пустое
+     */
+    public String owner(String key) {
+        return points.length == 0 ? null : owners[indexOf(hash(key))];
+    }
+
+    /**
+     * Возвращает первый подходящий узел по часовой стрелке от хеша ключа.
+     * Если владелец ключа не подходит, проверяются следующие различные узлы кольца.
+     *
+     * @param key      ключ
+     * @param eligible условие, которому должен удовлетворять узел
+     * @return имя узла или {@code null}, если подходящих узлов нет
+     */
+    public String route(String key, Predicate<String> eligible) {
+        if (points.length == 0) {
+            return null;
+        }
+        int start = indexOf(hash(key));
+        String owner = owners[start];
+        if (eligible.test(owner)) {
+            return owner;
+        }
+
+        Set<String> tried = new HashSet<>();
+        tried.add(owner);
+        for (int step = 1; step < points.length && tried.size() < nodes.size(); step++) {
+            String candidate = owners[(start + step) % points.length];
+            if (tried.add(candidate) && eligible.test(candidate)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private int indexOf(long hash) {
+        int index = Arrays.binarySearch(points, hash);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return index == points.length ? 0 : index;
+    }
+
+    /**
+     * Возвращает детерминированную долю ключа в диапазоне [0, 1). Доля не зависит от положения ключа на кольце,
+     * поэтому по ней можно равномерно отбирать часть ключей любого узла.
+     *
+     * @param key ключ
+     * @return доля ключа
+     */
+    public static double fraction(String key) {
+        return (hash("fraction:" + key) >>> 11) * 0x1.0p-53;
+    }
+
+    /**
+     * 64-битный хеш: FNV-1a по байтам UTF-8 с финальным перемешиванием MurmurHash3 для равномерного распределения.
+     */
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
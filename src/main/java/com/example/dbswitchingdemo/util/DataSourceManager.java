@@ -10,14 +10,22 @@ import com.example.dbswitchingdemo.enums.DataSourceStatus;
 import com.example.dbswitchingdemo.exception.DataSourceFailedConnectionException;
 import com.example.dbswitchingdemo.exception.DataSourceNotCloseException;
 import com.example.dbswitchingdemo.exception.ResourceNotFound;
+import com.example.dbswitchingdemo.jfr.PoolLifecycleEvent;
+import com.example.dbswitchingdemo.jfr.RoleChangeEvent;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToDoubleFunction;
 
 /**
  * Утилитарный класс для управления источниками данных.
@@ -32,12 +40,16 @@ public class DataSourceManager {
      */
     public static final String JDBC_POSTGRESQL = "jdbc:postgresql://%s:%d/%s";
 
+    private static final String REPLICATION_LAG_SQL = "SELECT CASE WHEN pg_is_in_recovery() "
+            + "THEN EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) END";
+
     /**
      * Создает новый источник данных для члена кластера на основе переданных параметров.
      *
      * @param host            хост базы данных
      * @param port            порт базы данных
      * @param dataSourceKey   уникальный ключ источника данных
+     * @param role            роль члена кластера, по которой выбирается профиль пула
      * @param dsProperties    настройки подключения к базе данных
      * @param dataSourceConfig конфигурация для создания источника данных
      * @return созданный {@link HikariDataSource}
@@ -46,21 +58,137 @@ public class DataSourceManager {
     public static HikariDataSource create(String host,
                                           Integer port,
                                           String dataSourceKey,
+                                          String role,
                                           DataSourceProperties dsProperties,
                                           DataSourceConfig dataSourceConfig) {
+        PoolLifecycleEvent event = new PoolLifecycleEvent();
+        event.begin();
         try {
             String url = buildJdbcUrl(host, port, dsProperties.getName());
             testDatabaseConnection(host, port, url, dsProperties);
 
-            HikariDataSource newDataSource = dataSourceConfig.createHikariDataSource(url);
+            HikariDataSource newDataSource = dataSourceConfig.createHikariDataSource(url, role);
+            newDataSource.setPoolName(dataSourceKey);
 
             log.info("DataSource '{}' created successfully!", dataSourceKey);
+            event.success = true;
             return newDataSource;
         } catch (Exception e) {
             throw new DataSourceFailedConnectionException(e.getMessage());
+        } finally {
+            commitPoolEvent(event, dataSourceKey, PoolLifecycleEvent.CREATE, 0);
+        }
+    }
+
+    /**
+     * Прогревает пул источника данных, одновременно открывая указанное число соединений.
+     * <p>
+     * После прогрева первые запросы не ждут установки TCP-соединения и аутентификации.
+     *
+     * @param ds          источник данных для прогрева
+     * @param connections число соединений, которые нужно открыть
+     * @throws DataSourceFailedConnectionException если не удалось открыть соединение
+     */
+    public static void warm(HikariDataSource ds, int connections) {
+        PoolLifecycleEvent event = new PoolLifecycleEvent();
+        event.begin();
+        List<Connection> opened = new ArrayList<>();
+        try {
+            for (int i = 0; i < connections; i++) {
+                opened.add(ds.getConnection());
+            }
+            event.success = true;
+        } catch (SQLException e) {
+            throw new DataSourceFailedConnectionException("Failed to warm DataSource '" + ds.getJdbcUrl() + "': " + e.getMessage());
+        } finally {
+            opened.forEach(connection -> {
+                try {
+                    connection.close();
+                } catch (SQLException ignored) {
+                    // соединение вернется в пул или будет удалено пулом
+                }
+            });
+            commitPoolEvent(event, ds.getPoolName(), PoolLifecycleEvent.WARM, opened.size());
         }
     }
 
+    /**
+     * Атомарно заменяет пул существующего источника данных новым пулом и обновляет роль.
+     * <p>
+     * Новый пул должен быть уже прогрет: после замены маршрутизатор сразу выдает соединения из него.
+     * Старый пул не закрывается — его нужно закрыть через {@link #drain(String, HikariDataSource, Duration, Duration)}.
+     *
+     * @param member         объект {@link MemberDTO} с новой ролью
+     * @param dsKey          уникальный ключ источника данных
+     * @param dsNew          новый прогретый пул
+     * @param dsMultiRouting объект {@link MultiRoutingDataSource} для маршрутизации
+     * @param dsActivePool   пул активных источников данных
+     * @return старый пул, который нужно закрыть после возврата выданных соединений
+     */
+    public static HikariDataSource swap(MemberDTO member,
+                                        String dsKey,
+                                        HikariDataSource dsNew,
+                                        MultiRoutingDataSource dsMultiRouting,
+                                        Map<String, DataSourceDTO> dsActivePool) {
+        DataSourceDTO dataSourceDTO = dsActivePool.get(dsKey);
+        HikariDataSource dsOld = dataSourceDTO.getDataSource();
+
+        dsMultiRouting.replaceDataSource(dsNew, dsKey);
+        dataSourceDTO.setDataSource(dsNew);
+        updateRole(member, dsKey, dsActivePool);
+
+        log.info("Pool of DataSource '{}' swapped for role '{}'.", dsKey, member.getRole());
+        return dsOld;
+    }
+
+    /**
+     * Закрывает пул после того, как ему будут возвращены все выданные соединения.
+     * <p>
+     * Свободные соединения сразу помечаются на вытеснение. Закрытие выполняется не раньше чем через {@code grace},
+     * чтобы запрос, успевший выбрать старый пул до замены, получил соединение, и не позже {@code timeout}:
+     * по истечении времени оставшиеся активные соединения будут прерваны пулом при закрытии.
+     *
+     * @param dsKey   ключ источника данных
+     * @param ds      пул для закрытия
+     * @param grace   минимальное время до закрытия
+     * @param timeout максимальное время ожидания возврата соединений
+     * @return {@code true}, если все соединения были возвращены до закрытия
+     */
+    public static boolean drain(String dsKey, HikariDataSource ds, Duration grace, Duration timeout) {
+        PoolLifecycleEvent event = new PoolLifecycleEvent();
+        event.begin();
+        long startedAt = System.nanoTime();
+        boolean drained = true;
+        try {
+            HikariPoolMXBean pool = ds.getHikariPoolMXBean();
+            if (pool != null) {
+                pool.softEvictConnections();
+                while (System.nanoTime() - startedAt < grace.toNanos() || pool.getActiveConnections() > 0) {
+                    if (System.nanoTime() - startedAt >= timeout.toNanos()) {
+                        drained = false;
+                        break;
+                    }
+                    Thread.sleep(100);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            drained = false;
+        } finally {
+            ds.close();
+            event.success = drained;
+            commitPoolEvent(event, dsKey, PoolLifecycleEvent.DRAIN, 0);
+        }
+
+        if (drained) {
+            log.info("Old pool of DataSource '{}' drained and closed.", dsKey);
+        } else {
+            log.warn("Old pool of DataSource '{}' closed with connections still in use after {} ms.", dsKey,
+                    timeout.toMillis());
+        }
+        return drained;
+    }
+
     /**
      * Генерирует уникальный ключ для источника данных на основе хоста и порта.
      *
@@ -100,6 +228,13 @@ public class DataSourceManager {
     public static void updateRole(MemberDTO member, String dsKey, Map<String, DataSourceDTO> dsActivePool) {
         DataSourceDTO dataSourceDTO = dsActivePool.get(dsKey);
 
+        RoleChangeEvent event = new RoleChangeEvent();
+        if (event.isEnabled()) {
+            event.dataSourceKey = dsKey;
+            event.previousRole = dataSourceDTO.getRole();
+            event.role = member.getRole();
+            event.commit();
+        }
         dataSourceDTO.setRole(member.getRole());
         dsActivePool.put(dsKey, dataSourceDTO);
 
@@ -162,6 +297,110 @@ public class DataSourceManager {
                 .orElseThrow(() -> new ResourceNotFound("No replica found to switch to."));
     }
 
+    /**
+     * Находит источник данных с ролью replica, исключая указанные ключи.
+     * <p>
+     * Реплика выбирается случайно, чтобы повторные запросы распределялись между оставшимися репликами.
+     *
+     * @param dsActivePool пул активных источников данных
+     * @param excludedKeys ключи источников данных, которые нельзя выбирать
+     * @return объект {@link DataSourceDTO} с ролью replica
+     * @throws ResourceNotFound если подходящая реплика не найдена
+     */
+    public static DataSourceDTO findReplicaDataSource(Map<String, DataSourceDTO> dsActivePool, Set<String> excludedKeys) {
+        return findReplicaDataSource(dsActivePool, excludedKeys, dsKey -> 1);
+    }
+
+    /**
+     * Находит источник данных с ролью replica, исключая указанные ключи, с учетом весов реплик.
+     * <p>
+     * Вероятность выбора реплики пропорциональна ее весу. Реплики с нулевым весом выбираются, только если
+     * у всех кандидатов вес нулевой.
+     *
+     * @param dsActivePool пул активных источников данных
+     * @param excludedKeys ключи источников данных, которые нельзя выбирать
+     * @param weights      вес реплики по ключу источника данных
+     * @return объект {@link DataSourceDTO} с ролью replica
+     * @throws ResourceNotFound если подходящая реплика не найдена
+     */
+    public static DataSourceDTO findReplicaDataSource(Map<String, DataSourceDTO> dsActivePool, Set<String> excludedKeys,
+                                                      ToDoubleFunction<String> weights) {
+        List<DataSourceDTO> candidates = dsActivePool.values().stream()
+                .filter(dsDTO -> "replica".equals(dsDTO.getRole()))
+                .filter(dsDTO -> !excludedKeys.contains(dsDTO.getDataSourceKey()))
+                .toList();
+
+        if (candidates.isEmpty()) {
+            throw new ResourceNotFound("No replica found to switch to.");
+        }
+
+        double[] cumulative = new double[candidates.size()];
+        double total = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            total += Math.max(0, weights.applyAsDouble(candidates.get(i).getDataSourceKey()));
+            cumulative[i] = total;
+        }
+        if (total <= 0) {
+            return candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+        }
+
+        double point = ThreadLocalRandom.current().nextDouble(total);
+        for (int i = 0; i < cumulative.length; i++) {
+            if (point < cumulative[i]) {
+                return candidates.get(i);
+            }
+        }
+        return candidates.get(candidates.size() - 1);
+    }
+
+    /**
+     * Возвращает отставание реплики по времени последней воспроизведенной транзакции.
+     * <p>
+     * Запрос выполняется напрямую к пулу, минуя {@link MultiRoutingDataSource}, поэтому замер не попадает
+     * в статистику запросов. Если на leader давно не было записей, значение завышено.
+     *
+     * @param ds пул реплики
+     * @return отставание в секундах или {@code null}, если сервер не в режиме восстановления
+     *         или еще не воспроизвел ни одной транзакции
+     * @throws SQLException если не удалось выполнить запрос
+     */
+    public static Double replicationLagSeconds(HikariDataSource ds) throws SQLException {
+        try (Connection connection = ds.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(1);
+            try (ResultSet rs = statement.executeQuery(REPLICATION_LAG_SQL)) {
+                if (rs.next()) {
+                    double lag = rs.getDouble(1);
+                    return rs.wasNull() ? null : lag;
+                }
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Исключает источник данных из активного пула и маршрутизации, не закрывая его пул.
+     *
+     * @param dsKey          ключ источника данных
+     * @param dsMultiRouting объект для управления маршрутизацией источников данных
+     * @param dsActivePool   пул активных источников данных
+     * @return исключенный источник данных или {@code null}, если его не было в пуле
+     */
+    public static DataSourceDTO detach(String dsKey,
+                                       MultiRoutingDataSource dsMultiRouting,
+                                       Map<String, DataSourceDTO> dsActivePool) {
+        DataSourceDTO dsDetached = dsActivePool.get(dsKey);
+        if (dsDetached == null) {
+            return null;
+        }
+        dsMultiRouting.removeDataSource(dsKey);
+        dsActivePool.remove(dsKey);
+        clearContextDataSourceIfEqualsRemovedDataSource(dsDetached);
+
+        log.info("DataSource '{}' detached from the active pool and routing, pool kept open.", dsKey);
+        return dsDetached;
+    }
+
     /**
      * Удаляет источники данных, которые больше не используются, из активного пула и маршрутизации.
      * <p>
@@ -190,7 +429,7 @@ public class DataSourceManager {
                 dsMultiRouting.removeDataSource(dsDTOToRemoved.getDataSourceKey());
                 iterator.remove();
 
-                closeExistingDataSource(dsToRemoved); // закрытие соединения
+                closeExistingDataSource(dsKey, dsToRemoved); // закрытие соединения
 
                 clearContextDataSourceIfEqualsRemovedDataSource(dsDTOToRemoved);
 
@@ -283,16 +522,35 @@ public class DataSourceManager {
     /**
      * Закрывает указанный источник данных.
      *
-     * @param ds источник данных для закрытия
+     * @param dsKey ключ источника данных
+     * @param ds    источник данных для закрытия
      * @throws DataSourceNotCloseException если не удалось закрыть источник данных
      */
-    private static void closeExistingDataSource(DataSource ds) {
+    private static void closeExistingDataSource(String dsKey, DataSource ds) {
         if (ds instanceof AutoCloseable) {
+            PoolLifecycleEvent event = new PoolLifecycleEvent();
+            event.begin();
             try {
                 ((AutoCloseable) ds).close();
+                event.success = true;
             } catch (Exception e) {
                 throw new DataSourceNotCloseException("Error while closing data source: " + e.getMessage());
+            } finally {
+                commitPoolEvent(event, dsKey, PoolLifecycleEvent.CLOSE, 0);
             }
         }
     }
+
+    /**
+     * Завершает и записывает событие JFR жизненного цикла пула, если оно включено в текущей записи.
+     */
+    private static void commitPoolEvent(PoolLifecycleEvent event, String dsKey, String action, int connections) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.dataSourceKey = dsKey;
+            event.action = action;
+            event.connections = connections;
+            event.commit();
+        }
+    }
 }
@@ -0,0 +1,196 @@
+package com.example.dbswitchingdemo.util;
+
+import com.example.dbswitchingdemo.dto.request.ClusterMemberDTO.MemberDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.core.BaseConnection;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.postgresql.util.HostSpec;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Источник физических соединений для общего пула реплик с изменяемым списком хостов.
+ * <p>
+ * Соединения открываются драйвером PostgreSQL по списку хостов: драйвер сам выбирает хост с учетом
+ * {@code targetServerType} и {@code loadBalanceHosts}. Пул Hikari берет соединения через этот класс, поэтому
+ * список хостов меняется без пересоздания пула: {@link #setHosts(Collection)} публикует новый
+ * {@link PGSimpleDataSource} через volatile-поле, и следующие соединения открываются уже по новому списку.
+ * <p>
+ * Для каждого открытого соединения запоминается хост, к которому оно подключено. Это позволяет прервать
+ * соединения только к удаленным хостам ({@link #abortConnections(Collection)}), не трогая остальные.
+ */
+@Slf4j
+public class MultiHostReplicaDataSource implements DataSource {
+
+    private final String databaseName;
+    private final String username;
+    private final String password;
+    private final String targetServerType;
+    private final boolean loadBalanceHosts;
+    private final int hostRecheckSeconds;
+
+    private final Map<Connection, String> connections = Collections.synchronizedMap(new WeakHashMap<>());
+    private volatile PGSimpleDataSource delegate;
+
+    public MultiHostReplicaDataSource(String databaseName, String username, String password,
+                                      String targetServerType, boolean loadBalanceHosts, int hostRecheckSeconds) {
+        this.databaseName = databaseName;
+        this.username = username;
+        this.password = password;
+        this.targetServerType = targetServerType;
+        this.loadBalanceHosts = loadBalanceHosts;
+        this.hostRecheckSeconds = hostRecheckSeconds;
+    }
+
+    /**
+     * Заменяет список хостов для новых соединений. Уже открытые соединения не затрагиваются.
+     *
+     * @param members члены кластера, к которым можно подключаться
+     */
+    public void setHosts(Collection<MemberDTO> members) {
+        List<MemberDTO> hosts = List.copyOf(members);
+        PGSimpleDataSource ds = new PGSimpleDataSource();
+        ds.setServerNames(hosts.stream().map(MemberDTO::getHost).toArray(String[]::new));
+        ds.setPortNumbers(hosts.stream().mapToInt(MemberDTO::getPort).toArray());
+        ds.setDatabaseName(databaseName);
+        ds.setUser(username);
+        ds.setPassword(password);
+        ds.setTargetServerType(targetServerType);
+        ds.setLoadBalanceHosts(loadBalanceHosts);
+        ds.setHostRecheckSeconds(hostRecheckSeconds);
+        delegate = ds;
+    }
+
+    /**
+     * Возвращает URL, по которому открываются новые соединения.
+     *
+     * @return URL со списком хостов или {@code null}, если список еще не задан
+     */
+    public String getUrl() {
+        PGSimpleDataSource ds = delegate;
+        return ds != null ? ds.getURL() : null;
+    }
+
+    /**
+     * Прерывает открытые соединения к указанным хостам. Пул заметит разорванные соединения при следующей
+     * проверке или ошибке и заменит их соединениями к оставшимся хостам.
+     *
+     * @param hostKeys ключи хостов в формате {@code host:port}
+     * @return число прерванных соединений
+     */
+    public int abortConnections(Collection<String> hostKeys) {
+        int aborted = 0;
+        for (Map.Entry<Connection, String> entry : snapshot().entrySet()) {
+            if (!hostKeys.contains(entry.getValue())) {
+                continue;
+            }
+            try {
+                if (!entry.getKey().isClosed()) {
+                    entry.getKey().abort(Runnable::run);
+                    aborted++;
+                }
+            } catch (SQLException e) {
+                log.warn("Failed to abort connection to '{}': {}", entry.getValue(), e.getMessage());
+            }
+        }
+        return aborted;
+    }
+
+    /**
+     * Возвращает число открытых соединений по хостам.
+     *
+     * @return число соединений по ключу хоста в формате {@code host:port}
+     */
+    public Map<String, Long> getConnectionsByHost() {
+        Map<String, Long> result = new HashMap<>();
+        snapshot().forEach((connection, hostKey) -> {
+            try {
+                if (!connection.isClosed()) {
+                    result.merge(hostKey, 1L, Long::sum);
+                }
+            } catch (SQLException ignored) {
+                // закрытое соединение не учитывается
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return track(current().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return track(current().getConnection(username, password));
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        // журнал драйвера не используется
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        // тайм-аут подключения задается пулом
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    private PGSimpleDataSource current() throws SQLException {
+        PGSimpleDataSource ds = delegate;
+        if (ds == null) {
+            throw new SQLException("Shared replica pool has no hosts.", "08001");
+        }
+        return ds;
+    }
+
+    private Connection track(Connection connection) throws SQLException {
+        HostSpec hostSpec = connection.unwrap(BaseConnection.class).getQueryExecutor().getHostSpec();
+        connections.put(connection, hostSpec.getHost() + ":" + hostSpec.getPort());
+        return connection;
+    }
+
+    private Map<Connection, String> snapshot() {
+        synchronized (connections) {
+            return new HashMap<>(connections);
+        }
+    }
+}
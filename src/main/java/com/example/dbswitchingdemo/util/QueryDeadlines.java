@@ -0,0 +1,205 @@
+package com.example.dbswitchingdemo.util;
+
+import com.example.dbswitchingdemo.config.DeadlineContextHolder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Ограничение времени выполнения запросов к базе данных сроком HTTP-запроса или бюджетом источника данных.
+ * <p>
+ * Перед выполнением запроса вычисляется оставшееся время: до срока из {@link DeadlineContextHolder}, а если
+ * срок не установлен — бюджет источника данных. На это время в потоке {@code query-deadline} ставится таймер,
+ * который вызывает {@link Statement#cancel()}; таймер снимается, когда выполнение завершилось. Это аналог
+ * JDBC query timeout с точностью до миллисекунд. Если срок уже истек, запрос не отправляется на сервер.
+ * <p>
+ * Соединение, выданное в рамках срока HTTP-запроса, прерывается через {@code abortGrace} после срока, если
+ * его все еще не вернули в пул: отмена не останавливает выборку строк курсором между запросами к серверу,
+ * а брошенная работа не должна держать соединение пула. Таймер ставится на внешнее выданное соединение
+ * ({@link #guard}), поэтому прерывание проходит через все обертки: {@link Bulkhead} возвращает разрешение,
+ * а последующее закрытие возвращает место в пуле Hikari, который вытесняет прерванное соединение.
+ */
+@Slf4j
+public final class QueryDeadlines {
+
+    private static final String QUERY_CANCELED = "57014";
+
+    private final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "query-deadline");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile Function<String, Duration> budgets;
+    private volatile Duration abortGrace;
+
+    private final Map<String, LongAdder> cancelled = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> aborted = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> expired = new ConcurrentHashMap<>();
+
+    public QueryDeadlines() {
+        timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Включает ограничение времени запросов.
+     *
+     * @param budgets    бюджет одного запроса по ключу источника данных; {@code null} — без ограничения
+     * @param abortGrace задержка прерывания соединения после срока HTTP-запроса или {@code null}, чтобы
+     *                   соединения не прерывались
+     */
+    public void configure(Function<String, Duration> budgets, Duration abortGrace) {
+        this.budgets = budgets;
+        this.abortGrace = abortGrace;
+    }
+
+    /**
+     * Проверяет, что срок HTTP-запроса еще не истек, перед выдачей соединения.
+     *
+     * @param dsKey ключ источника данных
+     * @throws SQLTimeoutException если срок истек
+     */
+    public void checkNotExpired(String dsKey) throws SQLTimeoutException {
+        OptionalLong deadline = DeadlineContextHolder.getDeadline();
+        if (budgets != null && deadline.isPresent() && deadline.getAsLong() - System.nanoTime() <= 0) {
+            throw expired(dsKey);
+        }
+    }
+
+    /**
+     * Ставит таймер отмены для выполняемого запроса.
+     *
+     * @param statement запрос
+     * @param dsKey     ключ источника данных
+     * @return таймер, который нужно отменить после выполнения, или {@code null}, если время не ограничено
+     * @throws SQLTimeoutException если срок уже истек
+     */
+    public Future<?> armStatement(Statement statement, String dsKey) throws SQLTimeoutException {
+        Function<String, Duration> budget = budgets;
+        if (budget == null) {
+            return null;
+        }
+
+        long timeoutNanos;
+        OptionalLong deadline = DeadlineContextHolder.getDeadline();
+        if (deadline.isPresent()) {
+            timeoutNanos = deadline.getAsLong() - System.nanoTime();
+            if (timeoutNanos <= 0) {
+                throw expired(dsKey);
+            }
+        } else {
+            Duration timeout = budget.apply(dsKey);
+            if (timeout == null) {
+                return null;
+            }
+            timeoutNanos = timeout.toNanos();
+        }
+        return timer.schedule(() -> cancel(statement, dsKey), timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Ставит таймер прерывания выданного соединения, если у HTTP-запроса есть срок. Таймер снимается при закрытии
+     * возвращенного соединения.
+     *
+     * @param connection внешнее выданное соединение
+     * @param dsKey      ключ источника данных
+     * @return соединение, снимающее таймер при закрытии, или исходное соединение, если таймер не нужен
+     */
+    public Connection guard(Connection connection, String dsKey) {
+        Duration grace = abortGrace;
+        OptionalLong deadline = DeadlineContextHolder.getDeadline();
+        if (budgets == null || grace == null || deadline.isEmpty()) {
+            return connection;
+        }
+        long delayNanos = deadline.getAsLong() - System.nanoTime() + grace.toNanos();
+        Future<?> abortTimer = timer.schedule(() -> abort(connection, dsKey), Math.max(0, delayNanos),
+                TimeUnit.NANOSECONDS);
+        return (Connection) Proxy.newProxyInstance(QueryDeadlines.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    String name = method.getName();
+                    if ("equals".equals(name) && args != null && args.length == 1) {
+                        return proxy == args[0];
+                    }
+                    if ("hashCode".equals(name) && (args == null || args.length == 0)) {
+                        return System.identityHashCode(proxy);
+                    }
+                    if ("close".equals(name) || "abort".equals(name)) {
+                        abortTimer.cancel(false);
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    public Map<String, Long> getCancelled() {
+        return snapshot(cancelled);
+    }
+
+    public Map<String, Long> getAborted() {
+        return snapshot(aborted);
+    }
+
+    public Map<String, Long> getExpired() {
+        return snapshot(expired);
+    }
+
+    private void cancel(Statement statement, String dsKey) {
+        try {
+            statement.cancel();
+            cancelled.computeIfAbsent(dsKey, key -> new LongAdder()).increment();
+            log.debug("Statement on '{}' cancelled after its deadline.", dsKey);
+        } catch (SQLException e) {
+            log.debug("Failed to cancel statement on '{}': {}", dsKey, e.getMessage());
+        }
+    }
+
+    /**
+     * Прерывает физическое соединение, чтобы разблокировать зависший поток, и закрывает выданное соединение:
+     * прерывание само по себе не возвращает соединение в пул Hikari.
+     */
+    private void abort(Connection connection, String dsKey) {
+        try {
+            if (connection.isClosed()) {
+                return;
+            }
+            connection.abort(Runnable::run);
+            aborted.computeIfAbsent(dsKey, key -> new LongAdder()).increment();
+            log.warn("Connection to '{}' aborted: still checked out after the request deadline.", dsKey);
+        } catch (SQLException e) {
+            log.warn("Failed to abort connection to '{}': {}", dsKey, e.getMessage());
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("Failed to close aborted connection to '{}': {}", dsKey, e.getMessage());
+        }
+    }
+
+    private SQLTimeoutException expired(String dsKey) {
+        expired.computeIfAbsent(dsKey, key -> new LongAdder()).increment();
+        return new SQLTimeoutException("Request deadline exceeded before executing on '" + dsKey + "'.", QUERY_CANCELED);
+    }
+
+    private static Map<String, Long> snapshot(Map<String, LongAdder> counters) {
+        Map<String, Long> snapshot = new TreeMap<>();
+        counters.forEach((dsKey, counter) -> snapshot.put(dsKey, counter.sum()));
+        return snapshot;
+    }
+}
@@ -0,0 +1,286 @@
+package com.example.dbswitchingdemo.util;
+
+import com.example.dbswitchingdemo.enums.ExportFormat;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Построчная запись строк результата в выходной поток в формате CSV или NDJSON.
+ * <p>
+ * Строки не накапливаются в памяти: каждая строка сразу пишется в буферизованный поток, поэтому
+ * расход памяти не зависит от числа строк, а медленный клиент естественным образом тормозит чтение курсора.
+ * Значения строки нормализуются методом {@link #readValue(ResultSet, int)}: числа и логические значения
+ * сохраняют тип, остальные значения передаются текстом в представлении драйвера.
+ */
+public class ResultSetStreamWriter {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ExportFormat format;
+    private final Writer writer;
+    private final int flushEveryRows;
+    private JsonGenerator generator;
+    private String[] columns;
+    private long rows;
+
+    /**
+     * @param format         формат выгрузки
+     * @param out            выходной поток
+     * @param flushEveryRows через сколько строк принудительно сбрасывать буфер клиенту
+     */
+    public ResultSetStreamWriter(ExportFormat format, OutputStream out, int flushEveryRows) {
+        this.format = format;
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        this.flushEveryRows = flushEveryRows;
+    }
+
+    /**
+     * Записывает все строки результата в выходной поток.
+     *
+     * @param rs             результат запроса, открытый как курсор
+     * @param format         формат выгрузки
+     * @param out            выходной поток
+     * @param flushEveryRows через сколько строк принудительно сбрасывать буфер клиенту
+     * @return количество записанных строк
+     * @throws SQLException если не удалось прочитать результат
+     * @throws IOException  если не удалось записать в поток (например, клиент закрыл соединение)
+     */
+    public static long write(ResultSet rs, ExportFormat format, OutputStream out, int flushEveryRows)
+            throws SQLException, IOException {
+        ResultSetStreamWriter streamWriter = new ResultSetStreamWriter(format, out, flushEveryRows);
+        String[] columns = columnLabels(rs.getMetaData());
+        streamWriter.writeHeader(columns);
+
+        Object[] row = new Object[columns.length];
+        while (rs.next()) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = readValue(rs, i + 1);
+            }
+            streamWriter.writeRow(row);
+        }
+        return streamWriter.finish();
+    }
+
+    /**
+     * Возвращает имена колонок результата.
+     *
+     * @param metaData метаданные результата
+     * @return массив имен колонок
+     * @throws SQLException если не удалось прочитать метаданные
+     */
+    public static String[] columnLabels(ResultSetMetaData metaData) throws SQLException {
+        String[] columns = new String[metaData.getColumnCount()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = metaData.getColumnLabel(i + 1);
+        }
+        return columns;
+    }
+
+    /**
+     * Читает значение колонки в нормализованном виде.
+     *
+     * @param rs     результат запроса
+     * @param column номер колонки (с единицы)
+     * @return {@code null}, {@link Boolean}, {@link Number} или строковое представление значения
+     * @throws SQLException если не удалось прочитать значение
+     */
+    public static Object readValue(ResultSet rs, int column) throws SQLException {
+        Object value = rs.getObject(column);
+        if (value == null || value instanceof Boolean || value instanceof Number) {
+            return value;
+        }
+        return rs.getString(column);
+    }
+
+    /**
+     * Записывает заголовок выгрузки. Для NDJSON имена колонок используются как ключи объектов.
+     *
+     * @param columns имена колонок
+     * @throws IOException если не удалось записать в поток
+     */
+    public void writeHeader(String[] columns) throws IOException {
+        this.columns = columns;
+        if (format == ExportFormat.CSV) {
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeCsvValue(columns[i]);
+            }
+            writer.write('\n');
+        } else {
+            ensureGenerator();
+        }
+    }
+
+    /**
+     * Записывает одну строку. Массив значений может переиспользоваться вызывающим кодом.
+     *
+     * @param values значения строки в порядке колонок
+     * @throws IOException если не удалось записать в поток
+     */
+    public void writeRow(Object[] values) throws IOException {
+        if (format == ExportFormat.CSV) {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeCsvValue(toText(values[i]));
+            }
+            writer.write('\n');
+        } else {
+            generator.writeStartObject();
+            for (int i = 0; i < values.length; i++) {
+                generator.writeFieldName(columns[i]);
+                writeJsonValue(values[i]);
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        if (++rows % flushEveryRows == 0) {
+            flush();
+        }
+    }
+
+    /**
+     * Записывает строку одной из нескольких таблиц в виде {@code {"table": ..., "row": {...}}}.
+     * Используется для выгрузки нескольких таблиц в один поток NDJSON.
+     *
+     * @param table   имя таблицы
+     * @param columns имена колонок таблицы
+     * @param values  значения строки в порядке колонок
+     * @throws IOException если не удалось записать в поток
+     */
+    public void writeRecord(String table, String[] columns, Object[] values) throws IOException {
+        ensureGenerator();
+        generator.writeStartObject();
+        generator.writeStringField("table", table);
+        generator.writeObjectFieldStart("row");
+        for (int i = 0; i < values.length; i++) {
+            generator.writeFieldName(columns[i]);
+            writeJsonValue(values[i]);
+        }
+        generator.writeEndObject();
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+
+        if (++rows % flushEveryRows == 0) {
+            flush();
+        }
+    }
+
+    /**
+     * Записывает завершающую запись NDJSON-выгрузки, по которой клиент отличает полную выгрузку от оборванной.
+     *
+     * @param status  итоговый статус выгрузки
+     * @param message сообщение (например, причина ошибки) или {@code null}
+     * @throws IOException если не удалось записать в поток
+     */
+    public void writeTrailer(String status, String message) throws IOException {
+        ensureGenerator();
+        generator.writeStartObject();
+        generator.writeStringField("status", status);
+        generator.writeNumberField("rows", rows);
+        if (message != null) {
+            generator.writeStringField("message", message);
+        }
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+    }
+
+    /**
+     * Сбрасывает оставшиеся данные в поток, не закрывая его.
+     *
+     * @return количество записанных строк
+     * @throws IOException если не удалось записать в поток
+     */
+    public long finish() throws IOException {
+        if (generator != null) {
+            generator.close();
+        }
+        writer.flush();
+        return rows;
+    }
+
+    private void flush() throws IOException {
+        if (generator != null) {
+            generator.flush();
+        } else {
+            writer.flush();
+        }
+    }
+
+    private void ensureGenerator() throws IOException {
+        if (generator == null) {
+            generator = JSON_FACTORY.createGenerator(writer);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+        }
+    }
+
+    private static String toText(Object value) {
+        if (value == null) {
+            return null;
+        }
+        return value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+    }
+
+    private void writeCsvValue(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    private void writeJsonValue(Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof Boolean bool) {
+            generator.writeBoolean(bool);
+        } else if (value instanceof Double || value instanceof Float) {
+            double number = ((Number) value).doubleValue();
+            if (Double.isFinite(number)) {
+                generator.writeNumber(number);
+            } else {
+                generator.writeString(value.toString());
+            }
+        } else if (value instanceof BigDecimal decimal) {
+            generator.writeNumber(decimal);
+        } else if (value instanceof Number) {
+            generator.writeNumber(value.toString());
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+}
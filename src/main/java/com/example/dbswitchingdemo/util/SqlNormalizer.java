@@ -0,0 +1,103 @@
+package com.example.dbswitchingdemo.util;
+
+/**
+ * Нормализация текста SQL для группировки однотипных запросов.
+ * <p>
+ * Строковые и числовые литералы заменяются на {@code ?}, списки параметров {@code IN (?, ?, ?)} сворачиваются
+ * в {@code (?)}, последовательности пробельных символов сжимаются в один пробел. Разбор выполняется одним
+ * проходом по символам без регулярных выражений.
+ */
+public final class SqlNormalizer {
+
+    private SqlNormalizer() {
+    }
+
+    /**
+     * Возвращает нормализованный текст запроса.
+     *
+     * @param sql       исходный текст запроса
+     * @param maxLength максимальная длина результата; более длинный текст обрезается
+     * @return нормализованный текст или {@code null}, если {@code sql} равен {@code null}
+     */
+    public static String normalize(String sql, int maxLength) {
+        if (sql == null) {
+            return null;
+        }
+        StringBuilder out = new StringBuilder(Math.min(sql.length(), maxLength));
+        int length = sql.length();
+        int i = 0;
+        while (i < length && out.length() < maxLength) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                i = skipQuoted(sql, i);
+                appendPlaceholder(out);
+            } else if (Character.isWhitespace(c)) {
+                while (i < length && Character.isWhitespace(sql.charAt(i))) {
+                    i++;
+                }
+                if (out.length() > 0 && i < length) {
+                    out.append(' ');
+                }
+            } else if (Character.isDigit(c) && !isIdentifierPart(out)) {
+                while (i < length && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                appendPlaceholder(out);
+            } else if (c == '?') {
+                appendPlaceholder(out);
+                i++;
+            } else if (c == '"') {
+                int end = skipQuoted(sql, i);
+                out.append(sql, i, Math.min(end, i + maxLength - out.length()));
+                i = end;
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * Возвращает индекс символа после закрывающей кавычки с учетом удвоенных кавычек внутри литерала.
+     */
+    private static int skipQuoted(String sql, int start) {
+        char quote = sql.charAt(start);
+        int i = start + 1;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == quote) {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Добавляет {@code ?}, сворачивая списки вида {@code (?, ?, ?)} в {@code (?)}.
+     */
+    private static void appendPlaceholder(StringBuilder out) {
+        int end = out.length();
+        if (end >= 3 && out.charAt(end - 1) == ' ' && out.charAt(end - 2) == ',' && out.charAt(end - 3) == '?') {
+            out.setLength(end - 2);
+            return;
+        }
+        if (end >= 2 && out.charAt(end - 1) == ',' && out.charAt(end - 2) == '?') {
+            out.setLength(end - 1);
+            return;
+        }
+        out.append('?');
+    }
+
+    private static boolean isIdentifierPart(StringBuilder out) {
+        if (out.length() == 0) {
+            return false;
+        }
+        char previous = out.charAt(out.length() - 1);
+        return Character.isLetterOrDigit(previous) || previous == '_' || previous == '$';
+    }
+}
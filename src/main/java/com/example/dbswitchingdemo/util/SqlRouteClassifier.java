@@ -0,0 +1,179 @@
+package com.example.dbswitchingdemo.util;
+
+import com.example.dbswitchingdemo.enums.SqlRoute;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Классификация SQL-запросов на чтения, которые можно выполнить на реплике, и все остальные.
+ * <p>
+ * Чтением считаются только {@code SELECT}, {@code WITH}, {@code VALUES}, {@code TABLE} и {@code SHOW} без
+ * блокирующих предложений ({@code FOR UPDATE}, {@code FOR SHARE} и т. п.), без {@code SELECT ... INTO},
+ * без изменяющих данные CTE и без вызова функций с побочными эффектами. {@code SELECT} без {@code FROM},
+ * вызывающий функцию, и вызовы процедур ({@code CALL}, {@code {call ...}}) идут на leader. Все неизвестное
+ * тоже идет на leader.
+ * <p>
+ * Разбор пропускает строковые литералы, идентификаторы в кавычках, строки в долларовых кавычках
+ * и комментарии. Результат кешируется по тексту запроса: Hibernate и пулы подготовленных запросов используют
+ * небольшой набор одинаковых строк, поэтому в установившемся режиме классификация — один поиск в карте.
+ * При заполнении кеша новые запросы классифицируются без сохранения.
+ */
+public class SqlRouteClassifier {
+
+    private static final String CALL_MARKER = "(";
+    private static final Set<String> READ_STATEMENTS = Set.of("SELECT", "WITH", "VALUES", "TABLE", "SHOW");
+    private static final Set<String> WRITE_KEYWORDS = Set.of("INSERT", "UPDATE", "DELETE", "MERGE");
+    private static final Set<String> LOCKING_KEYWORDS = Set.of("UPDATE", "SHARE", "NO", "KEY");
+
+    private final Set<String> leaderFunctions;
+    private final int cacheSize;
+    private final Map<String, SqlRoute> cache = new ConcurrentHashMap<>();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param leaderFunctions функции с побочными эффектами
+     * @param cacheSize       сколько разных запросов хранить в кеше
+     */
+    public SqlRouteClassifier(Set<String> leaderFunctions, int cacheSize) {
+        this.leaderFunctions = leaderFunctions.stream()
+                .map(name -> name.toUpperCase(Locale.ROOT))
+                .collect(Collectors.toUnmodifiableSet());
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Возвращает класс запроса, используя кеш.
+     *
+     * @param sql текст запроса
+     * @return {@link SqlRoute#READ}, если запрос можно выполнить на реплике
+     */
+    public SqlRoute classify(String sql) {
+        SqlRoute route = cache.get(sql);
+        if (route != null) {
+            return route;
+        }
+        misses.increment();
+        route = parse(sql);
+        if (cache.size() < cacheSize) {
+            cache.put(sql, route);
+        }
+        return route;
+    }
+
+    public int getCachedStatements() {
+        return cache.size();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private SqlRoute parse(String sql) {
+        String trimmed = sql.stripLeading();
+        if (trimmed.startsWith("{")) {
+            return SqlRoute.WRITE;
+        }
+
+        List<String> tokens = tokenize(sql);
+        int first = 0;
+        while (first < tokens.size() && CALL_MARKER.equals(tokens.get(first))) {
+            first++;
+        }
+        if (first == tokens.size() || !READ_STATEMENTS.contains(tokens.get(first))) {
+            return SqlRoute.WRITE;
+        }
+
+        boolean hasFrom = false;
+        boolean callsFunction = false;
+        for (int i = first; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            boolean call = i + 1 < tokens.size() && CALL_MARKER.equals(tokens.get(i + 1));
+            if (WRITE_KEYWORDS.contains(token)) {
+                return SqlRoute.WRITE;
+            }
+            if (token.equals("FOR") && i + 1 < tokens.size() && LOCKING_KEYWORDS.contains(tokens.get(i + 1))) {
+                return SqlRoute.WRITE;
+            }
+            if (token.equals("INTO")) {
+                return SqlRoute.WRITE;
+            }
+            if (call && leaderFunctions.contains(token)) {
+                return SqlRoute.WRITE;
+            }
+            hasFrom |= token.equals("FROM");
+            callsFunction |= call;
+        }
+        return tokens.get(first).equals("SELECT") && !hasFrom && callsFunction ? SqlRoute.WRITE : SqlRoute.READ;
+    }
+
+    /**
+     * Разбивает запрос на слова в верхнем регистре и маркеры открывающей скобки, пропуская литералы и комментарии.
+     */
+    private static List<String> tokenize(String sql) {
+        List<String> tokens = new ArrayList<>();
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"') {
+                i = skipQuoted(sql, i, c);
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? length : end + 1;
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+            } else if (c == '$' && (i == 0 || !Character.isLetterOrDigit(sql.charAt(i - 1)))) {
+                i = skipDollarQuoted(sql, i);
+            } else if (c == '(') {
+                tokens.add(CALL_MARKER);
+                i++;
+            } else if (Character.isLetter(c) || c == '_') {
+                int start = i;
+                while (i < length && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '_' || sql.charAt(i) == '$')) {
+                    i++;
+                }
+                tokens.add(sql.substring(start, i).toUpperCase(Locale.ROOT));
+            } else {
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    private static int skipQuoted(String sql, int start, char quote) {
+        int i = start + 1;
+        while (i < sql.length()) {
+            if (sql.charAt(i) == quote) {
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return sql.length();
+    }
+
+    private static int skipDollarQuoted(String sql, int start) {
+        int tagEnd = start + 1;
+        while (tagEnd < sql.length() && (Character.isLetterOrDigit(sql.charAt(tagEnd)) || sql.charAt(tagEnd) == '_')) {
+            tagEnd++;
+        }
+        if (tagEnd >= sql.length() || sql.charAt(tagEnd) != '$') {
+            // позиционный параметр $1 или одиночный символ
+            return tagEnd;
+        }
+        String tag = sql.substring(start, tagEnd + 1);
+        int end = sql.indexOf(tag, tagEnd + 1);
+        return end < 0 ? sql.length() : end + tag.length();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.dbswitchingdemo.util;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Set;
+
+/**
+ * Утилитарный класс для классификации ошибок JDBC по SQLSTATE.
+ */
+public class SqlStateUtils {
+
+    /**
+     * Класс SQLSTATE ошибок соединения.
+     */
+    private static final String CONNECTION_EXCEPTION_CLASS = "08";
+
+    /**
+     * Коды PostgreSQL, означающие остановку или недоступность сервера (admin_shutdown, crash_shutdown,
+     * cannot_connect_now).
+     */
+    private static final Set<String> SERVER_SHUTDOWN_STATES = Set.of("57P01", "57P02", "57P03");
+
+    /**
+     * Проверяет, вызвана ли ошибка потерей соединения с базой данных.
+     * <p>
+     * Просматривается вся цепочка причин, так как Spring и Hibernate оборачивают исходный {@link SQLException}.
+     *
+     * @param e исключение для проверки
+     * @return {@code true}, если в цепочке причин есть ошибка соединения
+     */
+    public static boolean isConnectionFailure(Throwable e) {
+        Throwable cur = e;
+        while (cur != null) {
+            if (cur instanceof SQLTransientConnectionException || cur instanceof SQLNonTransientConnectionException) {
+                return true;
+            }
+            if (cur instanceof SQLException sqlException && isConnectionState(sqlException.getSQLState())) {
+                return true;
+            }
+            cur = cur.getCause() == cur ? null : cur.getCause();
+        }
+        return false;
+    }
+
+    /**
+     * Проверяет, относится ли SQLSTATE к ошибкам соединения.
+     *
+     * @param sqlState код SQLSTATE
+     * @return {@code true}, если код означает потерю соединения или остановку сервера
+     */
+    public static boolean isConnectionState(String sqlState) {
+        return sqlState != null
+                && (sqlState.startsWith(CONNECTION_EXCEPTION_CLASS) || SERVER_SHUTDOWN_STATES.contains(sqlState));
+    }
+}
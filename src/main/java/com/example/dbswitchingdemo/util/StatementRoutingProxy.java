@@ -0,0 +1,242 @@
+package com.example.dbswitchingdemo.util;
+
+import com.example.dbswitchingdemo.config.MultiRoutingDataSource;
+import com.example.dbswitchingdemo.config.StatementRouter;
+import com.example.dbswitchingdemo.enums.WorkloadClass;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Логическое соединение, которое выбирает физическое соединение по тексту запроса.
+ * <p>
+ * Физическое соединение берется не при выдаче логического, а при подготовке первого запроса, когда известен
+ * его текст. Настройки, заданные до этого ({@code autoCommit}, {@code readOnly}, уровень изоляции), запоминаются
+ * и применяются к физическому соединению при открытии.
+ * <ul>
+ *     <li>В режиме autocommit каждый запрос направляется отдельно: чтения на реплику, остальное на leader;
+ *     для каждого источника открывается не больше одного физического соединения.</li>
+ *     <li>В транзакции источник выбирается по первому запросу и закрепляется до {@code commit} или
+ *     {@code rollback}. Транзакция записи (без {@code readOnly}) всегда идет на leader, даже если начинается
+ *     с чтения.</li>
+ *     <li>{@code createStatement} и прочие вызовы без текста запроса вне закрепленной транзакции идут на leader.</li>
+ * </ul>
+ */
+public final class StatementRoutingProxy {
+
+    private static final String CONTEXT_KEY = "";
+
+    private StatementRoutingProxy() {
+    }
+
+    /**
+     * Создает логическое соединение.
+     *
+     * @param dsMultiRouting маршрутизатор, через который открываются физические соединения
+     * @param router         выбор источника данных по запросу
+     * @param workload       класс нагрузки для физических соединений
+     * @return логическое соединение
+     */
+    public static Connection wrap(MultiRoutingDataSource dsMultiRouting, StatementRouter router, WorkloadClass workload) {
+        return (Connection) Proxy.newProxyInstance(StatementRoutingProxy.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new LazyConnection(dsMultiRouting, router, workload));
+    }
+
+    private static final class LazyConnection implements InvocationHandler {
+        private final MultiRoutingDataSource dsMultiRouting;
+        private final StatementRouter router;
+        private final WorkloadClass workload;
+
+        private final Map<String, Connection> physical = new LinkedHashMap<>();
+        /**
+         * Физические соединения, переведенные в режим ручной фиксации; возвращаются в autocommit вместе
+         * с логическим соединением.
+         */
+        private final Set<String> manualCommit = new HashSet<>();
+        private boolean autoCommit = true;
+        private boolean readOnly;
+        private Integer isolation;
+        private String transactionKey;
+        private boolean closed;
+
+        private LazyConnection(MultiRoutingDataSource dsMultiRouting, StatementRouter router, WorkloadClass workload) {
+            this.dsMultiRouting = dsMultiRouting;
+            this.router = router;
+            this.workload = workload;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return args != null && args.length == 1 && proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "StatementRoutingConnection" + physical.keySet();
+                case "isClosed":
+                    return closed;
+                case "close":
+                    close();
+                    return null;
+                case "getAutoCommit":
+                    return autoCommit;
+                case "setAutoCommit":
+                    setAutoCommit((Boolean) args[0]);
+                    return null;
+                case "isReadOnly":
+                    return readOnly;
+                case "setReadOnly":
+                    readOnly = (Boolean) args[0];
+                    for (Connection connection : physical.values()) {
+                        connection.setReadOnly(readOnly);
+                    }
+                    return null;
+                case "setTransactionIsolation":
+                    isolation = (Integer) args[0];
+                    for (Connection connection : physical.values()) {
+                        connection.setTransactionIsolation(isolation);
+                    }
+                    return null;
+                case "getTransactionIsolation":
+                    if (isolation != null) {
+                        return isolation;
+                    }
+                    break;
+                case "commit":
+                case "rollback":
+                    if (args == null || args.length == 0) {
+                        endTransaction(method);
+                        return null;
+                    }
+                    break;
+                case "prepareStatement":
+                case "prepareCall":
+                    return forward(forStatement((String) args[0], method.getName().equals("prepareCall")), method, args);
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection is closed.");
+            }
+            return forward(current(), method, args);
+        }
+
+        private Object forward(Connection connection, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private void setAutoCommit(boolean value) throws SQLException {
+            if (value) {
+                for (String key : manualCommit) {
+                    physical.get(key).setAutoCommit(true);
+                }
+                manualCommit.clear();
+            }
+            transactionKey = null;
+            autoCommit = value;
+        }
+
+        /**
+         * Завершает транзакцию и снимает закрепление, чтобы следующая транзакция снова выбрала источник
+         * по своему первому запросу.
+         */
+        private void endTransaction(Method method) throws Throwable {
+            if (transactionKey == null) {
+                // в транзакции еще не было запросов
+                return;
+            }
+            if (closed) {
+                throw new SQLException("Connection is closed.");
+            }
+            forward(physical.get(transactionKey), method, null);
+            transactionKey = null;
+        }
+
+        private Connection forStatement(String sql, boolean call) throws SQLException {
+            if (closed) {
+                throw new SQLException("Connection is closed.");
+            }
+            if (transactionKey != null) {
+                return physical.get(transactionKey);
+            }
+            String dsKey = router.route(call ? null : sql, !autoCommit && !readOnly);
+            return open(dsKey);
+        }
+
+        /**
+         * Физическое соединение для вызовов без текста запроса: текущей транзакции или к leader.
+         */
+        private Connection current() throws SQLException {
+            if (transactionKey != null) {
+                return physical.get(transactionKey);
+            }
+            return open(router.route(null, true));
+        }
+
+        private Connection open(String dsKey) throws SQLException {
+            String key = dsKey != null ? dsKey : CONTEXT_KEY;
+            Connection connection = physical.get(key);
+            if (connection == null) {
+                connection = dsKey != null
+                        ? dsMultiRouting.getConnection(dsKey, workload)
+                        : dsMultiRouting.getContextConnection(workload);
+                try {
+                    if (readOnly) {
+                        connection.setReadOnly(true);
+                    }
+                    if (isolation != null) {
+                        connection.setTransactionIsolation(isolation);
+                    }
+                } catch (SQLException e) {
+                    connection.close();
+                    throw e;
+                }
+                physical.put(key, connection);
+            }
+            if (!autoCommit) {
+                if (manualCommit.add(key)) {
+                    connection.setAutoCommit(false);
+                }
+                transactionKey = key;
+            }
+            return connection;
+        }
+
+        private void close() throws SQLException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            SQLException failure = null;
+            for (Connection connection : physical.values()) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            physical.clear();
+            manualCommit.clear();
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
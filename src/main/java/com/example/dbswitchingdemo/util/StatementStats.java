@@ -0,0 +1,359 @@
+package com.example.dbswitchingdemo.util;
+
+import com.example.dbswitchingdemo.config.StatementStatsProperties;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Статистика выполнения запросов по ключам источников данных.
+ * <p>
+ * Для каждого ключа ведутся две гистограммы с фиксированными логарифмическими границами: время выполнения
+ * запросов и время ожидания соединения из пула. Рост первой при нормальной второй указывает на медленную базу,
+ * рост второй — на нехватку соединений под нагрузкой.
+ * <p>
+ * Самые медленные нормализованные запросы хранятся в таблице фиксированного размера. Пока запрос быстрее
+ * самого быстрого из сохраненных, проверка сводится к сравнению с volatile-полем без блокировок и аллокаций;
+ * текст нормализуется только для запросов, которые действительно попадут в таблицу.
+ */
+public class StatementStats {
+
+    private static final long[] BOUNDS_MICROS = {
+            100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000,
+            100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000, 10_000_000
+    };
+
+    private final StatementStatsProperties properties;
+    private final Map<String, Target> targets = new ConcurrentHashMap<>();
+    private final SlowStatements slowStatements;
+
+    public StatementStats(StatementStatsProperties properties) {
+        this.properties = properties;
+        this.slowStatements = new SlowStatements(properties.getSlowTopN(), properties.getSlowThreshold().toNanos());
+    }
+
+    /**
+     * @return {@code true}, если учет включен
+     */
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Учитывает выполнение запроса.
+     *
+     * @param dsKey   ключ источника данных
+     * @param sql     текст запроса или {@code null}, если он неизвестен
+     * @param nanos   время выполнения в наносекундах
+     * @param success {@code false}, если запрос завершился ошибкой
+     */
+    public void recordExecution(String dsKey, String sql, long nanos, boolean success) {
+        Target target = target(dsKey);
+        target.executions.record(nanos);
+        if (!success) {
+            target.errors.increment();
+        }
+        if (sql != null && slowStatements.accepts(nanos)) {
+            slowStatements.record(dsKey, SqlNormalizer.normalize(sql, properties.getMaxSqlLength()), nanos);
+        }
+    }
+
+    /**
+     * Учитывает ожидание соединения из пула.
+     *
+     * @param dsKey ключ источника данных
+     * @param nanos время ожидания в наносекундах
+     */
+    public void recordAcquire(String dsKey, long nanos) {
+        target(dsKey).acquires.record(nanos);
+    }
+
+    /**
+     * Удаляет статистику источника данных, который больше не участвует в маршрутизации.
+     *
+     * @param dsKey ключ источника данных
+     */
+    public void remove(String dsKey) {
+        targets.remove(dsKey);
+        slowStatements.remove(dsKey);
+    }
+
+    /**
+     * Сбрасывает всю накопленную статистику.
+     */
+    public void reset() {
+        targets.clear();
+        slowStatements.clear();
+    }
+
+    /**
+     * @return статистика по ключам источников данных
+     */
+    public Map<String, Target> getTargets() {
+        return Collections.unmodifiableMap(targets);
+    }
+
+    /**
+     * @return самые медленные нормализованные запросы, от самого медленного
+     */
+    public List<SlowStatement> getSlowStatements() {
+        return slowStatements.snapshot();
+    }
+
+    /**
+     * @return верхние границы корзин гистограмм в микросекундах; последняя корзина не ограничена
+     */
+    public static long[] getBoundsMicros() {
+        return BOUNDS_MICROS.clone();
+    }
+
+    /**
+     * Оценивает перцентиль по счетчикам корзин, например по разнице двух снимков {@link Histogram#getBucketCounts()}
+     * за интервал. Оценкой служит верхняя граница корзины, в которую попадает перцентиль.
+     *
+     * @param counts     счетчики корзин
+     * @param percentile перцентиль от 0 до 1
+     * @param maxMillis  значение для последней, не ограниченной сверху корзины
+     * @return оценка в миллисекундах или {@code 0}, если значений нет
+     */
+    public static double percentileMillis(long[] counts, double percentile, double maxMillis) {
+        long total = 0;
+        for (long bucketCount : counts) {
+            total += bucketCount;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile * total);
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            if (cumulative >= rank) {
+                return i < BOUNDS_MICROS.length ? BOUNDS_MICROS[i] / 1_000.0 : maxMillis;
+            }
+        }
+        return maxMillis;
+    }
+
+    private Target target(String dsKey) {
+        return targets.computeIfAbsent(dsKey, key -> new Target());
+    }
+
+    /**
+     * Статистика одного источника данных.
+     */
+    public static final class Target {
+        private final Histogram executions = new Histogram();
+        private final Histogram acquires = new Histogram();
+        private final LongAdder errors = new LongAdder();
+
+        public Histogram getExecutions() {
+            return executions;
+        }
+
+        public Histogram getAcquires() {
+            return acquires;
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+    }
+
+    /**
+     * Гистограмма длительностей с фиксированными границами корзин.
+     */
+    public static final class Histogram {
+        private final LongAdder[] buckets = new LongAdder[BOUNDS_MICROS.length + 1];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        private Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        private void record(long nanos) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+            int bucket = 0;
+            while (bucket < BOUNDS_MICROS.length && micros > BOUNDS_MICROS[bucket]) {
+                bucket++;
+            }
+            buckets[bucket].increment();
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public double getMeanMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalNanos.sum() / (double) n / 1_000_000;
+        }
+
+        public double getMaxMillis() {
+            return maxNanos.get() / 1_000_000.0;
+        }
+
+        /**
+         * Возвращает оценку перцентиля как верхнюю границу корзины, в которую он попадает.
+         *
+         * @param percentile перцентиль от 0 до 1
+         * @return оценка в миллисекундах
+         */
+        public double getPercentileMillis(double percentile) {
+            return percentileMillis(getBucketCounts(), percentile, getMaxMillis());
+        }
+
+        public long[] getBucketCounts() {
+            long[] counts = new long[buckets.length];
+            for (int i = 0; i < buckets.length; i++) {
+                counts[i] = buckets[i].sum();
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * Медленный нормализованный запрос.
+     *
+     * @param dataSourceKey ключ источника данных
+     * @param sql           нормализованный текст запроса
+     * @param maxNanos      максимальное время выполнения
+     * @param count         число выполнений, превысивших порог
+     * @param totalNanos    суммарное время этих выполнений
+     * @param lastSeenMs    время последнего такого выполнения (epoch millis)
+     */
+    public record SlowStatement(String dataSourceKey, String sql, long maxNanos, long count, long totalNanos,
+                                long lastSeenMs) {
+    }
+
+    /**
+     * Таблица самых медленных запросов фиксированного размера на параллельных массивах.
+     * При заполнении новая запись вытесняет запись с наименьшим максимальным временем.
+     */
+    private static final class SlowStatements {
+        private final String[] keys;
+        private final String[] sqls;
+        private final long[] maxNanos;
+        private final long[] counts;
+        private final long[] totalNanos;
+        private final long[] lastSeenMs;
+        private final long thresholdNanos;
+        private int size;
+        private volatile long floorNanos;
+
+        private SlowStatements(int capacity, long thresholdNanos) {
+            this.keys = new String[capacity];
+            this.sqls = new String[capacity];
+            this.maxNanos = new long[capacity];
+            this.counts = new long[capacity];
+            this.totalNanos = new long[capacity];
+            this.lastSeenMs = new long[capacity];
+            this.thresholdNanos = thresholdNanos;
+            this.floorNanos = thresholdNanos;
+        }
+
+        private boolean accepts(long nanos) {
+            return keys.length > 0 && nanos >= floorNanos;
+        }
+
+        private synchronized void record(String dsKey, String sql, long nanos) {
+            int slot = indexOf(dsKey, sql);
+            if (slot < 0) {
+                if (size < keys.length) {
+                    slot = size++;
+                } else {
+                    slot = indexOfFastest();
+                    if (maxNanos[slot] >= nanos) {
+                        return;
+                    }
+                }
+                keys[slot] = dsKey;
+                sqls[slot] = sql;
+                maxNanos[slot] = 0;
+                counts[slot] = 0;
+                totalNanos[slot] = 0;
+            }
+            maxNanos[slot] = Math.max(maxNanos[slot], nanos);
+            counts[slot]++;
+            totalNanos[slot] += nanos;
+            lastSeenMs[slot] = System.currentTimeMillis();
+            updateFloor();
+        }
+
+        private synchronized void remove(String dsKey) {
+            int i = 0;
+            while (i < size) {
+                if (keys[i].equals(dsKey)) {
+                    moveLastTo(i);
+                } else {
+                    i++;
+                }
+            }
+            updateFloor();
+        }
+
+        private synchronized void clear() {
+            while (size > 0) {
+                moveLastTo(size - 1);
+            }
+            updateFloor();
+        }
+
+        private synchronized List<SlowStatement> snapshot() {
+            List<SlowStatement> result = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                result.add(new SlowStatement(keys[i], sqls[i], maxNanos[i], counts[i], totalNanos[i], lastSeenMs[i]));
+            }
+            result.sort((a, b) -> Long.compare(b.maxNanos(), a.maxNanos()));
+            return result;
+        }
+
+        private int indexOf(String dsKey, String sql) {
+            for (int i = 0; i < size; i++) {
+                if (sqls[i].equals(sql) && keys[i].equals(dsKey)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int indexOfFastest() {
+            int fastest = 0;
+            for (int i = 1; i < size; i++) {
+                if (maxNanos[i] < maxNanos[fastest]) {
+                    fastest = i;
+                }
+            }
+            return fastest;
+        }
+
+        private void moveLastTo(int i) {
+            int last = --size;
+            keys[i] = keys[last];
+            sqls[i] = sqls[last];
+            maxNanos[i] = maxNanos[last];
+            counts[i] = counts[last];
+            totalNanos[i] = totalNanos[last];
+            lastSeenMs[i] = lastSeenMs[last];
+            keys[last] = null;
+            sqls[last] = null;
+        }
+
+        private void updateFloor() {
+            floorNanos = size < keys.length ? thresholdNanos : Math.max(thresholdNanos, maxNanos[indexOfFastest()]);
+        }
+    }
+}
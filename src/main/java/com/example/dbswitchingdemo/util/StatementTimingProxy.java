@@ -0,0 +1,179 @@
+package com.example.dbswitchingdemo.util;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.concurrent.Future;
+
+/**
+ * Динамические JDBC-прокси, которые измеряют время получения соединения и выполнения запросов
+ * и передают его в {@link StatementStats} с ключом источника данных.
+ * <p>
+ * Оборачиваются только {@link DataSource}, {@link Connection} и объекты запросов; остальные вызовы, включая
+ * {@code unwrap}, передаются исходным объектам драйвера и пула без изменений.
+ * <p>
+ * Те же прокси ставят таймеры {@link QueryDeadlines} на время выполнения каждого запроса.
+ */
+public final class StatementTimingProxy {
+
+    private StatementTimingProxy() {
+    }
+
+    /**
+     * Оборачивает источник данных.
+     *
+     * @param ds    исходный источник данных
+     * @param dsKey ключ источника данных для статистики
+     * @param stats     накопитель статистики
+     * @param deadlines ограничение времени запросов
+     * @return источник данных, измеряющий время запросов
+     */
+    public static DataSource wrap(DataSource ds, String dsKey, StatementStats stats, QueryDeadlines deadlines) {
+        return proxy(DataSource.class, new DataSourceHandler(ds, dsKey, stats, deadlines));
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(StatementTimingProxy.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    /**
+     * Базовый обработчик: равенство по идентичности прокси и проброс исключений драйвера без обертки.
+     */
+    private abstract static class Handler implements InvocationHandler {
+        protected final Object target;
+        protected final String dsKey;
+        protected final StatementStats stats;
+        protected final QueryDeadlines deadlines;
+
+        private Handler(Object target, String dsKey, StatementStats stats, QueryDeadlines deadlines) {
+            this.target = target;
+            this.dsKey = dsKey;
+            this.stats = stats;
+            this.deadlines = deadlines;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    if (args != null && args.length == 1 && method.getParameterTypes()[0] == Object.class) {
+                        return proxy == args[0];
+                    }
+                    break;
+                case "hashCode":
+                    if (args == null || args.length == 0) {
+                        return System.identityHashCode(proxy);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            return handle(proxy, method, args);
+        }
+
+        protected abstract Object handle(Object proxy, Method method, Object[] args) throws Throwable;
+
+        protected Object forward(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private static final class DataSourceHandler extends Handler {
+
+        private DataSourceHandler(DataSource target, String dsKey, StatementStats stats, QueryDeadlines deadlines) {
+            super(target, dsKey, stats, deadlines);
+        }
+
+        @Override
+        protected Object handle(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!"getConnection".equals(method.getName())) {
+                return forward(method, args);
+            }
+            long startedAt = System.nanoTime();
+            Connection connection = (Connection) forward(method, args);
+            if (stats.isEnabled()) {
+                stats.recordAcquire(dsKey, System.nanoTime() - startedAt);
+            }
+            return proxy(Connection.class, new ConnectionHandler(connection, dsKey, stats, deadlines));
+        }
+    }
+
+    private static final class ConnectionHandler extends Handler {
+
+        private ConnectionHandler(Connection target, String dsKey, StatementStats stats, QueryDeadlines deadlines) {
+            super(target, dsKey, stats, deadlines);
+        }
+
+        @Override
+        protected Object handle(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "createStatement":
+                    return proxy(Statement.class, new StatementHandler(forward(method, args), (Connection) proxy,
+                            null, dsKey, stats, deadlines));
+                case "prepareStatement":
+                    return proxy(PreparedStatement.class, new StatementHandler(forward(method, args), (Connection) proxy,
+                            (String) args[0], dsKey, stats, deadlines));
+                case "prepareCall":
+                    return proxy(CallableStatement.class, new StatementHandler(forward(method, args), (Connection) proxy,
+                            (String) args[0], dsKey, stats, deadlines));
+                default:
+                    return forward(method, args);
+            }
+        }
+    }
+
+    private static final class StatementHandler extends Handler {
+        private final Connection connection;
+        private final String sql;
+        private String batchSql;
+
+        private StatementHandler(Object target, Connection connection, String sql, String dsKey, StatementStats stats,
+                                 QueryDeadlines deadlines) {
+            super(target, dsKey, stats, deadlines);
+            this.connection = connection;
+            this.sql = sql;
+        }
+
+        @Override
+        protected Object handle(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("getConnection".equals(name)) {
+                return connection;
+            }
+            if ("addBatch".equals(name) && args != null && args.length == 1 && batchSql == null) {
+                batchSql = (String) args[0];
+            }
+            if (!name.startsWith("execute")) {
+                return forward(method, args);
+            }
+
+            String executedSql = args != null && args.length > 0 && args[0] instanceof String text ? text
+                    : sql != null ? sql : batchSql;
+            Future<?> cancelTimer = deadlines.armStatement((Statement) target, dsKey);
+            long startedAt = System.nanoTime();
+            boolean success = false;
+            try {
+                Object result = forward(method, args);
+                success = true;
+                return result;
+            } finally {
+                if (cancelTimer != null) {
+                    cancelTimer.cancel(false);
+                }
+                if (stats.isEnabled()) {
+                    stats.recordExecution(dsKey, executedSql, System.nanoTime() - startedAt, success);
+                }
+            }
+        }
+    }
+}
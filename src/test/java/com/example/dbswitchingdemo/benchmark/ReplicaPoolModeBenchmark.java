@@ -0,0 +1,143 @@
+package com.example.dbswitchingdemo.benchmark;
+
+import com.example.dbswitchingdemo.dto.request.ClusterMemberDTO.MemberDTO;
+import com.example.dbswitchingdemo.util.MultiHostReplicaDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Бенчмарк режимов пулов реплик: пул на каждую реплику против общего пула со списком хостов.
+ * <p>
+ * Под нагрузкой чтений сравниваются прирост heap, число потоков JVM и число открытых соединений. Реплики
+ * задаются списком {@code bench.replica-hosts} ({@code host:port,...}); по умолчанию хост из {@code bench.jdbc-url}
+ * повторяется {@code bench.replicas} раз. Запуск: {@code ./gradlew test --tests '*ReplicaPoolModeBenchmark'
+ * -Dbench.jdbc-url=jdbc:postgresql://localhost:5433/postgres -Dbench.username=user -Dbench.password=pass
+ * [-Dbench.replicas=8] [-Dbench.clients=32] [-Dbench.seconds=10]}
+ */
+@EnabledIfSystemProperty(named = "bench.jdbc-url", matches = ".+")
+class ReplicaPoolModeBenchmark {
+
+    private static final int PER_MEMBER_POOL_SIZE = 10;
+    private static final int PER_MEMBER_MIN_IDLE = 2;
+    private static final int SHARED_POOL_SIZE = 20;
+    private static final int SHARED_MIN_IDLE = 2;
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void compareReplicaPoolModes(boolean sharedPool) throws Exception {
+        URI uri = URI.create(System.getProperty("bench.jdbc-url").substring("jdbc:".length()));
+        String databaseName = uri.getPath().substring(1);
+        List<MemberDTO> replicas = replicas(uri);
+        int clients = Integer.getInteger("bench.clients", 32);
+        long seconds = Long.getLong("bench.seconds", 10L);
+
+        System.gc();
+        long heapBefore = usedHeap();
+        int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+
+        List<HikariDataSource> pools = new ArrayList<>();
+        MultiHostReplicaDataSource hostList = null;
+        try {
+            if (sharedPool) {
+                hostList = new MultiHostReplicaDataSource(databaseName, System.getProperty("bench.username"),
+                        System.getProperty("bench.password"), "preferSecondary", true, 10);
+                hostList.setHosts(replicas);
+                HikariDataSource pool = new HikariDataSource();
+                pool.setDataSource(hostList);
+                pool.setPoolName("bench-shared");
+                pool.setMaximumPoolSize(SHARED_POOL_SIZE);
+                pool.setMinimumIdle(SHARED_MIN_IDLE);
+                pools.add(pool);
+            } else {
+                for (int i = 0; i < replicas.size(); i++) {
+                    MemberDTO replica = replicas.get(i);
+                    HikariDataSource pool = new HikariDataSource();
+                    pool.setJdbcUrl("jdbc:postgresql://%s:%d/%s".formatted(replica.getHost(), replica.getPort(), databaseName));
+                    pool.setUsername(System.getProperty("bench.username"));
+                    pool.setPassword(System.getProperty("bench.password"));
+                    pool.setPoolName("bench-member-" + i);
+                    pool.setMaximumPoolSize(PER_MEMBER_POOL_SIZE);
+                    pool.setMinimumIdle(PER_MEMBER_MIN_IDLE);
+                    pools.add(pool);
+                }
+            }
+
+            long queries = runReads(pools, clients, seconds);
+            int totalConnections = pools.stream().mapToInt(pool -> pool.getHikariPoolMXBean().getTotalConnections()).sum();
+            int threadsUnderLoad = ManagementFactory.getThreadMXBean().getThreadCount();
+            System.gc();
+            long heapAfter = usedHeap();
+
+            System.out.printf("%s, %d replicas: %d pools, %d connections%s, +%d JVM threads, heap +%.1f MB, %.0f queries/s%n",
+                    sharedPool ? "shared pool" : "per-member pools", replicas.size(), pools.size(), totalConnections,
+                    hostList != null ? " " + hostList.getConnectionsByHost() : "", threadsUnderLoad - threadsBefore,
+                    (heapAfter - heapBefore) / 1e6, queries / (double) seconds);
+            assertThat(queries).isPositive();
+        } finally {
+            pools.forEach(HikariDataSource::close);
+        }
+    }
+
+    private static long runReads(List<HikariDataSource> pools, int clients, long seconds) throws InterruptedException {
+        LongAdder queries = new LongAdder();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        for (int i = 0; i < clients; i++) {
+            executor.execute(() -> {
+                while (System.nanoTime() < deadline) {
+                    HikariDataSource pool = pools.get(ThreadLocalRandom.current().nextInt(pools.size()));
+                    try (Connection connection = pool.getConnection();
+                         Statement statement = connection.createStatement();
+                         ResultSet rs = statement.executeQuery("SELECT 1")) {
+                        rs.next();
+                        queries.increment();
+                    } catch (Exception e) {
+                        // ошибка отдельного запроса не останавливает нагрузку
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(seconds + 30, TimeUnit.SECONDS);
+        return queries.sum();
+    }
+
+    private static List<MemberDTO> replicas(URI uri) {
+        String hosts = System.getProperty("bench.replica-hosts");
+        List<String> hostKeys = hosts != null && !hosts.isBlank()
+                ? Arrays.asList(hosts.split(","))
+                : Collections.nCopies(Integer.getInteger("bench.replicas", 8), uri.getHost() + ":" + uri.getPort());
+        return hostKeys.stream().map(hostKey -> {
+            String[] parts = hostKey.trim().split(":");
+            MemberDTO member = new MemberDTO();
+            member.setName(hostKey.trim());
+            member.setRole("replica");
+            member.setHost(parts[0]);
+            member.setPort(Integer.parseInt(parts[1]));
+            return member;
+        }).toList();
+    }
+
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
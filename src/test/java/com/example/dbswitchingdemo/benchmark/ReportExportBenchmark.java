@@ -0,0 +1,152 @@
+package com.example.dbswitchingdemo.benchmark;
+
+import com.example.dbswitchingdemo.DbSwitchingDemoApplication;
+import com.example.dbswitchingdemo.dto.TopologySnapshotDTO;
+import com.example.dbswitchingdemo.dto.request.ClusterMemberDTO.MemberDTO;
+import com.example.dbswitchingdemo.enums.ExportFormat;
+import com.example.dbswitchingdemo.service.DynamicDatabaseService;
+import com.example.dbswitchingdemo.service.ReadRetryService;
+import com.example.dbswitchingdemo.util.DataSourceManager;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Бенчмарк потоковой выгрузки: пропускная способность и пиковый heap при выгрузке 10M строк.
+ * <p>
+ * Выгрузка идет через {@code /api/v1/reports/{report}/export} запущенного приложения: реплика из восстановленной
+ * топологии, ее пул Hikari, лимит класса {@code REPORT} и запись ответа через {@code StreamingResponseBody}.
+ * Leader берется из {@code bench.jdbc-url}, реплика — тот же сервер под другим именем хоста
+ * ({@code bench.replica-host}, по умолчанию {@code 127.0.0.1} или {@code localhost}), чтобы ключи источников
+ * данных различались. Запуск: {@code ./gradlew test --tests '*ReportExportBenchmark'
+ * -Dbench.jdbc-url=jdbc:postgresql://localhost:5433/postgres -Dbench.username=user -Dbench.password=pass
+ * [-Dbench.replica-host=127.0.0.1] [-Dbench.rows=10000000]}
+ */
+@EnabledIfSystemProperty(named = "bench.jdbc-url", matches = ".+")
+class ReportExportBenchmark {
+
+    private static final String REPORT = "bench";
+    private static final String QUERY = "SELECT g AS id, 'member-' || g AS name, "
+            + "now() - (g || ' seconds')::interval AS created_at, g * 0.5 AS amount FROM generate_series(1, %d) AS g";
+
+    @TempDir
+    static Path tempDir;
+
+    private static ConfigurableApplicationContext context;
+
+    @BeforeAll
+    static void startApplication() throws Exception {
+        URI uri = URI.create(System.getProperty("bench.jdbc-url").substring("jdbc:".length()));
+        MemberDTO leader = member("bench-leader", "leader", uri.getHost(), uri.getPort());
+        MemberDTO replica = member("bench-replica", "replica", System.getProperty("bench.replica-host",
+                "127.0.0.1".equals(uri.getHost()) ? "localhost" : "127.0.0.1"), uri.getPort());
+
+        Path topologyFile = tempDir.resolve("topology.json");
+        new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .writeValue(topologyFile.toFile(), new TopologySnapshotDTO(1, 1, Instant.now(),
+                        List.of(leader, replica), DataSourceManager.buildUniqueKey(leader)));
+
+        context = SpringApplication.run(DbSwitchingDemoApplication.class,
+                "--server.port=0",
+                "--spring.datasource.username=" + System.getProperty("bench.username"),
+                "--spring.datasource.password=" + System.getProperty("bench.password"),
+                "--spring.datasource.name=" + uri.getPath().substring(1),
+                "--app.topology-store.path=" + topologyFile,
+                "--app.export.queries." + REPORT + "=" + QUERY.formatted(Long.getLong("bench.rows", 10_000_000L)));
+
+        String replicaKey = DataSourceManager.buildUniqueKey(replica);
+        DynamicDatabaseService dsService = context.getBean(DynamicDatabaseService.class);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!dsService.getActivePool().containsKey(replicaKey) && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(100);
+        }
+        assertThat(dsService.getActivePool()).containsKey(replicaKey);
+    }
+
+    @AfterAll
+    static void stopApplication() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(ExportFormat.class)
+    void exportTenMillionRows(ExportFormat format) throws Exception {
+        long expectedRows = Long.getLong("bench.rows", 10_000_000L);
+        ReadRetryService readRetry = context.getBean(ReadRetryService.class);
+        long leaderReadsBefore = readRetry.getStats().getLeaderReads();
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        System.gc();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        long heapBefore = usedHeap();
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:%s/api/v1/reports/%s/export?format=%s"
+                .formatted(context.getEnvironment().getProperty("local.server.port"), REPORT, format))).build();
+        long startedAt = System.nanoTime();
+        HttpResponse<InputStream> response = HttpClient.newHttpClient()
+                .send(request, HttpResponse.BodyHandlers.ofInputStream());
+        long bytes = 0;
+        long lines = 0;
+        try (InputStream body = response.body()) {
+            byte[] buffer = new byte[64 * 1024];
+            for (int read; (read = body.read(buffer)) != -1; ) {
+                bytes += read;
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] == '\n') {
+                        lines++;
+                    }
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        long rows = format == ExportFormat.CSV ? lines - 1 : lines;
+
+        System.out.printf("%s: %d rows, %.1f MB in %.2f s -> %.0f rows/s, %.1f MB/s; heap before %.1f MB, peak %.1f MB%n",
+                format, rows, bytes / 1e6, seconds, rows / seconds, bytes / 1e6 / seconds,
+                heapBefore / 1e6, peakHeap / 1e6);
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(rows).isEqualTo(expectedRows);
+        assertThat(readRetry.getStats().getLeaderReads()).isEqualTo(leaderReadsBefore);
+    }
+
+    private static MemberDTO member(String name, String role, String host, int port) {
+        MemberDTO member = new MemberDTO();
+        member.setName(name);
+        member.setRole(role);
+        member.setHost(host);
+        member.setPort(port);
+        return member;
+    }
+
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
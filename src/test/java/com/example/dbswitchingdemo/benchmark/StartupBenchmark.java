@@ -0,0 +1,74 @@
+package com.example.dbswitchingdemo.benchmark;
+
+import com.example.dbswitchingdemo.DbSwitchingDemoApplication;
+import com.example.dbswitchingdemo.config.MultiRoutingDataSource;
+import com.example.dbswitchingdemo.dto.TopologySnapshotDTO;
+import com.example.dbswitchingdemo.dto.request.ClusterMemberDTO.MemberDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Бенчмарк холодного старта: время до готовности контекста и до первого запроса на реальный источник данных.
+ * <p>
+ * Топология для восстановления берется из {@code bench.jdbc-url}, поэтому первый запрос идет на восстановленный пул
+ * без внешнего вызова {@code /refresh}. Запуск: {@code ./gradlew test --tests '*StartupBenchmark'
+ * -Dbench.jdbc-url=jdbc:postgresql://localhost:5433/postgres -Dbench.username=user -Dbench.password=pass}.
+ * Для сравнения с AppCDS запустите приложение из {@code cdsArchive} и сравните строку
+ * {@code First query routed to ...} в логе.
+ */
+@EnabledIfSystemProperty(named = "bench.jdbc-url", matches = ".+")
+class StartupBenchmark {
+
+    @TempDir
+    Path tempDir;
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void timeToFirstRoutedQuery(boolean backgroundBootstrap) throws Exception {
+        URI uri = URI.create(System.getProperty("bench.jdbc-url").substring("jdbc:".length()));
+        MemberDTO leader = new MemberDTO();
+        leader.setName("bench");
+        leader.setRole("leader");
+        leader.setHost(uri.getHost());
+        leader.setPort(uri.getPort());
+
+        Path topologyFile = tempDir.resolve("topology.json");
+        new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .writeValue(topologyFile.toFile(), new TopologySnapshotDTO(1, 1, Instant.now(), List.of(leader), null));
+
+        long startedAt = System.nanoTime();
+        try (ConfigurableApplicationContext context = SpringApplication.run(DbSwitchingDemoApplication.class,
+                "--server.port=0",
+                "--spring.datasource.username=" + System.getProperty("bench.username"),
+                "--spring.datasource.password=" + System.getProperty("bench.password"),
+                "--spring.datasource.name=" + uri.getPath().substring(1),
+                "--app.topology-store.path=" + topologyFile,
+                "--app.jpa.background-bootstrap=" + backgroundBootstrap,
+                "--spring.data.jpa.repositories.bootstrap-mode=" + (backgroundBootstrap ? "deferred" : "default"))) {
+            long readyMs = (System.nanoTime() - startedAt) / 1_000_000;
+            new JdbcTemplate(context.getBean(MultiRoutingDataSource.class)).queryForObject("SELECT 1", Integer.class);
+            long firstQueryMs = (System.nanoTime() - startedAt) / 1_000_000;
+
+            System.out.printf("background-bootstrap=%s: context ready in %d ms, first routed query after %d ms "
+                            + "(JVM uptime at first routed query %d ms)%n", backgroundBootstrap, readyMs, firstQueryMs,
+                    context.getBean(MultiRoutingDataSource.class).getFirstRoutedQueryUptimeMs());
+            assertThat(context.getBean(MultiRoutingDataSource.class).getFirstRoutedQueryUptimeMs()).isPositive();
+        }
+    }
+}
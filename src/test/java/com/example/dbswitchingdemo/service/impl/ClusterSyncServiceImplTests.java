@@ -0,0 +1,196 @@
+package com.example.dbswitchingdemo.service.impl;
+
+import com.example.dbswitchingdemo.config.ClusterSyncProperties;
+import com.example.dbswitchingdemo.config.DataSourceProperties;
+import com.example.dbswitchingdemo.dto.DataSourceDTO;
+import com.example.dbswitchingdemo.dto.TopologyChangeDTO;
+import com.example.dbswitchingdemo.dto.request.ClusterMemberDTO.MemberDTO;
+import com.example.dbswitchingdemo.service.DynamicDatabaseService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Проверка распространения изменений топологии через LISTEN/NOTIFY на локальном PostgreSQL.
+ * <p>
+ * Запуск: {@code ./gradlew test --tests '*ClusterSyncServiceImplTests' -Dbench.jdbc-url=jdbc:postgresql://localhost:5432/postgres
+ * -Dbench.username=user -Dbench.password=pass}
+ */
+@EnabledIfSystemProperty(named = "bench.jdbc-url", matches = ".+")
+class ClusterSyncServiceImplTests {
+
+    private final String channel = "topology_changes_test_" + ThreadLocalRandom.current().nextInt(1_000_000);
+    private final BlockingQueue<TopologyChangeDTO> receivedByA = new LinkedBlockingQueue<>();
+    private final BlockingQueue<TopologyChangeDTO> receivedByB = new LinkedBlockingQueue<>();
+
+    private HikariDataSource leader;
+    private ClusterSyncServiceImpl instanceA;
+    private ClusterSyncServiceImpl instanceB;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        leader = new HikariDataSource();
+        leader.setJdbcUrl(System.getProperty("bench.jdbc-url"));
+        leader.setUsername(System.getProperty("bench.username"));
+        leader.setPassword(System.getProperty("bench.password"));
+
+        DynamicDatabaseService dsService = mock(DynamicDatabaseService.class);
+        when(dsService.getActivePool()).thenReturn(Map.of("leader:5432",
+                new DataSourceDTO(leader, "leader:5432", "postgres", "leader", 5432, "leader")));
+
+        instanceA = createInstance("instance-a", dsService, receivedByA);
+        instanceB = createInstance("instance-b", dsService, receivedByB);
+        instanceA.start();
+        instanceB.start();
+        awaitListening(instanceA);
+        awaitListening(instanceB);
+    }
+
+    @AfterEach
+    void tearDown() {
+        instanceA.stop();
+        instanceB.stop();
+        leader.close();
+    }
+
+    @Test
+    void changesAreAppliedOnceAndInEpochOrder() throws Exception {
+        MemberDTO member = new MemberDTO();
+        member.setHost("10.0.0.2");
+        member.setPort(5432);
+        member.setRole("replica");
+
+        instanceA.publish("refresh", List.of(member), null);
+        TopologyChangeDTO refresh = receivedByB.poll(5, TimeUnit.SECONDS);
+        assertThat(refresh).isNotNull();
+        assertThat(refresh.getOrigin()).isEqualTo("instance-a");
+        assertThat(refresh.getOperation()).isEqualTo("refresh");
+        assertThat(refresh.getMembers()).extracting(MemberDTO::getHost).containsExactly("10.0.0.2");
+
+        instanceA.publish("switch", null, "10.0.0.2:5432");
+        TopologyChangeDTO change = receivedByB.poll(5, TimeUnit.SECONDS);
+        assertThat(change).isNotNull();
+        assertThat(change.getEpoch()).isGreaterThan(refresh.getEpoch());
+        assertThat(change.getRoutingKey()).isEqualTo("10.0.0.2:5432");
+
+        // повтор старой записи (дубликат или запоздавшее уведомление) не применяется
+        long ignoredBefore = instanceB.getStats().getIgnored();
+        renotify(refresh.getEpoch());
+        assertThat(receivedByB.poll(2, TimeUnit.SECONDS)).isNull();
+        assertThat(instanceB.getStats().getIgnored()).isGreaterThan(ignoredBefore);
+
+        // собственные изменения экземпляр не применяет повторно, но сдвигает по ним эпоху
+        awaitEpoch(instanceA, change.getEpoch());
+        assertThat(receivedByA).isEmpty();
+        assertThat(instanceA.getStats().getLastEpoch()).isEqualTo(change.getEpoch());
+    }
+
+    @Test
+    void concurrentPublishersAreNotLost() throws Exception {
+        int perInstance = 20;
+        ExecutorService publishers = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < perInstance; i++) {
+            String routingKey = "key-" + i;
+            futures.add(publishers.submit(() -> instanceA.publish("switch", null, "a-" + routingKey)));
+            futures.add(publishers.submit(() -> instanceB.publish("switch", null, "b-" + routingKey)));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        publishers.shutdown();
+
+        List<TopologyChangeDTO> fromA = drain(receivedByB, perInstance);
+        List<TopologyChangeDTO> fromB = drain(receivedByA, perInstance);
+
+        // каждое изменение другого экземпляра применено ровно один раз и в порядке эпох
+        assertThat(fromA).hasSize(perInstance).allMatch(change -> "instance-a".equals(change.getOrigin()));
+        assertThat(fromB).hasSize(perInstance).allMatch(change -> "instance-b".equals(change.getOrigin()));
+        assertThat(fromA).extracting(TopologyChangeDTO::getEpoch).isSorted().doesNotHaveDuplicates();
+        assertThat(fromB).extracting(TopologyChangeDTO::getEpoch).isSorted().doesNotHaveDuplicates();
+        assertThat(instanceA.getStats().getIgnored()).isZero();
+        assertThat(instanceB.getStats().getIgnored()).isZero();
+    }
+
+    private ClusterSyncServiceImpl createInstance(String instanceId, DynamicDatabaseService dsService,
+                                                  BlockingQueue<TopologyChangeDTO> received) {
+        ClusterSyncProperties properties = new ClusterSyncProperties();
+        properties.setEnabled(true);
+        properties.setChannel(channel);
+        properties.setInstanceId(instanceId);
+
+        DataSourceProperties dsProperties = new DataSourceProperties();
+        dsProperties.setUsername(System.getProperty("bench.username"));
+        dsProperties.setPassword(System.getProperty("bench.password"));
+
+        ClusterSyncServiceImpl instance = new ClusterSyncServiceImpl(properties, dsProperties, dsService, new ObjectMapper());
+        instance.onRemoteChange(received::add);
+        return instance;
+    }
+
+    private void awaitListening(ClusterSyncServiceImpl instance) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (instance.getStats().getListeningOn() == null && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(50);
+        }
+        assertThat(instance.getStats().getListeningOn()).isNotNull();
+    }
+
+    private void awaitEpoch(ClusterSyncServiceImpl instance, long epoch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (instance.getStats().getLastEpoch() < epoch && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(20);
+        }
+    }
+
+    private static List<TopologyChangeDTO> drain(BlockingQueue<TopologyChangeDTO> received, int expected)
+            throws InterruptedException {
+        List<TopologyChangeDTO> changes = new ArrayList<>();
+        TopologyChangeDTO change;
+        while (changes.size() < expected && (change = received.poll(10, TimeUnit.SECONDS)) != null) {
+            changes.add(change);
+        }
+        // лишние изменения (повторы) тоже попадают в результат
+        while ((change = received.poll(500, TimeUnit.MILLISECONDS)) != null) {
+            changes.add(change);
+        }
+        return changes;
+    }
+
+    private void renotify(long epoch) throws Exception {
+        try (Connection connection = leader.getConnection();
+             PreparedStatement select = connection.prepareStatement(
+                     "SELECT payload FROM public.topology_change_log WHERE epoch = ?")) {
+            select.setLong(1, epoch);
+            try (ResultSet rs = select.executeQuery()) {
+                rs.next();
+                try (PreparedStatement notify = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+                    notify.setString(1, channel);
+                    notify.setString(2, rs.getString(1));
+                    notify.execute();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.dbswitchingdemo.service.impl;
+
+import com.example.dbswitchingdemo.config.DataSourceContextHolder;
+import com.example.dbswitchingdemo.config.ReadRetryProperties;
+import com.example.dbswitchingdemo.dto.DataSourceDTO;
+import com.example.dbswitchingdemo.service.AffinityRoutingService;
+import com.example.dbswitchingdemo.service.DynamicDatabaseService;
+import com.example.dbswitchingdemo.service.OffloadPolicyService;
+import com.example.dbswitchingdemo.service.SlowStartService;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Проверка повтора чтений на другой реплике после обрыва соединения без базы данных.
+ */
+class ReadRetryServiceImplTests {
+
+    private static final String LEADER = "leader:5432";
+    private static final String REPLICA_0 = "replica-0:5432";
+    private static final String REPLICA_1 = "replica-1:5432";
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final OffloadPolicyService offloadPolicy = mock(OffloadPolicyService.class);
+    private final ReadRetryServiceImpl readRetry = createReadRetry(transactionManager, offloadPolicy);
+
+    @Test
+    void readOnDroppedReplicaIsReissuedOnAnotherReplica() {
+        List<String> attempts = new ArrayList<>();
+
+        String result = readRetry.executeRead("test", () -> {
+            String dsKey = DataSourceContextHolder.getThreadDataSourceContext().orElseThrow();
+            attempts.add(dsKey);
+            if (attempts.size() == 1) {
+                throw connectionFailure();
+            }
+            return dsKey;
+        });
+
+        assertThat(attempts).hasSize(2).doesNotHaveDuplicates().containsOnly(REPLICA_0, REPLICA_1);
+        assertThat(result).isEqualTo(attempts.get(1));
+        assertThat(readRetry.getStats().getRetriesByKey()).containsOnlyKeys(attempts.get(0));
+        assertThat(DataSourceContextHolder.getThreadDataSourceContext()).isEmpty();
+    }
+
+    @Test
+    void readInsideWriteTransactionIsNotRetried() {
+        List<String> attempts = new ArrayList<>();
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertThatThrownBy(() -> readRetry.executeRead("test", () -> {
+                attempts.add(DataSourceContextHolder.getThreadDataSourceContext().orElse("transaction"));
+                throw connectionFailure();
+            })).isInstanceOf(IllegalStateException.class);
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+
+        assertThat(attempts).containsExactly("transaction");
+        assertThat(readRetry.getStats().getRetriesByKey()).isEmpty();
+        verify(transactionManager, never()).getTransaction(any());
+    }
+
+    @Test
+    void cursorOpenIsReissuedAfterConnectionFailureButNotAfterQueryError() throws Exception {
+        List<String> attempts = new ArrayList<>();
+
+        String result = readRetry.executeOnReplica("report", null, dsKey -> {
+            attempts.add(dsKey);
+            if (attempts.size() == 1) {
+                throw new SQLException("connection lost", "08006");
+            }
+            return dsKey;
+        });
+        assertThat(attempts).hasSize(2).doesNotHaveDuplicates();
+        assertThat(result).isEqualTo(attempts.get(1));
+
+        attempts.clear();
+        assertThatThrownBy(() -> readRetry.executeOnReplica("report", null, dsKey -> {
+            attempts.add(dsKey);
+            throw new SQLException("relation does not exist", "42P01");
+        })).isInstanceOf(SQLException.class).hasMessageContaining("relation");
+        assertThat(attempts).hasSize(1);
+        verify(transactionManager, never()).getTransaction(any());
+    }
+
+    @Test
+    void failureOnEveryReplicaExhaustsBudget() {
+        List<String> attempts = new ArrayList<>();
+
+        assertThatThrownBy(() -> readRetry.executeOnReplica("report", null, dsKey -> {
+            attempts.add(dsKey);
+            throw new SQLException("connection lost", "08006");
+        })).isInstanceOf(SQLException.class).hasMessageContaining("connection lost");
+
+        assertThat(attempts).containsExactlyInAnyOrder(REPLICA_0, REPLICA_1);
+        assertThat(readRetry.getStats().getExhausted()).isEqualTo(1);
+    }
+
+    @Test
+    void readKeptOnLeaderByOffloadPolicyIsNotRetried() {
+        when(offloadPolicy.offloadRead()).thenReturn(false);
+        List<String> attempts = new ArrayList<>();
+
+        assertThatThrownBy(() -> readRetry.executeOnReplica("report", null, dsKey -> {
+            attempts.add(dsKey);
+            throw new SQLException("connection lost", "08006");
+        })).isInstanceOf(SQLException.class);
+
+        assertThat(attempts).containsExactly(LEADER);
+        assertThat(readRetry.getStats().getLeaderReads()).isEqualTo(1);
+        assertThat(readRetry.getStats().getRetriesByKey()).isEmpty();
+    }
+
+    private static ReadRetryServiceImpl createReadRetry(PlatformTransactionManager transactionManager,
+                                                        OffloadPolicyService offloadPolicy) {
+        DynamicDatabaseService dsService = mock(DynamicDatabaseService.class);
+        when(dsService.getActivePool()).thenReturn(Map.of(
+                LEADER, new DataSourceDTO(null, LEADER, "postgres", "leader", 5432, "leader"),
+                REPLICA_0, new DataSourceDTO(null, REPLICA_0, "postgres", "replica-0", 5432, "replica"),
+                REPLICA_1, new DataSourceDTO(null, REPLICA_1, "postgres", "replica-1", 5432, "replica")));
+        when(offloadPolicy.offloadRead()).thenReturn(true);
+
+        ReadRetryProperties properties = new ReadRetryProperties();
+        properties.setBaseBackoff(Duration.ofMillis(1));
+        properties.setMaxBackoff(Duration.ofMillis(5));
+        return new ReadRetryServiceImpl(dsService, mock(AffinityRoutingService.class), offloadPolicy,
+                mock(SlowStartService.class), properties, transactionManager);
+    }
+
+    private static RuntimeException connectionFailure() {
+        return new IllegalStateException(new SQLException("connection lost", "08006"));
+    }
+}
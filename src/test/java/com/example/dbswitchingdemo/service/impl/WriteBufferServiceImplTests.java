@@ -0,0 +1,135 @@
+package com.example.dbswitchingdemo.service.impl;
+
+import com.example.dbswitchingdemo.config.DataSourceContextHolder;
+import com.example.dbswitchingdemo.config.WriteBufferProperties;
+import com.example.dbswitchingdemo.dto.DataSourceDTO;
+import com.example.dbswitchingdemo.enums.WriteMode;
+import com.example.dbswitchingdemo.exception.LeaderUnavailableException;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Проверка парковки, воспроизведения и повторов операций записи без базы данных.
+ */
+class WriteBufferServiceImplTests {
+
+    private static final DataSourceDTO LEADER = new DataSourceDTO(null, "leader:5432", "postgres", "leader", 5432, "leader");
+
+    @Test
+    void parkedWriteIsReplayedOnRegisteredLeader() throws Exception {
+        WriteBufferServiceImpl buffer = createBuffer(Duration.ofSeconds(10));
+
+        CompletableFuture<String> write = CompletableFuture.supplyAsync(() -> buffer.execute("test", WriteMode.BUFFERED,
+                () -> DataSourceContextHolder.getThreadDataSourceContext().orElse(null)));
+        awaitParked(buffer, 1);
+        assertThat(write).isNotDone();
+
+        buffer.onLeaderChanged(LEADER);
+
+        assertThat(write.get(5, TimeUnit.SECONDS)).isEqualTo("leader:5432");
+        assertThat(buffer.getStats().getParkedNow()).isZero();
+        assertThat(buffer.getStats().getReplayed()).isEqualTo(1);
+    }
+
+    @Test
+    void writeIsDroppedAtDeadlineAndNotReplayedLater() {
+        WriteBufferServiceImpl buffer = createBuffer(Duration.ofMillis(100));
+        AtomicInteger executed = new AtomicInteger();
+
+        assertThatThrownBy(() -> buffer.execute("test", WriteMode.BUFFERED, executed::incrementAndGet))
+                .isInstanceOf(LeaderUnavailableException.class);
+        buffer.onLeaderChanged(LEADER);
+
+        assertThat(executed).hasValue(0);
+        assertThat(buffer.getStats().getParkedNow()).isZero();
+        assertThat(buffer.getStats().getDroppedDeadline()).isEqualTo(1);
+    }
+
+    @Test
+    void leaderGrantedAtDeadlineRunsWriteExactlyOnceOrDropsIt() throws Exception {
+        for (int i = 0; i < 200; i++) {
+            WriteBufferServiceImpl buffer = createBuffer(Duration.ofMillis(20));
+            AtomicInteger executed = new AtomicInteger();
+
+            CompletableFuture<Integer> write = CompletableFuture.supplyAsync(() ->
+                    buffer.execute("test", WriteMode.BUFFERED, executed::incrementAndGet));
+            TimeUnit.MICROSECONDS.sleep(ThreadLocalRandom.current().nextLong(15_000, 25_000));
+            buffer.onLeaderChanged(LEADER);
+
+            try {
+                assertThat(write.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+                assertThat(buffer.getStats().getDroppedDeadline()).isZero();
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(LeaderUnavailableException.class);
+                assertThat(executed).hasValue(0);
+                assertThat(buffer.getStats().getDroppedDeadline()).isEqualTo(1);
+            }
+            assertThat(executed.get()).isLessThanOrEqualTo(1);
+            assertThat(buffer.getStats().getParkedNow()).isZero();
+        }
+    }
+
+    @Test
+    void idempotentWriteIsRetriedAfterConnectionFailure() {
+        WriteBufferServiceImpl buffer = createBuffer(Duration.ofSeconds(5));
+        buffer.onLeaderChanged(LEADER);
+        AtomicInteger attempts = new AtomicInteger();
+
+        Integer result = buffer.execute("test", WriteMode.IDEMPOTENT, () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw connectionFailure();
+            }
+            return attempts.get();
+        });
+
+        assertThat(result).isEqualTo(2);
+        assertThat(buffer.getStats().getRetried()).isEqualTo(1);
+    }
+
+    @Test
+    void bufferedWriteIsNotRetriedAfterConnectionFailure() {
+        WriteBufferServiceImpl buffer = createBuffer(Duration.ofSeconds(5));
+        buffer.onLeaderChanged(LEADER);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> buffer.execute("test", WriteMode.BUFFERED, () -> {
+            attempts.incrementAndGet();
+            throw connectionFailure();
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(attempts).hasValue(1);
+        assertThat(buffer.getStats().getRetried()).isZero();
+    }
+
+    private static WriteBufferServiceImpl createBuffer(Duration deadline) {
+        WriteBufferProperties properties = new WriteBufferProperties();
+        properties.setDeadline(deadline);
+        properties.setRetryBackoff(Duration.ofMillis(10));
+        WriteBufferServiceImpl buffer = new WriteBufferServiceImpl(properties);
+        ReflectionTestUtils.invokeMethod(buffer, "init");
+        return buffer;
+    }
+
+    private static void awaitParked(WriteBufferServiceImpl buffer, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (buffer.getStats().getParkedNow() < count && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertThat(buffer.getStats().getParkedNow()).isEqualTo(count);
+    }
+
+    private static RuntimeException connectionFailure() {
+        return new IllegalStateException(new SQLException("connection lost", "08006"));
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.dbswitchingdemo.util;
+
+import com.example.dbswitchingdemo.config.BulkheadProperties;
+import com.example.dbswitchingdemo.enums.WorkloadClass;
+import com.example.dbswitchingdemo.exception.BulkheadRejectedException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Проверка очереди по приоритету, вытеснения и возврата разрешений без базы данных.
+ */
+class BulkheadTests {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void fullQueueShedsLowerPriorityWaiter() throws Exception {
+        Bulkhead bulkhead = createBulkhead(1, 1, Duration.ofSeconds(5));
+        Connection held = bulkhead.acquire(WorkloadClass.OLTP, BulkheadTests::connection);
+
+        Future<Connection> report = executor.submit(() ->
+                bulkhead.acquire(WorkloadClass.REPORT, BulkheadTests::connection));
+        awaitWaiting(bulkhead, 1);
+        Future<Connection> oltp = executor.submit(() ->
+                bulkhead.acquire(WorkloadClass.OLTP, BulkheadTests::connection));
+
+        assertThatThrownBy(() -> report.get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(BulkheadRejectedException.class)
+                .hasMessageContaining("shed");
+        awaitWaiting(bulkhead, 1);
+        assertThatThrownBy(() -> bulkhead.acquire(WorkloadClass.REPORT, BulkheadTests::connection))
+                .isInstanceOf(BulkheadRejectedException.class)
+                .hasMessageContaining("queue is full");
+
+        held.close();
+        oltp.get(5, TimeUnit.SECONDS).close();
+        assertThat(bulkhead.getStats().getWorkloads().get(WorkloadClass.REPORT).getShed()).isEqualTo(2);
+        assertThat(bulkhead.getStats().getInUse()).isZero();
+    }
+
+    @Test
+    void releasedPermitsGoToWaitersInPriorityOrder() throws Exception {
+        Bulkhead bulkhead = createBulkhead(1, 8, Duration.ofSeconds(5));
+        Connection held = bulkhead.acquire(WorkloadClass.OLTP, BulkheadTests::connection);
+        ConcurrentLinkedQueue<WorkloadClass> granted = new ConcurrentLinkedQueue<>();
+
+        List<Future<?>> waiters = new ArrayList<>();
+        WorkloadClass[] arrival = {WorkloadClass.REPORT, WorkloadClass.ADMIN, WorkloadClass.OLTP};
+        for (int i = 0; i < arrival.length; i++) {
+            WorkloadClass workload = arrival[i];
+            waiters.add(executor.submit(() -> {
+                try (Connection ignored = bulkhead.acquire(workload, BulkheadTests::connection)) {
+                    granted.add(workload);
+                }
+                return null;
+            }));
+            awaitWaiting(bulkhead, i + 1);
+        }
+
+        held.close();
+        for (Future<?> waiter : waiters) {
+            waiter.get(5, TimeUnit.SECONDS);
+        }
+
+        assertThat(granted).containsExactly(WorkloadClass.OLTP, WorkloadClass.ADMIN, WorkloadClass.REPORT);
+        assertThat(bulkhead.getStats().getInUse()).isZero();
+    }
+
+    @Test
+    void waiterDoesNotTakeCapacityBeyondItsClassLimit() throws Exception {
+        BulkheadProperties properties = properties(8, Duration.ofSeconds(5));
+        properties.getReport().setMaxConcurrent(1);
+        Bulkhead bulkhead = new Bulkhead("test", 2, properties);
+        Connection report = bulkhead.acquire(WorkloadClass.REPORT, BulkheadTests::connection);
+        Connection oltp = bulkhead.acquire(WorkloadClass.OLTP, BulkheadTests::connection);
+
+        Future<Connection> secondReport = executor.submit(() ->
+                bulkhead.acquire(WorkloadClass.REPORT, BulkheadTests::connection));
+        awaitWaiting(bulkhead, 1);
+        oltp.close();
+
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertThat(secondReport).isNotDone();
+        report.close();
+        secondReport.get(5, TimeUnit.SECONDS).close();
+        assertThat(bulkhead.getStats().getInUse()).isZero();
+    }
+
+    @Test
+    void permitGrantedAtWaitDeadlineIsNeitherLostNorDoubled() throws Exception {
+        for (int i = 0; i < 200; i++) {
+            Bulkhead bulkhead = createBulkhead(1, 8, Duration.ofMillis(20));
+            Connection held = bulkhead.acquire(WorkloadClass.REPORT, BulkheadTests::connection);
+
+            Future<Connection> waiter = executor.submit(() ->
+                    bulkhead.acquire(WorkloadClass.REPORT, BulkheadTests::connection));
+            TimeUnit.MICROSECONDS.sleep(ThreadLocalRandom.current().nextLong(15_000, 25_000));
+            held.close();
+
+            try {
+                waiter.get(5, TimeUnit.SECONDS).close();
+            } catch (ExecutionException e) {
+                assertThat(e.getCause()).isInstanceOf(BulkheadRejectedException.class);
+            }
+            assertThat(bulkhead.getStats().getInUse()).isZero();
+            assertThat(bulkhead.getStats().getWaiting()).isZero();
+            bulkhead.acquire(WorkloadClass.REPORT, BulkheadTests::connection).close();
+        }
+    }
+
+    @Test
+    void permitIsReleasedOnceAndAlsoOnFailedAcquire() throws Exception {
+        Bulkhead bulkhead = createBulkhead(1, 8, Duration.ofMillis(50));
+        Connection physical = mock(Connection.class);
+        Connection connection = bulkhead.acquire(WorkloadClass.OLTP, () -> physical);
+
+        connection.close();
+        connection.close();
+        verify(physical, times(2)).close();
+        assertThat(bulkhead.getStats().getInUse()).isZero();
+
+        assertThatThrownBy(() -> bulkhead.acquire(WorkloadClass.OLTP, () -> {
+            throw new SQLException("connection refused", "08001");
+        })).isInstanceOf(SQLException.class);
+        assertThat(bulkhead.getStats().getInUse()).isZero();
+
+        Connection first = bulkhead.acquire(WorkloadClass.OLTP, BulkheadTests::connection);
+        assertThatThrownBy(() -> bulkhead.acquire(WorkloadClass.OLTP, BulkheadTests::connection))
+                .isInstanceOf(BulkheadRejectedException.class)
+                .hasMessageContaining("deadline");
+        first.close();
+    }
+
+    @Test
+    void reservationWaitsForAllPermitsInsteadOfHoldingPart() throws Exception {
+        BulkheadProperties properties = properties(8, Duration.ofSeconds(5));
+        properties.getReport().setMaxConcurrent(3);
+        Bulkhead bulkhead = new Bulkhead("test", 10, properties);
+
+        Bulkhead.Reservation first = bulkhead.reserve(WorkloadClass.REPORT, 2);
+        Connection coordinator = first.acquire(BulkheadTests::connection);
+        Future<Bulkhead.Reservation> second = executor.submit(() -> bulkhead.reserve(WorkloadClass.REPORT, 2));
+        awaitWaiting(bulkhead, 1);
+        assertThat(bulkhead.getStats().getWorkloads().get(WorkloadClass.REPORT).getInUse()).isEqualTo(2);
+
+        // первая выгрузка получает рабочее соединение по своему резервированию, не вставая в очередь
+        Connection worker = first.acquire(BulkheadTests::connection);
+        assertThatThrownBy(() -> first.acquire(BulkheadTests::connection)).isInstanceOf(SQLException.class);
+        worker.close();
+        coordinator.close();
+        first.close();
+
+        Bulkhead.Reservation granted = second.get(5, TimeUnit.SECONDS);
+        assertThat(bulkhead.getStats().getWorkloads().get(WorkloadClass.REPORT).getInUse()).isEqualTo(2);
+        granted.close();
+        assertThat(bulkhead.getStats().getInUse()).isZero();
+    }
+
+    @Test
+    void queuedReservationIsNotOvertakenBySameClassAndUnusedPermitsReturnOnClose() throws Exception {
+        BulkheadProperties properties = properties(8, Duration.ofSeconds(5));
+        properties.getReport().setMaxConcurrent(3);
+        Bulkhead bulkhead = new Bulkhead("test", 10, properties);
+        Connection held = bulkhead.acquire(WorkloadClass.REPORT, BulkheadTests::connection);
+        Connection other = bulkhead.acquire(WorkloadClass.REPORT, BulkheadTests::connection);
+
+        Future<Bulkhead.Reservation> reservation = executor.submit(() -> bulkhead.reserve(WorkloadClass.REPORT, 3));
+        awaitWaiting(bulkhead, 1);
+        Future<Connection> single = executor.submit(() ->
+                bulkhead.acquire(WorkloadClass.REPORT, BulkheadTests::connection));
+        awaitWaiting(bulkhead, 2);
+
+        held.close();
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertThat(single).isNotDone();
+        other.close();
+
+        Bulkhead.Reservation granted = reservation.get(5, TimeUnit.SECONDS);
+        assertThat(single).isNotDone();
+        granted.acquire(BulkheadTests::connection).close();
+        granted.close();
+        single.get(5, TimeUnit.SECONDS).close();
+        assertThat(bulkhead.getStats().getInUse()).isZero();
+    }
+
+    @Test
+    void reservationAboveClassLimitIsRejected() {
+        BulkheadProperties properties = properties(8, Duration.ofSeconds(5));
+        properties.getReport().setMaxConcurrent(2);
+        Bulkhead bulkhead = new Bulkhead("test", 10, properties);
+
+        assertThatThrownBy(() -> bulkhead.reserve(WorkloadClass.REPORT, 3))
+                .isInstanceOf(BulkheadRejectedException.class);
+        assertThat(bulkhead.getStats().getInUse()).isZero();
+    }
+
+    private static Bulkhead createBulkhead(int capacity, int queueCapacity, Duration maxWait) {
+        return new Bulkhead("test", capacity, properties(queueCapacity, maxWait));
+    }
+
+    private static BulkheadProperties properties(int queueCapacity, Duration maxWait) {
+        BulkheadProperties properties = new BulkheadProperties();
+        properties.setQueueCapacity(queueCapacity);
+        properties.setOltp(new BulkheadProperties.Limit(0, maxWait));
+        properties.setAdmin(new BulkheadProperties.Limit(0, maxWait));
+        properties.setReport(new BulkheadProperties.Limit(0, maxWait));
+        return properties;
+    }
+
+    private static Connection connection() {
+        return mock(Connection.class);
+    }
+
+    private static void awaitWaiting(Bulkhead bulkhead, int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (bulkhead.getStats().getWaiting() < count && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertThat(bulkhead.getStats().getWaiting()).isEqualTo(count);
+    }
+}
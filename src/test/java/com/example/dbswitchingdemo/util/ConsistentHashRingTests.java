@@ -0,0 +1,108 @@
+package com.example.dbswitchingdemo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Проверка распределения ключей и их перемещения при изменении набора узлов.
+ */
+class ConsistentHashRingTests {
+
+    private static final int VIRTUAL_NODES = 160;
+    private static final int KEYS = 20_000;
+    private static final List<String> NODES = List.of("replica-0:5432", "replica-1:5432", "replica-2:5432",
+            "replica-3:5432");
+
+    @Test
+    void addingNodeMovesAboutOneNthOfKeysAndOnlyToIt() {
+        ConsistentHashRing before = ConsistentHashRing.build(NODES, VIRTUAL_NODES);
+        ConsistentHashRing after = ConsistentHashRing.build(List.of("replica-0:5432", "replica-1:5432",
+                "replica-2:5432", "replica-3:5432", "replica-4:5432"), VIRTUAL_NODES);
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "customer-" + i;
+            String owner = after.owner(key);
+            if (!owner.equals(before.owner(key))) {
+                moved++;
+                assertThat(owner).isEqualTo("replica-4:5432");
+            }
+        }
+        assertThat((double) moved / KEYS).isCloseTo(1.0 / 5, within(0.05));
+    }
+
+    @Test
+    void removingNodeMovesOnlyItsKeys() {
+        ConsistentHashRing before = ConsistentHashRing.build(NODES, VIRTUAL_NODES);
+        ConsistentHashRing after = ConsistentHashRing.build(NODES.subList(0, 3), VIRTUAL_NODES);
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "customer-" + i;
+            String owner = before.owner(key);
+            if (owner.equals("replica-3:5432")) {
+                moved++;
+            } else {
+                assertThat(after.owner(key)).isEqualTo(owner);
+            }
+        }
+        assertThat((double) moved / KEYS).isCloseTo(1.0 / 4, within(0.05));
+    }
+
+    @Test
+    void keysAreSpreadEvenlyAndRingDoesNotDependOnNodeOrder() {
+        ConsistentHashRing ring = ConsistentHashRing.build(NODES, VIRTUAL_NODES);
+        ConsistentHashRing reversed = ConsistentHashRing.build(List.of("replica-3:5432", "replica-2:5432",
+                "replica-1:5432", "replica-0:5432"), VIRTUAL_NODES);
+
+        Map<String, Integer> owned = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            String key = "customer-" + i;
+            owned.merge(ring.owner(key), 1, Integer::sum);
+            assertThat(reversed.owner(key)).isEqualTo(ring.owner(key));
+        }
+        assertThat(owned).containsOnlyKeys(NODES);
+        owned.values().forEach(count -> assertThat((double) count / KEYS).isCloseTo(1.0 / 4, within(0.06)));
+    }
+
+    @Test
+    void routeSkipsIneligibleNodesInRingOrder() {
+        ConsistentHashRing ring = ConsistentHashRing.build(NODES, VIRTUAL_NODES);
+
+        for (int i = 0; i < 1_000; i++) {
+            String key = "customer-" + i;
+            String owner = ring.owner(key);
+            assertThat(ring.route(key, node -> true)).isEqualTo(owner);
+
+            String fallback = ring.route(key, node -> !node.equals(owner));
+            assertThat(fallback).isNotNull().isNotEqualTo(owner);
+            // без владельца ключ уходит туда же, куда и после удаления владельца из кольца
+            List<String> rest = NODES.stream().filter(node -> !node.equals(owner)).toList();
+            assertThat(ConsistentHashRing.build(rest, VIRTUAL_NODES).owner(key)).isEqualTo(fallback);
+        }
+        assertThat(ring.route("customer-0", node -> false)).isNull();
+        assertThat(ConsistentHashRing.empty().route("customer-0", node -> true)).isNull();
+        assertThat(ConsistentHashRing.build(Set.of(), VIRTUAL_NODES).owner("customer-0")).isNull();
+    }
+
+    @Test
+    void fractionIsStableAndUniform() {
+        int below = 0;
+        for (int i = 0; i < KEYS; i++) {
+            double fraction = ConsistentHashRing.fraction("customer-" + i);
+            assertThat(fraction).isGreaterThanOrEqualTo(0.0).isLessThan(1.0);
+            assertThat(ConsistentHashRing.fraction("customer-" + i)).isEqualTo(fraction);
+            if (fraction < 0.25) {
+                below++;
+            }
+        }
+        assertThat((double) below / KEYS).isCloseTo(0.25, within(0.02));
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.dbswitchingdemo.util;
+
+import com.example.dbswitchingdemo.enums.SqlRoute;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверка разбора запросов на чтения для реплик и все остальное.
+ */
+class SqlRouteClassifierTests {
+
+    private final SqlRouteClassifier classifier = new SqlRouteClassifier(Set.of("nextval", "setval"), 16);
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "SELECT id, switch_time FROM public.database_switch_log ORDER BY id",
+            "select updated_at, for_update FROM t",
+            "SELECT 1",
+            "WITH recent AS (SELECT * FROM t WHERE id > ?) SELECT count(*) FROM recent",
+            "(SELECT id FROM a) UNION ALL (SELECT id FROM b)",
+            "VALUES (1), (2)",
+            "TABLE public.database_switch_log",
+            "SHOW transaction_isolation",
+            "SELECT * FROM t WHERE note = 'for update' AND tag = 'it''s; delete'",
+            "SELECT \"update\", \"insert\" FROM t",
+            "/* DELETE FROM t */ SELECT * FROM t",
+            "-- update t set x = 1\nSELECT * FROM t",
+            "SELECT $$DELETE FROM t$$ AS text FROM t",
+            "SELECT $body$ FOR UPDATE $body$ FROM t",
+            "SELECT * FROM t WHERE id = $1 AND name = $2",
+            "SELECT lower(name) FROM t"
+    })
+    void readsGoToReplica(String sql) {
+        assertThat(classifier.classify(sql)).isEqualTo(SqlRoute.READ);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "INSERT INTO t (id) VALUES (1)",
+            "UPDATE t SET x = 1",
+            "DELETE FROM t",
+            "CREATE TABLE t (id int)",
+            "CALL refresh_report()",
+            "{call refresh_report(?)}",
+            "  {? = call next_id()}",
+            "SELECT * FROM t WHERE id = ? FOR UPDATE",
+            "SELECT * FROM t FOR NO KEY UPDATE",
+            "SELECT * FROM t FOR SHARE",
+            "SELECT * FROM t FOR KEY SHARE SKIP LOCKED",
+            "SELECT * INTO t_copy FROM t",
+            "SELECT nextval('seq')",
+            "SELECT NEXTVAL ('seq'), id FROM t",
+            "SELECT now()",
+            "WITH moved AS (DELETE FROM t WHERE id < ? RETURNING *) SELECT count(*) FROM moved",
+            "WITH ins AS (INSERT INTO t (id) VALUES (1) RETURNING id) SELECT id FROM ins",
+            "/* SELECT */ UPDATE t SET x = 1",
+            "-- SELECT\nDELETE FROM t",
+            "",
+            "   "
+    })
+    void everythingElseGoesToLeader(String sql) {
+        assertThat(classifier.classify(sql)).isEqualTo(SqlRoute.WRITE);
+    }
+
+    @Test
+    void unterminatedCommentsAndQuotesDoNotHideTheStatement() {
+        assertThat(classifier.classify("SELECT * FROM t /* FOR UPDATE")).isEqualTo(SqlRoute.READ);
+        assertThat(classifier.classify("SELECT * FROM t WHERE a = 'FOR UPDATE")).isEqualTo(SqlRoute.READ);
+        assertThat(classifier.classify("DELETE FROM t WHERE a = $tag$")).isEqualTo(SqlRoute.WRITE);
+    }
+
+    @Test
+    void repeatedStatementIsParsedOnceAndCacheIsBounded() {
+        SqlRouteClassifier small = new SqlRouteClassifier(Set.of(), 1);
+
+        small.classify("SELECT * FROM a");
+        small.classify("SELECT * FROM a");
+        assertThat(small.getMisses()).isEqualTo(1);
+
+        assertThat(small.classify("UPDATE a SET x = 1")).isEqualTo(SqlRoute.WRITE);
+        assertThat(small.classify("UPDATE a SET x = 1")).isEqualTo(SqlRoute.WRITE);
+        assertThat(small.getMisses()).isEqualTo(3);
+        assertThat(small.getCachedStatements()).isEqualTo(1);
+    }
+}
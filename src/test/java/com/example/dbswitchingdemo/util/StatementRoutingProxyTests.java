@@ -0,0 +1,77 @@
+package com.example.dbswitchingdemo.util;
+
+import com.example.dbswitchingdemo.config.MultiRoutingDataSource;
+import com.example.dbswitchingdemo.config.StatementRouter;
+import com.example.dbswitchingdemo.enums.WorkloadClass;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.sql.Connection;
+
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Проверка выбора и режима фиксации физических соединений логического соединения без базы данных.
+ */
+class StatementRoutingProxyTests {
+
+    private static final String LEADER = "leader:5432";
+    private static final String REPLICA = "replica:5432";
+
+    private final StatementRouter router = (sql, writeTransaction) ->
+            sql != null && !writeTransaction && sql.startsWith("SELECT") ? REPLICA : LEADER;
+
+    @Test
+    void autoCommitIsRestoredOnPhysicalConnectionAfterCommittedTransaction() throws Exception {
+        MultiRoutingDataSource dsMultiRouting = mock(MultiRoutingDataSource.class);
+        Connection leader = mock(Connection.class);
+        when(dsMultiRouting.getConnection(LEADER, WorkloadClass.OLTP)).thenReturn(leader);
+        Connection connection = StatementRoutingProxy.wrap(dsMultiRouting, router, WorkloadClass.OLTP);
+
+        connection.setAutoCommit(false);
+        connection.prepareStatement("UPDATE t SET x = 1");
+        connection.commit();
+        connection.setAutoCommit(true);
+        connection.prepareStatement("UPDATE t SET x = 2");
+        connection.close();
+
+        InOrder order = inOrder(leader);
+        order.verify(leader).setAutoCommit(false);
+        order.verify(leader).prepareStatement("UPDATE t SET x = 1");
+        order.verify(leader).commit();
+        order.verify(leader).setAutoCommit(true);
+        order.verify(leader).prepareStatement("UPDATE t SET x = 2");
+        order.verify(leader).close();
+        verify(dsMultiRouting, times(1)).getConnection(LEADER, WorkloadClass.OLTP);
+    }
+
+    @Test
+    void autoCommitIsRestoredOnEveryConnectionUsedInManualCommitMode() throws Exception {
+        MultiRoutingDataSource dsMultiRouting = mock(MultiRoutingDataSource.class);
+        Connection leader = mock(Connection.class);
+        Connection replica = mock(Connection.class);
+        when(dsMultiRouting.getConnection(LEADER, WorkloadClass.OLTP)).thenReturn(leader);
+        when(dsMultiRouting.getConnection(REPLICA, WorkloadClass.OLTP)).thenReturn(replica);
+        Connection connection = StatementRoutingProxy.wrap(dsMultiRouting, router, WorkloadClass.OLTP);
+
+        connection.setReadOnly(true);
+        connection.setAutoCommit(false);
+        connection.prepareStatement("SELECT * FROM t");
+        connection.rollback();
+        connection.setReadOnly(false);
+        connection.prepareStatement("UPDATE t SET x = 1");
+        connection.commit();
+        connection.setAutoCommit(true);
+
+        verify(replica).setAutoCommit(false);
+        verify(replica).rollback();
+        verify(replica).setAutoCommit(true);
+        verify(leader).setAutoCommit(false);
+        verify(leader).commit();
+        verify(leader).setAutoCommit(true);
+    }
+}